@@ -0,0 +1,110 @@
+package org.opengis.cite.wfs30.openapi3;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.reprezen.kaizen.oasparser.OpenApi3Parser;
+import com.reprezen.kaizen.oasparser.model3.OpenApi3;
+
+/**
+ * Measures the identification of the test points in synthetic OpenAPI documents with a growing number of paths.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OpenApiUtilsBenchmark {
+
+    @Param({ "10", "1000", "10000" })
+    private int noOfPaths;
+
+    private OpenApi3 apiModel;
+
+    private OpenApiPathIndex pathIndex;
+
+    private String collectionName;
+
+    @Setup
+    public void parseOpenApiDocument()
+                            throws IOException {
+        File openApiDocument = File.createTempFile( "openapi", ".json" );
+        openApiDocument.deleteOnExit();
+        int noOfCollections = Math.max( 1, ( noOfPaths - 4 ) / 2 );
+        Files.write( openApiDocument.toPath(),
+                     createOpenApiDocument( noOfCollections ).getBytes( StandardCharsets.UTF_8 ) );
+        this.apiModel = new OpenApi3Parser().parse( openApiDocument, false );
+        this.pathIndex = new OpenApiPathIndex( apiModel );
+        this.collectionName = "collection" + noOfCollections / 2;
+    }
+
+    @Benchmark
+    public List<TestPoint> retrieveTestPoints() {
+        return OpenApiUtils.retrieveTestPoints( apiModel );
+    }
+
+    @Benchmark
+    public List<TestPoint> retrieveTestPointsForCollections() {
+        return OpenApiUtils.retrieveTestPointsForCollections( apiModel, -1 );
+    }
+
+    @Benchmark
+    public List<TestPoint> retrieveTestPointsForCollection() {
+        return OpenApiUtils.retrieveTestPointsForCollection( apiModel, collectionName );
+    }
+
+    @Benchmark
+    public List<TestPoint> retrieveTestPointsForCollection_indexed() {
+        return OpenApiUtils.retrieveTestPointsForCollection( pathIndex, collectionName );
+    }
+
+    @Benchmark
+    public OpenApiPathIndex createPathIndex() {
+        return new OpenApiPathIndex( apiModel );
+    }
+
+    private static String createOpenApiDocument( int noOfCollections ) {
+        StringBuilder sb = new StringBuilder();
+        sb.append( "{\"openapi\":\"3.0.1\",\"info\":{\"title\":\"Benchmark\",\"version\":\"1.0\"}," );
+        sb.append( "\"servers\":[{\"url\":\"http://localhost:8090/wfs3\"}],\"paths\":{" );
+        appendPath( sb, "/", false );
+        appendPath( sb, "/api", false );
+        appendPath( sb, "/conformance", false );
+        appendPath( sb, "/collections", false );
+        for ( int i = 0; i < noOfCollections; i++ ) {
+            appendPath( sb, "/collections/collection" + i, false );
+            appendPath( sb, "/collections/collection" + i + "/items", true );
+        }
+        sb.setLength( sb.length() - 1 );
+        sb.append( "}}" );
+        return sb.toString();
+    }
+
+    private static void appendPath( StringBuilder sb, String path, boolean withLimit ) {
+        sb.append( '"' ).append( path ).append( "\":{\"get\":{" );
+        if ( withLimit )
+            sb.append( "\"parameters\":[{\"name\":\"limit\",\"in\":\"query\",\"schema\":{\"type\":\"integer\",\"minimum\":1,\"maximum\":1000}}]," );
+        sb.append( "\"responses\":{\"200\":{\"description\":\"OK\",\"content\":{" );
+        sb.append( "\"application/json\":{\"schema\":{\"type\":\"object\"}}}}}}}," );
+    }
+
+}
@@ -0,0 +1,117 @@
+package org.opengis.cite.wfs30.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.restassured.path.json.JsonPath;
+
+/**
+ * Measures counting the features of all pages of a collection served by a local stub server.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeaturePagingBenchmark {
+
+    private static final int FEATURES_PER_PAGE = 100;
+
+    @Param({ "10", "100" })
+    private int noOfPages;
+
+    private HttpServer server;
+
+    private JsonPath firstPage;
+
+    private String secondPageUrl;
+
+    @Setup
+    public void startServer()
+                            throws IOException {
+        this.server = HttpServer.create( new InetSocketAddress( "localhost", 0 ), 0 );
+        this.server.createContext( "/collections/lakes/items", this::respond );
+        this.server.start();
+        this.firstPage = new JsonPath( createPage( 0 ) );
+        this.secondPageUrl = itemsUrl( FEATURES_PER_PAGE );
+    }
+
+    @TearDown
+    public void stopServer() {
+        server.stop( 0 );
+    }
+
+    @Benchmark
+    public int collectNumberOfAllReturnedFeatures()
+                            throws URISyntaxException {
+        return JsonUtils.collectNumberOfAllReturnedFeatures( firstPage, -1 );
+    }
+
+    @Benchmark
+    public int walkPipelined()
+                            throws URISyntaxException {
+        return new FeaturePageWalker( -1, true ).walk( secondPageUrl );
+    }
+
+    private void respond( HttpExchange exchange )
+                            throws IOException {
+        String query = exchange.getRequestURI().getQuery();
+        int startIndex = query != null && query.startsWith( "startindex=" ) ? Integer.parseInt( query.substring( 11 ) )
+                                                                              : 0;
+        byte[] page = createPage( startIndex ).getBytes( StandardCharsets.UTF_8 );
+        exchange.getResponseHeaders().add( "Content-Type", "application/geo+json" );
+        exchange.sendResponseHeaders( 200, page.length );
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write( page );
+        }
+    }
+
+    private String createPage( int startIndex ) {
+        StringBuilder sb = new StringBuilder( "{\"type\":\"FeatureCollection\",\"features\":[" );
+        for ( int i = startIndex; i < startIndex + FEATURES_PER_PAGE; i++ ) {
+            if ( i > startIndex )
+                sb.append( ',' );
+            sb.append( "{\"type\":\"Feature\",\"id\":\"lake" ).append( i ).append( "\"," );
+            sb.append( "\"properties\":{\"name\":\"Lake " ).append( i ).append( "\"}," );
+            sb.append( "\"geometry\":{\"type\":\"Point\",\"coordinates\":[13.4,52.5]}}" );
+        }
+        sb.append( "],\"links\":[{\"rel\":\"self\",\"type\":\"application/geo+json\",\"href\":\"" );
+        sb.append( itemsUrl( startIndex ) ).append( "\"}" );
+        int nextIndex = startIndex + FEATURES_PER_PAGE;
+        if ( nextIndex < noOfPages * FEATURES_PER_PAGE ) {
+            sb.append( ",{\"rel\":\"next\",\"type\":\"application/geo+json\",\"href\":\"" );
+            sb.append( itemsUrl( nextIndex ) ).append( "\"}" );
+        }
+        sb.append( "]}" );
+        return sb.toString();
+    }
+
+    private String itemsUrl( int startIndex ) {
+        return "http://localhost:" + server.getAddress().getPort() + "/collections/lakes/items?startindex="
+               + startIndex;
+    }
+
+}
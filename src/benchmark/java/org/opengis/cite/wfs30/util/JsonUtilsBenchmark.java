@@ -0,0 +1,94 @@
+package org.opengis.cite.wfs30.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.restassured.path.json.JsonPath;
+
+/**
+ * Measures the evaluation of large link and feature arrays and the formatting of bounding boxes.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonUtilsBenchmark {
+
+    private static final List<String> MEDIA_TYPES = Arrays.asList( "application/json", "application/geo+json",
+                                                                   "text/html" );
+
+    @Param({ "10", "1000", "10000" })
+    private int noOfItems;
+
+    private List<Map<String, Object>> links;
+
+    private String features;
+
+    private BBox bbox;
+
+    @Setup
+    public void createItems() {
+        this.links = new ArrayList<>();
+        String[] rels = { "self", "alternate", "next", "prev", "item" };
+        String[] types = { "application/json", "application/geo+json", "text/html", "application/xml" };
+        for ( int i = 0; i < noOfItems; i++ ) {
+            Map<String, Object> link = new HashMap<>();
+            link.put( "href", "http://localhost:8090/collections/lakes/items/" + i );
+            link.put( "rel", rels[i % rels.length] );
+            link.put( "type", types[i % types.length] );
+            links.add( link );
+        }
+        // only the last feature has an id of type string, all features must be iterated
+        StringBuilder sb = new StringBuilder( "{\"type\":\"FeatureCollection\",\"features\":[" );
+        for ( int i = 0; i < noOfItems; i++ ) {
+            if ( i > 0 )
+                sb.append( ',' );
+            sb.append( "{\"type\":\"Feature\",\"id\":" );
+            if ( i == noOfItems - 1 )
+                sb.append( "\"feature" ).append( i ).append( '"' );
+            else
+                sb.append( i );
+            sb.append( ",\"properties\":{\"name\":\"Lake " ).append( i ).append( "\"}," );
+            sb.append( "\"geometry\":{\"type\":\"Point\",\"coordinates\":[" ).append( i % 180 ).append( ",52.5]}}" );
+        }
+        sb.append( "]}" );
+        this.features = sb.toString();
+        this.bbox = new BBox( -12.123456789, 10.5, 12.987654321, 20.25 );
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> findLinksWithSupportedMediaTypeByRel() {
+        return JsonUtils.findLinksWithSupportedMediaTypeByRel( links, MEDIA_TYPES, "alternate" );
+    }
+
+    @Benchmark
+    public String parseFeatureId() {
+        return JsonUtils.parseFeatureId( new JsonPath( features ) );
+    }
+
+    @Benchmark
+    public String bboxAsQueryParameter() {
+        return bbox.asQueryParameter();
+    }
+
+}
@@ -2,17 +2,52 @@ package org.opengis.cite.wfs30;
 
 import static io.restassured.RestAssured.given;
 
-import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 
+import org.opengis.cite.wfs30.openapi3.OpenApiPathIndex;
+import org.opengis.cite.wfs30.openapi3.TestPoint;
+import org.opengis.cite.wfs30.openapi3.TestPointCache;
 import org.opengis.cite.wfs30.util.ClientUtils;
+import org.opengis.cite.wfs30.util.ConditionalRequestFilter;
+import org.opengis.cite.wfs30.util.FileDownload;
+import org.opengis.cite.wfs30.util.JsonPathCache;
+import org.opengis.cite.wfs30.util.PageStore;
+import org.opengis.cite.wfs30.util.PageStore.StoredPage;
+import org.opengis.cite.wfs30.util.PooledHttpClient;
+import org.opengis.cite.wfs30.util.RequestExecutor;
+import org.opengis.cite.wfs30.util.RequestMetrics;
+import org.opengis.cite.wfs30.util.RequestTiming;
+import org.opengis.cite.wfs30.util.RequestTimingFilter;
+import org.opengis.cite.wfs30.util.RunCache;
+import org.opengis.cite.wfs30.util.SpillingOutputStream;
+import org.opengis.cite.wfs30.util.TestSuiteLogger;
+import org.testng.ISuite;
 import org.testng.ITestContext;
+import org.testng.Reporter;
+import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
 
+import com.reprezen.kaizen.oasparser.model3.OpenApi3;
+
+import io.restassured.filter.log.LogDetail;
 import io.restassured.filter.log.RequestLoggingFilter;
 import io.restassured.filter.log.ResponseLoggingFilter;
+import io.restassured.path.json.JsonPath;
+import io.restassured.response.Response;
 import io.restassured.specification.RequestSpecification;
 
 /**
@@ -21,15 +56,28 @@ import io.restassured.specification.RequestSpecification;
  */
 public class CommonFixture {
 
-    private ByteArrayOutputStream requestOutputStream = new ByteArrayOutputStream();
+    /**
+     * The messages are kept per thread as test methods with a parallel data provider of the same instance may be
+     * invoked concurrently.
+     */
+    private final ThreadLocal<MessageLog> messageLog = ThreadLocal.withInitial( this::createMessageLog );
+
+    /**
+     * The open message logs of all threads, closed when the test class is completed.
+     */
+    private final Set<MessageLog> messageLogs = ConcurrentHashMap.newKeySet();
 
-    private ByteArrayOutputStream responseOutputStream = new ByteArrayOutputStream();
+    protected URI rootUri;
 
-    protected RequestLoggingFilter requestLoggingFilter;
+    protected RequestExecutor requestExecutor;
 
-    protected ResponseLoggingFilter responseLoggingFilter;
+    protected PooledHttpClient pooledHttpClient;
 
-    protected URI rootUri;
+    private JsonPathCache jsonPathCache;
+
+    private RequestMetrics requestMetrics;
+
+    private RunCache runCache;
 
     /**
      * Initializes the common test fixture with a client component for interacting with HTTP endpoints.
@@ -41,6 +89,11 @@ public class CommonFixture {
     public void initCommonFixture( ITestContext testContext ) {
         initLogging();
         rootUri = (URI) testContext.getSuite().getAttribute( SuiteAttribute.IUT.getName() );
+        requestExecutor = (RequestExecutor) testContext.getSuite().getAttribute( SuiteAttribute.REQUEST_EXECUTOR.getName() );
+        pooledHttpClient = (PooledHttpClient) testContext.getSuite().getAttribute( SuiteAttribute.HTTP_CLIENT_POOL.getName() );
+        jsonPathCache = (JsonPathCache) testContext.getSuite().getAttribute( SuiteAttribute.JSON_PATH_CACHE.getName() );
+        requestMetrics = (RequestMetrics) testContext.getSuite().getAttribute( SuiteAttribute.REQUEST_METRICS.getName() );
+        runCache = (RunCache) testContext.getSuite().getAttribute( SuiteAttribute.RUN_CACHE.getName() );
     }
 
     @BeforeMethod
@@ -48,16 +101,311 @@ public class CommonFixture {
         initLogging();
     }
 
+    /**
+     * Closes the message logs of all threads, so the temporary files of large messages are deleted.
+     */
+    @AfterClass(alwaysRun = true)
+    public void closeMessages() {
+        for ( MessageLog log : messageLogs )
+            log.close();
+        messageLogs.clear();
+        messageLog.remove();
+    }
+
     public String getRequest() {
-        return requestOutputStream.toString();
+        return messageLog.get().requestOutputStream.toString();
     }
 
     public String getResponse() {
-        return responseOutputStream.toString();
+        return messageLog.get().responseOutputStream.toString();
     }
 
+    /**
+     * @return the timings of the requests sent by the current test method (with {@link #init()}), never
+     *         <code>null</code>
+     */
+    public List<RequestTiming> getRequestTimings() {
+        return Collections.unmodifiableList( new ArrayList<>( messageLog.get().requestTimings ) );
+    }
+
+    /**
+     * Creates a request which is captured in the request and response messages of the test. The request is timed, the
+     * timing is recorded in the {@link RequestMetrics} of the suite and available by {@link #getRequestTimings()}.
+     *
+     * @return the request, never <code>null</code>
+     */
     protected RequestSpecification init() {
-        return given().filters( requestLoggingFilter, responseLoggingFilter ).log().all();
+        MessageLog log = messageLog.get();
+        RequestSpecification request = initWithoutLogging().filters( log.requestLoggingFilter,
+                                                                     log.responseLoggingFilter,
+                                                                     new RequestTimingFilter( requestMetrics,
+                                                                                              log::addRequestTiming ) );
+        return request.log().all();
+    }
+
+    /**
+     * Creates a request like {@link #init()}, which is revalidated with a conditional request if the resource is stored
+     * in the run cache of the suite. If the resource is unchanged, the stored body is returned with status code 200.
+     *
+     * @param cacheKey
+     *            the uri of the requested resource, never <code>null</code>
+     * @return the request, never <code>null</code>
+     */
+    protected RequestSpecification initRevalidated( String cacheKey ) {
+        RequestSpecification request = init();
+        if ( runCache != null )
+            request.filter( new ConditionalRequestFilter( runCache, cacheKey ) );
+        return request;
+    }
+
+    /**
+     * Downloads the document with a GET request and streams the body into the passed file, so the document is not
+     * buffered on the heap. The request and the status line and headers of the response are captured in the messages
+     * of the test, the request is timed like the requests created by {@link #init()}. If the document is stored in the
+     * run cache of the suite, it is revalidated with a conditional request; if it is unchanged, the stored body is
+     * copied into the file and the download is returned with status code 200.
+     *
+     * @param cacheKey
+     *            the uri of the document in the run cache, never <code>null</code>
+     * @param url
+     *            the url of the document, never <code>null</code>
+     * @param accept
+     *            the Accept header of the request, may be <code>null</code>
+     * @param file
+     *            the file to write the body to, overwritten if it exists, never <code>null</code>
+     * @return the download, never <code>null</code>
+     * @throws IOException
+     *             if the request failed or the file could not be written
+     */
+    protected FileDownload downloadToFile( String cacheKey, String url, String accept, File file )
+                            throws IOException {
+        Map<String, String> requestHeaders = new LinkedHashMap<>();
+        if ( accept != null )
+            requestHeaders.put( "Accept", accept );
+        RunCache.CachedResource cachedResource = runCache != null ? runCache.get( cacheKey ) : null;
+        if ( cachedResource != null ) {
+            if ( cachedResource.getEtag() != null )
+                requestHeaders.put( "If-None-Match", cachedResource.getEtag() );
+            if ( cachedResource.getLastModified() != null )
+                requestHeaders.put( "If-Modified-Since", cachedResource.getLastModified() );
+        }
+        MessageLog log = messageLog.get();
+        RequestSpecification request = initWithoutLogging().filters( log.requestLoggingFilter,
+                                                                     log.statusLoggingFilter,
+                                                                     log.headersLoggingFilter );
+        request.headers( requestHeaders );
+        FileDownload download = FileDownload.download( request, url, file );
+        if ( cachedResource != null && download.getStatusCode() == 304 ) {
+            runCache.copyBody( cacheKey, file );
+            runCache.markUnchanged( cacheKey );
+            download = download.asUnchanged( cachedResource.getContentType() );
+            log.log( "[revalidated, body from the run cache]" );
+        } else if ( runCache != null && download.getStatusCode() == 200
+                    && ( download.getEtag() != null || download.getLastModified() != null ) ) {
+            runCache.store( cacheKey, download.getEtag(), download.getLastModified(), download.getContentType(), file );
+        }
+        log.log( "[body stored in " + file + ", " + download.getSize() + " bytes]" );
+        if ( requestMetrics != null )
+            requestMetrics.record( download.getTiming() );
+        log.addRequestTiming( download.getTiming(), null );
+        return download;
+    }
+
+    /**
+     * Checks if the validation can be skipped as the resource was revalidated as unchanged and passed the validation in
+     * a previous run. If so, this is reported in the output of the current test result, so the outcome is
+     * distinguishable from a validation executed in this run.
+     *
+     * @param cacheKey
+     *            the uri of the resource, never <code>null</code>
+     * @param validation
+     *            the name of the validation, never <code>null</code>
+     * @return <code>true</code> if the outcome of the previous run can be reused, <code>false</code> if the validation
+     *         must be executed
+     */
+    protected boolean reusePassedValidation( String cacheKey, String validation ) {
+        if ( runCache == null || !runCache.reusePassedValidation( cacheKey, validation ) )
+            return false;
+        String message = "Validation '" + validation + "' of " + cacheKey
+                         + " not executed: the resource is unchanged (304 Not Modified) and passed the validation in a previous run ("
+                         + TestRunArg.RUNCACHE + ")";
+        Reporter.log( message );
+        TestSuiteLogger.log( Level.INFO, message );
+        return true;
+    }
+
+    /**
+     * Records in the run cache of the suite that the resource passed the validation.
+     *
+     * @param cacheKey
+     *            the uri of the resource, never <code>null</code>
+     * @param validation
+     *            the name of the validation, never <code>null</code>
+     */
+    protected void recordPassedValidation( String cacheKey, String validation ) {
+        if ( runCache != null )
+            runCache.recordPassedValidation( cacheKey, validation );
+    }
+
+    /**
+     * Creates a request which is not captured in the request and response messages of the test, e.g. to harvest
+     * reference data.
+     *
+     * @return the request, never <code>null</code>
+     */
+    protected RequestSpecification initWithoutLogging() {
+        RequestSpecification request = given();
+        if ( requestExecutor != null )
+            request.filter( requestExecutor.createHostLimitFilter() );
+        if ( pooledHttpClient != null )
+            request.config( pooledHttpClient.getRestAssuredConfig() );
+        return request;
+    }
+
+    /**
+     * Parses the body of the passed response. The parsed document is shared with other tests evaluating the response
+     * of the same uri and must not be modified.
+     *
+     * @param uri
+     *            the uri the response was requested from, never <code>null</code>
+     * @param response
+     *            the response, never <code>null</code>
+     * @return the parsed document, never <code>null</code>
+     */
+    protected JsonPath jsonPath( String uri, Response response ) {
+        long start = System.nanoTime();
+        JsonPath jsonPath = jsonPathCache == null ? response.jsonPath() : jsonPathCache.jsonPath( uri, response );
+        messageLog.get().addParseTime( response, System.nanoTime() - start );
+        return jsonPath;
+    }
+
+    /**
+     * Returns the parsed document of the stored page, shared with other tests evaluating the page of the same uri.
+     *
+     * @param uri
+     *            the uri the page was requested from, never <code>null</code>
+     * @param page
+     *            the stored body of the response, never <code>null</code>
+     * @return the parsed document, never <code>null</code>
+     */
+    protected JsonPath jsonPath( String uri, StoredPage page ) {
+        if ( jsonPathCache == null )
+            return new JsonPath( page.asInputStream() );
+        return jsonPathCache.jsonPath( uri, page );
+    }
+
+    /**
+     * Appends the body of the response to the page store, so the response does not need to be kept on the heap.
+     *
+     * @param pageStore
+     *            the page store to append to, never <code>null</code>
+     * @param response
+     *            the response to store, never <code>null</code>
+     * @return the stored page, never <code>null</code>
+     */
+    protected StoredPage storePage( PageStore pageStore, Response response ) {
+        try {
+            return pageStore.append( response.asByteArray() );
+        } catch ( IOException e ) {
+            throw new UncheckedIOException( "Could not store the response in " + pageStore.getFile(), e );
+        }
+    }
+
+    /**
+     * Returns the page store of the suite. If the store was not created yet (e.g. as the suite was not started by the
+     * {@link SuiteFixtureListener}), it is created in a temporary file and added to the suite.
+     *
+     * @param testContext
+     *            the test context, never <code>null</code>
+     * @return the page store, never <code>null</code>
+     */
+    protected PageStore pageStore( ITestContext testContext ) {
+        ISuite suite = testContext.getSuite();
+        synchronized ( suite ) {
+            PageStore pageStore = (PageStore) suite.getAttribute( SuiteAttribute.PAGE_STORE.getName() );
+            if ( pageStore != null )
+                return pageStore;
+            try {
+                pageStore = PageStore.createTempFile();
+            } catch ( IOException e ) {
+                throw new UncheckedIOException( "Could not create page store", e );
+            }
+            suite.setAttribute( SuiteAttribute.PAGE_STORE.getName(), pageStore );
+            return pageStore;
+        }
+    }
+
+    /**
+     * Returns the path index of the OpenAPI document of the suite. If the index was not created yet (e.g. as only the
+     * OpenAPI document is set), it is created from the OpenAPI document and added to the suite.
+     *
+     * @param testContext
+     *            the test context, never <code>null</code>
+     * @return the path index, <code>null</code> if the suite does not contain an OpenAPI document
+     */
+    protected OpenApiPathIndex apiPathIndex( ITestContext testContext ) {
+        ISuite suite = testContext.getSuite();
+        synchronized ( suite ) {
+            OpenApiPathIndex pathIndex = (OpenApiPathIndex) suite.getAttribute( SuiteAttribute.API_PATH_INDEX.getName() );
+            if ( pathIndex != null )
+                return pathIndex;
+            OpenApi3 apiModel = (OpenApi3) suite.getAttribute( SuiteAttribute.API_MODEL.getName() );
+            if ( apiModel == null )
+                return null;
+            pathIndex = new OpenApiPathIndex( apiModel );
+            suite.setAttribute( SuiteAttribute.API_PATH_INDEX.getName(), pathIndex );
+            return pathIndex;
+        }
+    }
+
+    /**
+     * Returns the memoized test points of the OpenAPI document of the suite. If the cache was not created yet, it is
+     * created from the path index and added to the suite.
+     *
+     * @param testContext
+     *            the test context, never <code>null</code>
+     * @return the test point cache, <code>null</code> if the suite does not contain an OpenAPI document
+     */
+    protected TestPointCache testPointCache( ITestContext testContext ) {
+        ISuite suite = testContext.getSuite();
+        synchronized ( suite ) {
+            TestPointCache testPointCache = (TestPointCache) suite.getAttribute( SuiteAttribute.TEST_POINT_CACHE.getName() );
+            if ( testPointCache != null )
+                return testPointCache;
+            OpenApiPathIndex pathIndex = apiPathIndex( testContext );
+            if ( pathIndex == null )
+                return null;
+            testPointCache = new TestPointCache( pathIndex );
+            suite.setAttribute( SuiteAttribute.TEST_POINT_CACHE.getName(), testPointCache );
+            return testPointCache;
+        }
+    }
+
+    /**
+     * Wraps the test points in the parameters of a data provider, one invocation per test point. The test points are
+     * consumed on demand, so the data provider does not hold all combinations of the template variables. This holds
+     * only for data providers which are run sequentially, TestNG collects all parameters of a parallel data provider
+     * before the invocations are submitted (parallel data providers are run sequentially with one thread, see
+     * {@link DataProviderListener}).
+     *
+     * @param testPoints
+     *            the test points, never <code>null</code>
+     * @return the parameters of the invocations, never <code>null</code>
+     */
+    protected static Iterator<Object[]> testPointParameters( Iterator<TestPoint> testPoints ) {
+        return new Iterator<Object[]>() {
+
+            @Override
+            public boolean hasNext() {
+                return testPoints.hasNext();
+            }
+
+            @Override
+            public Object[] next() {
+                return new Object[] { testPoints.next() };
+            }
+
+        };
     }
 
     /**
@@ -86,12 +434,87 @@ public class CommonFixture {
      */
 
     private void initLogging() {
-        this.requestOutputStream = new ByteArrayOutputStream();
-        this.responseOutputStream = new ByteArrayOutputStream();
-        PrintStream requestPrintStream = new PrintStream( requestOutputStream, true );
-        PrintStream responsePrintStream = new PrintStream( responseOutputStream, true );
-        requestLoggingFilter = new RequestLoggingFilter( requestPrintStream );
-        responseLoggingFilter = new ResponseLoggingFilter( responsePrintStream );
+        MessageLog previous = messageLog.get();
+        messageLog.set( createMessageLog() );
+        messageLogs.remove( previous );
+        previous.close();
+    }
+
+    private MessageLog createMessageLog() {
+        MessageLog log = new MessageLog();
+        messageLogs.add( log );
+        return log;
+    }
+
+    /**
+     * Captures the request and response messages of a thread. Messages larger than {@link #MEMORY_THRESHOLD} are moved
+     * to a temporary file, only head and tail of such messages are reported.
+     */
+    private static class MessageLog {
+
+        private static final int MEMORY_THRESHOLD = 256 * 1024;
+
+        private static final int EXCERPT_SIZE = 32 * 1024;
+
+        private final SpillingOutputStream requestOutputStream = new SpillingOutputStream( MEMORY_THRESHOLD,
+                                                                                           EXCERPT_SIZE );
+
+        private final SpillingOutputStream responseOutputStream = new SpillingOutputStream( MEMORY_THRESHOLD,
+                                                                                            EXCERPT_SIZE );
+
+        private final RequestLoggingFilter requestLoggingFilter;
+
+        private final ResponseLoggingFilter responseLoggingFilter;
+
+        private final ResponseLoggingFilter statusLoggingFilter;
+
+        private final ResponseLoggingFilter headersLoggingFilter;
+
+        private final PrintStream responsePrintStream;
+
+        private final List<RequestTiming> requestTimings = new ArrayList<>();
+
+        private Response lastResponse;
+
+        private RequestTiming lastRequestTiming;
+
+        private MessageLog() {
+            PrintStream requestPrintStream = new PrintStream( requestOutputStream, true );
+            responsePrintStream = new PrintStream( responseOutputStream, true );
+            requestLoggingFilter = new RequestLoggingFilter( requestPrintStream );
+            responseLoggingFilter = new ResponseLoggingFilter( responsePrintStream );
+            statusLoggingFilter = new ResponseLoggingFilter( LogDetail.STATUS, responsePrintStream );
+            headersLoggingFilter = new ResponseLoggingFilter( LogDetail.HEADERS, responsePrintStream );
+        }
+
+        /**
+         * Appends a note to the response message, e.g. about a body which is not logged.
+         */
+        private void log( String note ) {
+            responsePrintStream.println( note );
+        }
+
+        private void addRequestTiming( RequestTiming timing, Response response ) {
+            requestTimings.add( timing );
+            lastResponse = response;
+            lastRequestTiming = timing;
+        }
+
+        /**
+         * The parse time is added to the timing of the response, if it is the last response of the thread (only the
+         * last response is kept, as the responses may be large).
+         */
+        private void addParseTime( Response response, long nanos ) {
+            if ( response != null && response == lastResponse )
+                lastRequestTiming.addParse( nanos );
+        }
+
+        private void close() {
+            lastResponse = null;
+            requestOutputStream.close();
+            responseOutputStream.close();
+        }
+
     }
 
 }
\ No newline at end of file
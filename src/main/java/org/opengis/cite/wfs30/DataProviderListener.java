@@ -0,0 +1,70 @@
+package org.opengis.cite.wfs30;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+import org.testng.IAnnotationTransformer2;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.annotations.IConfigurationAnnotation;
+import org.testng.annotations.IDataProviderAnnotation;
+import org.testng.annotations.IFactoryAnnotation;
+import org.testng.annotations.ITestAnnotation;
+
+/**
+ * A listener that runs the parallel data providers sequentially if the test cases are run with one thread (
+ * {@link TestRunArg#NOOFTHREADS noofthreads} is 1). TestNG collects all parameters of a parallel data provider before
+ * the invocations are submitted, a sequential data provider is consumed on demand (e.g. the test points of the
+ * collections, which are generated lazily).
+ *
+ * The data provider annotations are transformed when the data providers are invoked, after the number of threads was
+ * added to the suite fixture by the {@link SuiteFixtureListener}.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class DataProviderListener implements ISuiteListener, IAnnotationTransformer2 {
+
+    private volatile ISuite suite;
+
+    @Override
+    public void onStart( ISuite suite ) {
+        this.suite = suite;
+    }
+
+    @Override
+    public void onFinish( ISuite suite ) {
+        this.suite = null;
+    }
+
+    @Override
+    public void transform( IDataProviderAnnotation annotation, Method method ) {
+        if ( annotation.isParallel() && isSequential() )
+            annotation.setParallel( false );
+    }
+
+    @Override
+    public void transform( ITestAnnotation annotation, Class testClass, Constructor testConstructor,
+                           Method testMethod ) {
+        // nothing to transform
+    }
+
+    @Override
+    public void transform( IConfigurationAnnotation annotation, Class testClass, Constructor testConstructor,
+                           Method testMethod ) {
+        // nothing to transform
+    }
+
+    @Override
+    public void transform( IFactoryAnnotation annotation, Method method ) {
+        // nothing to transform
+    }
+
+    private boolean isSequential() {
+        ISuite currentSuite = this.suite;
+        if ( currentSuite == null )
+            return false;
+        Object noOfThreads = currentSuite.getAttribute( SuiteAttribute.NO_OF_THREADS.getName() );
+        return noOfThreads instanceof Integer && (Integer) noOfThreads == 1;
+    }
+
+}
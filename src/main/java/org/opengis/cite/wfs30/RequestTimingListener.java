@@ -0,0 +1,55 @@
+package org.opengis.cite.wfs30;
+
+import java.util.List;
+import java.util.Locale;
+
+import org.opengis.cite.wfs30.util.RequestTiming;
+import org.testng.ITestResult;
+import org.testng.TestListenerAdapter;
+
+/**
+ * A listener that augments each test result with the timings of the requests sent by the test method, so slow
+ * endpoints can be identified from the report. The attribute "requestTimings" contains one line per request (total
+ * duration split into DNS lookup, connect, TLS handshake, time to first byte and download, parse duration and size of
+ * the response), the attribute "requestTimeMillis" the sum of the total durations.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class RequestTimingListener extends TestListenerAdapter {
+
+    @Override
+    public void onTestSuccess( ITestResult result ) {
+        super.onTestSuccess( result );
+        addRequestTimings( result );
+    }
+
+    @Override
+    public void onTestFailure( ITestResult result ) {
+        super.onTestFailure( result );
+        addRequestTimings( result );
+    }
+
+    @Override
+    public void onTestSkipped( ITestResult result ) {
+        super.onTestSkipped( result );
+        addRequestTimings( result );
+    }
+
+    void addRequestTimings( ITestResult result ) {
+        Object instance = result.getInstance();
+        if ( !( instance instanceof CommonFixture ) )
+            return;
+        List<RequestTiming> requestTimings = ( (CommonFixture) instance ).getRequestTimings();
+        if ( requestTimings.isEmpty() )
+            return;
+        StringBuilder timings = new StringBuilder();
+        double totalMillis = 0;
+        for ( RequestTiming requestTiming : requestTimings ) {
+            timings.append( requestTiming ).append( '\n' );
+            totalMillis += requestTiming.getTotalMillis();
+        }
+        result.setAttribute( "requestTimings", timings.toString() );
+        result.setAttribute( "requestTimeMillis", String.format( Locale.ROOT, "%.1f", totalMillis ) );
+    }
+
+}
@@ -5,9 +5,24 @@ import java.net.URI;
 import java.util.List;
 import java.util.Map;
 
+import org.opengis.cite.wfs30.openapi3.OpenApiModelCache;
+import org.opengis.cite.wfs30.openapi3.OpenApiPathIndex;
+import org.opengis.cite.wfs30.openapi3.TestPointCache;
+import org.opengis.cite.wfs30.util.CollectionSnapshots;
+import org.opengis.cite.wfs30.util.EndpointProfiler;
+import org.opengis.cite.wfs30.util.JsonPathCache;
+import org.opengis.cite.wfs30.util.LoadGenerator;
+import org.opengis.cite.wfs30.util.PageStore;
+import org.opengis.cite.wfs30.util.PooledHttpClient;
+import org.opengis.cite.wfs30.util.RequestExecutor;
+import org.opengis.cite.wfs30.util.RequestMetrics;
+import org.opengis.cite.wfs30.util.RunCache;
+
 import com.reprezen.kaizen.oasparser.model3.OpenApi3;
 import com.sun.jersey.api.client.Client;
 
+import io.restassured.path.json.JsonPath;
+
 /**
  * An enumerated type defining ISuite attributes that may be set to constitute a shared test fixture.
  */
@@ -34,11 +49,97 @@ public enum SuiteAttribute {
      */
     NO_OF_COLLECTIONS( "noOfCollections", Integer.class ),
 
+    /**
+     * The number of threads used to run the test cases of the collections.
+     */
+    NO_OF_THREADS( "noOfThreads", Integer.class ),
+
+    /**
+     * Executor sending requests asynchronously with a limited number of requests in flight per host.
+     */
+    REQUEST_EXECUTOR( "requestExecutor", RequestExecutor.class ),
+
+    /**
+     * Pooled HTTP client shared by all requests.
+     */
+    HTTP_CLIENT_POOL( "httpClientPool", PooledHttpClient.class ),
+
+    /**
+     * Cache of the parsed JSON documents of the responses.
+     */
+    JSON_PATH_CACHE( "jsonPathCache", JsonPathCache.class ),
+
+    /**
+     * True if the limit parameter of the collections should be probed.
+     */
+    LIMIT_PROBING( "limitProbing", Boolean.class ),
+
+    /**
+     * True if the next page of a collection should be requested while the current page is scanned.
+     */
+    PIPELINED_PAGING( "pipelinedPaging", Boolean.class ),
+
+    /**
+     * Profiler measuring the latency and throughput of the endpoints in the performance tests.
+     */
+    ENDPOINT_PROFILER( "endpointProfiler", EndpointProfiler.class ),
+
+    /**
+     * Load generator replaying a mix of requests, only set if load generation is enabled.
+     */
+    LOAD_GENERATOR( "loadGenerator", LoadGenerator.class ),
+
+    /**
+     * Registry of the timings of all requests sent by the tests.
+     */
+    REQUEST_METRICS( "requestMetrics", RequestMetrics.class ),
+
+    /**
+     * Persistent cache of the resources and validation outcomes of previous runs.
+     */
+    RUN_CACHE( "runCache", RunCache.class ),
+
+    /**
+     * Append-only store of the bodies of the downloaded pages.
+     */
+    PAGE_STORE( "pageStore", PageStore.class ),
+
+    /**
+     * Snapshots of the harvested collections.
+     */
+    COLLECTION_SNAPSHOTS( "collectionSnapshots", CollectionSnapshots.class ),
+
+    /**
+     * Parsed landing page (resource /); Added during execution.
+     */
+    LANDING_PAGE( "landingPage", JsonPath.class ),
+
     /**
      * Parsed OpenApi3 document resource /api; Added during execution.
      */
     API_MODEL( "apiModel", OpenApi3.class ),
 
+    /**
+     * On-disk cache of the compact models of validated OpenAPI documents.
+     */
+    API_MODEL_CACHE( "apiModelCache", OpenApiModelCache.class ),
+
+    /**
+     * Parse and validate only the tested path items of the OpenApi3 document.
+     */
+    LAZY_API_PARSING( "lazyApiParsing", Boolean.class ),
+
+    /**
+     * Index of the paths of the parsed OpenApi3 document; Added during execution.
+     */
+    API_PATH_INDEX( "apiPathIndex", OpenApiPathIndex.class ),
+
+    /**
+     * Test points of the collections and parameters of the paths of the parsed OpenApi3 document; Added during
+     * execution.
+     */
+    TEST_POINT_CACHE( "testPointCache", TestPointCache.class ),
+
     /**
      * Requirement classes parsed from /conformance; Added during execution.
      */
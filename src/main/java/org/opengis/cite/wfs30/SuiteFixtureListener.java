@@ -2,15 +2,36 @@ package org.opengis.cite.wfs30;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
+import org.opengis.cite.wfs30.openapi3.OpenApiModelCache;
+import org.opengis.cite.wfs30.performance.EndpointPerformance;
+import org.opengis.cite.wfs30.performance.LoadGeneration;
 import org.opengis.cite.wfs30.util.ClientUtils;
+import org.opengis.cite.wfs30.util.CollectionSnapshots;
+import org.opengis.cite.wfs30.util.EndpointProfiler;
+import org.opengis.cite.wfs30.util.JsonPathCache;
+import org.opengis.cite.wfs30.util.LoadGenerator;
+import org.opengis.cite.wfs30.util.PageStore;
+import org.opengis.cite.wfs30.util.PooledHttpClient;
+import org.opengis.cite.wfs30.util.RequestExecutor;
+import org.opengis.cite.wfs30.util.RequestMetrics;
+import org.opengis.cite.wfs30.util.RunCache;
 import org.opengis.cite.wfs30.util.TestSuiteLogger;
 import org.opengis.cite.wfs30.util.URIUtils;
+import org.testng.IAlterSuiteListener;
 import org.testng.ISuite;
 import org.testng.ISuiteListener;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
 
 import com.sun.jersey.api.client.Client;
 
@@ -23,18 +44,79 @@ import com.sun.jersey.api.client.Client;
  * Attributes set on an ISuite instance are not inherited by constituent test group contexts (ITestContext). However,
  * suite attributes are still accessible from lower contexts.
  *
+ * The performance tests are added to the test suite definition before the suite is run, only if endpoint profiling or
+ * load generation is configured.
+ *
  * @see org.testng.ISuite ISuite interface
  */
-public class SuiteFixtureListener implements ISuiteListener {
+public class SuiteFixtureListener implements ISuiteListener, IAlterSuiteListener {
+
+    private static final int DEFAULT_NO_OF_THREADS = 1;
+
+    private static final int DEFAULT_MAX_REQUESTS_PER_HOST = 8;
+
+    private static final int DEFAULT_HARVEST_MAX_FEATURES = 100000;
+
+    private static final int DEFAULT_PERFORMANCE_WARM_UP = 5;
+
+    private static final int DEFAULT_PERFORMANCE_ITERATIONS = 50;
+
+    private static final int DEFAULT_PERFORMANCE_CONCURRENCY = 1;
+
+    private static final int DEFAULT_LOAD_RATE = 10;
+
+    private static final int DEFAULT_LOAD_DURATION = 60;
+
+    private static final long JSON_PATH_CACHE_SIZE = 32 * 1024 * 1024;
+
+    private static final int NO_OF_SLOWEST_ENDPOINTS = 10;
+
+    private static final String SNAPSHOT = "SNAPSHOT";
+
+    static final String PERFORMANCE_TEST_NAME = "Performance";
+
+    @Override
+    public void alter( List<XmlSuite> suites ) {
+        for ( XmlSuite suite : suites )
+            addPerformanceTests( suite );
+    }
 
     @Override
     public void onStart( ISuite suite ) {
         processSuiteParameters( suite );
         registerClientComponent( suite );
+        registerRequestExecutor( suite );
+        registerPooledHttpClient( suite );
+        suite.setAttribute( SuiteAttribute.REQUEST_METRICS.getName(), new RequestMetrics() );
+        registerRunCache( suite );
+        registerApiModelCache( suite );
+        registerPageStore( suite );
+        registerCollectionSnapshots( suite );
+        registerEndpointProfiler( suite );
+        registerLoadGenerator( suite );
+        suite.setAttribute( SuiteAttribute.JSON_PATH_CACHE.getName(), new JsonPathCache( JSON_PATH_CACHE_SIZE ) );
     }
 
     @Override
     public void onFinish( ISuite suite ) {
+        RequestExecutor requestExecutor = (RequestExecutor) suite.getAttribute( SuiteAttribute.REQUEST_EXECUTOR.getName() );
+        if ( requestExecutor != null )
+            requestExecutor.shutdown();
+        shutdownPooledHttpClient( suite );
+        writeRequestMetrics( suite );
+        RunCache runCache = (RunCache) suite.getAttribute( SuiteAttribute.RUN_CACHE.getName() );
+        if ( runCache != null )
+            TestSuiteLogger.log( Level.INFO, "Run cache: " + runCache );
+        OpenApiModelCache apiModelCache = (OpenApiModelCache) suite.getAttribute( SuiteAttribute.API_MODEL_CACHE.getName() );
+        if ( apiModelCache != null )
+            TestSuiteLogger.log( Level.CONFIG, "OpenAPI model cache: " + apiModelCache );
+        CollectionSnapshots collectionSnapshots = (CollectionSnapshots) suite.getAttribute( SuiteAttribute.COLLECTION_SNAPSHOTS.getName() );
+        if ( collectionSnapshots != null )
+            collectionSnapshots.deleteAll();
+        closePageStore( suite );
+        JsonPathCache jsonPathCache = (JsonPathCache) suite.getAttribute( SuiteAttribute.JSON_PATH_CACHE.getName() );
+        if ( jsonPathCache != null )
+            TestSuiteLogger.log( Level.CONFIG, "JsonPath cache: " + jsonPathCache );
         if ( null != System.getProperty( "deleteSubjectOnFinish" ) ) {
             deleteTempFiles( suite );
             System.getProperties().remove( "deleteSubjectOnFinish" );
@@ -79,6 +161,33 @@ public class SuiteFixtureListener implements ISuiteListener {
                                  String.format( "Could not parse parameter %s: %s. Expected is a valid integer",
                                                 TestRunArg.NOOFCOLLECTIONS.toString(), noOfCollections ) );
         }
+
+        processNoOfThreads( suite, params );
+
+        String limitProbing = params.get( TestRunArg.LIMITPROBING.toString() );
+        suite.setAttribute( SuiteAttribute.LIMIT_PROBING.getName(), Boolean.parseBoolean( limitProbing ) );
+
+        String pipelinedPaging = params.get( TestRunArg.PIPELINEDPAGING.toString() );
+        suite.setAttribute( SuiteAttribute.PIPELINED_PAGING.getName(),
+                            pipelinedPaging == null || Boolean.parseBoolean( pipelinedPaging ) );
+
+        String lazyApiParsing = params.get( TestRunArg.LAZYAPIPARSING.toString() );
+        suite.setAttribute( SuiteAttribute.LAZY_API_PARSING.getName(), Boolean.parseBoolean( lazyApiParsing ) );
+    }
+
+    /**
+     * Sets the number of threads used by the parallel data providers. If the {@link TestRunArg#NOOFTHREADS
+     * noofthreads} argument is missing or invalid one thread is used, i.e. the test cases are run sequentially.
+     *
+     * @param suite
+     *            An ISuite object representing a TestNG test suite.
+     * @param params
+     *            the suite parameters, never <code>null</code>
+     */
+    void processNoOfThreads( ISuite suite, Map<String, String> params ) {
+        int noOfThreads = parsePositiveInteger( params, TestRunArg.NOOFTHREADS, DEFAULT_NO_OF_THREADS );
+        suite.getXmlSuite().setDataProviderThreadCount( noOfThreads );
+        suite.setAttribute( SuiteAttribute.NO_OF_THREADS.getName(), noOfThreads );
     }
 
     /**
@@ -95,6 +204,299 @@ public class SuiteFixtureListener implements ISuiteListener {
         }
     }
 
+    /**
+     * A request executor is added to the suite fixture as the value of the {@link SuiteAttribute#REQUEST_EXECUTOR}
+     * attribute. The maximum number of requests in flight per host is parsed from the
+     * {@link TestRunArg#MAXREQUESTSPERHOST maxrequestsperhost} argument.
+     *
+     * @param suite
+     *            The test suite instance.
+     */
+    void registerRequestExecutor( ISuite suite ) {
+        int maxRequestsPerHost = parsePositiveInteger( suite.getXmlSuite().getParameters(),
+                                                       TestRunArg.MAXREQUESTSPERHOST, DEFAULT_MAX_REQUESTS_PER_HOST );
+        suite.setAttribute( SuiteAttribute.REQUEST_EXECUTOR.getName(), new RequestExecutor( maxRequestsPerHost ) );
+    }
+
+    /**
+     * A pooled HTTP client is added to the suite fixture as the value of the {@link SuiteAttribute#HTTP_CLIENT_POOL}
+     * attribute. The maximum number of connections per route is the value of the {@link TestRunArg#MAXREQUESTSPERHOST
+     * maxrequestsperhost} argument.
+     *
+     * @param suite
+     *            The test suite instance.
+     */
+    void registerPooledHttpClient( ISuite suite ) {
+        int maxRequestsPerHost = parsePositiveInteger( suite.getXmlSuite().getParameters(),
+                                                       TestRunArg.MAXREQUESTSPERHOST, DEFAULT_MAX_REQUESTS_PER_HOST );
+        suite.setAttribute( SuiteAttribute.HTTP_CLIENT_POOL.getName(), new PooledHttpClient( maxRequestsPerHost ) );
+    }
+
+    /**
+     * Writes the metrics of the pooled HTTP client to the log and to the file 'connection-pool.txt' in the output
+     * directory of the suite and closes the pooled connections.
+     *
+     * @param suite
+     *            The test suite instance.
+     */
+    void shutdownPooledHttpClient( ISuite suite ) {
+        PooledHttpClient pooledHttpClient = (PooledHttpClient) suite.getAttribute( SuiteAttribute.HTTP_CLIENT_POOL.getName() );
+        if ( pooledHttpClient == null )
+            return;
+        String metrics = pooledHttpClient.getMetrics();
+        TestSuiteLogger.log( Level.INFO, "Connection pool metrics\n" + metrics );
+        if ( suite.getOutputDirectory() != null ) {
+            File metricsFile = new File( suite.getOutputDirectory(), "connection-pool.txt" );
+            try {
+                pooledHttpClient.writeMetrics( metricsFile );
+            } catch ( IOException e ) {
+                TestSuiteLogger.log( Level.WARNING, "Could not write connection pool metrics to " + metricsFile, e );
+            }
+        }
+        pooledHttpClient.shutdown();
+    }
+
+    /**
+     * If the {@link TestRunArg#RUNCACHE runcache} argument is set, the persistent cache in this directory is added to
+     * the suite fixture as the value of the {@link SuiteAttribute#RUN_CACHE} attribute. Validations are reused only if
+     * they were recorded by a suite with the same name (including the version).
+     *
+     * @param suite
+     *            The test suite instance.
+     */
+    void registerRunCache( ISuite suite ) {
+        String runCacheDirectory = suite.getXmlSuite().getParameters().get( TestRunArg.RUNCACHE.toString() );
+        if ( runCacheDirectory == null || runCacheDirectory.trim().isEmpty() )
+            return;
+        try {
+            RunCache runCache = new RunCache( new File( runCacheDirectory.trim() ), String.valueOf( suite.getName() ) );
+            suite.setAttribute( SuiteAttribute.RUN_CACHE.getName(), runCache );
+        } catch ( IOException e ) {
+            TestSuiteLogger.log( Level.WARNING, "Could not open the run cache in " + runCacheDirectory, e );
+        }
+    }
+
+    /**
+     * If the {@link TestRunArg#APIMODELCACHE apimodelcache} argument is set, the cache of validated OpenAPI documents in
+     * this directory is added to the suite fixture as the value of the {@link SuiteAttribute#API_MODEL_CACHE}
+     * attribute. Models are reused only if they were stored by the same build of the test suite, see
+     * {@link #apiModelCacheVersion(ISuite)}.
+     *
+     * @param suite
+     *            The test suite instance.
+     */
+    void registerApiModelCache( ISuite suite ) {
+        String apiModelCacheDirectory = suite.getXmlSuite().getParameters().get( TestRunArg.APIMODELCACHE.toString() );
+        if ( apiModelCacheDirectory == null || apiModelCacheDirectory.trim().isEmpty() )
+            return;
+        File directory = new File( apiModelCacheDirectory.trim() );
+        try {
+            OpenApiModelCache apiModelCache = new OpenApiModelCache( directory, apiModelCacheVersion( suite ) );
+            suite.setAttribute( SuiteAttribute.API_MODEL_CACHE.getName(), apiModelCache );
+        } catch ( IOException e ) {
+            TestSuiteLogger.log( Level.WARNING, "Could not open the OpenAPI model cache in " + directory, e );
+        }
+    }
+
+    /**
+     * The version of the test suite the cached models are stored for: the name of the suite (including the version).
+     * Snapshot builds share the version, so the modification time of the classes of the test suite is appended.
+     *
+     * @param suite
+     *            The test suite instance.
+     * @return the version, never <code>null</code>
+     */
+    String apiModelCacheVersion( ISuite suite ) {
+        String version = String.valueOf( suite.getName() );
+        if ( !version.endsWith( SNAPSHOT ) )
+            return version;
+        try {
+            URI codeSource = SuiteFixtureListener.class.getProtectionDomain().getCodeSource().getLocation().toURI();
+            return version + "-" + new File( codeSource ).lastModified();
+        } catch ( URISyntaxException | RuntimeException e ) {
+            TestSuiteLogger.log( Level.WARNING, "Could not determine the build of the test suite", e );
+            return version + "-" + System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Writes the slowest endpoints to the log and the timings of all requests to the file 'request-timings.csv' in the
+     * output directory of the suite.
+     *
+     * @param suite
+     *            The test suite instance.
+     */
+    void writeRequestMetrics( ISuite suite ) {
+        RequestMetrics requestMetrics = (RequestMetrics) suite.getAttribute( SuiteAttribute.REQUEST_METRICS.getName() );
+        if ( requestMetrics == null )
+            return;
+        TestSuiteLogger.log( Level.INFO, "Slowest endpoints\n" + requestMetrics.getSummary( NO_OF_SLOWEST_ENDPOINTS ) );
+        if ( suite.getOutputDirectory() != null ) {
+            File timingsFile = new File( suite.getOutputDirectory(), "request-timings.csv" );
+            try {
+                requestMetrics.writeCsv( timingsFile );
+            } catch ( IOException e ) {
+                TestSuiteLogger.log( Level.WARNING, "Could not write request timings to " + timingsFile, e );
+            }
+        }
+    }
+
+    /**
+     * The registry of the snapshots of the harvested collections is added to the suite fixture as the value of the
+     * {@link SuiteAttribute#COLLECTION_SNAPSHOTS} attribute. The harvest is configured by the
+     * {@link TestRunArg#HARVESTMAXFEATURES harvestmaxfeatures} and {@link TestRunArg#HARVESTCOLLECTIONS
+     * harvestcollections} arguments.
+     *
+     * @param suite
+     *            The test suite instance.
+     */
+    void registerCollectionSnapshots( ISuite suite ) {
+        Map<String, String> params = suite.getXmlSuite().getParameters();
+        int maxFeatures = parsePositiveInteger( params, TestRunArg.HARVESTMAXFEATURES, DEFAULT_HARVEST_MAX_FEATURES );
+        List<String> collectionNames = new ArrayList<>();
+        String harvestCollections = params.get( TestRunArg.HARVESTCOLLECTIONS.toString() );
+        if ( harvestCollections != null )
+            for ( String collectionName : harvestCollections.split( "," ) )
+                if ( !collectionName.trim().isEmpty() )
+                    collectionNames.add( collectionName.trim() );
+        PageStore pageStore = (PageStore) suite.getAttribute( SuiteAttribute.PAGE_STORE.getName() );
+        suite.setAttribute( SuiteAttribute.COLLECTION_SNAPSHOTS.getName(),
+                            new CollectionSnapshots( maxFeatures, collectionNames, pageStore ) );
+    }
+
+    /**
+     * Adds the test "Performance" to the passed suite definition, containing the {@link EndpointPerformance} tests if
+     * the {@link TestRunArg#PERFORMANCEPROFILING performanceprofiling} argument is true and the {@link LoadGeneration}
+     * test if the {@link TestRunArg#LOADVIRTUALUSERS loadvirtualusers} argument is greater than 0. The test is not
+     * added if neither is configured.
+     *
+     * @param suite
+     *            the suite definition, never <code>null</code>
+     */
+    void addPerformanceTests( XmlSuite suite ) {
+        Map<String, String> params = suite.getParameters();
+        List<XmlClass> performanceClasses = new ArrayList<>();
+        if ( Boolean.parseBoolean( params.get( TestRunArg.PERFORMANCEPROFILING.toString() ) ) )
+            performanceClasses.add( new XmlClass( EndpointPerformance.class ) );
+        if ( parseInteger( params, TestRunArg.LOADVIRTUALUSERS, 0, 0 ) > 0 )
+            performanceClasses.add( new XmlClass( LoadGeneration.class ) );
+        if ( performanceClasses.isEmpty() )
+            return;
+        XmlTest performanceTest = new XmlTest( suite );
+        performanceTest.setName( PERFORMANCE_TEST_NAME );
+        performanceTest.setXmlClasses( performanceClasses );
+    }
+
+    /**
+     * If the {@link TestRunArg#PERFORMANCEPROFILING performanceprofiling} argument is true, the profiler of the
+     * performance tests is added to the suite fixture as the value of the {@link SuiteAttribute#ENDPOINT_PROFILER}
+     * attribute. The profiler is configured by the
+     * {@link TestRunArg#PERFORMANCEWARMUP performancewarmup}, {@link TestRunArg#PERFORMANCEITERATIONS
+     * performanceiterations} and {@link TestRunArg#PERFORMANCECONCURRENCY performanceconcurrency} arguments.
+     *
+     * @param suite
+     *            The test suite instance.
+     */
+    void registerEndpointProfiler( ISuite suite ) {
+        Map<String, String> params = suite.getXmlSuite().getParameters();
+        if ( !Boolean.parseBoolean( params.get( TestRunArg.PERFORMANCEPROFILING.toString() ) ) )
+            return;
+        int warmUp = parseInteger( params, TestRunArg.PERFORMANCEWARMUP, DEFAULT_PERFORMANCE_WARM_UP, 0 );
+        int iterations = parsePositiveInteger( params, TestRunArg.PERFORMANCEITERATIONS,
+                                               DEFAULT_PERFORMANCE_ITERATIONS );
+        int concurrency = parsePositiveInteger( params, TestRunArg.PERFORMANCECONCURRENCY,
+                                                DEFAULT_PERFORMANCE_CONCURRENCY );
+        suite.setAttribute( SuiteAttribute.ENDPOINT_PROFILER.getName(),
+                            new EndpointProfiler( warmUp, iterations, concurrency ) );
+    }
+
+    /**
+     * If the {@link TestRunArg#LOADVIRTUALUSERS loadvirtualusers} argument is greater than 0, a load generator is added
+     * to the suite fixture as the value of the {@link SuiteAttribute#LOAD_GENERATOR} attribute. The target rate and the
+     * duration are parsed from the {@link TestRunArg#LOADRATE loadrate} and {@link TestRunArg#LOADDURATION
+     * loadduration} arguments. If the {@link TestRunArg#LOADOPENLOOP loadopenloop} argument is true, the requests are
+     * scheduled at the target rate (the default rate if the rate is not limited). The requests are limited by the
+     * {@link TestRunArg#MAXREQUESTSPERHOST maxrequestsperhost} argument, a warning is logged if it is lower than the
+     * number of virtual users.
+     *
+     * @param suite
+     *            The test suite instance.
+     */
+    void registerLoadGenerator( ISuite suite ) {
+        Map<String, String> params = suite.getXmlSuite().getParameters();
+        int virtualUsers = parseInteger( params, TestRunArg.LOADVIRTUALUSERS, 0, 0 );
+        if ( virtualUsers == 0 )
+            return;
+        int maxRequestsPerHost = parsePositiveInteger( params, TestRunArg.MAXREQUESTSPERHOST,
+                                                       DEFAULT_MAX_REQUESTS_PER_HOST );
+        if ( maxRequestsPerHost < virtualUsers )
+            TestSuiteLogger.log( Level.WARNING, "Only " + maxRequestsPerHost + " of " + virtualUsers
+                                                + " virtual users send requests concurrently, increase "
+                                                + TestRunArg.MAXREQUESTSPERHOST + " to generate the full load" );
+        int rate = parseInteger( params, TestRunArg.LOADRATE, DEFAULT_LOAD_RATE, 0 );
+        int duration = parsePositiveInteger( params, TestRunArg.LOADDURATION, DEFAULT_LOAD_DURATION );
+        LoadGenerator loadGenerator;
+        if ( Boolean.parseBoolean( params.get( TestRunArg.LOADOPENLOOP.toString() ) ) )
+            loadGenerator = LoadGenerator.openLoop( rate > 0 ? rate : DEFAULT_LOAD_RATE, virtualUsers, duration,
+                                                    TimeUnit.SECONDS );
+        else
+            loadGenerator = new LoadGenerator( virtualUsers, rate, duration, TimeUnit.SECONDS );
+        suite.setAttribute( SuiteAttribute.LOAD_GENERATOR.getName(), loadGenerator );
+    }
+
+    /**
+     * An append-only store of the downloaded pages is added to the suite fixture as the value of the
+     * {@link SuiteAttribute#PAGE_STORE} attribute. The pages are stored in a temporary file.
+     *
+     * @param suite
+     *            The test suite instance.
+     */
+    void registerPageStore( ISuite suite ) {
+        try {
+            suite.setAttribute( SuiteAttribute.PAGE_STORE.getName(), PageStore.createTempFile() );
+        } catch ( IOException e ) {
+            throw new UncheckedIOException( "Failed to create the page store", e );
+        }
+    }
+
+    /**
+     * Closes and deletes the page store of the suite.
+     *
+     * @param suite
+     *            The test suite instance.
+     */
+    void closePageStore( ISuite suite ) {
+        PageStore pageStore = (PageStore) suite.getAttribute( SuiteAttribute.PAGE_STORE.getName() );
+        if ( pageStore == null )
+            return;
+        TestSuiteLogger.log( Level.CONFIG, "Page store: " + pageStore );
+        try {
+            pageStore.close();
+        } catch ( IOException e ) {
+            TestSuiteLogger.log( Level.WARNING, "Could not close page store " + pageStore.getFile(), e );
+        }
+    }
+
+    private int parsePositiveInteger( Map<String, String> params, TestRunArg testRunArg, int defaultValue ) {
+        return parseInteger( params, testRunArg, defaultValue, 1 );
+    }
+
+    private int parseInteger( Map<String, String> params, TestRunArg testRunArg, int defaultValue, int minValue ) {
+        String value = params.get( testRunArg.toString() );
+        if ( value == null )
+            return defaultValue;
+        try {
+            int intValue = Integer.parseInt( value );
+            if ( intValue >= minValue )
+                return intValue;
+        } catch ( NumberFormatException e ) {
+            TestSuiteLogger.log( Level.WARNING,
+                                 String.format( "Could not parse parameter %s: %s. Expected is a valid integer",
+                                                testRunArg.toString(), value ) );
+        }
+        return defaultValue;
+    }
+
     /**
      * Deletes temporary files created during the test run if TestSuiteLogger is enabled at the INFO level or higher
      * (they are left intact at the CONFIG level or lower).
@@ -13,7 +13,109 @@ public enum TestRunArg {
     /**
      * The number of collections to test (a value less or equal to 0 means all collections).
      */
-    NOOFCOLLECTIONS;
+    NOOFCOLLECTIONS,
+
+    /**
+     * The number of threads used to run the test cases of the collections in parallel (default is 1, i.e. the test
+     * cases are run sequentially).
+     */
+    NOOFTHREADS,
+
+    /**
+     * The maximum number of requests in flight to the same host (default is 8). Applies to all requests of the suite,
+     * including the ones of the performance tests and the load generation.
+     */
+    MAXREQUESTSPERHOST,
+
+    /**
+     * The maximum number of features harvested per collection to verify the results of the requests (default is
+     * 100000). Collections with more features are not harvested.
+     */
+    HARVESTMAXFEATURES,
+
+    /**
+     * Comma separated list of the names of the collections to harvest (default is all tested collections).
+     */
+    HARVESTCOLLECTIONS,
+
+    /**
+     * If true, the limit parameter of each collection is probed with a geometric sweep up to its maximum to report the
+     * latency and throughput per page size (default is false).
+     */
+    LIMITPROBING,
+
+    /**
+     * If true, the next page of a collection is requested while the current page is scanned to verify numberMatched,
+     * otherwise one page is requested after the other (default is true).
+     */
+    PIPELINEDPAGING,
+
+    /**
+     * If true, the latency and throughput of the endpoints are profiled by the performance tests (default is false).
+     */
+    PERFORMANCEPROFILING,
+
+    /**
+     * The number of requests sent to each endpoint before the latency is measured by the performance tests (default is
+     * 5).
+     */
+    PERFORMANCEWARMUP,
+
+    /**
+     * The number of requests per endpoint measured by the performance tests (default is 50).
+     */
+    PERFORMANCEITERATIONS,
+
+    /**
+     * The number of requests sent concurrently to each endpoint by the performance tests (default is 1), limited by
+     * {@link #MAXREQUESTSPERHOST}.
+     */
+    PERFORMANCECONCURRENCY,
+
+    /**
+     * The number of virtual users replaying a mix of requests in the load generation (default is 0, i.e. no load is
+     * generated). The number of concurrent requests is limited by {@link #MAXREQUESTSPERHOST}, which must be raised to
+     * at least the number of virtual users to generate the full load.
+     */
+    LOADVIRTUALUSERS,
+
+    /**
+     * The targeted number of requests per second of all virtual users in the load generation (default is 10, 0 sends
+     * the requests as fast as possible).
+     */
+    LOADRATE,
+
+    /**
+     * The duration of the load generation in seconds (default is 60).
+     */
+    LOADDURATION,
+
+    /**
+     * If true, the requests of the load generation are sent at the target rate independent of the completion of the
+     * previous requests, by at most {@link #LOADVIRTUALUSERS} concurrent senders (default is false).
+     */
+    LOADOPENLOOP,
+
+    /**
+     * The directory of a persistent cache of the landing page, the OpenAPI document, the conformance and collection
+     * metadata documents. If set, resources cached by a previous run are revalidated with conditional requests and the
+     * validations passed by unchanged resources are skipped (default is no cache).
+     */
+    RUNCACHE,
+
+    /**
+     * The directory of the cache of validated OpenAPI documents (default is no cache). A repeated run of the same build
+     * of the test suite against the same OpenAPI document uses the cached model instead of parsing and validating the
+     * document.
+     */
+    APIMODELCACHE,
+
+    /**
+     * If true, only the path items tested by the suite are parsed from the OpenAPI document and validated, the other
+     * path items are neither parsed nor validated. The references of the selected path items are resolved with the
+     * validation, not when they are read by the tests. Requires an OpenAPI document encoded as JSON (default is false).
+     */
+    LAZYAPIPARSING;
 
     @Override
     public String toString() {
@@ -3,6 +3,7 @@ package org.opengis.cite.wfs30.apidescription;
 import static io.restassured.http.ContentType.JSON;
 import static io.restassured.http.Method.GET;
 import static org.opengis.cite.wfs30.EtsAssert.assertTrue;
+import static org.opengis.cite.wfs30.SuiteAttribute.LANDING_PAGE;
 
 import java.util.HashSet;
 import java.util.List;
@@ -10,6 +11,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.opengis.cite.wfs30.CommonFixture;
+import org.testng.ITestContext;
 import org.testng.annotations.Test;
 
 import io.restassured.path.json.JsonPath;
@@ -44,12 +46,19 @@ public class LandingPage extends CommonFixture {
      * Validate the contents of the returned document using test A.4.2.2
      *
      * d) References: Requirement 1
+     *
+     * The parsed landing page is added to the suite, so the tests of the API definition do not need to request it
+     * again.
+     *
+     * @param testContext
+     *            never <code>null</code>
      */
     @Test(description = "Implements A.4.2.1. Landing Page Retrieval (Requirement 1)", groups = "landingpage")
-    public void landingPageRetrieval() {
-        Response request = init().baseUri( rootUri.toString() ).accept( JSON ).when().request( GET, "/" );
+    public void landingPageRetrieval( ITestContext testContext ) {
+        Response request = initRevalidated( rootUri.toString() ).baseUri( rootUri.toString() ).accept( JSON ).when().request( GET, "/" );
         request.then().statusCode( 200 );
         response = request.jsonPath();
+        testContext.getSuite().setAttribute( LANDING_PAGE.getName(), response );
     }
 
     /**
@@ -75,6 +84,8 @@ public class LandingPage extends CommonFixture {
      */
     @Test(description = "Implements A.4.2.2. Landing Page Validation (Requirement 2)", groups = "landingpage", dependsOnMethods = "landingPageRetrieval")
     public void landingPageValidation() {
+        if ( reusePassedValidation( rootUri.toString(), "landingPageValidation" ) )
+            return;
         List<Object> links = response.getList( "links" );
         Set<String> linkTypes = collectLinkTypes( links );
 
@@ -83,7 +94,7 @@ public class LandingPage extends CommonFixture {
         assertTrue( expectedLinkTypesExists,
                     "The landing page must include at least links with relation type 'service', 'conformance' and 'data', but contains "
                                             + String.join( ", ", linkTypes ) );
-
+        recordPassedValidation( rootUri.toString(), "landingPageValidation" );
     }
 
     private Set<String> collectLinkTypes( List<Object> links ) {
@@ -4,16 +4,33 @@ import static io.restassured.http.ContentType.JSON;
 import static io.restassured.http.Method.GET;
 import static org.opengis.cite.wfs30.EtsAssert.assertTrue;
 import static org.opengis.cite.wfs30.SuiteAttribute.API_MODEL;
+import static org.opengis.cite.wfs30.SuiteAttribute.API_MODEL_CACHE;
+import static org.opengis.cite.wfs30.SuiteAttribute.API_PATH_INDEX;
+import static org.opengis.cite.wfs30.SuiteAttribute.LANDING_PAGE;
+import static org.opengis.cite.wfs30.SuiteAttribute.LAZY_API_PARSING;
+import static org.opengis.cite.wfs30.SuiteAttribute.TEST_POINT_CACHE;
 import static org.opengis.cite.wfs30.WFS3.OPEN_API_MIME_TYPE;
 
-import java.net.MalformedURLException;
+import java.io.File;
+import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Map;
+import java.util.logging.Level;
 
 import org.opengis.cite.wfs30.CommonFixture;
+import org.opengis.cite.wfs30.TestRunArg;
+import org.opengis.cite.wfs30.openapi3.OpenApiModelCache;
+import org.opengis.cite.wfs30.openapi3.OpenApiPathIndex;
+import org.opengis.cite.wfs30.openapi3.SelectiveOpenApiParser;
+import org.opengis.cite.wfs30.openapi3.TestPointCache;
+import org.opengis.cite.wfs30.util.FileDownload;
+import org.opengis.cite.wfs30.util.TestSuiteLogger;
 import org.testng.ITestContext;
+import org.testng.Reporter;
 import org.testng.SkipException;
-import org.testng.annotations.BeforeClass;
+import org.testng.annotations.AfterClass;
 import org.testng.annotations.Test;
 
 import com.reprezen.kaizen.oasparser.OpenApi3Parser;
@@ -28,16 +45,14 @@ import io.restassured.response.Response;
  */
 public class OpenApi extends CommonFixture {
 
-    private String response;
+    private File apiDocument;
 
     private String apiUrl;
 
-    @BeforeClass(dependsOnMethods = "initCommonFixture")
-    public void retrieveApiUrl() {
-        Response request = init().baseUri( rootUri.toString() ).accept( JSON ).when().request( GET, "/" );
-        JsonPath jsonPath = request.jsonPath();
-
-        this.apiUrl = parseApiUrl( jsonPath );
+    @AfterClass
+    public void deleteApiDocument() {
+        if ( apiDocument != null )
+            apiDocument.delete();
     }
 
     /**
@@ -62,14 +77,28 @@ public class OpenApi extends CommonFixture {
      * Validate the contents of the returned document using test A.4.2.4
      *
      * d) References: Requirements 3 and 4
+     *
+     * The url of the API Definition document is parsed from the landing page retrieved by {@link LandingPage}, which is
+     * requested only if it is not available in the suite. The document is streamed into a temporary file, so it is not
+     * buffered on the heap.
+     *
+     * @param testContext
+     *            never <code>null</code>
+     * @throws IOException
+     *             if the document could not be retrieved or written
      */
     @Test(description = "Implements A.4.2.3. OpenAPI Document Retrieval (Requirement 3, 4)", groups = "apidefinition", dependsOnGroups = "landingpage")
-    public void openapiDocumentRetrieval() {
+    public void openapiDocumentRetrieval( ITestContext testContext )
+                            throws IOException {
+        apiUrl = parseApiUrl( landingPage( testContext ) );
         if ( apiUrl == null || apiUrl.isEmpty() )
             throw new SkipException( "Api URL could not be parsed from the landing page" );
-        Response request = init().baseUri( apiUrl ).accept( JSON ).when().request( GET, "/" );
-        request.then().statusCode( 200 );
-        response = request.asString();
+        if ( apiDocument == null )
+            apiDocument = File.createTempFile( "openapi", ".json" );
+        FileDownload download = downloadToFile( apiUrl, apiUrl, JSON.getAcceptHeader(), apiDocument );
+        TestSuiteLogger.log( Level.INFO, "Retrieved API Definition document " + download );
+        assertTrue( download.getStatusCode() == 200, "Expected status code 200 but was " + download.getStatusCode()
+                                                     + " requesting " + apiUrl );
     }
 
     /**
@@ -89,20 +118,85 @@ public class OpenApi extends CommonFixture {
      * 
      * d) References: Requirement 4
      *
+     * The validation against the OpenAPI 3.0 schema is skipped if the document is unchanged since a previous run which
+     * passed the validation. If the model cache is enabled ({@link org.opengis.cite.wfs30.TestRunArg#APIMODELCACHE}) and
+     * the same document was validated before, the parsing is skipped as well and the compact model stored in the
+     * {@link OpenApiModelCache} is used. If lazy parsing is enabled
+     * ({@link org.opengis.cite.wfs30.TestRunArg#LAZYAPIPARSING}), only the tested path items are parsed by the
+     * {@link SelectiveOpenApiParser} and only the selected parts of the document are validated. The test then fails if
+     * the selected parts are not valid, the rest of the document is not validated.
+     *
      * @param testContext
      *            never <code>null</code>
-     * @throws MalformedURLException
-     *             if the apiUrl is malformed
+     * @throws IOException
+     *             if the apiUrl is malformed or the document could not be read
      */
     @Test(description = "Implements A.4.2.4. API Definition Validation (Requirement 4)", groups = "apidefinition", dependsOnMethods = "openapiDocumentRetrieval")
     public void apiDefinitionValidation( ITestContext testContext )
-                            throws MalformedURLException {
-        OpenApi3Parser parser = new OpenApi3Parser();
+                            throws IOException {
+        OpenApiModelCache modelCache = (OpenApiModelCache) testContext.getSuite().getAttribute( API_MODEL_CACHE.getName() );
+        if ( modelCache != null ) {
+            OpenApi3 cachedModel = modelCache.load( apiDocument, new URL( apiUrl ) );
+            if ( cachedModel != null ) {
+                String message = "Validation 'apiDefinitionValidation' of " + apiUrl
+                                 + " not executed: the document is unchanged and passed the validation in a previous run, the cached model is used ("
+                                 + TestRunArg.APIMODELCACHE + ")";
+                Reporter.log( message );
+                TestSuiteLogger.log( Level.INFO, message );
+                storeApiModel( testContext, cachedModel );
+                return;
+            }
+        }
+        if ( Boolean.TRUE.equals( testContext.getSuite().getAttribute( LAZY_API_PARSING.getName() ) ) ) {
+            SelectiveOpenApiParser parser = new SelectiveOpenApiParser();
+            OpenApi3 apiModel = parser.parse( apiDocument, new URL( apiUrl ), true );
+            TestSuiteLogger.log( Level.INFO, "Validated only the tested path items of the API Definition document ("
+                                             + TestRunArg.LAZYAPIPARSING + "), " + parser );
+            assertTrue( apiModel.isValid(), "Tested path items of the API Definition document ("
+                                            + TestRunArg.LAZYAPIPARSING + ") are not valid: "
+                                            + createValidationMsg( apiModel ) );
+            storeApiModel( testContext, apiModel );
+            return;
+        }
+        OpenApi3 apiModel;
+        if ( reusePassedValidation( apiUrl, "apiDefinitionValidation" ) ) {
+            apiModel = parseApiDocument( false );
+        } else {
+            apiModel = parseApiDocument( true );
+            assertTrue( apiModel.isValid(), createValidationMsg( apiModel ) );
+            recordPassedValidation( apiUrl, "apiDefinitionValidation" );
+        }
+        if ( modelCache != null )
+            modelCache.store( apiDocument, apiModel );
+        storeApiModel( testContext, apiModel );
+    }
+
+    /**
+     * The document is parsed from the file, unless it references other documents: the parser resolves relative
+     * references against the location of the file, so such a document is read to be parsed with the url it was
+     * retrieved from.
+     */
+    private OpenApi3 parseApiDocument( boolean validate )
+                            throws IOException {
+        if ( !SelectiveOpenApiParser.hasExternalReferences( apiDocument ) )
+            return new OpenApi3Parser().parse( apiDocument, validate );
+        String document = new String( Files.readAllBytes( apiDocument.toPath() ), StandardCharsets.UTF_8 );
+        return new OpenApi3Parser().parse( document, new URL( apiUrl ), validate );
+    }
 
-        OpenApi3 apiModel = parser.parse( response, new URL( apiUrl ), true );
-        assertTrue( apiModel.isValid(), createValidationMsg( apiModel ) );
+    private JsonPath landingPage( ITestContext testContext ) {
+        JsonPath landingPage = (JsonPath) testContext.getSuite().getAttribute( LANDING_PAGE.getName() );
+        if ( landingPage != null )
+            return landingPage;
+        Response request = initRevalidated( rootUri.toString() ).baseUri( rootUri.toString() ).accept( JSON ).when().request( GET, "/" );
+        return request.jsonPath();
+    }
 
+    private void storeApiModel( ITestContext testContext, OpenApi3 apiModel ) {
         testContext.getSuite().setAttribute( API_MODEL.getName(), apiModel );
+        OpenApiPathIndex pathIndex = new OpenApiPathIndex( apiModel );
+        testContext.getSuite().setAttribute( API_PATH_INDEX.getName(), pathIndex );
+        testContext.getSuite().setAttribute( TEST_POINT_CACHE.getName(), new TestPointCache( pathIndex ) );
     }
 
     private String parseApiUrl( JsonPath jsonPath ) {
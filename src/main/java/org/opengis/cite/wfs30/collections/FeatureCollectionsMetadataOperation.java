@@ -3,9 +3,8 @@ package org.opengis.cite.wfs30.collections;
 import static io.restassured.http.ContentType.JSON;
 import static io.restassured.http.Method.GET;
 import static org.opengis.cite.wfs30.EtsAssert.assertTrue;
-import static org.opengis.cite.wfs30.SuiteAttribute.API_MODEL;
 import static org.opengis.cite.wfs30.openapi3.OpenApiUtils.retrieveTestPointsForCollectionMetadata;
-import static org.opengis.cite.wfs30.openapi3.OpenApiUtils.retrieveTestPointsForCollectionsMetadata;
+import static org.opengis.cite.wfs30.openapi3.OpenApiUtils.iterateTestPointsForCollectionsMetadata;
 import static org.opengis.cite.wfs30.util.JsonUtils.findLinkByRel;
 import static org.opengis.cite.wfs30.util.JsonUtils.findLinksWithSupportedMediaTypeByRel;
 import static org.opengis.cite.wfs30.util.JsonUtils.findLinksWithoutRelOrType;
@@ -15,12 +14,14 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.opengis.cite.wfs30.CommonDataFixture;
 import org.opengis.cite.wfs30.SuiteAttribute;
+import org.opengis.cite.wfs30.openapi3.OpenApiPathIndex;
 import org.opengis.cite.wfs30.openapi3.TestPoint;
 import org.opengis.cite.wfs30.openapi3.UriBuilder;
 import org.testng.ITestContext;
@@ -30,8 +31,6 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
-import com.reprezen.kaizen.oasparser.model3.OpenApi3;
-
 import io.restassured.path.json.JsonPath;
 import io.restassured.response.Response;
 
@@ -40,25 +39,18 @@ import io.restassured.response.Response;
  */
 public class FeatureCollectionsMetadataOperation extends CommonDataFixture {
 
-    private final Map<TestPoint, Response> testPointAndResponses = new HashMap<>();
-
-    private final Map<TestPoint, List<Map<String, Object>>> testPointAndCollections = new HashMap<>();
+    private final Map<TestPoint, Response> testPointAndResponses = new ConcurrentHashMap<>();
 
-    private OpenApi3 apiModel;
+    private final Map<TestPoint, List<Map<String, Object>>> testPointAndCollections = new ConcurrentHashMap<>();
 
-    private Object[][] testPointsData;
+    private OpenApiPathIndex pathIndex;
 
-    @DataProvider(name = "collectionsUris")
-    public Object[][] collectionsUris( ITestContext testContext ) {
-        if ( this.testPointsData == null ) {
-            OpenApi3 apiModel = (OpenApi3) testContext.getSuite().getAttribute( API_MODEL.getName() );
-            List<TestPoint> testPoints = retrieveTestPointsForCollectionsMetadata( apiModel );
-            this.testPointsData = new Object[][] { testPoints.toArray() };
-        }
-        return testPointsData;
+    @DataProvider(name = "collectionsUris", parallel = true)
+    public Iterator<Object[]> collectionsUris( ITestContext testContext ) {
+        return testPointParameters( iterateTestPointsForCollectionsMetadata( apiPathIndex( testContext ) ) );
     }
 
-    @DataProvider(name = "collections")
+    @DataProvider(name = "collections", parallel = true)
     public Object[][] collections( ITestContext testContext ) {
         int length = 0;
         for ( List<Map<String, Object>> collections : testPointAndCollections.values() )
@@ -74,7 +66,7 @@ public class FeatureCollectionsMetadataOperation extends CommonDataFixture {
 
     @BeforeClass
     public void openApiDocument( ITestContext testContext ) {
-        this.apiModel = (OpenApi3) testContext.getSuite().getAttribute( API_MODEL.getName() );
+        this.pathIndex = apiPathIndex( testContext );
     }
 
     @AfterClass
@@ -109,7 +101,7 @@ public class FeatureCollectionsMetadataOperation extends CommonDataFixture {
                                                                                                                                                                                                     "conformance" })
     public void validateFeatureCollectionsMetadataOperation( TestPoint testPoint ) {
         String testPointUri = new UriBuilder( testPoint ).buildUrl();
-        Response response = init().baseUri( testPointUri ).accept( JSON ).when().request( GET );
+        Response response = initRevalidated( testPointUri ).baseUri( testPointUri ).accept( JSON ).when().request( GET );
         response.then().statusCode( 200 );
         this.testPointAndResponses.put( testPoint, response );
     }
@@ -138,8 +130,11 @@ public class FeatureCollectionsMetadataOperation extends CommonDataFixture {
         Response response = testPointAndResponses.get( testPoint );
         if ( response == null )
             throw new SkipException( "Could not find a response for test point " + testPoint );
+        String testPointUri = new UriBuilder( testPoint ).buildUrl();
+        if ( reusePassedValidation( testPointUri, "collectionsLinks" ) )
+            return;
 
-        JsonPath jsonPath = response.jsonPath();
+        JsonPath jsonPath = jsonPath( testPointUri, response );
         List<Map<String, Object>> links = jsonPath.getList( "links" );
 
         // Validate that the retrieved document includes links for: Itself,
@@ -161,6 +156,7 @@ public class FeatureCollectionsMetadataOperation extends CommonDataFixture {
         assertTrue( linksWithoutRelOrType.isEmpty(),
                     "Links for alternate encodings must include a rel and type parameter. Missing for links "
                                             + linksWithoutRelOrType );
+        recordPassedValidation( testPointUri, "collectionsLinks" );
     }
 
     /**
@@ -184,7 +180,7 @@ public class FeatureCollectionsMetadataOperation extends CommonDataFixture {
         Response response = testPointAndResponses.get( testPoint );
         if ( response == null )
             throw new SkipException( "Could not find a response for test point " + testPoint );
-        JsonPath jsonPath = response.jsonPath();
+        JsonPath jsonPath = jsonPath( new UriBuilder( testPoint ).buildUrl(), response );
         List<Object> collections = jsonPath.getList( "collections" );
 
         // Test method cannot be verified as the provided collections are not known.
@@ -271,7 +267,7 @@ public class FeatureCollectionsMetadataOperation extends CommonDataFixture {
     public void validateTheFeatureCollectionMetadataOperationAndResponse( TestPoint testPoint,
                                                                           Map<String, Object> collection ) {
         String collectionName = (String) collection.get( "name" );
-        List<TestPoint> testPointsForNamedCollection = retrieveTestPointsForCollectionMetadata( apiModel,
+        List<TestPoint> testPointsForNamedCollection = retrieveTestPointsForCollectionMetadata( pathIndex,
                                                                                                 collectionName );
         if ( testPointsForNamedCollection.isEmpty() )
             throw new SkipException( "Could not find collection with name " + collectionName
@@ -311,7 +307,7 @@ public class FeatureCollectionsMetadataOperation extends CommonDataFixture {
     private Response validateTheFeatureCollectionMetadataOperationAndResponse( TestPoint testPoint,
                                                                                String collectionName ) {
         String testPointUri = new UriBuilder( testPoint ).collectionName( collectionName ).buildUrl();
-        Response response = init().baseUri( testPointUri ).accept( JSON ).when().request( GET );
+        Response response = initRevalidated( testPointUri ).baseUri( testPointUri ).accept( JSON ).when().request( GET );
         response.then().statusCode( 200 );
         return response;
     }
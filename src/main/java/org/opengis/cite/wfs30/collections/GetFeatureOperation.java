@@ -4,6 +4,7 @@ import static io.restassured.http.Method.GET;
 import static org.opengis.cite.wfs30.EtsAssert.assertTrue;
 import static org.opengis.cite.wfs30.SuiteAttribute.API_MODEL;
 import static org.opengis.cite.wfs30.WFS3.GEOJSON_MIME_TYPE;
+import static org.opengis.cite.wfs30.util.JsonUtils.findGetFeaturesUrlForGeoJson;
 import static org.opengis.cite.wfs30.util.JsonUtils.findLinkByRel;
 import static org.opengis.cite.wfs30.util.JsonUtils.findLinksWithSupportedMediaTypeByRel;
 import static org.opengis.cite.wfs30.util.JsonUtils.findLinksWithoutRelOrType;
@@ -12,13 +13,15 @@ import static org.opengis.cite.wfs30.util.JsonUtils.linkIncludesRelAndType;
 import static org.testng.Assert.assertNotNull;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.opengis.cite.wfs30.CommonDataFixture;
 import org.opengis.cite.wfs30.SuiteAttribute;
+import org.opengis.cite.wfs30.util.PageStore;
+import org.opengis.cite.wfs30.util.PageStore.StoredPage;
 import org.testng.ITestContext;
 import org.testng.SkipException;
 import org.testng.annotations.BeforeClass;
@@ -39,9 +42,13 @@ public class GetFeatureOperation extends CommonDataFixture {
 
     private List<Map<String, Object>> collections;
 
-    private final Map<String, Response> collectionNameAndResponse = new HashMap<>();
+    private final Map<String, StoredPage> collectionNameAndResponse = new ConcurrentHashMap<>();
 
-    @DataProvider(name = "collectionFeatureId")
+    private final Map<String, String> collectionNameAndUrl = new ConcurrentHashMap<>();
+
+    private PageStore pageStore;
+
+    @DataProvider(name = "collectionFeatureId", parallel = true)
     public Iterator<Object[]> collectionFeatureId( ITestContext testContext ) {
         Map<String, String> collectionNameToFeatureId = (Map<String, String>) testContext.getSuite().getAttribute( SuiteAttribute.FEATUREIDS.getName() );
         List<Object[]> collectionsData = new ArrayList<>();
@@ -59,6 +66,7 @@ public class GetFeatureOperation extends CommonDataFixture {
     public void retrieveRequiredInformationFromTestContext( ITestContext testContext ) {
         this.apiModel = (OpenApi3) testContext.getSuite().getAttribute( API_MODEL.getName() );
         this.collections = (List<Map<String, Object>>) testContext.getSuite().getAttribute( SuiteAttribute.COLLECTIONS.getName() );
+        this.pageStore = pageStore( testContext );
     }
 
     /**
@@ -95,7 +103,7 @@ public class GetFeatureOperation extends CommonDataFixture {
         if ( featureId == null )
             throw new SkipException( "No featureId available for collection '" + collectionName + "'" );
 
-        String getFeatureUrl = findGetFeatureUrlForGeoJson( collection );
+        String getFeatureUrl = findGetFeaturesUrlForGeoJson( collection );
         if ( getFeatureUrl == null )
             throw new SkipException( "Could not find url for collection with name " + collectionName
                                      + " supporting GeoJson (type " + GEOJSON_MIME_TYPE + ")" );
@@ -109,7 +117,8 @@ public class GetFeatureOperation extends CommonDataFixture {
         Response response = init().baseUri( getFeatureUrlWithFeatureId ).accept( GEOJSON_MIME_TYPE ).when().request( GET );
         response.then().statusCode( 200 );
 
-        collectionNameAndResponse.put( collectionName, response );
+        collectionNameAndUrl.put( collectionName, getFeatureUrlWithFeatureId );
+        collectionNameAndResponse.put( collectionName, storePage( pageStore, response ) );
     }
 
     /**
@@ -150,11 +159,11 @@ public class GetFeatureOperation extends CommonDataFixture {
     @Test(description = "Implements A.4.4.15. Validate the Get Feature Operation Response (Requirement 32)", dataProvider = "collectionFeatureId", dependsOnMethods = "getFeatureOperation", alwaysRun = true)
     public void validateTheGetFeatureOperationResponse( Map<String, Object> collection, String featureId ) {
         String collectionName = (String) collection.get( "name" );
-        Response response = collectionNameAndResponse.get( collectionName );
-        if ( response == null )
+        StoredPage page = collectionNameAndResponse.get( collectionName );
+        if ( page == null )
             throw new SkipException( "Could not find a response for collection with name " + collectionName );
 
-        JsonPath jsonPath = response.jsonPath();
+        JsonPath jsonPath = jsonPath( collectionNameAndUrl.get( collectionName ), page );
 
         List<Map<String, Object>> links = jsonPath.getList( "links" );
 
@@ -189,16 +198,4 @@ public class GetFeatureOperation extends CommonDataFixture {
                                             + linksWithoutRelOrType );
     }
 
-    private String findGetFeatureUrlForGeoJson( Map<String, Object> collection ) {
-        List<Object> links = (List<Object>) collection.get( "links" );
-        for ( Object linkObject : links ) {
-            Map<String, Object> link = (Map<String, Object>) linkObject;
-            Object rel = link.get( "rel" );
-            Object type = link.get( "type" );
-            if ( "item".equals( rel ) && GEOJSON_MIME_TYPE.equals( type ) )
-                return (String) link.get( "href" );
-        }
-        return null;
-    }
-
 }
\ No newline at end of file
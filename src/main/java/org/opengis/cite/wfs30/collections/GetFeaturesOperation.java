@@ -3,11 +3,10 @@ package org.opengis.cite.wfs30.collections;
 import static io.restassured.http.Method.GET;
 import static org.opengis.cite.wfs30.EtsAssert.assertFalse;
 import static org.opengis.cite.wfs30.EtsAssert.assertTrue;
-import static org.opengis.cite.wfs30.SuiteAttribute.API_MODEL;
 import static org.opengis.cite.wfs30.WFS3.GEOJSON_MIME_TYPE;
-import static org.opengis.cite.wfs30.openapi3.OpenApiUtils.retrieveTestPointsForCollection;
-import static org.opengis.cite.wfs30.openapi3.OpenApiUtils.retrieveTestPointsForCollections;
+import static org.opengis.cite.wfs30.openapi3.OpenApiUtils.iterateTestPointsForCollections;
 import static org.opengis.cite.wfs30.util.JsonUtils.collectNumberOfAllReturnedFeatures;
+import static org.opengis.cite.wfs30.util.JsonUtils.findGetFeaturesUrlForGeoJson;
 import static org.opengis.cite.wfs30.util.JsonUtils.findLinkByRel;
 import static org.opengis.cite.wfs30.util.JsonUtils.findLinksWithSupportedMediaTypeByRel;
 import static org.opengis.cite.wfs30.util.JsonUtils.findLinksWithoutRelOrType;
@@ -23,48 +22,87 @@ import static org.opengis.cite.wfs30.util.JsonUtils.parseTemporalExtent;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.Duration;
 import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
 
 import org.opengis.cite.wfs30.CommonDataFixture;
 import org.opengis.cite.wfs30.SuiteAttribute;
 import org.opengis.cite.wfs30.openapi3.TestPoint;
+import org.opengis.cite.wfs30.openapi3.TestPointCache;
 import org.opengis.cite.wfs30.util.BBox;
+import org.opengis.cite.wfs30.util.CollectionSnapshot;
+import org.opengis.cite.wfs30.util.CollectionSnapshots;
+import org.opengis.cite.wfs30.util.FeatureEnvelopeIndex;
+import org.opengis.cite.wfs30.util.FeatureEnvelopes;
+import org.opengis.cite.wfs30.util.FeaturePageWalker;
+import org.opengis.cite.wfs30.util.FeatureTemporalIndex;
+import org.opengis.cite.wfs30.util.GeoJsonEnvelopeReader;
+import org.opengis.cite.wfs30.util.LimitProbe;
+import org.opengis.cite.wfs30.util.PageStore;
+import org.opengis.cite.wfs30.util.PageStore.StoredPage;
+import org.opengis.cite.wfs30.util.PageStatistics;
 import org.opengis.cite.wfs30.util.TemporalExtent;
+import org.opengis.cite.wfs30.util.TestSuiteLogger;
 import org.testng.ITestContext;
 import org.testng.SkipException;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
-import com.reprezen.kaizen.oasparser.model3.OpenApi3;
-import com.reprezen.kaizen.oasparser.model3.Operation;
 import com.reprezen.kaizen.oasparser.model3.Parameter;
-import com.reprezen.kaizen.oasparser.model3.Path;
 import com.reprezen.kaizen.oasparser.model3.Schema;
 
 import io.restassured.path.json.JsonPath;
 import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
 
 /**
  * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
  */
 public class GetFeaturesOperation extends CommonDataFixture {
 
-    private final Map<String, ResponseData> collectionNameAndResponse = new HashMap<>();
+    private static final int DEFAULT_MAXIMUM_LIMIT_PROBE = 10000;
+
+    private static final int LIMIT_PROBE_REPETITIONS = 3;
+
+    private final Map<String, ResponseData> collectionNameAndResponse = new ConcurrentHashMap<>();
+
+    private final Map<String, FutureTask<Optional<CollectionSnapshot>>> harvests = new ConcurrentHashMap<>();
 
     private List<Map<String, Object>> collections;
 
-    private OpenApi3 apiModel;
+    private TestPointCache testPointCache;
+
+    private CollectionSnapshots collectionSnapshots;
 
-    @DataProvider(name = "collectionItemUris")
+    private PageStore pageStore;
+
+    private boolean limitProbing;
+
+    private boolean pipelinedPaging;
+
+    @DataProvider(name = "collectionItemUris", parallel = true)
     public Iterator<Object[]> collectionItemUris( ITestContext testContext ) {
         List<Object[]> collectionsData = new ArrayList<>();
         for ( Map<String, Object> collection : collections ) {
@@ -73,23 +111,17 @@ public class GetFeaturesOperation extends CommonDataFixture {
         return collectionsData.iterator();
     }
 
-    @DataProvider(name = "collectionPaths")
+    @DataProvider(name = "collectionPaths", parallel = true)
     public Iterator<Object[]> collectionPaths( ITestContext testContext ) {
-        List<TestPoint> testPointsForCollections = retrieveTestPointsForCollections( apiModel, noOfCollections );
-        List<Object[]> collectionsData = new ArrayList<>();
-        for ( TestPoint testPointForCollections : testPointsForCollections ) {
-            collectionsData.add( new Object[] { testPointForCollections } );
-        }
-        return collectionsData.iterator();
+        return testPointParameters( iterateTestPointsForCollections( testPointCache.getPathIndex(), noOfCollections ) );
     }
 
-    @DataProvider(name = "collectionItemUrisWithLimit")
+    @DataProvider(name = "collectionItemUrisWithLimit", parallel = true)
     public Iterator<Object[]> collectionItemUrisWithLimits( ITestContext testContext ) {
         List<Object[]> collectionsWithLimits = new ArrayList<>();
         for ( Map<String, Object> collection : collections ) {
             String collectionName = (String) collection.get( "name" );
-            List<TestPoint> testPoints = retrieveTestPointsForCollection( apiModel, collectionName );
-            for ( TestPoint testPoint : testPoints ) {
+            for ( TestPoint testPoint : testPointCache.getTestPointsForCollection( collectionName ) ) {
                 Parameter limit = findParameterByName( testPoint, "limit" );
                 if ( limit != null && limit.getSchema() != null ) {
                     int min = limit.getSchema().getMinimum().intValue();
@@ -107,7 +139,30 @@ public class GetFeaturesOperation extends CommonDataFixture {
         return collectionsWithLimits.iterator();
     }
 
-    @DataProvider(name = "collectionItemUrisWithBboxes")
+    @DataProvider(name = "collectionItemUrisWithLimitProbes")
+    public Iterator<Object[]> collectionItemUrisWithLimitProbes( ITestContext testContext ) {
+        List<Object[]> collectionsWithLimitProbes = new ArrayList<>();
+        if ( !limitProbing )
+            return collectionsWithLimitProbes.iterator();
+        for ( Map<String, Object> collection : collections ) {
+            String collectionName = (String) collection.get( "name" );
+            for ( TestPoint testPoint : testPointCache.getTestPointsForCollection( collectionName ) ) {
+                Parameter limit = findParameterByName( testPoint, "limit" );
+                if ( limit != null && limit.getSchema() != null ) {
+                    Number min = limit.getSchema().getMinimum();
+                    Number max = limit.getSchema().getMaximum();
+                    int minimum = min != null ? min.intValue() : 1;
+                    int maximum = max != null ? max.intValue() : DEFAULT_MAXIMUM_LIMIT_PROBE;
+                    collectionsWithLimitProbes.add( new Object[] { collection,
+                                                                   LimitProbe.geometricLimits( minimum, maximum ) } );
+                    break;
+                }
+            }
+        }
+        return collectionsWithLimitProbes.iterator();
+    }
+
+    @DataProvider(name = "collectionItemUrisWithBboxes", parallel = true)
     public Iterator<Object[]> collectionItemUrisWithBboxes( ITestContext testContext ) {
         List<Object[]> collectionsWithBboxes = new ArrayList<>();
         for ( Map<String, Object> collection : collections ) {
@@ -129,7 +184,7 @@ public class GetFeaturesOperation extends CommonDataFixture {
         return collectionsWithBboxes.iterator();
     }
 
-    @DataProvider(name = "collectionItemUrisWithTimes")
+    @DataProvider(name = "collectionItemUrisWithTimes", parallel = true)
     public Iterator<Object[]> collectionItemUrisWithTimes( ITestContext testContext ) {
         List<Object[]> collectionsWithTimes = new ArrayList<>();
         for ( Map<String, Object> collection : collections ) {
@@ -144,17 +199,20 @@ public class GetFeaturesOperation extends CommonDataFixture {
                 ZonedDateTime endInterval = beginInterval.plus( quarter );
 
                 // Example 6. A date-time
-                collectionsWithTimes.add( new Object[] { collection, formatDate( begin ), beginInterval, null } );
+                collectionsWithTimes.add( new Object[] { collection, formatDate( begin ), begin, null } );
                 // Example 7. A period using a start and end time
                 collectionsWithTimes.add( new Object[] { collection, formatDateRange( beginInterval, endInterval ),
                                                         beginInterval, endInterval } );
                 // Example 8. A period using start time and a duration
                 LocalDate beginIntervalDate = beginInterval.toLocalDate();
                 LocalDate endIntervalDate = beginIntervalDate.plusDays( 2 );
+                // the period ends exclusively with the start of the end date
+                ZonedDateTime endOfPeriod = endIntervalDate.atStartOfDay( ZoneOffset.UTC ).minus( 1,
+                                                                                                  ChronoUnit.MILLIS );
                 collectionsWithTimes.add( new Object[] {
                                                         collection,
                                                         formatDateRangeWithDuration( beginIntervalDate, endIntervalDate ),
-                                                        beginIntervalDate, endIntervalDate } );
+                                                        beginIntervalDate, endOfPeriod } );
             }
         }
         return collectionsWithTimes.iterator();
@@ -162,8 +220,12 @@ public class GetFeaturesOperation extends CommonDataFixture {
 
     @BeforeClass
     public void retrieveRequiredInformationFromTestContext( ITestContext testContext ) {
-        this.apiModel = (OpenApi3) testContext.getSuite().getAttribute( API_MODEL.getName() );
+        this.testPointCache = testPointCache( testContext );
         this.collections = (List<Map<String, Object>>) testContext.getSuite().getAttribute( SuiteAttribute.COLLECTIONS.getName() );
+        this.collectionSnapshots = (CollectionSnapshots) testContext.getSuite().getAttribute( SuiteAttribute.COLLECTION_SNAPSHOTS.getName() );
+        this.pageStore = pageStore( testContext );
+        this.limitProbing = Boolean.TRUE.equals( testContext.getSuite().getAttribute( SuiteAttribute.LIMIT_PROBING.getName() ) );
+        this.pipelinedPaging = !Boolean.FALSE.equals( testContext.getSuite().getAttribute( SuiteAttribute.PIPELINED_PAGING.getName() ) );
     }
 
     /**
@@ -205,10 +267,11 @@ public class GetFeaturesOperation extends CommonDataFixture {
         Response response = init().baseUri( getFeaturesUrl ).accept( GEOJSON_MIME_TYPE ).when().request( GET );
         response.then().statusCode( 200 );
         ZonedDateTime timeStampAfterResponse = ZonedDateTime.now();
-        ResponseData responseData = new ResponseData( response, timeStampBeforeResponse, timeStampAfterResponse );
+        ResponseData responseData = new ResponseData( getFeaturesUrl, storePage( pageStore, response ),
+                                                      timeStampBeforeResponse, timeStampAfterResponse );
         collectionNameAndResponse.put( collectionName, responseData );
 
-        addFeatureIdToTestContext( testContext, collectionName, response );
+        addFeatureIdToTestContext( testContext, collectionName, responseData );
     }
 
     /**
@@ -333,6 +396,9 @@ public class GetFeaturesOperation extends CommonDataFixture {
      * included and count the aggregated number of features returned in all responses during the iteration. Validate
      * that the value is identical to the numberReturned stated in the initial response.
      *
+     * If the collection was harvested, the number of harvested features is used instead of following the next links
+     * again.
+     *
      * d) References: Requirement 28
      *
      * @param collection
@@ -421,6 +487,8 @@ public class GetFeaturesOperation extends CommonDataFixture {
      *
      * For each execution of Test A.4.4.9, repeat Test A.4.4.10 to validate the results.
      *
+     * If the collection was harvested, the returned features must be harvested features.
+     *
      * d) References: Requirement 19
      *
      * @param collection
@@ -448,6 +516,63 @@ public class GetFeaturesOperation extends CommonDataFixture {
                                                + " or less" );
         assertTimeStamp( collectionName, jsonPath, timeStampBeforeResponse, timeStampAfterResponse, false );
         assertNumberReturned( collectionName, jsonPath, false );
+        assertLimitResultIsInSnapshot( collectionName, jsonPath, limit );
+    }
+
+    /**
+     * Probes how the server scales with the page size (only if the test run argument
+     * {@link org.opengis.cite.wfs30.TestRunArg#LIMITPROBING} is true).
+     *
+     * The features of the collection are requested with limits doubling from the minimum up to the maximum of the limit
+     * parameter. Each limit is requested {@value #LIMIT_PROBE_REPETITIONS} times, the median latency is recorded together
+     * with the number of bytes and features and the resulting features per second. The steps and the knee point, the
+     * limit after which larger pages do not increase the throughput significantly, are logged and written to the file
+     * 'limit-probe-{collection}.csv' in the output directory.
+     *
+     * @param testContext
+     *            the test context, never <code>null</code>
+     * @param collection
+     *            the collection under test, never <code>null</code>
+     * @param limits
+     *            the limits to request in ascending order, never <code>null</code>
+     */
+    @Test(description = "Probes the latency and throughput of the limit parameter (Requirement 19)", dataProvider = "collectionItemUrisWithLimitProbes", dependsOnMethods = "validateTheGetFeaturesOperation", alwaysRun = true)
+    public void limitParameter_probing( ITestContext testContext, Map<String, Object> collection, List<Integer> limits ) {
+        String collectionName = (String) collection.get( "name" );
+
+        String getFeaturesUrl = findGetFeaturesUrlForGeoJson( collection );
+        if ( getFeaturesUrl == null )
+            throw new SkipException( "Could not find url for collection with name " + collectionName
+                                     + " supporting GeoJson (type " + GEOJSON_MIME_TYPE + ")" );
+
+        LimitProbe limitProbe = new LimitProbe( collectionName );
+        for ( int limit : limits ) {
+            long[] latencies = new long[LIMIT_PROBE_REPETITIONS];
+            FeatureEnvelopes page = null;
+            byte[] body = null;
+            for ( int repetition = 0; repetition < LIMIT_PROBE_REPETITIONS; repetition++ ) {
+                long start = System.nanoTime();
+                Response response = initWithoutLogging().baseUri( getFeaturesUrl ).accept( GEOJSON_MIME_TYPE ).param( "limit",
+                                                                                                                   limit ).when().request( GET );
+                body = response.asByteArray();
+                latencies[repetition] = System.nanoTime() - start;
+                assertEquals( response.getStatusCode(), 200, "Request of collection with name " + collectionName
+                                                             + " with limit " + limit + " failed" );
+            }
+            try {
+                page = GeoJsonEnvelopeReader.read( new ByteArrayInputStream( body ) );
+            } catch ( IOException e ) {
+                throw new AssertionError( "Could not read the features of collection '" + collectionName
+                                          + "' requested with limit " + limit + ": " + e.getMessage(), e );
+            }
+            assertTrue( page.size() <= limit, "Number of features for collection with name " + collectionName
+                                              + " is unexpected (was " + page.size() + "), expected are " + limit
+                                              + " or less" );
+            Arrays.sort( latencies );
+            limitProbe.addStep( limit, latencies[LIMIT_PROBE_REPETITIONS / 2], body.length, page.size() );
+        }
+        TestSuiteLogger.log( Level.INFO, limitProbe.toString() );
+        writeLimitProbe( testContext, limitProbe );
     }
 
     /**
@@ -522,6 +647,10 @@ public class GetFeaturesOperation extends CommonDataFixture {
      *
      * For each execution of Test A.4.4.9, repeat Test A.4.4.10 to validate the results.
      *
+     * The envelopes of the geometries of the returned features must intersect the bbox (the geometries itself are not
+     * compared). The number of matched features is compared with a spatial index of the envelopes of all features of
+     * the collection, built from the harvested snapshot.
+     *
      * d) References: Requirement 21
      *
      * @param collection
@@ -550,7 +679,9 @@ public class GetFeaturesOperation extends CommonDataFixture {
         assertTimeStamp( collectionName, jsonPath, timeStampBeforeResponse, timeStampAfterResponse, false );
         assertNumberReturned( collectionName, jsonPath, false );
 
-        // TODO: assert returned features
+        FeatureEnvelopes featureEnvelopes = readFeatureEnvelopes( collectionName, response );
+        assertFeaturesIntersectBbox( collectionName, featureEnvelopes, bbox );
+        assertBboxResultIsComplete( collectionName, featureEnvelopes, bbox );
     }
 
     /**
@@ -613,6 +744,10 @@ public class GetFeaturesOperation extends CommonDataFixture {
      *
      * For each execution of Test A.4.4.9, repeat Test A.4.4.10 to validate the results.
      *
+     * The temporal properties of the returned features must intersect the requested instant or interval. The number of
+     * matched features is compared with a temporal index of all features of the collection, built from the harvested
+     * snapshot.
+     *
      * d) References: Requirement 23
      *
      * @param collection
@@ -623,8 +758,8 @@ public class GetFeaturesOperation extends CommonDataFixture {
      *            a {@link ZonedDateTime} or {@link LocalDate}, the begin of the interval (or instant), never
      *            <code>null</code>
      * @param end
-     *            a {@link ZonedDateTime} or {@link LocalDate}, the end of the interval, never <code>null</code> if the
-     *            request is an instant
+     *            a {@link ZonedDateTime} or {@link LocalDate}, the (inclusive) end of the interval, a date covers the
+     *            whole day; <code>null</code> if the request is an instant
      * @throws URISyntaxException
      *             if the creation of a uri fails
      *
@@ -647,16 +782,23 @@ public class GetFeaturesOperation extends CommonDataFixture {
         assertTimeStamp( collectionName, jsonPath, timeStampBeforeResponse, timeStampAfterResponse, false );
         assertNumberReturned( collectionName, jsonPath, false );
 
-        // TODO: assert returned features
+        long beginMillis = toBeginEpochMillis( begin );
+        long endMillis = toEndEpochMillis( end != null ? end : begin );
+        FeatureEnvelopes featureEnvelopes = readFeatureEnvelopes( collectionName, response );
+        assertFeaturesIntersectTime( collectionName, featureEnvelopes, queryParameter, beginMillis, endMillis );
+        assertTimeResultIsComplete( collectionName, featureEnvelopes, queryParameter, beginMillis, endMillis );
     }
 
-    private void addFeatureIdToTestContext( ITestContext testContext, String collectionName, Response response ) {
+    private void addFeatureIdToTestContext( ITestContext testContext, String collectionName, ResponseData response ) {
         if ( response == null )
             return;
-        Map<String, String> collectionNameAndFeatureId = (Map<String, String>) testContext.getSuite().getAttribute( SuiteAttribute.FEATUREIDS.getName() );
-        if ( collectionNameAndFeatureId == null ) {
-            collectionNameAndFeatureId = new HashMap<>();
-            testContext.getSuite().setAttribute( SuiteAttribute.FEATUREIDS.getName(), collectionNameAndFeatureId );
+        Map<String, String> collectionNameAndFeatureId;
+        synchronized ( testContext.getSuite() ) {
+            collectionNameAndFeatureId = (Map<String, String>) testContext.getSuite().getAttribute( SuiteAttribute.FEATUREIDS.getName() );
+            if ( collectionNameAndFeatureId == null ) {
+                collectionNameAndFeatureId = new ConcurrentHashMap<>();
+                testContext.getSuite().setAttribute( SuiteAttribute.FEATUREIDS.getName(), collectionNameAndFeatureId );
+            }
         }
         String featureId = parseFeatureId( response.jsonPath() );
         if ( featureId != null )
@@ -705,50 +847,329 @@ public class GetFeaturesOperation extends CommonDataFixture {
             else
                 return;
 
-        int maximumLimit = -1;
-
-        TestPoint testPoint = retrieveTestPointsForCollection( apiModel, collectionName ).get( 0 );
-        if ( testPoint != null ) {
-            Parameter limitParameter = findParameterByName( testPoint, "limit" );
-            if ( limitParameter != null && limitParameter.getSchema() != null ) {
-                maximumLimit = limitParameter.getSchema().getMaximum().intValue();
-            }
-        }
         int numberMatched = jsonPath.getInt( "numberMatched" );
-        int numberOfAllReturnedFeatures = collectNumberOfAllReturnedFeatures( jsonPath, maximumLimit );
+        Optional<CollectionSnapshot> snapshot = findSnapshot( collectionName );
+        if ( snapshot.isPresent() ) {
+            assertEquals( numberMatched, snapshot.get().size(),
+                          "Value of numberMatched (" + numberMatched
+                                                  + ") does not match the number of harvested features ("
+                                                  + snapshot.get().size() + ")" );
+            return;
+        }
+        int maximumLimit = findMaximumLimit( collectionName );
+        FeaturePageWalker pageWalker;
+        if ( requestExecutor != null )
+            pageWalker = new FeaturePageWalker( maximumLimit, pipelinedPaging, requestExecutor, pooledHttpClient );
+        else
+            pageWalker = new FeaturePageWalker( maximumLimit, pipelinedPaging );
+        int numberOfAllReturnedFeatures = collectNumberOfAllReturnedFeatures( jsonPath, pageWalker );
+        if ( !pageWalker.getPageStatistics().isEmpty() )
+            logPageStatistics( collectionName, pageWalker );
         assertEquals( numberMatched, numberOfAllReturnedFeatures,
                       "Value of numberReturned (" + numberMatched
                                               + ") does not match the number of features in all responses ("
                                               + numberOfAllReturnedFeatures + ")" );
     }
 
-    private Parameter findParameterByName( TestPoint testPoint, String name ) {
-        String collectionItemPath = testPoint.getPath();
-        Path path = apiModel.getPath( collectionItemPath );
-        if ( path != null ) {
-            for ( Parameter parameter : path.getParameters() )
-                if ( name.equals( parameter.getName() ) )
-                    return parameter;
-            Operation get = path.getOperation( "get" );
-            for ( Parameter parameter : get.getParameters() )
-                if ( name.equals( parameter.getName() ) )
-                    return parameter;
+    private FeatureEnvelopes readFeatureEnvelopes( String collectionName, Response response ) {
+        try {
+            return GeoJsonEnvelopeReader.read( response.asInputStream() );
+        } catch ( IOException e ) {
+            throw new AssertionError( "Could not read the features of collection '" + collectionName + "': "
+                                      + e.getMessage(), e );
         }
-        return null;
     }
 
-    private String findGetFeaturesUrlForGeoJson( Map<String, Object> collection ) {
-        List<Object> links = (List<Object>) collection.get( "links" );
-        for ( Object linkObject : links ) {
-            Map<String, Object> link = (Map<String, Object>) linkObject;
-            Object rel = link.get( "rel" );
-            Object type = link.get( "type" );
-            if ( "item".equals( rel ) && GEOJSON_MIME_TYPE.equals( type ) )
-                return (String) link.get( "href" );
+    private void assertFeaturesIntersectBbox( String collectionName, FeatureEnvelopes featureEnvelopes, BBox bbox ) {
+        for ( int i = 0; i < featureEnvelopes.size(); i++ ) {
+            double[] envelope = featureEnvelopes.getEnvelope( i );
+            if ( envelope != null )
+                assertTrue( bbox.intersects( envelope ),
+                            "Envelope of the geometry of feature '" + featureEnvelopes.getId( i )
+                                                    + "' of collection '" + collectionName
+                                                    + "' does not intersect the requested bbox " + bbox );
+        }
+    }
+
+    private void assertLimitResultIsInSnapshot( String collectionName, JsonPath jsonPath, int limit ) {
+        Optional<CollectionSnapshot> snapshot = findSnapshot( collectionName );
+        if ( !snapshot.isPresent() )
+            return;
+        List<Object> ids = jsonPath.getList( "features.id" );
+        try {
+            for ( Object id : ids )
+                if ( id != null )
+                    assertTrue( snapshot.get().containsId( id.toString() ),
+                                "Feature '" + id + "' of collection '" + collectionName + "' requested with limit "
+                                                        + limit + " is not one of the harvested features" );
+        } catch ( IOException e ) {
+            TestSuiteLogger.log( Level.WARNING, "Could not read snapshot of collection '" + collectionName + "'", e );
+        }
+    }
+
+    private void assertBboxResultIsComplete( String collectionName, FeatureEnvelopes featureEnvelopes, BBox bbox ) {
+        Optional<FeatureEnvelopeIndex> index = findEnvelopeIndex( collectionName );
+        if ( !index.isPresent() )
+            return;
+        FeatureEnvelopeIndex envelopeIndex = index.get();
+
+        Set<String> candidates = envelopeIndex.findIntersecting( bbox );
+        for ( int i = 0; i < featureEnvelopes.size(); i++ ) {
+            String id = featureEnvelopes.getId( i );
+            if ( id != null && featureEnvelopes.hasEnvelope( i ) )
+                assertTrue( candidates.contains( id ),
+                            "Feature '" + id + "' of collection '" + collectionName
+                                                    + "' is not expected in the result of the requested bbox " + bbox );
+        }
+
+        long numberMatched = featureEnvelopes.getNumberMatched();
+        if ( numberMatched < 0 ) {
+            if ( featureEnvelopes.getNextUrl() != null )
+                return;
+            numberMatched = featureEnvelopes.size();
+        }
+        // the envelope of a geometry may intersect the bbox while the geometry does not
+        int maximumNumberMatched = envelopeIndex.countIntersecting( bbox );
+        int minimumNumberMatched = envelopeIndex.countContained( bbox );
+        assertTrue( minimumNumberMatched <= numberMatched && numberMatched <= maximumNumberMatched,
+                    "Expected between " + minimumNumberMatched + " and " + maximumNumberMatched
+                                            + " features of collection '" + collectionName
+                                            + "' matching the requested bbox " + bbox + ", but was " + numberMatched );
+    }
+
+    private void assertFeaturesIntersectTime( String collectionName, FeatureEnvelopes featureEnvelopes,
+                                              String queryParameter, long begin, long end ) {
+        for ( int i = 0; i < featureEnvelopes.size(); i++ ) {
+            if ( featureEnvelopes.hasTemporalExtent( i ) )
+                assertTrue( featureEnvelopes.getTemporalBegin( i ) <= end
+                            && begin <= featureEnvelopes.getTemporalEnd( i ),
+                            "Temporal properties of feature '" + featureEnvelopes.getId( i ) + "' of collection '"
+                                                    + collectionName + "' do not intersect the requested time "
+                                                    + queryParameter );
+        }
+    }
+
+    private void assertTimeResultIsComplete( String collectionName, FeatureEnvelopes featureEnvelopes,
+                                             String queryParameter, long begin, long end ) {
+        Optional<FeatureTemporalIndex> index = findTemporalIndex( collectionName );
+        if ( !index.isPresent() || index.get().size() == 0 )
+            return;
+        FeatureTemporalIndex temporalIndex = index.get();
+
+        Set<String> candidates = temporalIndex.findIntersecting( begin, end );
+        for ( int i = 0; i < featureEnvelopes.size(); i++ ) {
+            String id = featureEnvelopes.getId( i );
+            if ( id != null && featureEnvelopes.hasTemporalExtent( i ) )
+                assertTrue( candidates.contains( id ),
+                            "Feature '" + id + "' of collection '" + collectionName
+                                                    + "' is not expected in the result of the requested time "
+                                                    + queryParameter );
+        }
+
+        long numberMatched = featureEnvelopes.getNumberMatched();
+        if ( numberMatched < 0 ) {
+            if ( featureEnvelopes.getNextUrl() != null )
+                return;
+            numberMatched = featureEnvelopes.size();
+        }
+        // the server may use only some of the temporal properties of a feature
+        int maximumNumberMatched = temporalIndex.countIntersecting( begin, end );
+        int minimumNumberMatched = temporalIndex.countContained( begin, end );
+        assertTrue( minimumNumberMatched <= numberMatched && numberMatched <= maximumNumberMatched,
+                    "Expected between " + minimumNumberMatched + " and " + maximumNumberMatched
+                                            + " features of collection '" + collectionName
+                                            + "' matching the requested time " + queryParameter + ", but was "
+                                            + numberMatched );
+    }
+
+    static long toBeginEpochMillis( Object dateOrDateTime ) {
+        if ( dateOrDateTime instanceof LocalDate )
+            return ( (LocalDate) dateOrDateTime ).atStartOfDay( ZoneOffset.UTC ).toInstant().toEpochMilli();
+        return ( (ZonedDateTime) dateOrDateTime ).toInstant().toEpochMilli();
+    }
+
+    /**
+     * A date (e.g. a date instant) covers the whole day, the end of the interval is the last millisecond before the
+     * start of the next day (the end of the queried interval is inclusive). The end of a period given by a duration is
+     * passed as date-time, as the period does not include the end date.
+     */
+    static long toEndEpochMillis( Object dateOrDateTime ) {
+        if ( dateOrDateTime instanceof LocalDate )
+            return ( (LocalDate) dateOrDateTime ).plusDays( 1 ).atStartOfDay( ZoneOffset.UTC ).toInstant().toEpochMilli() - 1;
+        return ( (ZonedDateTime) dateOrDateTime ).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Returns the snapshot of the collection. The collection is harvested with the first call, concurrent calls for the
+     * same collection wait for this harvest.
+     *
+     * @return the snapshot, empty if the collection is not configured to be harvested or could not be harvested
+     *         completely
+     */
+    private Optional<CollectionSnapshot> findSnapshot( String collectionName ) {
+        if ( collectionSnapshots == null || !collectionSnapshots.isHarvested( collectionName ) )
+            return Optional.empty();
+        FutureTask<Optional<CollectionSnapshot>> harvest = new FutureTask<>( () -> harvestFeatures( collectionName ) );
+        FutureTask<Optional<CollectionSnapshot>> previousHarvest = harvests.putIfAbsent( collectionName, harvest );
+        if ( previousHarvest != null )
+            harvest = previousHarvest;
+        harvest.run();
+        try {
+            return harvest.get();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch ( ExecutionException e ) {
+            TestSuiteLogger.log( Level.WARNING, "Could not harvest collection '" + collectionName + "'", e );
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Harvests all features of the collection once by following the next links with the maximum limit. The features
+     * are stored in a snapshot on disk, which is used to verify the results of the numberMatched, limit, bbox and time
+     * tests without further requests.
+     *
+     * The number of harvested features and the harvested collections are configured by the test run arguments
+     * {@link org.opengis.cite.wfs30.TestRunArg#HARVESTMAXFEATURES} and
+     * {@link org.opengis.cite.wfs30.TestRunArg#HARVESTCOLLECTIONS}.
+     *
+     * @return the snapshot, empty if the collection could not be harvested completely
+     */
+    private Optional<CollectionSnapshot> harvestFeatures( String collectionName ) {
+        String getFeaturesUrl = findGetFeaturesUrlOfCollection( collectionName );
+        if ( getFeaturesUrl == null ) {
+            TestSuiteLogger.log( Level.INFO, "Collection with name " + collectionName
+                                             + " is not harvested: no url supporting GeoJson (type "
+                                             + GEOJSON_MIME_TYPE + ")" );
+            return Optional.empty();
+        }
+        CollectionSnapshot.Writer writer = null;
+        try {
+            writer = collectionSnapshots.newWriter();
+            harvestPages( collectionName, getFeaturesUrl, writer );
+            CollectionSnapshot snapshot = writer.finish();
+            collectionSnapshots.put( collectionName, snapshot );
+            TestSuiteLogger.log( Level.FINE, "Harvested " + snapshot.size() + " features of collection '"
+                                             + collectionName + "' to " + snapshot.getDirectory() );
+            return Optional.of( snapshot );
+        } catch ( IOException e ) {
+            if ( writer != null )
+                writer.discard();
+            TestSuiteLogger.log( Level.INFO, "Collection with name " + collectionName + " is not harvested: "
+                                             + e.getMessage() );
+            return Optional.empty();
+        }
+    }
+
+    private String findGetFeaturesUrlOfCollection( String collectionName ) {
+        if ( collections == null )
+            return null;
+        for ( Map<String, Object> collection : collections ) {
+            if ( collectionName.equals( collection.get( "name" ) ) )
+                return findGetFeaturesUrlForGeoJson( collection );
         }
         return null;
     }
 
+    private Optional<FeatureEnvelopeIndex> findEnvelopeIndex( String collectionName ) {
+        Optional<CollectionSnapshot> snapshot = findSnapshot( collectionName );
+        if ( !snapshot.isPresent() )
+            return Optional.empty();
+        try {
+            return Optional.of( snapshot.get().getEnvelopeIndex() );
+        } catch ( IOException e ) {
+            TestSuiteLogger.log( Level.WARNING, "Could not read snapshot of collection '" + collectionName + "'", e );
+            return Optional.empty();
+        }
+    }
+
+    private Optional<FeatureTemporalIndex> findTemporalIndex( String collectionName ) {
+        Optional<CollectionSnapshot> snapshot = findSnapshot( collectionName );
+        if ( !snapshot.isPresent() )
+            return Optional.empty();
+        try {
+            return Optional.of( snapshot.get().getTemporalIndex() );
+        } catch ( IOException e ) {
+            TestSuiteLogger.log( Level.WARNING, "Could not read snapshot of collection '" + collectionName + "'", e );
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Requests all pages of the collection and appends them to the snapshot.
+     *
+     * @throws IOException
+     *             if the collection could not be harvested completely
+     */
+    private void harvestPages( String collectionName, String getFeaturesUrl, CollectionSnapshot.Writer writer )
+                            throws IOException {
+        int maximumLimit = findMaximumLimit( collectionName );
+        Set<String> requestedUrls = new HashSet<>();
+        RequestSpecification request = initWithoutLogging().baseUri( getFeaturesUrl ).accept( GEOJSON_MIME_TYPE );
+        if ( maximumLimit > 0 )
+            request.param( "limit", maximumLimit );
+        String url = getFeaturesUrl;
+        while ( url != null ) {
+            if ( !requestedUrls.add( url ) )
+                throw new IOException( "Collection with name " + collectionName + " contains a cycle of next links ("
+                                       + url + ")" );
+            if ( writer.size() > collectionSnapshots.getMaxFeatures() )
+                throw new IOException( "Collection with name " + collectionName + " contains more than "
+                                       + collectionSnapshots.getMaxFeatures() + " features" );
+            Response response = request.when().request( GET );
+            if ( response.getStatusCode() != 200 )
+                throw new IOException( "Request of " + url + " failed with status code "
+                                       + response.getStatusCode() );
+            FeatureEnvelopes page = writer.append( response.asByteArray() );
+            url = page.size() > 0 ? page.getNextUrl() : null;
+            // the next links are already encoded
+            if ( url != null )
+                request = initWithoutLogging().urlEncodingEnabled( false ).baseUri( url ).accept( GEOJSON_MIME_TYPE );
+        }
+    }
+
+    private void writeLimitProbe( ITestContext testContext, LimitProbe limitProbe ) {
+        if ( testContext.getOutputDirectory() == null )
+            return;
+        String fileName = "limit-probe-" + limitProbe.getCollectionName().replaceAll( "[^A-Za-z0-9_.-]", "_" ) + ".csv";
+        File file = new File( testContext.getOutputDirectory(), fileName );
+        try {
+            Files.createDirectories( file.getParentFile().toPath() );
+            Files.write( file.toPath(), limitProbe.asCsv().getBytes( StandardCharsets.UTF_8 ) );
+        } catch ( IOException e ) {
+            TestSuiteLogger.log( Level.WARNING, "Could not write limit probe to " + file, e );
+        }
+    }
+
+    private int findMaximumLimit( String collectionName ) {
+        TestPoint testPoint = testPointCache.findFirstTestPointForCollection( collectionName );
+        if ( testPoint == null )
+            return -1;
+        Parameter limitParameter = findParameterByName( testPoint, "limit" );
+        if ( limitParameter != null && limitParameter.getSchema() != null
+             && limitParameter.getSchema().getMaximum() != null )
+            return limitParameter.getSchema().getMaximum().intValue();
+        return -1;
+    }
+
+    private void logPageStatistics( String collectionName, FeaturePageWalker pageWalker ) {
+        if ( !TestSuiteLogger.isLoggable( Level.FINE ) )
+            return;
+        List<PageStatistics> pageStatistics = pageWalker.getPageStatistics();
+        StringBuilder sb = new StringBuilder();
+        sb.append( "Requested " ).append( pageStatistics.size() ).append( " pages (" );
+        sb.append( pageWalker.getNumberOfBytes() ).append( " bytes) of collection '" ).append( collectionName );
+        sb.append( "':" );
+        for ( PageStatistics page : pageStatistics )
+            sb.append( "\n  - " ).append( page );
+        TestSuiteLogger.log( Level.FINE, sb.toString() );
+    }
+
+    private Parameter findParameterByName( TestPoint testPoint, String name ) {
+        return testPointCache.findParameterByName( testPoint, name );
+    }
+
     private void assertIntegerGreaterZero( Object value, String propertyName ) {
         if ( value instanceof Number )
             assertIntegerGreaterZero( ( (Number) value ).intValue(), propertyName );
@@ -769,21 +1190,24 @@ public class GetFeaturesOperation extends CommonDataFixture {
 
     private class ResponseData {
 
-        private final Response response;
+        private final String uri;
+
+        private final StoredPage page;
 
         private final ZonedDateTime timeStampBeforeResponse;
 
         private final ZonedDateTime timeStampAfterResponse;
 
-        public ResponseData( Response response, ZonedDateTime timeStampBeforeResponse,
+        public ResponseData( String uri, StoredPage page, ZonedDateTime timeStampBeforeResponse,
                              ZonedDateTime timeStampAfterResponse ) {
-            this.response = response;
+            this.uri = uri;
+            this.page = page;
             this.timeStampBeforeResponse = timeStampBeforeResponse;
             this.timeStampAfterResponse = timeStampAfterResponse;
         }
 
         public JsonPath jsonPath() {
-            return response.jsonPath();
+            return GetFeaturesOperation.this.jsonPath( uri, page );
         }
     }
 
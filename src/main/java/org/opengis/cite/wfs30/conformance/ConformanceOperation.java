@@ -2,12 +2,12 @@ package org.opengis.cite.wfs30.conformance;
 
 import static io.restassured.http.ContentType.JSON;
 import static io.restassured.http.Method.GET;
-import static org.opengis.cite.wfs30.SuiteAttribute.API_MODEL;
 import static org.opengis.cite.wfs30.SuiteAttribute.REQUIREMENTCLASSES;
-import static org.opengis.cite.wfs30.openapi3.OpenApiUtils.retrieveTestPointsForConformance;
+import static org.opengis.cite.wfs30.openapi3.OpenApiUtils.iterateTestPointsForConformance;
 import static org.testng.Assert.assertNotNull;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import org.opengis.cite.wfs30.CommonFixture;
@@ -18,8 +18,6 @@ import org.testng.annotations.AfterClass;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
-import com.reprezen.kaizen.oasparser.model3.OpenApi3;
-
 import io.restassured.path.json.JsonPath;
 import io.restassured.response.Response;
 
@@ -31,10 +29,8 @@ public class ConformanceOperation extends CommonFixture {
     private List<RequirementClass> requirementClasses;
 
     @DataProvider(name = "conformanceUris")
-    public Object[][] conformanceUris( ITestContext testContext ) {
-        OpenApi3 apiModel = (OpenApi3) testContext.getSuite().getAttribute( API_MODEL.getName() );
-        List<TestPoint> testPoints = retrieveTestPointsForConformance( apiModel );
-        return new Object[][] { testPoints.toArray() };
+    public Iterator<Object[]> conformanceUris( ITestContext testContext ) {
+        return testPointParameters( iterateTestPointsForConformance( apiPathIndex( testContext ) ) );
     }
 
     @AfterClass
@@ -73,7 +69,7 @@ public class ConformanceOperation extends CommonFixture {
      */
     private Response validateConformanceOperation( TestPoint testPoint ) {
         String testPointUri = new UriBuilder( testPoint ).buildUrl();
-        return init().baseUri( testPointUri ).accept( JSON ).when().request( GET );
+        return initRevalidated( testPointUri ).baseUri( testPointUri ).accept( JSON ).when().request( GET );
     }
 
     /**
@@ -0,0 +1,70 @@
+package org.opengis.cite.wfs30.openapi3;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates lazily over all combinations of the values of template variables. Only the index of the current value of
+ * each variable is kept, so the memory does not depend on the number of combinations. The values of the last variable
+ * change fastest; without variables a single empty combination is returned. Variables without values are not part of
+ * the combinations, so they are left unexpanded instead of suppressing all combinations.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+class CartesianProduct implements Iterator<Map<String, String>> {
+
+    private final List<String> names;
+
+    private final List<List<String>> values;
+
+    private final int[] indices;
+
+    private boolean hasNext;
+
+    /**
+     * @param variables
+     *            the values of each variable in the order of the variables, never <code>null</code>
+     */
+    CartesianProduct( Map<String, List<String>> variables ) {
+        this.names = new ArrayList<>();
+        this.values = new ArrayList<>();
+        for ( Map.Entry<String, List<String>> variable : variables.entrySet() ) {
+            if ( !variable.getValue().isEmpty() ) {
+                names.add( variable.getKey() );
+                values.add( variable.getValue() );
+            }
+        }
+        this.indices = new int[names.size()];
+        this.hasNext = true;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    @Override
+    public Map<String, String> next() {
+        if ( !hasNext )
+            throw new NoSuchElementException();
+        Map<String, String> combination = new HashMap<>();
+        for ( int i = 0; i < indices.length; i++ )
+            combination.put( names.get( i ), values.get( i ).get( indices[i] ) );
+        advance();
+        return combination;
+    }
+
+    private void advance() {
+        for ( int i = indices.length - 1; i >= 0; i-- ) {
+            if ( ++indices[i] < values.get( i ).size() )
+                return;
+            indices[i] = 0;
+        }
+        hasNext = false;
+    }
+
+}
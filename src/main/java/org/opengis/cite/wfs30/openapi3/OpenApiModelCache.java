@@ -0,0 +1,336 @@
+package org.opengis.cite.wfs30.openapi3;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import org.opengis.cite.wfs30.util.TestSuiteLogger;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.reprezen.kaizen.oasparser.OpenApi3Parser;
+import com.reprezen.kaizen.oasparser.model3.Info;
+import com.reprezen.kaizen.oasparser.model3.OpenApi3;
+import com.reprezen.kaizen.oasparser.model3.Operation;
+import com.reprezen.kaizen.oasparser.model3.Parameter;
+import com.reprezen.kaizen.oasparser.model3.Path;
+import com.reprezen.kaizen.oasparser.model3.Response;
+import com.reprezen.kaizen.oasparser.model3.Schema;
+import com.reprezen.kaizen.oasparser.model3.Server;
+import com.reprezen.kaizen.oasparser.model3.ServerVariable;
+
+/**
+ * On-disk cache of validated OpenAPI documents, keyed by the hash of the document and the version of the test suite.
+ *
+ * Only the parts of the document used by the test suite are stored: the servers (including variables), the paths with
+ * their parameters and servers and the operations with their parameters, servers and the media types of the response
+ * '200'. References are resolved and the parameter schemas are reduced to the properties evaluated by the tests. The
+ * compact document is a fraction of the original size and is parsed without validation, so a repeated run against an
+ * unchanged API skips the parsing and validation of the full document.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class OpenApiModelCache {
+
+    private static final String FILE_SUFFIX = ".json";
+
+    private final File directory;
+
+    private final String version;
+
+    private final AtomicInteger noOfHits = new AtomicInteger();
+
+    private final AtomicInteger noOfMisses = new AtomicInteger();
+
+    /**
+     * @param directory
+     *            the directory of the cache, created if missing, never <code>null</code>
+     * @param version
+     *            the version of the test suite, documents stored by other versions are not used, never
+     *            <code>null</code>
+     * @throws IOException
+     *             if the directory could not be created
+     */
+    public OpenApiModelCache( File directory, String version ) throws IOException {
+        this.directory = directory;
+        this.version = version;
+        Files.createDirectories( directory.toPath() );
+    }
+
+    /**
+     * Loads the compact model of the passed document.
+     *
+     * @param document
+     *            the file containing the OpenAPI document, never <code>null</code>
+     * @param documentUrl
+     *            the url the document was retrieved from, never <code>null</code>
+     * @return the compact model of the document, <code>null</code> if the document was not validated and stored before
+     */
+    public OpenApi3 load( File document, URL documentUrl ) {
+        File file;
+        try {
+            file = cacheFile( document );
+        } catch ( IOException e ) {
+            TestSuiteLogger.log( Level.WARNING, "Could not read OpenAPI document " + document, e );
+            noOfMisses.incrementAndGet();
+            return null;
+        }
+        if ( !file.isFile() ) {
+            noOfMisses.incrementAndGet();
+            return null;
+        }
+        try {
+            String compactDocument = new String( Files.readAllBytes( file.toPath() ), StandardCharsets.UTF_8 );
+            OpenApi3 apiModel = new OpenApi3Parser().parse( compactDocument, documentUrl, false );
+            noOfHits.incrementAndGet();
+            return apiModel;
+        } catch ( Exception e ) {
+            TestSuiteLogger.log( Level.WARNING, "Could not load cached OpenAPI document " + file, e );
+            noOfMisses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Stores the compact model of the passed document, which must be validated successfully.
+     *
+     * @param document
+     *            the file containing the OpenAPI document, never <code>null</code>
+     * @param apiModel
+     *            the parsed and validated document, never <code>null</code>
+     */
+    public void store( File document, OpenApi3 apiModel ) {
+        File file;
+        try {
+            file = cacheFile( document );
+        } catch ( IOException e ) {
+            TestSuiteLogger.log( Level.WARNING, "Could not read OpenAPI document " + document, e );
+            return;
+        }
+        File tmpFile = new File( directory, file.getName() + ".tmp" );
+        try {
+            try (Writer writer = Files.newBufferedWriter( tmpFile.toPath(), StandardCharsets.UTF_8 )) {
+                writeCompactDocument( apiModel, writer );
+            }
+            Files.move( tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        } catch ( IOException e ) {
+            TestSuiteLogger.log( Level.WARNING, "Could not store OpenAPI document in " + file, e );
+            tmpFile.delete();
+        }
+    }
+
+    /**
+     * @return the directory of the cache, never <code>null</code>
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the number of documents loaded from the cache
+     */
+    public int getNoOfHits() {
+        return noOfHits.get();
+    }
+
+    /**
+     * @return the number of documents not found in the cache
+     */
+    public int getNoOfMisses() {
+        return noOfMisses.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format( Locale.ROOT, "%s: %d hits, %d misses", directory, getNoOfHits(), getNoOfMisses() );
+    }
+
+    /**
+     * Writes the parts of the document used by the test suite as OpenAPI 3.0 document with resolved references.
+     *
+     * @param apiModel
+     *            the document to write, never <code>null</code>
+     * @param writer
+     *            the writer to write to, never <code>null</code>
+     * @throws IOException
+     *             if the document could not be written
+     */
+    static void writeCompactDocument( OpenApi3 apiModel, Writer writer )
+                            throws IOException {
+        try (JsonGenerator generator = new JsonFactory().createGenerator( writer )) {
+            generator.writeStartObject();
+            generator.writeStringField( "openapi", apiModel.getOpenApi() != null ? apiModel.getOpenApi() : "3.0.0" );
+            Info info = apiModel.getInfo();
+            generator.writeObjectFieldStart( "info" );
+            generator.writeStringField( "title", info != null && info.getTitle() != null ? info.getTitle() : "" );
+            generator.writeStringField( "version", info != null && info.getVersion() != null ? info.getVersion() : "" );
+            generator.writeEndObject();
+            if ( apiModel.hasServers() )
+                writeServers( generator, apiModel.getServers() );
+            generator.writeObjectFieldStart( "paths" );
+            for ( Path path : apiModel.getPaths().values() )
+                writePath( generator, path );
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+    }
+
+    private static void writePath( JsonGenerator generator, Path path )
+                            throws IOException {
+        generator.writeObjectFieldStart( path.getPathString() );
+        if ( path.hasServers() )
+            writeServers( generator, path.getServers() );
+        if ( path.hasParameters() )
+            writeParameters( generator, path.getParameters() );
+        for ( Map.Entry<String, Operation> operation : path.getOperations().entrySet() ) {
+            generator.writeObjectFieldStart( operation.getKey() );
+            writeOperation( generator, operation.getValue() );
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeOperation( JsonGenerator generator, Operation operation )
+                            throws IOException {
+        if ( operation.hasServers() )
+            writeServers( generator, operation.getServers() );
+        if ( operation.hasParameters() )
+            writeParameters( generator, operation.getParameters() );
+        generator.writeObjectFieldStart( "responses" );
+        Response response = operation.getResponses().get( "200" );
+        if ( response != null ) {
+            generator.writeObjectFieldStart( "200" );
+            generator.writeStringField( "description", "" );
+            generator.writeObjectFieldStart( "content" );
+            for ( String mediaType : response.getContentMediaTypes().keySet() ) {
+                generator.writeObjectFieldStart( mediaType );
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeServers( JsonGenerator generator, Collection<Server> servers )
+                            throws IOException {
+        generator.writeArrayFieldStart( "servers" );
+        for ( Server server : servers ) {
+            generator.writeStartObject();
+            generator.writeStringField( "url", server.getUrl() );
+            Map<String, ServerVariable> serverVariables = server.getServerVariables();
+            if ( !serverVariables.isEmpty() ) {
+                generator.writeObjectFieldStart( "variables" );
+                for ( Map.Entry<String, ServerVariable> serverVariable : serverVariables.entrySet() ) {
+                    generator.writeObjectFieldStart( serverVariable.getKey() );
+                    writeValue( generator, "default", serverVariable.getValue().getDefault() );
+                    if ( serverVariable.getValue().hasEnumValues() )
+                        writeValues( generator, "enum", serverVariable.getValue().getEnumValues() );
+                    generator.writeEndObject();
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writeParameters( JsonGenerator generator, Collection<Parameter> parameters )
+                            throws IOException {
+        generator.writeArrayFieldStart( "parameters" );
+        for ( Parameter parameter : parameters ) {
+            generator.writeStartObject();
+            writeValue( generator, "name", parameter.getName() );
+            writeValue( generator, "in", parameter.getIn() );
+            writeValue( generator, "required", parameter.getRequired() );
+            writeValue( generator, "style", parameter.getStyle() );
+            writeValue( generator, "explode", parameter.getExplode() );
+            if ( parameter.getSchema() != null ) {
+                generator.writeFieldName( "schema" );
+                writeSchema( generator, parameter.getSchema() );
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writeSchema( JsonGenerator generator, Schema schema )
+                            throws IOException {
+        generator.writeStartObject();
+        writeValue( generator, "type", schema.getType() );
+        writeValue( generator, "format", schema.getFormat() );
+        writeValue( generator, "minimum", schema.getMinimum() );
+        writeValue( generator, "maximum", schema.getMaximum() );
+        writeValue( generator, "minItems", schema.getMinItems() );
+        writeValue( generator, "maxItems", schema.getMaxItems() );
+        writeValue( generator, "default", schema.getDefault() );
+        if ( schema.hasEnums() )
+            writeValues( generator, "enum", schema.getEnums() );
+        if ( schema.getItemsSchema() != null && schema.getItemsSchema().getType() != null ) {
+            generator.writeFieldName( "items" );
+            writeSchema( generator, schema.getItemsSchema() );
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeValues( JsonGenerator generator, String fieldName, Collection<Object> values )
+                            throws IOException {
+        generator.writeArrayFieldStart( fieldName );
+        for ( Object value : values )
+            writeValue( generator, value );
+        generator.writeEndArray();
+    }
+
+    private static void writeValue( JsonGenerator generator, String fieldName, Object value )
+                            throws IOException {
+        if ( value == null )
+            return;
+        generator.writeFieldName( fieldName );
+        writeValue( generator, value );
+    }
+
+    private static void writeValue( JsonGenerator generator, Object value )
+                            throws IOException {
+        if ( value instanceof Number )
+            generator.writeNumber( value.toString() );
+        else if ( value instanceof Boolean )
+            generator.writeBoolean( (Boolean) value );
+        else
+            generator.writeString( value.toString() );
+    }
+
+    private File cacheFile( File document )
+                            throws IOException {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance( "SHA-256" );
+            messageDigest.update( version.getBytes( StandardCharsets.UTF_8 ) );
+            messageDigest.update( (byte) 0 );
+            byte[] buffer = new byte[8192];
+            try (InputStream in = Files.newInputStream( document.toPath() )) {
+                int read;
+                while ( ( read = in.read( buffer ) ) != -1 )
+                    messageDigest.update( buffer, 0, read );
+            }
+            byte[] digest = messageDigest.digest();
+            StringBuilder fileName = new StringBuilder();
+            for ( byte b : digest )
+                fileName.append( String.format( "%02x", b ) );
+            return new File( directory, fileName + FILE_SUFFIX );
+        } catch ( NoSuchAlgorithmException e ) {
+            throw new IllegalStateException( "SHA-256 is not supported", e );
+        }
+    }
+
+}
@@ -0,0 +1,235 @@
+package org.opengis.cite.wfs30.openapi3;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import com.reprezen.kaizen.oasparser.model3.OpenApi3;
+import com.reprezen.kaizen.oasparser.model3.Path;
+import com.sun.jersey.api.uri.UriTemplateParser;
+
+/**
+ * Index of the paths of an OpenApi3 document. The path templates are split into segments once and stored in a trie, so
+ * the lookup of the paths matching a requested path depends on the number of segments of the requested path only and
+ * does not compile any regular expression.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class OpenApiPathIndex {
+
+    private static final Pattern COLLECTION_ITEMS = Pattern.compile( "/collections/.*/items" );
+
+    private static final Pattern VARIABLE = Pattern.compile( "\\{[^{}:]+\\}" );
+
+    private final OpenApi3 apiModel;
+
+    private final Node root = new Node();
+
+    private final Map<String, PathTemplate> pathTemplates = new HashMap<>();
+
+    private final List<Path> collectionItemsPaths = new ArrayList<>();
+
+    /**
+     * @param apiModel
+     *            the OpenApi3 document to index, never <code>null</code>
+     */
+    public OpenApiPathIndex( OpenApi3 apiModel ) {
+        this( apiModel, apiModel.getPaths().values() );
+    }
+
+    OpenApiPathIndex( OpenApi3 apiModel, Collection<Path> paths ) {
+        this.apiModel = apiModel;
+        int ordinal = 0;
+        for ( Path path : paths ) {
+            String pathString = path.getPathString();
+            PathTemplate pathTemplate = pathTemplates.computeIfAbsent( pathString, PathTemplate::new );
+            root.add( pathTemplate.segments, 0, new IndexedPath( ordinal++, path ) );
+            if ( COLLECTION_ITEMS.matcher( pathString ).matches() )
+                collectionItemsPaths.add( path );
+        }
+    }
+
+    /**
+     * @return the indexed OpenApi3 document, never <code>null</code>
+     */
+    public OpenApi3 getApiModel() {
+        return apiModel;
+    }
+
+    /**
+     * @param requestedPath
+     *            the path to find the matching path templates for, e.g. '/collections/lakes/items', never
+     *            <code>null</code>
+     * @return the paths with a template matching the requested path in the order of the document, may be empty but
+     *         never <code>null</code>
+     */
+    public List<Path> findPaths( String requestedPath ) {
+        List<IndexedPath> found = new ArrayList<>();
+        root.collect( split( requestedPath ), 0, found );
+        return found.stream().sorted( Comparator.comparingInt( indexedPath -> indexedPath.ordinal ) )
+                    .map( indexedPath -> indexedPath.path ).collect( Collectors.toList() );
+    }
+
+    /**
+     * @return the paths matching '/collections/.*&#47;items' in the order of the document, may be empty but never
+     *         <code>null</code>
+     */
+    public List<Path> findCollectionItemsPaths() {
+        return collectionItemsPaths;
+    }
+
+    /**
+     * Checks if the passed test point matches the requested path exactly, template variables with predefined values
+     * must match these values.
+     *
+     * @param testPoint
+     *            the test point to check, never <code>null</code>
+     * @param requestedPath
+     *            the requested path, never <code>null</code>
+     * @return <code>true</code> if the test point matches the requested path, <code>false</code> otherwise
+     */
+    public boolean matchesExactly( TestPoint testPoint, String requestedPath ) {
+        PathTemplate pathTemplate = pathTemplates.get( testPoint.getPath() );
+        if ( pathTemplate == null )
+            pathTemplate = new PathTemplate( testPoint.getPath() );
+        return pathTemplate.matches( split( requestedPath ), testPoint.getPredefinedTemplateReplacement() );
+    }
+
+    private static String[] split( String path ) {
+        return path.split( "/", -1 );
+    }
+
+    private static class PathTemplate {
+
+        private final Segment[] segments;
+
+        private PathTemplate( String pathString ) {
+            String[] parts = split( pathString );
+            this.segments = new Segment[parts.length];
+            for ( int i = 0; i < parts.length; i++ )
+                segments[i] = new Segment( parts[i] );
+        }
+
+        private boolean matches( String[] requestedSegments, Map<String, String> templateReplacement ) {
+            if ( requestedSegments.length != segments.length )
+                return false;
+            for ( int i = 0; i < segments.length; i++ ) {
+                if ( !segments[i].matches( requestedSegments[i], templateReplacement ) )
+                    return false;
+            }
+            return true;
+        }
+
+    }
+
+    private static class Segment {
+
+        private final String literal;
+
+        private final String variableName;
+
+        private final Pattern pattern;
+
+        private Segment( String segment ) {
+            if ( segment.indexOf( '{' ) < 0 ) {
+                this.literal = segment;
+                this.variableName = null;
+                this.pattern = null;
+            } else if ( VARIABLE.matcher( segment ).matches() ) {
+                this.literal = null;
+                this.variableName = segment.substring( 1, segment.length() - 1 ).trim();
+                this.pattern = null;
+            } else {
+                this.literal = null;
+                this.variableName = null;
+                this.pattern = new UriTemplateParser( segment ).getPattern();
+            }
+        }
+
+        private boolean matches( String requestedSegment ) {
+            if ( literal != null )
+                return literal.equals( requestedSegment );
+            if ( variableName != null )
+                return !requestedSegment.isEmpty();
+            return pattern.matcher( requestedSegment ).matches();
+        }
+
+        private boolean matches( String requestedSegment, Map<String, String> templateReplacement ) {
+            if ( variableName != null && templateReplacement != null && templateReplacement.containsKey( variableName ) )
+                return templateReplacement.get( variableName ).equals( requestedSegment );
+            return matches( requestedSegment );
+        }
+
+        private String key() {
+            if ( literal != null )
+                return literal;
+            if ( variableName != null )
+                return "{}";
+            return pattern.pattern();
+        }
+
+    }
+
+    private static class Node {
+
+        private final Map<String, Node> literalChildren = new HashMap<>();
+
+        private final Map<String, Node> templateChildren = new HashMap<>();
+
+        private final Map<String, Segment> templateSegments = new HashMap<>();
+
+        private final List<IndexedPath> paths = new ArrayList<>();
+
+        private void add( Segment[] segments, int index, IndexedPath indexedPath ) {
+            if ( index == segments.length ) {
+                paths.add( indexedPath );
+                return;
+            }
+            Segment segment = segments[index];
+            Node child;
+            if ( segment.literal != null ) {
+                child = literalChildren.computeIfAbsent( segment.literal, key -> new Node() );
+            } else {
+                String key = segment.key();
+                child = templateChildren.computeIfAbsent( key, k -> new Node() );
+                templateSegments.putIfAbsent( key, segment );
+            }
+            child.add( segments, index + 1, indexedPath );
+        }
+
+        private void collect( String[] requestedSegments, int index, List<IndexedPath> found ) {
+            if ( index == requestedSegments.length ) {
+                found.addAll( paths );
+                return;
+            }
+            String requestedSegment = requestedSegments[index];
+            Node literalChild = literalChildren.get( requestedSegment );
+            if ( literalChild != null )
+                literalChild.collect( requestedSegments, index + 1, found );
+            for ( Map.Entry<String, Node> templateChild : templateChildren.entrySet() ) {
+                if ( templateSegments.get( templateChild.getKey() ).matches( requestedSegment ) )
+                    templateChild.getValue().collect( requestedSegments, index + 1, found );
+            }
+        }
+
+    }
+
+    private static class IndexedPath {
+
+        private final int ordinal;
+
+        private final Path path;
+
+        private IndexedPath( int ordinal, Path path ) {
+            this.ordinal = ordinal;
+            this.path = path;
+        }
+
+    }
+
+}
@@ -7,13 +7,17 @@ import static org.opengis.cite.wfs30.openapi3.OpenApiUtils.PATH.CONFORMANCE;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Predicate;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.reprezen.kaizen.oasparser.model3.MediaType;
 import com.reprezen.kaizen.oasparser.model3.OpenApi3;
@@ -23,8 +27,8 @@ import com.reprezen.kaizen.oasparser.model3.Path;
 import com.reprezen.kaizen.oasparser.model3.Response;
 import com.reprezen.kaizen.oasparser.model3.Schema;
 import com.reprezen.kaizen.oasparser.model3.Server;
+import com.reprezen.kaizen.oasparser.model3.ServerVariable;
 import com.sun.jersey.api.uri.UriTemplate;
-import com.sun.jersey.api.uri.UriTemplateParser;
 
 /**
  * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
@@ -34,11 +38,6 @@ public class OpenApiUtils {
     // as described in https://github.com/OAI/OpenAPI-Specification/blob/master/versions/3.0.0.md#fixed-fields
     private static final String DEFAULT_SERVER_URL = "/";
 
-    @FunctionalInterface
-    private interface PathMatcherFunction<A, B, C> {
-        A apply( B b, C c );
-    }
-
     enum PATH {
 
         API( "api" ), CONFORMANCE( "conformance" ), COLLECTIONS( "collections" );
@@ -55,41 +54,50 @@ public class OpenApiUtils {
         }
     }
 
-    private static class PathMatcher implements PathMatcherFunction<Boolean, String, String> {
-        @Override
-        public Boolean apply( String pathUnderTest, String pathToMatch ) {
-            UriTemplateParser parser = new UriTemplateParser( pathUnderTest );
-            Matcher matcher = parser.getPattern().matcher( pathToMatch );
-            return matcher.matches();
-        }
-    }
-
     private static class ExactMatchFilter implements Predicate<TestPoint> {
 
+        private final OpenApiPathIndex pathIndex;
+
         private final String requestedPath;
 
-        ExactMatchFilter( String requestedPath ) {
+        ExactMatchFilter( OpenApiPathIndex pathIndex, String requestedPath ) {
+            this.pathIndex = pathIndex;
             this.requestedPath = requestedPath;
         }
 
         @Override
         public boolean test( TestPoint testPoint ) {
-            UriTemplate uriTemplate = new UriTemplate( testPoint.getPath() );
-            Map<String, String> templateReplacement = new HashMap<>( testPoint.getPredefinedTemplateReplacement() );
-            List<String> templateVariables = uriTemplate.getTemplateVariables();
-            for ( String templateVariable : templateVariables ) {
-                if ( !templateReplacement.containsKey( templateVariable ) )
-                    templateReplacement.put( templateVariable, ".*" );
-            }
-            String uri = uriTemplate.createURI( templateReplacement );
-            Pattern pattern = Pattern.compile( uri );
-            return pattern.matcher( requestedPath ).matches();
+            return pathIndex.matchesExactly( testPoint, requestedPath );
         }
     }
 
     private OpenApiUtils() {
     }
 
+    /**
+     * Checks if the passed path is one of the paths tested by the suite: '/api', '/conformance', '/collections',
+     * '/collections/{name}', '/collections/{name}/items' and '/collections/{name}/items/{id}'.
+     *
+     * @param pathString
+     *            the path of a path item, never <code>null</code>
+     * @return <code>true</code> if the path is tested, <code>false</code> otherwise
+     */
+    static boolean isTestedPath( String pathString ) {
+        String[] segments = pathString.split( "/", -1 );
+        if ( segments.length < 2 || !segments[0].isEmpty() )
+            return false;
+        if ( segments.length == 2 ) {
+            for ( PATH path : PATH.values() ) {
+                if ( path.getPathItem().equals( segments[1] ) )
+                    return true;
+            }
+            return false;
+        }
+        if ( !COLLECTIONS.getPathItem().equals( segments[1] ) || segments.length > 5 )
+            return false;
+        return segments.length == 3 || "items".equals( segments[3] );
+    }
+
     /**
      * Parse all test points from the passed OpenApi3 document as described in A.4.3. Identify the Test Points.
      *
@@ -98,9 +106,10 @@ public class OpenApiUtils {
      * @return the parsed test points, may be empty but never <code>null</code>
      */
     static List<TestPoint> retrieveTestPoints( OpenApi3 apiModel ) {
-        List<Path> pathItemObjects = identifyTestPoints( apiModel );
+        OpenApiPathIndex pathIndex = new OpenApiPathIndex( apiModel );
+        List<Path> pathItemObjects = identifyTestPoints( pathIndex );
         List<PathItemAndServer> pathItemAndServers = identifyServerUrls( apiModel, pathItemObjects );
-        return processServerObjects( pathItemAndServers );
+        return toList( processServerObjects( pathItemAndServers ) );
     }
 
     /**
@@ -111,7 +120,7 @@ public class OpenApiUtils {
      * @return the parsed test points, may be empty but never <code>null</code>
      */
     static List<TestPoint> retrieveTestPointsForApi( OpenApi3 apiModel ) {
-        return retrieveTestPoints( apiModel, API );
+        return retrieveTestPoints( new OpenApiPathIndex( apiModel ), API );
     }
 
     /**
@@ -121,9 +130,37 @@ public class OpenApiUtils {
      * @param apiModel
      *            never <code>null</code>
      * @return the parsed test points, may be empty but never <code>null</code>
+     * @deprecated the paths of the document are indexed with each call, use
+     *             {@link #retrieveTestPointsForConformance(OpenApiPathIndex)} with the index of the suite
+     *             ({@link org.opengis.cite.wfs30.SuiteAttribute#API_PATH_INDEX}) instead
      */
+    @Deprecated
     public static List<TestPoint> retrieveTestPointsForConformance( OpenApi3 apiModel ) {
-        return retrieveTestPoints( apiModel, CONFORMANCE );
+        return retrieveTestPointsForConformance( new OpenApiPathIndex( apiModel ) );
+    }
+
+    /**
+     * Parse the CONFORMANCE test points from the indexed OpenApi3 document as described in A.4.3. Identify the Test
+     * Points.
+     *
+     * @param pathIndex
+     *            never <code>null</code>
+     * @return the parsed test points, may be empty but never <code>null</code>
+     */
+    public static List<TestPoint> retrieveTestPointsForConformance( OpenApiPathIndex pathIndex ) {
+        return retrieveTestPoints( pathIndex, CONFORMANCE );
+    }
+
+    /**
+     * Iterates lazily over the CONFORMANCE test points of the indexed OpenApi3 document as described in A.4.3.
+     * Identify the Test Points.
+     *
+     * @param pathIndex
+     *            never <code>null</code>
+     * @return the iterator over the test points, never <code>null</code>
+     */
+    public static Iterator<TestPoint> iterateTestPointsForConformance( OpenApiPathIndex pathIndex ) {
+        return iterateTestPoints( pathIndex, "/" + CONFORMANCE.getPathItem() );
     }
 
     /**
@@ -133,9 +170,37 @@ public class OpenApiUtils {
      * @param apiModel
      *            never <code>null</code>
      * @return the parsed test points, may be empty but never <code>null</code>
+     * @deprecated the paths of the document are indexed with each call, use
+     *             {@link #retrieveTestPointsForCollectionsMetadata(OpenApiPathIndex)} with the index of the suite
+     *             ({@link org.opengis.cite.wfs30.SuiteAttribute#API_PATH_INDEX}) instead
      */
+    @Deprecated
     public static List<TestPoint> retrieveTestPointsForCollectionsMetadata( OpenApi3 apiModel ) {
-        return retrieveTestPoints( apiModel, COLLECTIONS );
+        return retrieveTestPointsForCollectionsMetadata( new OpenApiPathIndex( apiModel ) );
+    }
+
+    /**
+     * Parse the COLLECTIONS METADATA test points from the indexed OpenApi3 document as described in A.4.3. Identify
+     * the Test Points.
+     *
+     * @param pathIndex
+     *            never <code>null</code>
+     * @return the parsed test points, may be empty but never <code>null</code>
+     */
+    public static List<TestPoint> retrieveTestPointsForCollectionsMetadata( OpenApiPathIndex pathIndex ) {
+        return retrieveTestPoints( pathIndex, COLLECTIONS );
+    }
+
+    /**
+     * Iterates lazily over the COLLECTIONS METADATA test points of the indexed OpenApi3 document as described in A.4.3.
+     * Identify the Test Points.
+     *
+     * @param pathIndex
+     *            never <code>null</code>
+     * @return the iterator over the test points, never <code>null</code>
+     */
+    public static Iterator<TestPoint> iterateTestPointsForCollectionsMetadata( OpenApiPathIndex pathIndex ) {
+        return iterateTestPoints( pathIndex, "/" + COLLECTIONS.getPathItem() );
     }
 
     /**
@@ -147,16 +212,34 @@ public class OpenApiUtils {
      * @param collectionName
      *            the extended path, may be <code>null</code>
      * @return the parsed test points, may be empty but never <code>null</code>
+     * @deprecated the paths of the document are indexed with each call, use
+     *             {@link #retrieveTestPointsForCollectionMetadata(OpenApiPathIndex, String)} with the index of the
+     *             suite ({@link org.opengis.cite.wfs30.SuiteAttribute#API_PATH_INDEX}) instead
      */
+    @Deprecated
     public static List<TestPoint> retrieveTestPointsForCollectionMetadata( OpenApi3 apiModel, String collectionName ) {
+        return retrieveTestPointsForCollectionMetadata( new OpenApiPathIndex( apiModel ), collectionName );
+    }
+
+    /**
+     * Parse the COLLECTION METADATA test points for the passed collectionName including the extended path from the
+     * indexed OpenApi3 document as described in A.4.3. Identify the Test Points.
+     *
+     * @param pathIndex
+     *            never <code>null</code>
+     * @param collectionName
+     *            the extended path, may be <code>null</code>
+     * @return the parsed test points, may be empty but never <code>null</code>
+     */
+    public static List<TestPoint> retrieveTestPointsForCollectionMetadata( OpenApiPathIndex pathIndex,
+                                                                           String collectionName ) {
         StringBuilder requestedPath = new StringBuilder();
         requestedPath.append( "/" );
         requestedPath.append( COLLECTIONS.getPathItem() );
         requestedPath.append( "/" );
         requestedPath.append( collectionName );
 
-        List<TestPoint> testPoints = retrieveTestPoints( apiModel, requestedPath.toString() );
-        return testPoints.stream().filter( new ExactMatchFilter( requestedPath.toString() ) ).collect( Collectors.toList() );
+        return retrieveExactlyMatchingTestPoints( pathIndex, requestedPath.toString() );
     }
 
     /**
@@ -169,19 +252,49 @@ public class OpenApiUtils {
      *            the number of collections to return test points for (-1 means the test points of all collections
      *            should be returned)
      * @return the parsed test points, may be empty but never <code>null</code>
+     * @deprecated the paths of the document are indexed with each call, use
+     *             {@link #retrieveTestPointsForCollections(OpenApiPathIndex, int)} with the index of the suite
+     *             ({@link org.opengis.cite.wfs30.SuiteAttribute#API_PATH_INDEX}) instead
      */
+    @Deprecated
     public static List<TestPoint> retrieveTestPointsForCollections( OpenApi3 apiModel, int noOfCollection ) {
-        StringBuilder requestedPath = new StringBuilder();
-        requestedPath.append( "/" );
-        requestedPath.append( COLLECTIONS.getPathItem() );
-        requestedPath.append( "/.*/items" );
+        return retrieveTestPointsForCollections( new OpenApiPathIndex( apiModel ), noOfCollection );
+    }
 
-        List<TestPoint> allTestPoints = retrieveTestPoints( apiModel, requestedPath.toString(),
-                                                            ( a, b ) -> a.matches( b ) );
-        if ( noOfCollection < 0 || allTestPoints.size() <= noOfCollection ) {
-            return allTestPoints;
-        }
-        return allTestPoints.subList( 0, noOfCollection );
+    /**
+     * Parse the COLLECTIONS test points from the indexed OpenApi3 document as described in A.4.3. Identify the Test
+     * Points.
+     *
+     * @param pathIndex
+     *            never <code>null</code>
+     * @param noOfCollection
+     *            the number of collections to return test points for (-1 means the test points of all collections
+     *            should be returned)
+     * @return the parsed test points, may be empty but never <code>null</code>
+     */
+    public static List<TestPoint> retrieveTestPointsForCollections( OpenApiPathIndex pathIndex, int noOfCollection ) {
+        return toList( iterateTestPointsForCollections( pathIndex, noOfCollection ) );
+    }
+
+    /**
+     * Iterates lazily over the COLLECTIONS test points of the indexed OpenApi3 document as described in A.4.3. Identify
+     * the Test Points.
+     *
+     * @param pathIndex
+     *            never <code>null</code>
+     * @param noOfCollection
+     *            the number of collections to return test points for (-1 means the test points of all collections
+     *            should be returned)
+     * @return the iterator over the test points, never <code>null</code>
+     */
+    public static Iterator<TestPoint> iterateTestPointsForCollections( OpenApiPathIndex pathIndex,
+                                                                       int noOfCollection ) {
+        List<Path> pathItemObjects = pathIndex.findCollectionItemsPaths();
+        List<PathItemAndServer> pathItemAndServers = identifyServerUrls( pathIndex.getApiModel(), pathItemObjects );
+        Iterator<TestPoint> testPoints = processServerObjects( pathItemAndServers );
+        if ( noOfCollection < 0 )
+            return testPoints;
+        return stream( testPoints ).limit( noOfCollection ).iterator();
     }
 
     /**
@@ -193,8 +306,41 @@ public class OpenApiUtils {
      * @param collectionName
      *            the extended path, may be <code>null</code>
      * @return the parsed test points, may be empty but never <code>null</code>
+     * @deprecated the paths of the document are indexed with each call, use
+     *             {@link #retrieveTestPointsForCollection(OpenApiPathIndex, String)} with the index of the suite
+     *             ({@link org.opengis.cite.wfs30.SuiteAttribute#API_PATH_INDEX}) instead
      */
+    @Deprecated
     public static List<TestPoint> retrieveTestPointsForCollection( OpenApi3 apiModel, String collectionName ) {
+        return retrieveTestPointsForCollection( new OpenApiPathIndex( apiModel ), collectionName );
+    }
+
+    /**
+     * Parse the test points with the passed path including the extended path from the indexed OpenApi3 document as
+     * described in A.4.3. Identify the Test Points.
+     *
+     * @param pathIndex
+     *            never <code>null</code>
+     * @param collectionName
+     *            the extended path, may be <code>null</code>
+     * @return the parsed test points, may be empty but never <code>null</code>
+     */
+    public static List<TestPoint> retrieveTestPointsForCollection( OpenApiPathIndex pathIndex, String collectionName ) {
+        return toList( iterateTestPointsForCollection( pathIndex, collectionName ) );
+    }
+
+    /**
+     * Iterates lazily over the test points with the passed path including the extended path of the indexed OpenApi3
+     * document as described in A.4.3. Identify the Test Points.
+     *
+     * @param pathIndex
+     *            never <code>null</code>
+     * @param collectionName
+     *            the extended path, may be <code>null</code>
+     * @return the iterator over the test points, never <code>null</code>
+     */
+    public static Iterator<TestPoint> iterateTestPointsForCollection( OpenApiPathIndex pathIndex,
+                                                                      String collectionName ) {
         StringBuilder requestedPath = new StringBuilder();
         requestedPath.append( "/" );
         requestedPath.append( COLLECTIONS.getPathItem() );
@@ -202,8 +348,7 @@ public class OpenApiUtils {
         requestedPath.append( collectionName );
         requestedPath.append( "/items" );
 
-        List<TestPoint> testPoints = retrieveTestPoints( apiModel, requestedPath.toString() );
-        return testPoints.stream().filter( new ExactMatchFilter( requestedPath.toString() ) ).collect( Collectors.toList() );
+        return iterateExactlyMatchingTestPoints( pathIndex, requestedPath.toString() );
     }
 
     /**
@@ -217,9 +362,30 @@ public class OpenApiUtils {
      * @param featureId
      *            the id of the feature, never <code>null</code>
      * @return the parsed test points, may be empty but never <code>null</code>
+     * @deprecated the paths of the document are indexed with each call, use
+     *             {@link #retrieveTestPointsForFeature(OpenApiPathIndex, String, String)} with the index of the suite
+     *             ({@link org.opengis.cite.wfs30.SuiteAttribute#API_PATH_INDEX}) instead
      */
+    @Deprecated
     public static List<TestPoint> retrieveTestPointsForFeature( OpenApi3 apiModel, String collectionName,
                                                                 String featureId ) {
+        return retrieveTestPointsForFeature( new OpenApiPathIndex( apiModel ), collectionName, featureId );
+    }
+
+    /**
+     * Parse the test points with the passed path including the extended path from the indexed OpenApi3 document as
+     * described in A.4.3. Identify the Test Points.
+     *
+     * @param pathIndex
+     *            never <code>null</code>
+     * @param collectionName
+     *            the extended path, may be <code>null</code>
+     * @param featureId
+     *            the id of the feature, never <code>null</code>
+     * @return the parsed test points, may be empty but never <code>null</code>
+     */
+    public static List<TestPoint> retrieveTestPointsForFeature( OpenApiPathIndex pathIndex, String collectionName,
+                                                                String featureId ) {
         StringBuilder requestedPath = new StringBuilder();
         requestedPath.append( "/" );
         requestedPath.append( COLLECTIONS.getPathItem() );
@@ -228,26 +394,45 @@ public class OpenApiUtils {
         requestedPath.append( "/items/" );
         requestedPath.append( featureId );
 
-        List<TestPoint> testPoints = retrieveTestPoints( apiModel, requestedPath.toString() );
-        return testPoints.stream().filter( new ExactMatchFilter( requestedPath.toString() ) ).collect( Collectors.toList() );
+        return retrieveExactlyMatchingTestPoints( pathIndex, requestedPath.toString() );
     }
 
-    private static List<TestPoint> retrieveTestPoints( OpenApi3 apiModel, PATH path ) {
+    private static List<TestPoint> retrieveExactlyMatchingTestPoints( OpenApiPathIndex pathIndex,
+                                                                      String requestedPath ) {
+        return toList( iterateExactlyMatchingTestPoints( pathIndex, requestedPath ) );
+    }
+
+    private static Iterator<TestPoint> iterateExactlyMatchingTestPoints( OpenApiPathIndex pathIndex,
+                                                                         String requestedPath ) {
+        Iterator<TestPoint> testPoints = iterateTestPoints( pathIndex, requestedPath );
+        return stream( testPoints ).filter( new ExactMatchFilter( pathIndex, requestedPath ) ).iterator();
+    }
+
+    private static List<TestPoint> retrieveTestPoints( OpenApiPathIndex pathIndex, PATH path ) {
         String requestedPath = "/" + path.getPathItem();
-        return retrieveTestPoints( apiModel, requestedPath );
+        return retrieveTestPoints( pathIndex, requestedPath );
     }
 
-    private static List<TestPoint> retrieveTestPoints( OpenApi3 apiModel, String requestedPath ) {
-        return retrieveTestPoints( apiModel, requestedPath, new PathMatcher() );
+    private static List<TestPoint> retrieveTestPoints( OpenApiPathIndex pathIndex, String requestedPath ) {
+        return toList( iterateTestPoints( pathIndex, requestedPath ) );
     }
 
-    private static List<TestPoint> retrieveTestPoints( OpenApi3 apiModel, String requestedPath,
-                                                       PathMatcherFunction<Boolean, String, String> pathMatcher ) {
-        List<Path> pathItemObjects = identifyTestPoints( apiModel, requestedPath, pathMatcher );
-        List<PathItemAndServer> pathItemAndServers = identifyServerUrls( apiModel, pathItemObjects );
+    private static Iterator<TestPoint> iterateTestPoints( OpenApiPathIndex pathIndex, String requestedPath ) {
+        List<Path> pathItemObjects = pathIndex.findPaths( requestedPath );
+        List<PathItemAndServer> pathItemAndServers = identifyServerUrls( pathIndex.getApiModel(), pathItemObjects );
         return processServerObjects( pathItemAndServers );
     }
 
+    private static Stream<TestPoint> stream( Iterator<TestPoint> testPoints ) {
+        return StreamSupport.stream( Spliterators.spliteratorUnknownSize( testPoints, Spliterator.ORDERED ), false );
+    }
+
+    private static List<TestPoint> toList( Iterator<TestPoint> testPoints ) {
+        List<TestPoint> list = new ArrayList<>();
+        testPoints.forEachRemaining( list::add );
+        return list;
+    }
+
     /**
      * A.4.3.1. Identify Test Points:
      *
@@ -269,29 +454,16 @@ public class OpenApiUtils {
      *
      * d) References: None
      *
-     * @param apiModel
+     * @param pathIndex
      *            never <code>null</code>
      */
-    private static List<Path> identifyTestPoints( OpenApi3 apiModel ) {
+    private static List<Path> identifyTestPoints( OpenApiPathIndex pathIndex ) {
         List<Path> allTestPoints = new ArrayList<>();
         for ( PATH path : PATH.values() )
-            allTestPoints.addAll( identifyTestPoints( apiModel, "/" + path.getPathItem(), new PathMatcher() ) );
+            allTestPoints.addAll( pathIndex.findPaths( "/" + path.getPathItem() ) );
         return allTestPoints;
     }
 
-    private static List<Path> identifyTestPoints( OpenApi3 apiModel, String path,
-                                                  PathMatcherFunction<Boolean, String, String> pathMatch ) {
-        List<Path> pathItems = new ArrayList<>();
-        Map<String, Path> pathItemObjects = apiModel.getPaths();
-        for ( Path pathItemObject : pathItemObjects.values() ) {
-            String pathString = pathItemObject.getPathString();
-            if ( pathMatch.apply( pathString, path ) ) {
-                pathItems.add( pathItemObject );
-            }
-        }
-        return pathItems;
-    }
-
     /**
      * A.4.3.2. Identify Server URIs:
      *
@@ -345,10 +517,13 @@ public class OpenApiUtils {
         for ( Path pathItemObject : pathItemObjects ) {
             Map<String, Operation> operationObjects = pathItemObject.getOperations();
             for ( Operation operationObject : operationObjects.values() ) {
-                List<String> serverUrls = identifyServerObjects( apiModel, pathItemObject, operationObject );
-                for ( String serverUrl : serverUrls ) {
+                Collection<Server> serverObjects = identifyServerObjects( apiModel, pathItemObject, operationObject );
+                if ( serverObjects.isEmpty() ) {
+                    pathItemAndServers.add( new PathItemAndServer( pathItemObject, operationObject, null ) );
+                }
+                for ( Server serverObject : serverObjects ) {
                     PathItemAndServer pathItemAndServer = new PathItemAndServer( pathItemObject, operationObject,
-                                                                                 serverUrl );
+                                                                                 serverObject );
                     pathItemAndServers.add( pathItemAndServer );
                 }
             }
@@ -394,131 +569,154 @@ public class OpenApiUtils {
      * @param pathItemAndServers
      *            never <code>null</code>
      */
-    private static List<TestPoint> processServerObjects( List<PathItemAndServer> pathItemAndServers ) {
-        List<TestPoint> uris = new ArrayList<>();
-        for ( PathItemAndServer pathItemAndServer : pathItemAndServers ) {
-            processServerObject( uris, pathItemAndServer );
-        }
-        return uris;
-    }
-
-    private static void processServerObject( List<TestPoint> uris, PathItemAndServer pathItemAndServer ) {
-        String pathString = pathItemAndServer.pathItemObject.getPathString();
-        Response response = pathItemAndServer.operationObject.getResponse( "200" );
-        Map<String, MediaType> contentMediaTypes = response.getContentMediaTypes();
-
-        UriTemplate uriTemplate = new UriTemplate( pathItemAndServer.serverUrl + pathString );
-        if ( uriTemplate.getNumberOfTemplateVariables() == 0 ) {
-            TestPoint testPoint = new TestPoint( pathItemAndServer.serverUrl, pathString, contentMediaTypes );
-            uris.add( testPoint );
-        } else {
-            List<Map<String, String>> templateReplacements = collectTemplateReplacements( pathItemAndServer,
-                                                                                          uriTemplate );
-
-            if ( templateReplacements.isEmpty() ) {
-                TestPoint testPoint = new TestPoint( pathItemAndServer.serverUrl, pathString, contentMediaTypes );
-                uris.add( testPoint );
-            } else {
-                for ( Map<String, String> templateReplacement : templateReplacements ) {
-                    TestPoint testPoint = new TestPoint( pathItemAndServer.serverUrl, pathString, templateReplacement,
-                                                         contentMediaTypes );
-                    uris.add( testPoint );
-                }
-            }
+    private static Iterator<TestPoint> processServerObjects( List<PathItemAndServer> pathItemAndServers ) {
+        return new TestPointIterator( pathItemAndServers.iterator() );
+    }
+
+    private static Map<String, List<String>> collectServerVariableValues( Server serverObject ) {
+        Map<String, List<String>> variableValues = new LinkedHashMap<>();
+        if ( serverObject == null )
+            return variableValues;
+        for ( Map.Entry<String, ServerVariable> variable : serverObject.getServerVariables().entrySet() ) {
+            ServerVariable serverVariable = variable.getValue();
+            if ( serverVariable.hasEnumValues() )
+                variableValues.put( variable.getKey(), asStrings( serverVariable.getEnumValues() ) );
+            else if ( serverVariable.getDefault() != null )
+                variableValues.put( variable.getKey(),
+                                    Collections.singletonList( serverVariable.getDefault().toString() ) );
         }
+        return variableValues;
     }
 
-    private static List<Map<String, String>> collectTemplateReplacements( PathItemAndServer pathItemAndServer,
-                                                                          UriTemplate uriTemplate ) {
-        List<Map<String, String>> templateReplacements = new ArrayList<>();
+    private static Map<String, List<String>> collectTemplateVariableValues( PathItemAndServer pathItemAndServer ) {
+        Map<String, List<String>> variableValues = new LinkedHashMap<>();
         Collection<Parameter> parameters = pathItemAndServer.operationObject.getParameters();
+        UriTemplate uriTemplate = new UriTemplate( pathItemAndServer.pathItemObject.getPathString() );
         for ( String templateVariable : uriTemplate.getTemplateVariables() ) {
+            if ( variableValues.containsKey( templateVariable ) )
+                continue;
             for ( Parameter parameter : parameters ) {
                 if ( templateVariable.equals( parameter.getName() ) ) {
                     Schema schema = parameter.getSchema();
                     if ( schema.hasEnums() ) {
-                        addEnumTemplateValues( templateReplacements, templateVariable, schema );
+                        variableValues.put( templateVariable, asStrings( schema.getEnums() ) );
                     } else if ( schema.getDefault() != null ) {
-                        addDefaultTemplateValue( templateReplacements, templateVariable, schema );
+                        variableValues.put( templateVariable,
+                                            Collections.singletonList( schema.getDefault().toString() ) );
                     } else {
                         // TODO: What should be done if the parameter does not have a default value and no
                         // enumerated set of valid values?
                     }
+                    break;
                 }
             }
         }
-        return templateReplacements;
+        return variableValues;
     }
 
-    private static void addEnumTemplateValues( List<Map<String, String>> templateReplacements, String templateVariable,
-                                               Schema schema ) {
-        Collection<Object> enums = schema.getEnums();
-        if ( enums.size() == 1 ) {
-            for ( Object enumValue : enums ) {
-                Map<String, String> replacement = new HashMap<>();
-                replacement.put( templateVariable, enumValue.toString() );
-                templateReplacements.add( replacement );
-            }
-        } else {
-            if ( templateReplacements.isEmpty() ) {
-                Map<String, String> replacement = new HashMap<>();
-                templateReplacements.add( replacement );
-            }
-            List<Map<String, String>> templateReplacementsToAdd = new ArrayList<>();
-            for ( Map<String, String> templateReplacement : templateReplacements ) {
-                for ( Object enumValue : enums ) {
-                    Map<String, String> newTemplateReplacement = new HashMap<>();
-                    newTemplateReplacement.putAll( templateReplacement );
-                    newTemplateReplacement.put( templateVariable, enumValue.toString() );
-                    templateReplacementsToAdd.add( newTemplateReplacement );
-                }
-            }
-            templateReplacements.clear();
-            templateReplacements.addAll( templateReplacementsToAdd );
-        }
+    private static List<String> asStrings( Collection<Object> values ) {
+        return values.stream().map( Object::toString ).collect( Collectors.toList() );
     }
 
-    private static void addDefaultTemplateValue( List<Map<String, String>> templateReplacements,
-                                                 String templateVariable, Schema schema ) {
-        if ( templateReplacements.isEmpty() ) {
-            Map<String, String> replacement = new HashMap<>();
-            templateReplacements.add( replacement );
-        }
-        for ( Map<String, String> templateReplacement : templateReplacements ) {
-            templateReplacement.put( templateVariable, schema.getDefault().toString() );
-        }
+    private static String expandServerUrl( String serverUrl, Map<String, String> serverVariableReplacement ) {
+        String expandedUrl = serverUrl;
+        for ( Map.Entry<String, String> serverVariable : serverVariableReplacement.entrySet() )
+            expandedUrl = expandedUrl.replace( "{" + serverVariable.getKey() + "}", serverVariable.getValue() );
+        return expandedUrl;
     }
 
-    private static List<String> identifyServerObjects( OpenApi3 apiModel, Path pathItemObject, Operation operationObject ) {
+    /**
+     * @return the server objects in-scope for the operation, empty if the default server object applies
+     */
+    private static Collection<Server> identifyServerObjects( OpenApi3 apiModel, Path pathItemObject,
+                                                             Operation operationObject ) {
         if ( operationObject.hasServers() )
-            return parseUrls( operationObject.getServers() );
+            return operationObject.getServers();
         if ( pathItemObject.hasServers() )
-            return parseUrls( pathItemObject.getServers() );
+            return pathItemObject.getServers();
         if ( apiModel.hasServers() )
-            return parseUrls( apiModel.getServers() );
-        return Collections.singletonList( DEFAULT_SERVER_URL );
-    }
-
-    private static List<String> parseUrls( Collection<Server> servers ) {
-        List<String> urls = new ArrayList<>();
-        for ( Server server : servers )
-            urls.add( server.getUrl() );
-        return urls;
+            return apiModel.getServers();
+        return Collections.emptyList();
     }
 
     private static class PathItemAndServer {
 
         private final Path pathItemObject;
 
-        private Operation operationObject;
+        private final Operation operationObject;
 
-        // TODO: must be a server object to consider server variables
-        private String serverUrl;
+        /** <code>null</code> if the default server object applies */
+        private final Server serverObject;
 
-        private PathItemAndServer( Path pathItemObject, Operation operationObject, String serverUrl ) {
+        private PathItemAndServer( Path pathItemObject, Operation operationObject, Server serverObject ) {
             this.pathItemObject = pathItemObject;
             this.operationObject = operationObject;
-            this.serverUrl = serverUrl;
+            this.serverObject = serverObject;
+        }
+
+        private String getServerUrl() {
+            return serverObject != null ? serverObject.getUrl() : DEFAULT_SERVER_URL;
+        }
+
+    }
+
+    /**
+     * Generates the test points of the server objects on demand: the combinations of the enumerated or default values
+     * of the server variables and, for each of them, the combinations of the template variables of the path are
+     * iterated by a {@link CartesianProduct}, so the combinations are not collected. Server variables and template
+     * variables are expanded independently, a template variable may have the same name as a server variable.
+     */
+    private static class TestPointIterator implements Iterator<TestPoint> {
+
+        private final Iterator<PathItemAndServer> pathItemAndServers;
+
+        private PathItemAndServer current;
+
+        private Map<String, MediaType> contentMediaTypes;
+
+        private Map<String, List<String>> templateVariableValues;
+
+        private CartesianProduct serverCombinations;
+
+        private String serverUrl;
+
+        private CartesianProduct templateCombinations;
+
+        private TestPointIterator( Iterator<PathItemAndServer> pathItemAndServers ) {
+            this.pathItemAndServers = pathItemAndServers;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while ( templateCombinations == null || !templateCombinations.hasNext() ) {
+                if ( serverCombinations != null && serverCombinations.hasNext() ) {
+                    serverUrl = expandServerUrl( current.getServerUrl(), serverCombinations.next() );
+                    templateCombinations = new CartesianProduct( templateVariableValues );
+                } else if ( pathItemAndServers.hasNext() ) {
+                    processServerObject( pathItemAndServers.next() );
+                } else {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public TestPoint next() {
+            if ( !hasNext() )
+                throw new NoSuchElementException();
+            return new TestPoint( serverUrl, current.pathItemObject.getPathString(), templateCombinations.next(),
+                                  contentMediaTypes );
+        }
+
+        private void processServerObject( PathItemAndServer pathItemAndServer ) {
+            Response response = pathItemAndServer.operationObject.getResponse( "200" );
+            this.current = pathItemAndServer;
+            this.contentMediaTypes = response.getContentMediaTypes();
+            this.templateVariableValues = collectTemplateVariableValues( pathItemAndServer );
+            Server serverObject = pathItemAndServer.serverObject;
+            this.serverCombinations = new CartesianProduct( collectServerVariableValues( serverObject ) );
+            this.templateCombinations = null;
         }
 
     }
@@ -0,0 +1,197 @@
+package org.opengis.cite.wfs30.openapi3;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.reprezen.kaizen.oasparser.OpenApi3Parser;
+import com.reprezen.kaizen.oasparser.model3.OpenApi3;
+
+/**
+ * Parses only the parts of an OpenAPI document used by the test suite. The document is streamed and copied without the
+ * path items which are not tested (see {@link OpenApiUtils#isTestedPath(String)}) and without the schemas and examples
+ * of the response content, of which only the media types are evaluated. The selected document is parsed as a whole:
+ * the validation resolves all references of the selected document, so the parsing is faster only because the selected
+ * document is smaller than the original one.
+ *
+ * Only OpenAPI documents encoded as JSON are supported.
+ *
+ * Instances are not thread-safe.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class SelectiveOpenApiParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final Set<String> OPERATIONS = new HashSet<>( Arrays.asList( "get", "put", "post", "delete",
+                                                                                "options", "head", "patch",
+                                                                                "trace" ) );
+
+    private int noOfPaths;
+
+    private int noOfSelectedPaths;
+
+    private long documentSize;
+
+    private long selectedDocumentSize;
+
+    /**
+     * Parses the selected parts of the document.
+     *
+     * @param document
+     *            the file containing the OpenAPI document (JSON), never <code>null</code>
+     * @param documentUrl
+     *            the url the document was retrieved from, relative references are resolved against this url, never
+     *            <code>null</code>
+     * @param validate
+     *            <code>true</code> if the selected document should be validated, <code>false</code> otherwise
+     * @return the model of the selected parts of the document, never <code>null</code>
+     * @throws IOException
+     *             if the document could not be read or is not a JSON object (e.g. YAML)
+     */
+    public OpenApi3 parse( File document, URL documentUrl, boolean validate )
+                            throws IOException {
+        String selectedDocument = select( document );
+        return new OpenApi3Parser().parse( selectedDocument, documentUrl, validate );
+    }
+
+    /**
+     * Checks if the document contains references to other documents, e.g. to decide if the document can be parsed
+     * from the file (the parser resolves relative references against the location of the file).
+     *
+     * @param document
+     *            the file containing the OpenAPI document, never <code>null</code>
+     * @return <code>true</code> if a reference does not point into the document itself or the document is not encoded
+     *         as JSON (e.g. YAML), <code>false</code> otherwise
+     * @throws IOException
+     *             if the document could not be read
+     */
+    public static boolean hasExternalReferences( File document )
+                            throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser( document )) {
+            JsonToken token;
+            while ( ( token = parser.nextToken() ) != null ) {
+                if ( token == JsonToken.FIELD_NAME && "$ref".equals( parser.getCurrentName() )
+                     && parser.nextToken() == JsonToken.VALUE_STRING && !parser.getText().startsWith( "#" ) )
+                    return true;
+            }
+            return false;
+        } catch ( JsonParseException e ) {
+            return true;
+        }
+    }
+
+    /**
+     * @return the number of paths of the last parsed document
+     */
+    public int getNoOfPaths() {
+        return noOfPaths;
+    }
+
+    /**
+     * @return the number of paths selected from the last parsed document
+     */
+    public int getNoOfSelectedPaths() {
+        return noOfSelectedPaths;
+    }
+
+    @Override
+    public String toString() {
+        return String.format( Locale.ROOT, "selected %d of %d paths, %d characters of %d bytes", noOfSelectedPaths,
+                              noOfPaths, selectedDocumentSize, documentSize );
+    }
+
+    String select( File document )
+                            throws IOException {
+        noOfPaths = 0;
+        noOfSelectedPaths = 0;
+        documentSize = document.length();
+        StringWriter writer = new StringWriter();
+        try (JsonParser parser = JSON_FACTORY.createParser( document );
+                        JsonGenerator generator = JSON_FACTORY.createGenerator( writer )) {
+            if ( parser.nextToken() != JsonToken.START_OBJECT )
+                throw new IOException( "OpenAPI document " + document + " is not a JSON object" );
+            generator.writeStartObject();
+            while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                generator.writeFieldName( name );
+                if ( "paths".equals( name ) )
+                    copyPaths( parser, generator );
+                else
+                    generator.copyCurrentStructure( parser );
+            }
+            generator.writeEndObject();
+        }
+        String selectedDocument = writer.toString();
+        selectedDocumentSize = selectedDocument.length();
+        return selectedDocument;
+    }
+
+    private void copyPaths( JsonParser parser, JsonGenerator generator )
+                            throws IOException {
+        if ( parser.getCurrentToken() != JsonToken.START_OBJECT ) {
+            generator.copyCurrentStructure( parser );
+            return;
+        }
+        generator.writeStartObject();
+        while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+            String pathString = parser.getCurrentName();
+            parser.nextToken();
+            noOfPaths++;
+            if ( OpenApiUtils.isTestedPath( pathString ) ) {
+                noOfSelectedPaths++;
+                generator.writeFieldName( pathString );
+                copyObject( parser, generator, 0 );
+            } else {
+                parser.skipChildren();
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Copies the current object, the depth below the path item is used to find the content of the responses:
+     * path item (0) - operation (1) - responses (2) - response (3) - content (4).
+     */
+    private void copyObject( JsonParser parser, JsonGenerator generator, int depth )
+                            throws IOException {
+        if ( parser.getCurrentToken() != JsonToken.START_OBJECT ) {
+            generator.copyCurrentStructure( parser );
+            return;
+        }
+        generator.writeStartObject();
+        while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            generator.writeFieldName( name );
+            if ( depth == 0 && OPERATIONS.contains( name ) || depth == 1 && "responses".equals( name )
+                 || depth == 2 || depth == 3 && "content".equals( name ) )
+                copyObject( parser, generator, depth + 1 );
+            else if ( depth == 4 )
+                copyMediaType( parser, generator );
+            else
+                generator.copyCurrentStructure( parser );
+        }
+        generator.writeEndObject();
+    }
+
+    private void copyMediaType( JsonParser parser, JsonGenerator generator )
+                            throws IOException {
+        parser.skipChildren();
+        generator.writeStartObject();
+        generator.writeEndObject();
+    }
+
+}
@@ -0,0 +1,146 @@
+package org.opengis.cite.wfs30.openapi3;
+
+import static org.opengis.cite.wfs30.openapi3.OpenApiUtils.iterateTestPointsForCollection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.reprezen.kaizen.oasparser.model3.Operation;
+import com.reprezen.kaizen.oasparser.model3.Parameter;
+import com.reprezen.kaizen.oasparser.model3.Path;
+
+/**
+ * Memoizes the test points of the collections and the parameters of the paths of an OpenApi3 document, so the test
+ * points of a collection are resolved once per test run and the parameters (e.g. limit, bbox, time) are looked up
+ * without iterating over the parameters of the path and the GET operation. The number of combinations of the template
+ * variables is not bounded: if a collection has more than {@value #MAX_CACHED_TEST_POINTS} test points only the first
+ * one is cached and the test points are generated lazily from the index with each iteration.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class TestPointCache {
+
+    static final int MAX_CACHED_TEST_POINTS = 100;
+
+    private final OpenApiPathIndex pathIndex;
+
+    private final int maxCachedTestPoints;
+
+    private final Map<String, CollectionTestPoints> collectionTestPoints = new ConcurrentHashMap<>();
+
+    private final Map<String, Map<String, Parameter>> pathParameters = new ConcurrentHashMap<>();
+
+    /**
+     * @param pathIndex
+     *            the index of the OpenApi3 document, never <code>null</code>
+     */
+    public TestPointCache( OpenApiPathIndex pathIndex ) {
+        this( pathIndex, MAX_CACHED_TEST_POINTS );
+    }
+
+    TestPointCache( OpenApiPathIndex pathIndex, int maxCachedTestPoints ) {
+        this.pathIndex = pathIndex;
+        this.maxCachedTestPoints = maxCachedTestPoints;
+    }
+
+    /**
+     * @return the index of the OpenApi3 document, never <code>null</code>
+     */
+    public OpenApiPathIndex getPathIndex() {
+        return pathIndex;
+    }
+
+    /**
+     * Returns the test points of the passed collection as described in A.4.3. Identify the Test Points. The test points
+     * are resolved with the first request of the collection, the test points of a collection with more than
+     * {@value #MAX_CACHED_TEST_POINTS} test points are generated lazily with each iteration.
+     *
+     * @param collectionName
+     *            the name of the collection, never <code>null</code>
+     * @return the test points, may be empty but never <code>null</code>
+     */
+    public Iterable<TestPoint> getTestPointsForCollection( String collectionName ) {
+        CollectionTestPoints testPoints = collectionTestPoints.computeIfAbsent( collectionName,
+                                                                                this::resolveTestPointsForCollection );
+        if ( testPoints.isComplete )
+            return testPoints.testPoints;
+        return () -> iterateTestPointsForCollection( pathIndex, collectionName );
+    }
+
+    /**
+     * Returns the first test point of the passed collection as described in A.4.3. Identify the Test Points. The first
+     * test point is resolved with the first request of the collection.
+     *
+     * @param collectionName
+     *            the name of the collection, never <code>null</code>
+     * @return the first test point, <code>null</code> if the collection has no test points
+     */
+    public TestPoint findFirstTestPointForCollection( String collectionName ) {
+        CollectionTestPoints testPoints = collectionTestPoints.computeIfAbsent( collectionName,
+                                                                                this::resolveTestPointsForCollection );
+        return testPoints.testPoints.isEmpty() ? null : testPoints.testPoints.get( 0 );
+    }
+
+    /**
+     * Returns the parameter with the passed name of the path of the test point. Parameters of the path take precedence
+     * over parameters of the GET operation. The parameters of a path are resolved with the first request of the path.
+     *
+     * @param testPoint
+     *            the test point, never <code>null</code>
+     * @param name
+     *            the name of the parameter, never <code>null</code>
+     * @return the parameter, <code>null</code> if the path of the test point does not define a parameter with this name
+     */
+    public Parameter findParameterByName( TestPoint testPoint, String name ) {
+        Map<String, Parameter> parameters = pathParameters.computeIfAbsent( testPoint.getPath(),
+                                                                            this::resolveParameters );
+        if ( parameters == null )
+            return null;
+        return parameters.get( name );
+    }
+
+    private CollectionTestPoints resolveTestPointsForCollection( String collectionName ) {
+        Iterator<TestPoint> iterator = iterateTestPointsForCollection( pathIndex, collectionName );
+        List<TestPoint> testPoints = new ArrayList<>();
+        while ( iterator.hasNext() ) {
+            testPoints.add( iterator.next() );
+            if ( testPoints.size() > maxCachedTestPoints )
+                return new CollectionTestPoints( testPoints.subList( 0, 1 ), false );
+        }
+        return new CollectionTestPoints( testPoints, true );
+    }
+
+    private Map<String, Parameter> resolveParameters( String pathString ) {
+        Path path = pathIndex.getApiModel().getPath( pathString );
+        if ( path == null )
+            return null;
+        Map<String, Parameter> parameters = new HashMap<>();
+        for ( Parameter parameter : path.getParameters() )
+            parameters.putIfAbsent( parameter.getName(), parameter );
+        Operation get = path.getOperation( "get" );
+        if ( get != null ) {
+            for ( Parameter parameter : get.getParameters() )
+                parameters.putIfAbsent( parameter.getName(), parameter );
+        }
+        return parameters;
+    }
+
+    private static class CollectionTestPoints {
+
+        private final List<TestPoint> testPoints;
+
+        private final boolean isComplete;
+
+        private CollectionTestPoints( List<TestPoint> testPoints, boolean isComplete ) {
+            this.testPoints = Collections.unmodifiableList( new ArrayList<>( testPoints ) );
+            this.isComplete = isComplete;
+        }
+
+    }
+
+}
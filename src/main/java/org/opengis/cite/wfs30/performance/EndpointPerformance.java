@@ -0,0 +1,206 @@
+package org.opengis.cite.wfs30.performance;
+
+import static io.restassured.http.ContentType.JSON;
+import static io.restassured.http.Method.GET;
+import static org.opengis.cite.wfs30.EtsAssert.assertTrue;
+import static org.opengis.cite.wfs30.WFS3.GEOJSON_MIME_TYPE;
+import static org.opengis.cite.wfs30.openapi3.OpenApiUtils.retrieveTestPointsForFeature;
+import static org.opengis.cite.wfs30.util.JsonUtils.findGetFeaturesUrlForGeoJson;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import org.opengis.cite.wfs30.CommonDataFixture;
+import org.opengis.cite.wfs30.SuiteAttribute;
+import org.opengis.cite.wfs30.openapi3.TestPoint;
+import org.opengis.cite.wfs30.openapi3.TestPointCache;
+import org.opengis.cite.wfs30.openapi3.UriBuilder;
+import org.opengis.cite.wfs30.util.EndpointProfile;
+import org.opengis.cite.wfs30.util.EndpointProfiler;
+import org.opengis.cite.wfs30.util.TestSuiteLogger;
+import org.testng.ITestContext;
+import org.testng.SkipException;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Profiles the latency and throughput of the endpoints of the service under test (only added to the suite if
+ * {@link org.opengis.cite.wfs30.TestRunArg#PERFORMANCEPROFILING} is true). The tests fail only if a request
+ * fails, the measured latencies (p50, p95, p99) and throughput are logged and the percentile distribution of the
+ * latencies of each endpoint is written in the format of the HdrHistogram library to the directory 'performance' in the
+ * output directory.
+ *
+ * The collections are profiled one after another, so the measurements of an endpoint are not influenced by requests to
+ * other endpoints.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class EndpointPerformance extends CommonDataFixture {
+
+    private EndpointProfiler endpointProfiler;
+
+    private TestPointCache testPointCache;
+
+    private List<Map<String, Object>> collections;
+
+    private Map<String, String> collectionNameAndFeatureId;
+
+    @DataProvider(name = "collections")
+    public Iterator<Object[]> collections( ITestContext testContext ) {
+        List<Object[]> collectionsData = new ArrayList<>();
+        for ( Map<String, Object> collection : collections ) {
+            collectionsData.add( new Object[] { collection } );
+        }
+        return collectionsData.iterator();
+    }
+
+    @BeforeClass
+    public void retrieveRequiredInformationFromTestContext( ITestContext testContext ) {
+        this.endpointProfiler = (EndpointProfiler) testContext.getSuite().getAttribute( SuiteAttribute.ENDPOINT_PROFILER.getName() );
+        this.testPointCache = testPointCache( testContext );
+        List<Map<String, Object>> collections = (List<Map<String, Object>>) testContext.getSuite().getAttribute( SuiteAttribute.COLLECTIONS.getName() );
+        this.collections = collections != null ? collections : Collections.emptyList();
+        Map<String, String> collectionNameAndFeatureId = (Map<String, String>) testContext.getSuite().getAttribute( SuiteAttribute.FEATUREIDS.getName() );
+        this.collectionNameAndFeatureId = collectionNameAndFeatureId != null ? collectionNameAndFeatureId
+                                                                             : Collections.emptyMap();
+    }
+
+    /**
+     * Profiles the landing page (path /).
+     *
+     * @param testContext
+     *            the test context, never <code>null</code>
+     * @throws InterruptedException
+     *             if the thread was interrupted while profiling
+     */
+    @Test(description = "Profiles the latency and throughput of the landing page", groups = "performance")
+    public void landingPage( ITestContext testContext )
+                            throws InterruptedException {
+        profile( testContext, "landingPage", rootUrl(), JSON.toString() );
+    }
+
+    /**
+     * Profiles the Feature Collections Metadata (path /collections).
+     *
+     * @param testContext
+     *            the test context, never <code>null</code>
+     * @throws InterruptedException
+     *             if the thread was interrupted while profiling
+     */
+    @Test(description = "Profiles the latency and throughput of the feature collections metadata", groups = "performance")
+    public void collectionsMetadata( ITestContext testContext )
+                            throws InterruptedException {
+        profile( testContext, "collections", rootUrl() + "/collections", JSON.toString() );
+    }
+
+    /**
+     * Profiles the Feature Collection Metadata (path /collections/{name}).
+     *
+     * @param testContext
+     *            the test context, never <code>null</code>
+     * @param collection
+     *            the collection under test, never <code>null</code>
+     * @throws InterruptedException
+     *             if the thread was interrupted while profiling
+     */
+    @Test(description = "Profiles the latency and throughput of the feature collection metadata", groups = "performance", dataProvider = "collections")
+    public void collectionMetadata( ITestContext testContext, Map<String, Object> collection )
+                            throws InterruptedException {
+        String collectionName = (String) collection.get( "name" );
+        profile( testContext, "collection-" + collectionName, rootUrl() + "/collections/" + collectionName,
+                 JSON.toString() );
+    }
+
+    /**
+     * Profiles the Get Features Operation (path /collections/{name}/items).
+     *
+     * @param testContext
+     *            the test context, never <code>null</code>
+     * @param collection
+     *            the collection under test, never <code>null</code>
+     * @throws InterruptedException
+     *             if the thread was interrupted while profiling
+     */
+    @Test(description = "Profiles the latency and throughput of the Get Features Operation", groups = "performance", dataProvider = "collections")
+    public void getFeatures( ITestContext testContext, Map<String, Object> collection )
+                            throws InterruptedException {
+        String collectionName = (String) collection.get( "name" );
+        String getFeaturesUrl = findGetFeaturesUrlForGeoJson( collection );
+        profile( testContext, "items-" + collectionName, getFeaturesUrl, GEOJSON_MIME_TYPE );
+    }
+
+    /**
+     * Profiles the Get Feature Operation (path /collections/{name}/items/{id}) with the feature id provided by the Get
+     * Features Operation.
+     *
+     * @param testContext
+     *            the test context, never <code>null</code>
+     * @param collection
+     *            the collection under test, never <code>null</code>
+     * @throws InterruptedException
+     *             if the thread was interrupted while profiling
+     */
+    @Test(description = "Profiles the latency and throughput of the Get Feature Operation", groups = "performance", dataProvider = "collections")
+    public void getFeature( ITestContext testContext, Map<String, Object> collection )
+                            throws InterruptedException {
+        assertProfilingEnabled();
+        String collectionName = (String) collection.get( "name" );
+        String featureId = collectionNameAndFeatureId.get( collectionName );
+        if ( featureId == null )
+            throw new SkipException( "No featureId available for collection '" + collectionName + "'" );
+        if ( testPointCache == null )
+            throw new SkipException( "No OpenAPI document available to derive the url of the feature from" );
+        List<TestPoint> testPoints = retrieveTestPointsForFeature( testPointCache.getPathIndex(), collectionName,
+                                                                   featureId );
+        String getFeatureUrl = null;
+        if ( !testPoints.isEmpty() )
+            getFeatureUrl = new UriBuilder( testPoints.get( 0 ) ).collectionName( collectionName ).featureId( featureId ).buildUrl();
+        profile( testContext, "item-" + collectionName, getFeatureUrl, GEOJSON_MIME_TYPE );
+    }
+
+    private void assertProfilingEnabled() {
+        if ( endpointProfiler == null )
+            throw new SkipException( "Endpoint profiling is not enabled" );
+    }
+
+    private void profile( ITestContext testContext, String endpoint, String url, String mediaType )
+                            throws InterruptedException {
+        assertProfilingEnabled();
+        if ( url == null )
+            throw new SkipException( "Could not find url of endpoint " + endpoint + " supporting " + mediaType );
+        EndpointProfile profile = endpointProfiler.profile( endpoint,
+                                                            () -> initWithoutLogging().baseUri( url ).accept( mediaType ).when().request( GET ).getStatusCode() );
+        TestSuiteLogger.log( Level.INFO, "Performance of " + url + "\n" + profile );
+        writeHistogram( testContext, profile );
+        assertTrue( profile.getNoOfErrors() == 0,
+                    String.format( "%d of %d requests to %s failed, first error: %s", profile.getNoOfErrors(),
+                                   profile.getNoOfRequests(), url, profile.getFirstError() ) );
+    }
+
+    private void writeHistogram( ITestContext testContext, EndpointProfile profile ) {
+        if ( testContext.getOutputDirectory() == null )
+            return;
+        String fileName = profile.getEndpoint().replaceAll( "[^A-Za-z0-9_.-]", "_" ) + ".hgrm";
+        File file = new File( new File( testContext.getOutputDirectory(), "performance" ), fileName );
+        try {
+            profile.writeHistogram( file );
+        } catch ( IOException e ) {
+            TestSuiteLogger.log( Level.WARNING, "Could not write latency histogram to " + file, e );
+        }
+    }
+
+    private String rootUrl() {
+        String rootUrl = rootUri.toString();
+        if ( rootUrl.endsWith( "/" ) )
+            return rootUrl.substring( 0, rootUrl.length() - 1 );
+        return rootUrl;
+    }
+
+}
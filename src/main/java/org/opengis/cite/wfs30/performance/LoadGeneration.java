@@ -0,0 +1,211 @@
+package org.opengis.cite.wfs30.performance;
+
+import static io.restassured.http.Method.GET;
+import static org.opengis.cite.wfs30.EtsAssert.assertTrue;
+import static org.opengis.cite.wfs30.WFS3.GEOJSON_MIME_TYPE;
+import static org.opengis.cite.wfs30.openapi3.OpenApiUtils.retrieveTestPointsForFeature;
+import static org.opengis.cite.wfs30.util.JsonUtils.formatDateRange;
+import static org.opengis.cite.wfs30.util.JsonUtils.parseSpatialExtent;
+import static org.opengis.cite.wfs30.util.JsonUtils.parseTemporalExtent;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+import org.opengis.cite.wfs30.CommonDataFixture;
+import org.opengis.cite.wfs30.SuiteAttribute;
+import org.opengis.cite.wfs30.openapi3.TestPoint;
+import org.opengis.cite.wfs30.openapi3.TestPointCache;
+import org.opengis.cite.wfs30.openapi3.UriBuilder;
+import org.opengis.cite.wfs30.util.BBox;
+import org.opengis.cite.wfs30.util.LoadGenerator;
+import org.opengis.cite.wfs30.util.LoadReport;
+import org.opengis.cite.wfs30.util.LoadRequest;
+import org.opengis.cite.wfs30.util.TemporalExtent;
+import org.opengis.cite.wfs30.util.TestSuiteLogger;
+import org.testng.ITestContext;
+import org.testng.SkipException;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import io.restassured.specification.RequestSpecification;
+
+/**
+ * Capacity test of the service under test (only added to the suite if the test run argument
+ * {@link org.opengis.cite.wfs30.TestRunArg#LOADVIRTUALUSERS} is greater than 0). A realistic mix of requests derived from the test
+ * points of the OpenAPI document is replayed by a number of concurrent virtual users at a target rate:
+ *
+ * <ul>
+ * <li>pages of the features of each collection (weight {@value #ITEMS_WEIGHT}),</li>
+ * <li>single features of each collection requested by the id provided by the Get Features Operation (weight
+ * {@value #FEATURE_WEIGHT}),</li>
+ * <li>bbox requests with the spatial extent of each collection and its quarters (weight {@value #BBOX_WEIGHT}),</li>
+ * <li>time requests with the temporal extent of each collection and its middle half (weight {@value #TIME_WEIGHT}).</li>
+ * </ul>
+ *
+ * The requests are sent closed-loop or, if {@link org.opengis.cite.wfs30.TestRunArg#LOADOPENLOOP} is true, open-loop
+ * at a fixed rate (see {@link LoadGenerator}), with the same request specification as the conformance tests. The
+ * latencies per kind of request and the achieved throughput are logged, the percentile distributions of the response
+ * times (corrected for coordinated omission) and of the service times are written in the format of the HdrHistogram
+ * library to the directory 'load' in the output directory.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class LoadGeneration extends CommonDataFixture {
+
+    private static final int ITEMS_WEIGHT = 4;
+
+    private static final int FEATURE_WEIGHT = 3;
+
+    private static final int BBOX_WEIGHT = 2;
+
+    private static final int TIME_WEIGHT = 1;
+
+    private LoadGenerator loadGenerator;
+
+    private TestPointCache testPointCache;
+
+    private List<Map<String, Object>> collections;
+
+    private Map<String, String> collectionNameAndFeatureId;
+
+    @BeforeClass
+    public void retrieveRequiredInformationFromTestContext( ITestContext testContext ) {
+        this.loadGenerator = (LoadGenerator) testContext.getSuite().getAttribute( SuiteAttribute.LOAD_GENERATOR.getName() );
+        this.testPointCache = testPointCache( testContext );
+        List<Map<String, Object>> collections = (List<Map<String, Object>>) testContext.getSuite().getAttribute( SuiteAttribute.COLLECTIONS.getName() );
+        this.collections = collections != null ? collections : Collections.emptyList();
+        Map<String, String> collectionNameAndFeatureId = (Map<String, String>) testContext.getSuite().getAttribute( SuiteAttribute.FEATUREIDS.getName() );
+        this.collectionNameAndFeatureId = collectionNameAndFeatureId != null ? collectionNameAndFeatureId
+                                                                             : Collections.emptyMap();
+    }
+
+    /**
+     * Replays the mix of requests and fails if a request failed.
+     *
+     * @param testContext
+     *            the test context, never <code>null</code>
+     * @throws InterruptedException
+     *             if the thread was interrupted while generating the load
+     */
+    @Test(description = "Replays a mix of requests at a target rate to test the capacity of the service", groups = "performance")
+    public void generateLoad( ITestContext testContext )
+                            throws InterruptedException {
+        if ( loadGenerator == null )
+            throw new SkipException( "Load generation is not enabled" );
+        if ( testPointCache == null )
+            throw new SkipException( "No OpenAPI document available to derive the requests from" );
+        List<LoadRequest> mix = createMix();
+        if ( mix.isEmpty() )
+            throw new SkipException( "Could not derive any request from the test points of the collections" );
+        TestSuiteLogger.log( Level.CONFIG, "Mix of requests: " + mix );
+
+        LoadReport report = loadGenerator.run( mix, this::send );
+
+        TestSuiteLogger.log( Level.INFO, "Load generation\n" + report );
+        writeReport( testContext, report );
+        assertTrue( report.getNoOfErrors() == 0,
+                    String.format( "%d of %d requests failed, first error: %s", report.getNoOfErrors(),
+                                   report.getNoOfRequests(), report.getFirstError() ) );
+    }
+
+    private List<LoadRequest> createMix() {
+        List<LoadRequest> mix = new ArrayList<>();
+        for ( Map<String, Object> collection : collections ) {
+            String collectionName = (String) collection.get( "name" );
+            TestPoint testPoint = testPointCache.findFirstTestPointForCollection( collectionName );
+            if ( testPoint == null )
+                continue;
+            String getFeaturesUrl = new UriBuilder( testPoint ).collectionName( collectionName ).buildUrl();
+            mix.add( new LoadRequest( "items", getFeaturesUrl, Collections.emptyMap(), GEOJSON_MIME_TYPE,
+                                      ITEMS_WEIGHT ) );
+            addFeatureRequest( mix, collectionName );
+            addBboxRequests( mix, collection, getFeaturesUrl );
+            addTimeRequests( mix, collection, getFeaturesUrl );
+        }
+        return mix;
+    }
+
+    private void addFeatureRequest( List<LoadRequest> mix, String collectionName ) {
+        String featureId = collectionNameAndFeatureId.get( collectionName );
+        if ( featureId == null )
+            return;
+        List<TestPoint> testPoints = retrieveTestPointsForFeature( testPointCache.getPathIndex(), collectionName,
+                                                                   featureId );
+        if ( testPoints.isEmpty() )
+            return;
+        String getFeatureUrl = new UriBuilder( testPoints.get( 0 ) ).collectionName( collectionName ).featureId( featureId ).buildUrl();
+        mix.add( new LoadRequest( "item", getFeatureUrl, Collections.emptyMap(), GEOJSON_MIME_TYPE, FEATURE_WEIGHT ) );
+    }
+
+    private void addBboxRequests( List<LoadRequest> mix, Map<String, Object> collection, String getFeaturesUrl ) {
+        BBox extent = parseExtent( () -> parseSpatialExtent( collection ) );
+        if ( extent == null )
+            return;
+        List<BBox> bboxes = new ArrayList<>();
+        bboxes.add( extent );
+        if ( !extent.crossesAntimeridian() ) {
+            double centerX = ( extent.getMinX() + extent.getMaxX() ) / 2;
+            double centerY = ( extent.getMinY() + extent.getMaxY() ) / 2;
+            bboxes.add( new BBox( extent.getMinX(), extent.getMinY(), centerX, centerY ) );
+            bboxes.add( new BBox( centerX, extent.getMinY(), extent.getMaxX(), centerY ) );
+            bboxes.add( new BBox( extent.getMinX(), centerY, centerX, extent.getMaxY() ) );
+            bboxes.add( new BBox( centerX, centerY, extent.getMaxX(), extent.getMaxY() ) );
+        }
+        for ( BBox bbox : bboxes )
+            mix.add( new LoadRequest( "bbox", getFeaturesUrl,
+                                      Collections.singletonMap( "bbox", bbox.asQueryParameter() ), GEOJSON_MIME_TYPE,
+                                      BBOX_WEIGHT ) );
+    }
+
+    private void addTimeRequests( List<LoadRequest> mix, Map<String, Object> collection, String getFeaturesUrl ) {
+        TemporalExtent extent = parseExtent( () -> parseTemporalExtent( collection ) );
+        if ( extent == null )
+            return;
+        ZonedDateTime begin = extent.getBegin();
+        ZonedDateTime end = extent.getEnd();
+        Duration quarter = Duration.between( begin, end ).dividedBy( 4 );
+        mix.add( new LoadRequest( "time", getFeaturesUrl, Collections.singletonMap( "time",
+                                                                                   formatDateRange( begin, end ) ),
+                                  GEOJSON_MIME_TYPE, TIME_WEIGHT ) );
+        mix.add( new LoadRequest( "time", getFeaturesUrl,
+                                  Collections.singletonMap( "time", formatDateRange( begin.plus( quarter ),
+                                                                                     end.minus( quarter ) ) ),
+                                  GEOJSON_MIME_TYPE, TIME_WEIGHT ) );
+    }
+
+    private <T> T parseExtent( Supplier<T> parser ) {
+        try {
+            return parser.get();
+        } catch ( RuntimeException e ) {
+            TestSuiteLogger.log( Level.FINE, "Could not parse extent: " + e.getMessage() );
+            return null;
+        }
+    }
+
+    private int send( LoadRequest loadRequest ) {
+        RequestSpecification request = initWithoutLogging().baseUri( loadRequest.getUrl() ).accept( loadRequest.getMediaType() );
+        if ( !loadRequest.getParameters().isEmpty() )
+            request.params( loadRequest.getParameters() );
+        return request.when().request( GET ).getStatusCode();
+    }
+
+    private void writeReport( ITestContext testContext, LoadReport report ) {
+        if ( testContext.getOutputDirectory() == null )
+            return;
+        File directory = new File( testContext.getOutputDirectory(), "load" );
+        try {
+            report.writeHistograms( directory );
+        } catch ( IOException e ) {
+            TestSuiteLogger.log( Level.WARNING, "Could not write load report to " + directory, e );
+        }
+    }
+
+}
@@ -36,6 +36,82 @@ public class BBox {
         this.maxY = maxY;
     }
 
+    /**
+     * @return lower left corner, coordinate axis 1
+     */
+    public double getMinX() {
+        return minX;
+    }
+
+    /**
+     * @return lower left corner, coordinate axis 2
+     */
+    public double getMinY() {
+        return minY;
+    }
+
+    /**
+     * @return upper right corner, coordinate axis 1
+     */
+    public double getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * @return upper right corner, coordinate axis 2
+     */
+    public double getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * @return <code>true</code> if the bbox crosses the antimeridian (minX is greater than maxX), <code>false</code>
+     *         otherwise
+     */
+    public boolean crossesAntimeridian() {
+        return minX > maxX;
+    }
+
+    /**
+     * Splits the bbox at the antimeridian. The coordinates of axis 2 are ordered ascending.
+     *
+     * @return the envelopes [minX, minY, maxX, maxY] covered by this bbox, one envelope if the bbox does not cross the
+     *         antimeridian, two otherwise, never <code>null</code>
+     */
+    public double[][] asEnvelopes() {
+        double lowerY = Math.min( minY, maxY );
+        double upperY = Math.max( minY, maxY );
+        if ( crossesAntimeridian() )
+            return new double[][] { { minX, lowerY, 180, upperY }, { -180, lowerY, maxX, upperY } };
+        return new double[][] { { minX, lowerY, maxX, upperY } };
+    }
+
+    /**
+     * @param envelope
+     *            the envelope [minX, minY, maxX, maxY] to check, never <code>null</code>
+     * @return <code>true</code> if the envelope intersects this bbox, <code>false</code> otherwise
+     */
+    public boolean intersects( double[] envelope ) {
+        for ( double[] bboxEnvelope : asEnvelopes() ) {
+            if ( Envelopes.intersects( bboxEnvelope, envelope ) )
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param envelope
+     *            the envelope [minX, minY, maxX, maxY] to check, never <code>null</code>
+     * @return <code>true</code> if the envelope lies completely within this bbox, <code>false</code> otherwise
+     */
+    public boolean contains( double[] envelope ) {
+        for ( double[] bboxEnvelope : asEnvelopes() ) {
+            if ( Envelopes.contains( bboxEnvelope, envelope ) )
+                return true;
+        }
+        return false;
+    }
+
     /**
      * @return the bbox as query string like '-12,10, 12,20'
      */
@@ -0,0 +1,53 @@
+package org.opengis.cite.wfs30.util;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the remaining bytes of a {@link ByteBuffer} without copying them. Instances are not thread-safe.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    /**
+     * @param buffer
+     *            the buffer to read, the position is moved while reading, never <code>null</code>
+     */
+    public ByteBufferInputStream( ByteBuffer buffer ) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+        if ( !buffer.hasRemaining() )
+            return -1;
+        return buffer.get() & 0xFF;
+    }
+
+    @Override
+    public int read( byte[] bytes, int offset, int length ) {
+        if ( length == 0 )
+            return 0;
+        if ( !buffer.hasRemaining() )
+            return -1;
+        int noOfBytes = Math.min( length, buffer.remaining() );
+        buffer.get( bytes, offset, noOfBytes );
+        return noOfBytes;
+    }
+
+    @Override
+    public long skip( long n ) {
+        int noOfBytes = (int) Math.max( 0, Math.min( n, buffer.remaining() ) );
+        buffer.position( buffer.position() + noOfBytes );
+        return noOfBytes;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+
+}
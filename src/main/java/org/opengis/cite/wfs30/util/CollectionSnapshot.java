@@ -0,0 +1,373 @@
+package org.opengis.cite.wfs30.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.opengis.cite.wfs30.util.PageStore.StoredPage;
+
+/**
+ * Snapshot of all features of a collection, harvested once and stored on disk in a compact columnar layout. Each
+ * column is a file in the directory of the snapshot:
+ *
+ * <ul>
+ * <li>ids.bin: per feature a boolean (id present) followed by the id in modified UTF-8</li>
+ * <li>envelopes.bin: per feature four doubles [minX, minY, maxX, maxY], an empty envelope if the feature has no
+ * geometry</li>
+ * <li>times.bin: per feature two longs [begin, end] in epoch milliseconds, begin is greater than end if the feature
+ * has no temporal property</li>
+ * <li>offsets.bin: per feature two longs [offset, length], the byte range of the feature in the {@link PageStore}
+ * the pages were appended to as received</li>
+ * </ul>
+ *
+ * The columns are read not before they are queried, the spatial and temporal index are built once on first access.
+ * Instances are thread-safe.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class CollectionSnapshot {
+
+    private static final String IDS = "ids.bin";
+
+    private static final String ENVELOPES = "envelopes.bin";
+
+    private static final String TIMES = "times.bin";
+
+    private static final String OFFSETS = "offsets.bin";
+
+    private final File directory;
+
+    private final PageStore pageStore;
+
+    private final int size;
+
+    private String[] ids;
+
+    private Set<String> idSet;
+
+    private FeatureEnvelopeIndex envelopeIndex;
+
+    private FeatureTemporalIndex temporalIndex;
+
+    private long[] offsets;
+
+    private CollectionSnapshot( File directory, PageStore pageStore, int size ) {
+        this.directory = directory;
+        this.pageStore = pageStore;
+        this.size = size;
+    }
+
+    /**
+     * @param directory
+     *            the directory to write the columns of the snapshot to, created if not existing, never
+     *            <code>null</code>
+     * @param pageStore
+     *            the store to append the pages to, never <code>null</code>
+     * @return a writer appending the pages of a collection, never <code>null</code>
+     * @throws IOException
+     *             if the files of the snapshot could not be created
+     */
+    public static Writer writer( File directory, PageStore pageStore )
+                            throws IOException {
+        return new Writer( directory, pageStore );
+    }
+
+    /**
+     * @return the directory containing the snapshot, never <code>null</code>
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the number of features of the collection
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param id
+     *            the id to check, may be <code>null</code>
+     * @return <code>true</code> if the collection contains a feature with this id, <code>false</code> otherwise
+     * @throws IOException
+     *             if the column could not be read
+     */
+    public synchronized boolean containsId( String id )
+                            throws IOException {
+        if ( idSet == null ) {
+            idSet = new HashSet<>();
+            for ( String featureId : ids() )
+                if ( featureId != null )
+                    idSet.add( featureId );
+        }
+        return idSet.contains( id );
+    }
+
+    /**
+     * @return the spatial index of the envelopes of the features, never <code>null</code>
+     * @throws IOException
+     *             if the columns could not be read
+     */
+    public synchronized FeatureEnvelopeIndex getEnvelopeIndex()
+                            throws IOException {
+        if ( envelopeIndex == null ) {
+            String[] featureIds = ids();
+            FeatureEnvelopeIndex.Builder builder = FeatureEnvelopeIndex.builder();
+            try (DataInputStream envelopes = openColumn( ENVELOPES )) {
+                for ( int i = 0; i < size; i++ ) {
+                    double[] envelope = new double[] { envelopes.readDouble(), envelopes.readDouble(),
+                                                      envelopes.readDouble(), envelopes.readDouble() };
+                    if ( !Envelopes.isEmpty( envelope ) )
+                        builder.add( featureIds[i], envelope );
+                }
+            }
+            envelopeIndex = builder.build();
+        }
+        return envelopeIndex;
+    }
+
+    /**
+     * @return the temporal index of the features, never <code>null</code>
+     * @throws IOException
+     *             if the columns could not be read
+     */
+    public synchronized FeatureTemporalIndex getTemporalIndex()
+                            throws IOException {
+        if ( temporalIndex == null ) {
+            String[] featureIds = ids();
+            FeatureTemporalIndex.Builder builder = FeatureTemporalIndex.builder();
+            try (DataInputStream times = openColumn( TIMES )) {
+                for ( int i = 0; i < size; i++ ) {
+                    long begin = times.readLong();
+                    long end = times.readLong();
+                    if ( begin <= end )
+                        builder.add( featureIds[i], begin, end );
+                }
+            }
+            temporalIndex = builder.build();
+        }
+        return temporalIndex;
+    }
+
+    /**
+     * @param index
+     *            the index of the feature, in the order of the harvested pages
+     * @return the feature object as it was received, never <code>null</code>
+     * @throws IOException
+     *             if the feature could not be read
+     */
+    public String readFeature( int index )
+                            throws IOException {
+        if ( index < 0 || index >= size )
+            throw new IndexOutOfBoundsException( "Index: " + index + ", size: " + size );
+        long[] byteRanges = offsets();
+        ByteBuffer feature = pageStore.slice( byteRanges[index * 2], (int) byteRanges[index * 2 + 1] );
+        return StandardCharsets.UTF_8.decode( feature ).toString();
+    }
+
+    /**
+     * Deletes the columns of the snapshot, the pages remain in the page store.
+     */
+    public synchronized void delete() {
+        deleteDirectory( directory );
+    }
+
+    private String[] ids()
+                            throws IOException {
+        if ( ids == null ) {
+            String[] featureIds = new String[size];
+            try (DataInputStream column = openColumn( IDS )) {
+                for ( int i = 0; i < size; i++ )
+                    if ( column.readBoolean() )
+                        featureIds[i] = column.readUTF();
+            }
+            ids = featureIds;
+        }
+        return ids;
+    }
+
+    private synchronized long[] offsets()
+                            throws IOException {
+        if ( offsets == null ) {
+            long[] byteRanges = new long[size * 2];
+            try (DataInputStream column = openColumn( OFFSETS )) {
+                for ( int i = 0; i < byteRanges.length; i++ )
+                    byteRanges[i] = column.readLong();
+            }
+            offsets = byteRanges;
+        }
+        return offsets;
+    }
+
+    private DataInputStream openColumn( String name )
+                            throws IOException {
+        return new DataInputStream( new BufferedInputStream( new FileInputStream( new File( directory, name ) ) ) );
+    }
+
+    static void deleteDirectory( File directory ) {
+        File[] files = directory.listFiles();
+        if ( files != null )
+            for ( File file : files )
+                file.delete();
+        directory.delete();
+    }
+
+    /**
+     * Appends the pages of a collection to the columns of a new snapshot.
+     */
+    public static class Writer implements Closeable {
+
+        private final File directory;
+
+        private final DataOutputStream ids;
+
+        private final DataOutputStream envelopes;
+
+        private final DataOutputStream times;
+
+        private final DataOutputStream offsets;
+
+        private final PageStore pageStore;
+
+        private int size;
+
+        private boolean closed;
+
+        private Writer( File directory, PageStore pageStore ) throws IOException {
+            if ( !directory.isDirectory() && !directory.mkdirs() )
+                throw new IOException( "Could not create directory " + directory );
+            this.directory = directory;
+            DataOutputStream ids = null;
+            DataOutputStream envelopes = null;
+            DataOutputStream times = null;
+            try {
+                ids = openColumn( IDS );
+                envelopes = openColumn( ENVELOPES );
+                times = openColumn( TIMES );
+                this.offsets = openColumn( OFFSETS );
+            } catch ( IOException e ) {
+                closeAll( e, ids, envelopes, times );
+                throw e;
+            }
+            this.ids = ids;
+            this.envelopes = envelopes;
+            this.times = times;
+            this.pageStore = pageStore;
+        }
+
+        /**
+         * Appends the features of the passed page.
+         *
+         * @param page
+         *            the UTF-8 encoded GeoJSON feature collection, never <code>null</code>
+         * @return the features of the page, never <code>null</code>
+         * @throws IOException
+         *             if the page could not be read or written
+         */
+        public FeatureEnvelopes append( byte[] page )
+                                throws IOException {
+            StoredPage storedPage = pageStore.append( page );
+            FeatureEnvelopes features = GeoJsonEnvelopeReader.read( storedPage.asInputStream() );
+            for ( int i = 0; i < features.size(); i++ ) {
+                String id = features.getId( i );
+                ids.writeBoolean( id != null );
+                if ( id != null )
+                    ids.writeUTF( id );
+                double[] featureEnvelopes = features.envelopes();
+                for ( int j = i * 4; j < i * 4 + 4; j++ )
+                    envelopes.writeDouble( featureEnvelopes[j] );
+                times.writeLong( features.getTemporalBegin( i ) );
+                times.writeLong( features.getTemporalEnd( i ) );
+                offsets.writeLong( storedPage.getOffset() + features.getByteOffset( i ) );
+                offsets.writeLong( features.getByteLength( i ) );
+            }
+            size += features.size();
+            return features;
+        }
+
+        /**
+         * @return the number of features appended so far
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Closes the columns.
+         *
+         * @return the snapshot, never <code>null</code>
+         * @throws IOException
+         *             if the columns could not be written
+         */
+        public CollectionSnapshot finish()
+                                throws IOException {
+            close();
+            return new CollectionSnapshot( directory, pageStore, size );
+        }
+
+        /**
+         * Closes and deletes the columns of the snapshot.
+         */
+        public void discard() {
+            try {
+                close();
+            } catch ( IOException e ) {
+                // deleted anyway
+            }
+            deleteDirectory( directory );
+        }
+
+        @Override
+        public void close()
+                                throws IOException {
+            if ( closed )
+                return;
+            closed = true;
+            IOException exception = closeAll( null, ids, envelopes, times, offsets );
+            if ( exception != null )
+                throw exception;
+        }
+
+        /**
+         * Closes all passed streams, even if closing one of them fails.
+         *
+         * @return the passed exception or the first exception thrown while closing the streams (the others are added as
+         *         suppressed), <code>null</code> if no exception was passed or thrown
+         */
+        private static IOException closeAll( IOException exception, OutputStream... streams ) {
+            for ( OutputStream stream : streams ) {
+                if ( stream == null )
+                    continue;
+                try {
+                    stream.close();
+                } catch ( IOException e ) {
+                    if ( exception == null )
+                        exception = e;
+                    else
+                        exception.addSuppressed( e );
+                }
+            }
+            return exception;
+        }
+
+        private DataOutputStream openColumn( String name )
+                                throws IOException {
+            return new DataOutputStream( new BufferedOutputStream( new FileOutputStream( new File( directory,
+                                                                                                   name ) ) ) );
+        }
+
+    }
+
+}
@@ -0,0 +1,126 @@
+package org.opengis.cite.wfs30.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The snapshots of the harvested collections of a test run. The columns of the snapshots are stored in a temporary
+ * directory which is deleted by {@link #deleteAll()}, the harvested pages in the page store of the run.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class CollectionSnapshots {
+
+    private final Map<String, CollectionSnapshot> collectionNameAndSnapshot = new ConcurrentHashMap<>();
+
+    private final AtomicInteger noOfDirectories = new AtomicInteger();
+
+    private final int maxFeatures;
+
+    private final Set<String> collectionNames;
+
+    private final PageStore pageStore;
+
+    private File baseDirectory;
+
+    /**
+     * @param maxFeatures
+     *            the maximum number of features harvested per collection, collections with more features are not
+     *            harvested
+     * @param collectionNames
+     *            the names of the collections to harvest, <code>null</code> or empty if all collections should be
+     *            harvested
+     * @param pageStore
+     *            the store to append the harvested pages to, never <code>null</code>
+     */
+    public CollectionSnapshots( int maxFeatures, Collection<String> collectionNames, PageStore pageStore ) {
+        this.maxFeatures = maxFeatures;
+        this.pageStore = pageStore;
+        if ( collectionNames == null || collectionNames.isEmpty() )
+            this.collectionNames = Collections.emptySet();
+        else
+            this.collectionNames = new HashSet<>( collectionNames );
+    }
+
+    /**
+     * @return the maximum number of features harvested per collection
+     */
+    public int getMaxFeatures() {
+        return maxFeatures;
+    }
+
+    /**
+     * @param collectionName
+     *            the name of the collection, never <code>null</code>
+     * @return <code>true</code> if the collection should be harvested, <code>false</code> otherwise
+     */
+    public boolean isHarvested( String collectionName ) {
+        return collectionNames.isEmpty() || collectionNames.contains( collectionName );
+    }
+
+    /**
+     * @param collectionName
+     *            the name of the collection, never <code>null</code>
+     * @return the snapshot of the collection, empty if the collection was not harvested (completely)
+     */
+    public Optional<CollectionSnapshot> get( String collectionName ) {
+        return Optional.ofNullable( collectionNameAndSnapshot.get( collectionName ) );
+    }
+
+    /**
+     * @return a writer for a new snapshot in a new directory, never <code>null</code>
+     * @throws IOException
+     *             if the directory could not be created
+     */
+    public CollectionSnapshot.Writer newWriter()
+                            throws IOException {
+        File directory = new File( baseDirectory(), "collection-" + noOfDirectories.incrementAndGet() );
+        return CollectionSnapshot.writer( directory, pageStore );
+    }
+
+    /**
+     * @param collectionName
+     *            the name of the collection, never <code>null</code>
+     * @param snapshot
+     *            the complete snapshot of the collection, never <code>null</code>
+     */
+    public void put( String collectionName, CollectionSnapshot snapshot ) {
+        CollectionSnapshot previous = collectionNameAndSnapshot.put( collectionName, snapshot );
+        if ( previous != null && previous != snapshot )
+            previous.delete();
+    }
+
+    /**
+     * Deletes all snapshots and the temporary directory.
+     */
+    public synchronized void deleteAll() {
+        for ( CollectionSnapshot snapshot : collectionNameAndSnapshot.values() )
+            snapshot.delete();
+        collectionNameAndSnapshot.clear();
+        if ( baseDirectory != null ) {
+            File[] remaining = baseDirectory.listFiles();
+            if ( remaining != null )
+                for ( File directory : remaining )
+                    CollectionSnapshot.deleteDirectory( directory );
+            baseDirectory.delete();
+            baseDirectory = null;
+        }
+    }
+
+    private synchronized File baseDirectory()
+                            throws IOException {
+        if ( baseDirectory == null )
+            baseDirectory = Files.createTempDirectory( "ets-wfs30-snapshots" ).toFile();
+        return baseDirectory;
+    }
+
+}
@@ -0,0 +1,78 @@
+package org.opengis.cite.wfs30.util;
+
+import java.io.IOException;
+import java.util.logging.Level;
+
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+/**
+ * Revalidates a resource stored in the {@link RunCache} with a conditional request (If-None-Match and
+ * If-Modified-Since). If the service responds that the resource is not modified (status code 304), the stored body is
+ * returned as response with status code 200, so the tests can evaluate the response as if it was retrieved again. The
+ * status line of this response keeps the original status line and marks the body as served from the run cache. A
+ * resource retrieved with status code 200 is stored if the service returned an ETag or Last-Modified header.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class ConditionalRequestFilter implements Filter {
+
+    private static final int NOT_MODIFIED = 304;
+
+    private final RunCache runCache;
+
+    private final String key;
+
+    /**
+     * @param runCache
+     *            the cache to revalidate the resource with, never <code>null</code>
+     * @param key
+     *            the uri of the resource in the cache, never <code>null</code>
+     */
+    public ConditionalRequestFilter( RunCache runCache, String key ) {
+        this.runCache = runCache;
+        this.key = key;
+    }
+
+    @Override
+    public Response filter( FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec,
+                            FilterContext ctx ) {
+        RunCache.CachedResource cachedResource = runCache.get( key );
+        if ( cachedResource != null ) {
+            if ( cachedResource.getEtag() != null )
+                requestSpec.header( "If-None-Match", cachedResource.getEtag() );
+            if ( cachedResource.getLastModified() != null )
+                requestSpec.header( "If-Modified-Since", cachedResource.getLastModified() );
+        }
+        Response response = ctx.next( requestSpec, responseSpec );
+        if ( cachedResource != null && response.getStatusCode() == NOT_MODIFIED )
+            return createResponseFromCache( response, cachedResource );
+        if ( response.getStatusCode() == 200 ) {
+            String etag = response.getHeader( "ETag" );
+            String lastModified = response.getHeader( "Last-Modified" );
+            if ( etag != null || lastModified != null )
+                runCache.store( key, etag, lastModified, response.getContentType(), response.asByteArray() );
+        }
+        return response;
+    }
+
+    private Response createResponseFromCache( Response notModified, RunCache.CachedResource cachedResource ) {
+        try {
+            byte[] body = runCache.readBody( key );
+            runCache.markUnchanged( key );
+            String statusLine = notModified.getStatusLine() + " (revalidated, body from the run cache)";
+            ResponseBuilder responseBuilder = new ResponseBuilder().clone( notModified ).setStatusCode( 200 ).setStatusLine( statusLine ).setBody( body );
+            if ( cachedResource.getContentType() != null )
+                responseBuilder.setContentType( cachedResource.getContentType() );
+            return responseBuilder.build();
+        } catch ( IOException e ) {
+            TestSuiteLogger.log( Level.WARNING, "Could not read " + key + " from the run cache", e );
+            return notModified;
+        }
+    }
+
+}
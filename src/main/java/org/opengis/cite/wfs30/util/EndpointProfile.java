@@ -0,0 +1,123 @@
+package org.opengis.cite.wfs30.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Locale;
+
+/**
+ * Latencies and throughput measured by an {@link EndpointProfiler} for a single endpoint.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class EndpointProfile {
+
+    private final String endpoint;
+
+    private final LatencyHistogram histogram;
+
+    private final int concurrency;
+
+    private final long durationNanos;
+
+    private final long noOfErrors;
+
+    private final String firstError;
+
+    EndpointProfile( String endpoint, LatencyHistogram histogram, int concurrency, long durationNanos,
+                     long noOfErrors, String firstError ) {
+        this.endpoint = endpoint;
+        this.histogram = histogram;
+        this.concurrency = concurrency;
+        this.durationNanos = durationNanos;
+        this.noOfErrors = noOfErrors;
+        this.firstError = firstError;
+    }
+
+    /**
+     * @return the name of the profiled endpoint, never <code>null</code>
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * @return the latencies of the measured requests in microseconds, never <code>null</code>
+     */
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * @return the number of requests sent concurrently
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * @return the number of measured requests (without warm-up)
+     */
+    public long getNoOfRequests() {
+        return histogram.getTotalCount();
+    }
+
+    /**
+     * @return the number of requests failed with an exception or a status code other than 200
+     */
+    public long getNoOfErrors() {
+        return noOfErrors;
+    }
+
+    /**
+     * @return the description of the first failed request, <code>null</code> if no request failed
+     */
+    public String getFirstError() {
+        return firstError;
+    }
+
+    /**
+     * @param percentile
+     *            the percentile, between 0 and 100
+     * @return the latency at the passed percentile in milliseconds
+     */
+    public double getLatencyMillisAtPercentile( double percentile ) {
+        return histogram.getValueAtPercentile( percentile ) / 1000d;
+    }
+
+    /**
+     * @return the number of measured requests per second, 0 if the duration was not measurable
+     */
+    public double getThroughput() {
+        if ( durationNanos <= 0 )
+            return 0;
+        return getNoOfRequests() * 1000000000d / durationNanos;
+    }
+
+    /**
+     * Writes the percentile distribution of the latencies in milliseconds in the format of the HdrHistogram library.
+     *
+     * @param file
+     *            the file to write, missing parent directories are created, never <code>null</code>
+     * @throws IOException
+     *             if the file could not be written
+     */
+    public void writeHistogram( File file )
+                            throws IOException {
+        Files.createDirectories( file.getAbsoluteFile().getParentFile().toPath() );
+        try (PrintStream printStream = new PrintStream( file, "UTF-8" )) {
+            histogram.outputPercentileDistribution( printStream, 1000d );
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format( Locale.ROOT,
+                              "%s: %d requests (concurrency %d), p50: %.1f ms, p95: %.1f ms, p99: %.1f ms, %.1f requests/s, %d errors",
+                              endpoint, getNoOfRequests(), concurrency, getLatencyMillisAtPercentile( 50 ),
+                              getLatencyMillisAtPercentile( 95 ), getLatencyMillisAtPercentile( 99 ), getThroughput(),
+                              noOfErrors );
+    }
+
+}
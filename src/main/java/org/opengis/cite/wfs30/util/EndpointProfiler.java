@@ -0,0 +1,139 @@
+package org.opengis.cite.wfs30.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measures the latency and throughput of an endpoint: after a number of warm-up requests, which are not measured, the
+ * request is sent the configured number of times by the configured number of concurrent workers. Each worker sends the
+ * next request as soon as its previous request completed.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class EndpointProfiler {
+
+    private static final long HIGHEST_TRACKABLE_LATENCY = TimeUnit.HOURS.toMicros( 1 );
+
+    private final int warmUpIterations;
+
+    private final int iterations;
+
+    private final int concurrency;
+
+    /**
+     * @param warmUpIterations
+     *            the number of requests sent before the measurement, must be &gt;= 0
+     * @param iterations
+     *            the number of measured requests, must be &gt; 0
+     * @param concurrency
+     *            the number of requests sent concurrently, must be &gt; 0
+     */
+    public EndpointProfiler( int warmUpIterations, int iterations, int concurrency ) {
+        if ( warmUpIterations < 0 || iterations <= 0 || concurrency <= 0 )
+            throw new IllegalArgumentException( "Invalid profiler settings: warm-up " + warmUpIterations
+                                                + ", iterations " + iterations + ", concurrency " + concurrency );
+        this.warmUpIterations = warmUpIterations;
+        this.iterations = iterations;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * @return the number of requests sent before the measurement
+     */
+    public int getWarmUpIterations() {
+        return warmUpIterations;
+    }
+
+    /**
+     * @return the number of measured requests
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return the number of requests sent concurrently
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Profiles the passed request.
+     *
+     * @param endpoint
+     *            the name of the endpoint, never <code>null</code>
+     * @param request
+     *            sends the request, reads the complete response and returns the status code, never <code>null</code>
+     * @return the profile of the endpoint, never <code>null</code>
+     * @throws InterruptedException
+     *             if the thread was interrupted while waiting for the requests
+     */
+    public EndpointProfile profile( String endpoint, Callable<Integer> request )
+                            throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram( HIGHEST_TRACKABLE_LATENCY );
+        AtomicLong noOfErrors = new AtomicLong();
+        AtomicReference<String> firstError = new AtomicReference<>();
+        ExecutorService executor = Executors.newFixedThreadPool( concurrency );
+        try {
+            run( executor, warmUpIterations, request, null, new AtomicLong(), new AtomicReference<>() );
+            long start = System.nanoTime();
+            run( executor, iterations, request, histogram, noOfErrors, firstError );
+            long durationNanos = System.nanoTime() - start;
+            return new EndpointProfile( endpoint, histogram, concurrency, durationNanos, noOfErrors.get(),
+                                        firstError.get() );
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void run( ExecutorService executor, int noOfRequests, Callable<Integer> request,
+                      LatencyHistogram histogram, AtomicLong noOfErrors, AtomicReference<String> firstError )
+                            throws InterruptedException {
+        AtomicInteger remaining = new AtomicInteger( noOfRequests );
+        List<Future<?>> workers = new ArrayList<>();
+        for ( int i = 0; i < concurrency; i++ ) {
+            workers.add( executor.submit( () -> {
+                while ( remaining.getAndDecrement() > 0 ) {
+                    long start = System.nanoTime();
+                    String error = send( request );
+                    long latencyNanos = System.nanoTime() - start;
+                    if ( histogram != null )
+                        histogram.recordValue( TimeUnit.NANOSECONDS.toMicros( latencyNanos ) );
+                    if ( error != null ) {
+                        noOfErrors.incrementAndGet();
+                        firstError.compareAndSet( null, error );
+                    }
+                }
+            } ) );
+        }
+        for ( Future<?> worker : workers ) {
+            try {
+                worker.get();
+            } catch ( ExecutionException e ) {
+                throw new RuntimeException( "Profiling failed", e.getCause() );
+            }
+        }
+    }
+
+    private String send( Callable<Integer> request ) {
+        try {
+            int statusCode = request.call();
+            if ( statusCode != 200 )
+                return "Unexpected status code " + statusCode;
+            return null;
+        } catch ( Exception e ) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+
+}
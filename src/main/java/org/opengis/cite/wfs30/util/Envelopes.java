@@ -0,0 +1,116 @@
+package org.opengis.cite.wfs30.util;
+
+/**
+ * Operations on envelopes stored as double arrays [minX, minY, maxX, maxY].
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+final class Envelopes {
+
+    private Envelopes() {
+    }
+
+    /**
+     * @return an empty envelope, expanding it by a coordinate results in the envelope of this coordinate, never
+     *         <code>null</code>
+     */
+    static double[] empty() {
+        double[] envelope = new double[4];
+        reset( envelope, 0 );
+        return envelope;
+    }
+
+    /**
+     * Empties the envelope starting at the passed offset.
+     *
+     * @param envelopes
+     *            the array containing the envelope, never <code>null</code>
+     * @param offset
+     *            the offset of the envelope in the array
+     */
+    static void reset( double[] envelopes, int offset ) {
+        envelopes[offset] = Double.POSITIVE_INFINITY;
+        envelopes[offset + 1] = Double.POSITIVE_INFINITY;
+        envelopes[offset + 2] = Double.NEGATIVE_INFINITY;
+        envelopes[offset + 3] = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * @param envelope
+     *            the envelope to check, never <code>null</code>
+     * @return <code>true</code> if the envelope was not expanded by any coordinate, <code>false</code> otherwise
+     */
+    static boolean isEmpty( double[] envelope ) {
+        return isEmpty( envelope, 0 );
+    }
+
+    /**
+     * @param envelopes
+     *            the array containing the envelope to check, never <code>null</code>
+     * @param offset
+     *            the offset of the envelope in the array
+     * @return <code>true</code> if the envelope was not expanded by any coordinate, <code>false</code> otherwise
+     */
+    static boolean isEmpty( double[] envelopes, int offset ) {
+        return envelopes[offset] > envelopes[offset + 2] || envelopes[offset + 1] > envelopes[offset + 3];
+    }
+
+    /**
+     * Expands the envelope by the passed coordinate.
+     *
+     * @param envelope
+     *            the envelope to expand, never <code>null</code>
+     * @param x
+     *            coordinate axis 1
+     * @param y
+     *            coordinate axis 2
+     */
+    static void expand( double[] envelope, double x, double y ) {
+        expand( envelope, 0, x, y );
+    }
+
+    /**
+     * Expands the envelope starting at the passed offset by the passed coordinate.
+     *
+     * @param envelopes
+     *            the array containing the envelope to expand, never <code>null</code>
+     * @param offset
+     *            the offset of the envelope in the array
+     * @param x
+     *            coordinate axis 1
+     * @param y
+     *            coordinate axis 2
+     */
+    static void expand( double[] envelopes, int offset, double x, double y ) {
+        envelopes[offset] = Math.min( envelopes[offset], x );
+        envelopes[offset + 1] = Math.min( envelopes[offset + 1], y );
+        envelopes[offset + 2] = Math.max( envelopes[offset + 2], x );
+        envelopes[offset + 3] = Math.max( envelopes[offset + 3], y );
+    }
+
+    /**
+     * Expands the envelope by the passed envelope.
+     *
+     * @param envelope
+     *            the envelope to expand, never <code>null</code>
+     * @param other
+     *            the envelope to include, never <code>null</code>
+     */
+    static void expand( double[] envelope, double[] other ) {
+        envelope[0] = Math.min( envelope[0], other[0] );
+        envelope[1] = Math.min( envelope[1], other[1] );
+        envelope[2] = Math.max( envelope[2], other[2] );
+        envelope[3] = Math.max( envelope[3], other[3] );
+    }
+
+    static boolean intersects( double[] envelope, double[] other ) {
+        return envelope[0] <= other[2] && other[0] <= envelope[2] && envelope[1] <= other[3]
+               && other[1] <= envelope[3];
+    }
+
+    static boolean contains( double[] envelope, double[] other ) {
+        return envelope[0] <= other[0] && other[2] <= envelope[2] && envelope[1] <= other[1]
+               && other[3] <= envelope[3];
+    }
+
+}
@@ -0,0 +1,228 @@
+package org.opengis.cite.wfs30.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Read-only spatial index of the envelopes of the features of a collection. The index is a R-tree packed with the
+ * Sort-Tile-Recursive (STR) algorithm: the envelopes are sorted by the x coordinate of their center into vertical
+ * slices, within each slice by the y coordinate, and grouped into nodes of {@value #NODE_CAPACITY} entries, level by
+ * level until a single root node remains.
+ *
+ * Queries with a {@link BBox} crossing the antimeridian are split into two envelopes.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class FeatureEnvelopeIndex {
+
+    static final int NODE_CAPACITY = 16;
+
+    private final Node root;
+
+    private final int size;
+
+    private FeatureEnvelopeIndex( List<Entry> entries ) {
+        this.size = entries.size();
+        this.root = entries.isEmpty() ? null : pack( entries );
+    }
+
+    /**
+     * @return a builder collecting the envelopes of the features, never <code>null</code>
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the number of indexed features
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param bbox
+     *            the bbox to query, never <code>null</code>
+     * @return the ids of the features with an envelope intersecting the bbox, features without id are omitted, may be
+     *         empty but never <code>null</code>
+     */
+    public Set<String> findIntersecting( BBox bbox ) {
+        Set<String> ids = new LinkedHashSet<>();
+        for ( Entry entry : query( bbox ) )
+            if ( entry.id != null )
+                ids.add( entry.id );
+        return ids;
+    }
+
+    /**
+     * @param bbox
+     *            the bbox to query, never <code>null</code>
+     * @return the number of features with an envelope intersecting the bbox
+     */
+    public int countIntersecting( BBox bbox ) {
+        return query( bbox ).size();
+    }
+
+    /**
+     * @param bbox
+     *            the bbox to query, never <code>null</code>
+     * @return the number of features with an envelope lying completely within the bbox
+     */
+    public int countContained( BBox bbox ) {
+        int count = 0;
+        for ( Entry entry : query( bbox ) )
+            if ( bbox.contains( entry.envelope ) )
+                count++;
+        return count;
+    }
+
+    private Set<Entry> query( BBox bbox ) {
+        Set<Entry> result = Collections.newSetFromMap( new IdentityHashMap<>() );
+        if ( root == null )
+            return result;
+        for ( double[] envelope : bbox.asEnvelopes() )
+            root.query( envelope, result );
+        return result;
+    }
+
+    private static Node pack( List<? extends Bounded> items ) {
+        List<Node> nodes = packLevel( items );
+        while ( nodes.size() > 1 )
+            nodes = packLevel( nodes );
+        return nodes.get( 0 );
+    }
+
+    private static List<Node> packLevel( List<? extends Bounded> items ) {
+        int noOfNodes = (int) Math.ceil( items.size() / (double) NODE_CAPACITY );
+        int noOfSlices = (int) Math.ceil( Math.sqrt( noOfNodes ) );
+        int sliceSize = noOfSlices * NODE_CAPACITY;
+
+        List<Bounded> sortedByX = new ArrayList<>( items );
+        sortedByX.sort( Comparator.comparingDouble( Bounded::centerX ) );
+
+        List<Node> nodes = new ArrayList<>( noOfNodes );
+        for ( int sliceStart = 0; sliceStart < sortedByX.size(); sliceStart += sliceSize ) {
+            List<Bounded> slice = new ArrayList<>( sortedByX.subList( sliceStart,
+                                                                      Math.min( sliceStart + sliceSize,
+                                                                                sortedByX.size() ) ) );
+            slice.sort( Comparator.comparingDouble( Bounded::centerY ) );
+            for ( int nodeStart = 0; nodeStart < slice.size(); nodeStart += NODE_CAPACITY )
+                nodes.add( new Node( slice.subList( nodeStart, Math.min( nodeStart + NODE_CAPACITY, slice.size() ) ) ) );
+        }
+        return nodes;
+    }
+
+    /**
+     * Collects the envelopes of the features of a collection.
+     */
+    public static class Builder {
+
+        private final List<Entry> entries = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * @param id
+         *            the id of the feature, may be <code>null</code>
+         * @param envelope
+         *            the envelope [minX, minY, maxX, maxY] of the feature, features without envelope are ignored
+         * @return this builder, never <code>null</code>
+         */
+        public Builder add( String id, double[] envelope ) {
+            if ( envelope != null )
+                entries.add( new Entry( id, envelope ) );
+            return this;
+        }
+
+        /**
+         * @param featureEnvelopes
+         *            the features to add, features without envelope are ignored, never <code>null</code>
+         * @return this builder, never <code>null</code>
+         */
+        public Builder addAll( FeatureEnvelopes featureEnvelopes ) {
+            for ( int i = 0; i < featureEnvelopes.size(); i++ )
+                add( featureEnvelopes.getId( i ), featureEnvelopes.getEnvelope( i ) );
+            return this;
+        }
+
+        /**
+         * @return the number of added features with an envelope
+         */
+        public int size() {
+            return entries.size();
+        }
+
+        /**
+         * @return the packed index, never <code>null</code>
+         */
+        public FeatureEnvelopeIndex build() {
+            return new FeatureEnvelopeIndex( entries );
+        }
+
+    }
+
+    private abstract static class Bounded {
+
+        final double[] envelope;
+
+        Bounded( double[] envelope ) {
+            this.envelope = envelope;
+        }
+
+        double centerX() {
+            return ( envelope[0] + envelope[2] ) / 2;
+        }
+
+        double centerY() {
+            return ( envelope[1] + envelope[3] ) / 2;
+        }
+
+        abstract void query( double[] queryEnvelope, Set<Entry> result );
+
+    }
+
+    private static class Entry extends Bounded {
+
+        private final String id;
+
+        private Entry( String id, double[] envelope ) {
+            super( envelope );
+            this.id = id;
+        }
+
+        @Override
+        void query( double[] queryEnvelope, Set<Entry> result ) {
+            if ( Envelopes.intersects( queryEnvelope, envelope ) )
+                result.add( this );
+        }
+
+    }
+
+    private static class Node extends Bounded {
+
+        private final Bounded[] children;
+
+        private Node( List<Bounded> children ) {
+            super( Envelopes.empty() );
+            this.children = children.toArray( new Bounded[children.size()] );
+            for ( Bounded child : this.children )
+                Envelopes.expand( envelope, child.envelope );
+        }
+
+        @Override
+        void query( double[] queryEnvelope, Set<Entry> result ) {
+            if ( !Envelopes.intersects( queryEnvelope, envelope ) )
+                return;
+            for ( Bounded child : children )
+                child.query( queryEnvelope, result );
+        }
+
+    }
+
+}
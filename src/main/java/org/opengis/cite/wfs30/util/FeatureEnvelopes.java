@@ -0,0 +1,189 @@
+package org.opengis.cite.wfs30.util;
+
+import java.util.Arrays;
+
+/**
+ * The ids and envelopes of the features of a GeoJSON page as read by {@link GeoJsonEnvelopeReader}. The envelopes are
+ * stored in a single primitive array, four values [minX, minY, maxX, maxY] per feature. The temporal extents are
+ * stored in another primitive array, two values [begin, end] in epoch milliseconds per feature. The byte ranges of the
+ * features in the page are stored as [offset, length] per feature.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class FeatureEnvelopes {
+
+    private String[] ids = new String[16];
+
+    private double[] envelopes = new double[16 * 4];
+
+    private long[] temporalExtents = new long[16 * 2];
+
+    private long[] byteRanges = new long[16 * 2];
+
+    private int size;
+
+    private String nextUrl;
+
+    private long numberMatched = -1;
+
+    /**
+     * @return the number of features
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index
+     *            the index of the feature
+     * @return the id of the feature, <code>null</code> if the feature has no id
+     */
+    public String getId( int index ) {
+        checkIndex( index );
+        return ids[index];
+    }
+
+    /**
+     * @param index
+     *            the index of the feature
+     * @return <code>true</code> if the feature has a geometry with at least one coordinate, <code>false</code>
+     *         otherwise
+     */
+    public boolean hasEnvelope( int index ) {
+        checkIndex( index );
+        return !Envelopes.isEmpty( envelopes, index * 4 );
+    }
+
+    /**
+     * @param index
+     *            the index of the feature
+     * @return a copy of the envelope [minX, minY, maxX, maxY] of the feature, <code>null</code> if the feature has no
+     *         geometry
+     */
+    public double[] getEnvelope( int index ) {
+        if ( !hasEnvelope( index ) )
+            return null;
+        return Arrays.copyOfRange( envelopes, index * 4, index * 4 + 4 );
+    }
+
+    /**
+     * @param index
+     *            the index of the feature
+     * @return <code>true</code> if the feature has at least one temporal property, <code>false</code> otherwise
+     */
+    public boolean hasTemporalExtent( int index ) {
+        checkIndex( index );
+        return temporalExtents[index * 2] <= temporalExtents[index * 2 + 1];
+    }
+
+    /**
+     * @param index
+     *            the index of the feature
+     * @return the earliest begin of the temporal properties of the feature in epoch milliseconds, only meaningful if
+     *         {@link #hasTemporalExtent(int)} is <code>true</code>
+     */
+    public long getTemporalBegin( int index ) {
+        checkIndex( index );
+        return temporalExtents[index * 2];
+    }
+
+    /**
+     * @param index
+     *            the index of the feature
+     * @return the latest end of the temporal properties of the feature in epoch milliseconds, only meaningful if
+     *         {@link #hasTemporalExtent(int)} is <code>true</code>
+     */
+    public long getTemporalEnd( int index ) {
+        checkIndex( index );
+        return temporalExtents[index * 2 + 1];
+    }
+
+    /**
+     * @param index
+     *            the index of the feature
+     * @return the offset of the first byte of the feature object in the page
+     */
+    public long getByteOffset( int index ) {
+        checkIndex( index );
+        return byteRanges[index * 2];
+    }
+
+    /**
+     * @param index
+     *            the index of the feature
+     * @return the number of bytes of the feature object in the page
+     */
+    public long getByteLength( int index ) {
+        checkIndex( index );
+        return byteRanges[index * 2 + 1];
+    }
+
+    /**
+     * @return the href of the link with 'rel=next', <code>null</code> if the page has no next link
+     */
+    public String getNextUrl() {
+        return nextUrl;
+    }
+
+    /**
+     * @return the value of the property 'numberMatched', -1 if the page has no such property
+     */
+    public long getNumberMatched() {
+        return numberMatched;
+    }
+
+    void setNextUrl( String nextUrl ) {
+        this.nextUrl = nextUrl;
+    }
+
+    void setNumberMatched( long numberMatched ) {
+        this.numberMatched = numberMatched;
+    }
+
+    /**
+     * Adds a feature with an empty envelope.
+     *
+     * @return the offset of the envelope of the new feature in {@link #envelopes()}
+     */
+    int addFeature() {
+        if ( size == ids.length ) {
+            ids = Arrays.copyOf( ids, size * 2 );
+            envelopes = Arrays.copyOf( envelopes, size * 2 * 4 );
+            temporalExtents = Arrays.copyOf( temporalExtents, size * 2 * 2 );
+            byteRanges = Arrays.copyOf( byteRanges, size * 2 * 2 );
+        }
+        int offset = size * 4;
+        Envelopes.reset( envelopes, offset );
+        temporalExtents[size * 2] = Long.MAX_VALUE;
+        temporalExtents[size * 2 + 1] = Long.MIN_VALUE;
+        size++;
+        return offset;
+    }
+
+    void setId( int index, String id ) {
+        ids[index] = id;
+    }
+
+    double[] envelopes() {
+        return envelopes;
+    }
+
+    void setByteRange( int index, long offset, long length ) {
+        byteRanges[index * 2] = offset;
+        byteRanges[index * 2 + 1] = length;
+    }
+
+    /**
+     * Expands the temporal extent of the feature by the passed interval.
+     */
+    void expandTemporalExtent( int index, long begin, long end ) {
+        temporalExtents[index * 2] = Math.min( temporalExtents[index * 2], begin );
+        temporalExtents[index * 2 + 1] = Math.max( temporalExtents[index * 2 + 1], end );
+    }
+
+    private void checkIndex( int index ) {
+        if ( index < 0 || index >= size )
+            throw new IndexOutOfBoundsException( "Index: " + index + ", size: " + size );
+    }
+
+}
@@ -0,0 +1,437 @@
+package org.opengis.cite.wfs30.util;
+
+import static io.restassured.RestAssured.given;
+import static io.restassured.http.Method.GET;
+import static org.opengis.cite.wfs30.WFS3.GEOJSON_MIME_TYPE;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+
+/**
+ * Follows the 'next' links of a feature collection and counts the features of each page. The pages are scanned with a
+ * streaming JSON parser directly from the response stream, the object tree of a page is never built.
+ *
+ * In pipelined mode the request of the next page is sent as soon as its href is found in the current page, so
+ * retrieving the next page overlaps with scanning the remaining content of the current page.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class FeaturePageWalker {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Requests the pages of pipelined walkers without a {@link RequestExecutor}, shared by all walkers.
+     */
+    private static final ExecutorService PAGE_EXECUTOR = Executors.newCachedThreadPool( new PageThreadFactory() );
+
+    private final int maximumLimit;
+
+    private final boolean pipelined;
+
+    private final RequestExecutor requestExecutor;
+
+    private final PooledHttpClient pooledHttpClient;
+
+    private final List<PageStatistics> pageStatistics = new ArrayList<>();
+
+    /**
+     * Instantiates a FeaturePageWalker requesting one page after the other.
+     *
+     * @param maximumLimit
+     *            the limit parameter value to use, if &lt;= 0 the parameter is not changed
+     */
+    public FeaturePageWalker( int maximumLimit ) {
+        this( maximumLimit, false );
+    }
+
+    /**
+     * @param maximumLimit
+     *            the limit parameter value to use, if &lt;= 0 the parameter is not changed
+     * @param pipelined
+     *            <code>true</code> if the next page should be requested while the current page is scanned,
+     *            <code>false</code> if one page is requested after the other
+     */
+    public FeaturePageWalker( int maximumLimit, boolean pipelined ) {
+        this.maximumLimit = maximumLimit;
+        this.pipelined = pipelined;
+        this.requestExecutor = null;
+        this.pooledHttpClient = null;
+    }
+
+    /**
+     * Instantiates a FeaturePageWalker respecting the limit of requests in flight per host of the passed executor and
+     * sending the requests over the connections of the passed pooled client.
+     *
+     * @param maximumLimit
+     *            the limit parameter value to use, if &lt;= 0 the parameter is not changed
+     * @param pipelined
+     *            <code>true</code> if the next page should be requested while the current page is scanned,
+     *            <code>false</code> if one page is requested after the other
+     * @param requestExecutor
+     *            the executor used to request the pages, never <code>null</code>
+     * @param pooledHttpClient
+     *            the client used to send the requests, may be <code>null</code> if the default client of RestAssured
+     *            should be used
+     */
+    public FeaturePageWalker( int maximumLimit, boolean pipelined, RequestExecutor requestExecutor,
+                              PooledHttpClient pooledHttpClient ) {
+        this.maximumLimit = maximumLimit;
+        this.pipelined = pipelined;
+        this.requestExecutor = requestExecutor;
+        this.pooledHttpClient = pooledHttpClient;
+    }
+
+    /**
+     * Requests the page with the passed url and all pages referenced by the 'next' links. Iteration stops if no 'next'
+     * link is included or the page does not contain features.
+     *
+     * @param nextUrl
+     *            the url of the first page to request, may be <code>null</code> (no request is sent)
+     * @return the number of features in all requested pages
+     * @throws URISyntaxException
+     *             if the creation of a uri fails
+     */
+    public int walk( String nextUrl )
+                            throws URISyntaxException {
+        if ( pipelined )
+            return walkPipelined( nextUrl );
+        int numberOfFeatures = 0;
+        while ( nextUrl != null ) {
+            PageContent page = requestPage( nextUrl, null );
+            pageStatistics.add( page.statistics );
+            if ( page.numberOfFeatures > 0 ) {
+                numberOfFeatures += page.numberOfFeatures;
+                nextUrl = page.nextUrl;
+            } else {
+                nextUrl = null;
+            }
+        }
+        return numberOfFeatures;
+    }
+
+    /**
+     * @return the statistics of all pages requested by this walker, may be empty but never <code>null</code>
+     */
+    public List<PageStatistics> getPageStatistics() {
+        return Collections.unmodifiableList( pageStatistics );
+    }
+
+    /**
+     * @return the number of bytes read from all pages requested by this walker
+     */
+    public long getNumberOfBytes() {
+        long numberOfBytes = 0;
+        for ( PageStatistics page : pageStatistics )
+            numberOfBytes += page.getNumberOfBytes();
+        return numberOfBytes;
+    }
+
+    /**
+     * Scans the passed stream for the number of features and the href of the first link with 'rel=next'.
+     *
+     * @param json
+     *            the stream containing a feature collection, never <code>null</code>
+     * @return the content of the page, never <code>null</code>
+     * @throws IOException
+     *             if the stream could not be read or is not a json object
+     */
+    static PageContent scanPage( InputStream json )
+                            throws IOException {
+        return scanPage( json, null );
+    }
+
+    /**
+     * Scans the passed stream for the number of features and the href of the first link with 'rel=next'.
+     *
+     * @param json
+     *            the stream containing a feature collection, never <code>null</code>
+     * @param nextUrlListener
+     *            notified as soon as the href of the 'next' link is found, before the remaining content of the stream is
+     *            scanned, may be <code>null</code>
+     * @return the content of the page, never <code>null</code>
+     * @throws IOException
+     *             if the stream could not be read or is not a json object
+     */
+    static PageContent scanPage( InputStream json, Consumer<String> nextUrlListener )
+                            throws IOException {
+        PageContent pageContent = new PageContent();
+        try (JsonParser parser = JSON_FACTORY.createParser( json )) {
+            if ( parser.nextToken() != JsonToken.START_OBJECT )
+                throw new IOException( "Feature collection is not a json object" );
+            while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+                String fieldName = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ( "features".equals( fieldName ) && value == JsonToken.START_ARRAY ) {
+                    while ( parser.nextToken() != JsonToken.END_ARRAY ) {
+                        pageContent.numberOfFeatures++;
+                        parser.skipChildren();
+                    }
+                } else if ( "links".equals( fieldName ) && value == JsonToken.START_ARRAY ) {
+                    pageContent.nextUrl = scanNextUrl( parser );
+                    if ( pageContent.nextUrl != null && nextUrlListener != null )
+                        nextUrlListener.accept( pageContent.nextUrl );
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return pageContent;
+    }
+
+    private int walkPipelined( String nextUrl ) {
+        if ( nextUrl == null )
+            return 0;
+        Function<PageRequest, Future<PageContent>> submitter;
+        if ( requestExecutor == null )
+            submitter = PAGE_EXECUTOR::submit;
+        else
+            submitter = pageRequest -> requestExecutor.submit( RequestExecutor.parseHost( pageRequest.url ), pageRequest );
+        AtomicBoolean stopped = new AtomicBoolean( false );
+        PageRequest pageRequest = new PageRequest( nextUrl, submitter, stopped ).submit();
+        try {
+            int numberOfFeatures = 0;
+            while ( pageRequest != null ) {
+                PageContent page = retrieve( pageRequest.page );
+                pageStatistics.add( page.statistics );
+                if ( page.numberOfFeatures <= 0 )
+                    break;
+                numberOfFeatures += page.numberOfFeatures;
+                pageRequest = pageRequest.nextRequest;
+            }
+            return numberOfFeatures;
+        } finally {
+            // the next page may already be requested if the walk stops early or the current page failed
+            stopped.set( true );
+            if ( pageRequest != null )
+                pageRequest.cancel();
+        }
+    }
+
+    private PageContent retrieve( Future<PageContent> page ) {
+        try {
+            return page.get();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted while waiting for the next page", e );
+        } catch ( ExecutionException e ) {
+            Throwable cause = e.getCause();
+            if ( cause instanceof Error )
+                throw (Error) cause;
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException) cause;
+            throw new IllegalStateException( "Could not retrieve the next page", cause );
+        }
+    }
+
+    private PageContent requestPage( String url, Consumer<String> nextUrlListener )
+                            throws URISyntaxException {
+        long start = System.currentTimeMillis();
+        Response response = createRequest( url ).when().request( GET );
+        response.then().statusCode( 200 );
+        long requestTime = System.currentTimeMillis() - start;
+
+        CountingInputStream body = new CountingInputStream( response.asInputStream() );
+        PageContent page;
+        try {
+            page = scanPage( body, nextUrlListener );
+        } catch ( IOException e ) {
+            throw new AssertionError( "Could not parse features of page " + url + ": " + e.getMessage() );
+        }
+        long parseTime = System.currentTimeMillis() - start - requestTime;
+        page.statistics = new PageStatistics( url, page.numberOfFeatures, body.numberOfBytes, requestTime, parseTime );
+        return page;
+    }
+
+    private RequestSpecification createRequest( String url )
+                            throws URISyntaxException {
+        URI uri = new URI( url );
+        String query = uri.getRawQuery();
+        String baseUri = query != null ? url.substring( 0, url.indexOf( '?' ) ) : url;
+
+        RequestSpecification request = given().urlEncodingEnabled( false ).baseUri( baseUri ).accept( GEOJSON_MIME_TYPE );
+        if ( pooledHttpClient != null )
+            request.config( pooledHttpClient.getRestAssuredConfig() );
+        // pipelined requests are limited by the request executor
+        if ( requestExecutor != null && !pipelined )
+            request.filter( requestExecutor.createHostLimitFilter() );
+        if ( query != null ) {
+            for ( String pair : query.split( "&" ) ) {
+                int idx = pair.indexOf( "=" );
+                if ( idx < 0 )
+                    continue;
+                String key = pair.substring( 0, idx );
+                if ( maximumLimit > 0 && "limit".equals( key ) )
+                    continue;
+                request.queryParam( key, pair.substring( idx + 1 ) );
+            }
+        }
+        if ( maximumLimit > 0 )
+            request.queryParam( "limit", maximumLimit );
+        return request;
+    }
+
+    /**
+     * Scans the links array the parser is positioned at for the href of the first link with 'rel=next'.
+     *
+     * @param parser
+     *            the parser positioned at the start of the links array, never <code>null</code>
+     * @return the href of the first link with 'rel=next', <code>null</code> if there is no such link
+     * @throws IOException
+     *             if the stream could not be read
+     */
+    static String scanNextUrl( JsonParser parser )
+                            throws IOException {
+        String nextUrl = null;
+        while ( parser.nextToken() != JsonToken.END_ARRAY ) {
+            if ( parser.getCurrentToken() != JsonToken.START_OBJECT ) {
+                parser.skipChildren();
+                continue;
+            }
+            String rel = null;
+            String href = null;
+            while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+                String fieldName = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ( value == JsonToken.VALUE_STRING && "rel".equals( fieldName ) )
+                    rel = parser.getText();
+                else if ( value == JsonToken.VALUE_STRING && "href".equals( fieldName ) )
+                    href = parser.getText();
+                else
+                    parser.skipChildren();
+            }
+            if ( nextUrl == null && "next".equals( rel ) )
+                nextUrl = href;
+        }
+        return nextUrl;
+    }
+
+    static class PageContent {
+
+        int numberOfFeatures;
+
+        String nextUrl;
+
+        PageStatistics statistics;
+
+    }
+
+    private class PageRequest implements Callable<PageContent> {
+
+        private final String url;
+
+        private final Function<PageRequest, Future<PageContent>> submitter;
+
+        private final AtomicBoolean stopped;
+
+        private Future<PageContent> page;
+
+        private PageRequest nextRequest;
+
+        private PageRequest( String url, Function<PageRequest, Future<PageContent>> submitter, AtomicBoolean stopped ) {
+            this.url = url;
+            this.submitter = submitter;
+            this.stopped = stopped;
+        }
+
+        @Override
+        public PageContent call()
+                                throws URISyntaxException {
+            return requestPage( url, this::requestNextPage );
+        }
+
+        private PageRequest submit() {
+            this.page = submitter.apply( this );
+            return this;
+        }
+
+        private synchronized void requestNextPage( String nextUrl ) {
+            if ( !stopped.get() )
+                nextRequest = new PageRequest( nextUrl, submitter, stopped ).submit();
+        }
+
+        /**
+         * Cancels the request of this page and the request of the next page, if already submitted. The walk must be
+         * stopped before, so no further page is requested.
+         */
+        private synchronized void cancel() {
+            page.cancel( true );
+            if ( nextRequest != null )
+                nextRequest.page.cancel( true );
+        }
+
+    }
+
+    private static class PageThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger( 1 );
+
+        @Override
+        public Thread newThread( Runnable runnable ) {
+            Thread thread = new Thread( runnable, "wfs30-page-" + threadNumber.getAndIncrement() );
+            thread.setDaemon( true );
+            return thread;
+        }
+
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long numberOfBytes;
+
+        private CountingInputStream( InputStream in ) {
+            super( in );
+        }
+
+        @Override
+        public int read()
+                                throws IOException {
+            int read = super.read();
+            if ( read >= 0 )
+                numberOfBytes++;
+            return read;
+        }
+
+        @Override
+        public int read( byte[] b, int off, int len )
+                                throws IOException {
+            int read = super.read( b, off, len );
+            if ( read > 0 )
+                numberOfBytes += read;
+            return read;
+        }
+
+        @Override
+        public long skip( long n )
+                                throws IOException {
+            long skipped = super.skip( n );
+            numberOfBytes += skipped;
+            return skipped;
+        }
+
+    }
+
+}
@@ -0,0 +1,205 @@
+package org.opengis.cite.wfs30.util;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Read-only index of the temporal extents of the features of a collection. The extents [begin, end] are stored as
+ * epoch milliseconds in primitive arrays sorted by begin, the ends are additionally stored sorted on their own. All
+ * intervals, including the queried one, are closed.
+ *
+ * The number of intersecting features is computed with two binary searches: all features beginning before the end of
+ * the query minus all features ending before its begin.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class FeatureTemporalIndex {
+
+    private final String[] ids;
+
+    private final long[] begins;
+
+    private final long[] ends;
+
+    private final long[] sortedEnds;
+
+    private FeatureTemporalIndex( String[] ids, long[] begins, long[] ends ) {
+        int size = begins.length;
+        Integer[] order = new Integer[size];
+        for ( int i = 0; i < size; i++ )
+            order[i] = i;
+        Arrays.sort( order, ( a, b ) -> Long.compare( begins[a], begins[b] ) );
+
+        this.ids = new String[size];
+        this.begins = new long[size];
+        this.ends = new long[size];
+        for ( int i = 0; i < size; i++ ) {
+            this.ids[i] = ids[order[i]];
+            this.begins[i] = begins[order[i]];
+            this.ends[i] = ends[order[i]];
+        }
+        this.sortedEnds = Arrays.copyOf( this.ends, size );
+        Arrays.sort( this.sortedEnds );
+    }
+
+    /**
+     * @return a builder collecting the temporal extents of the features, never <code>null</code>
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the number of indexed features
+     */
+    public int size() {
+        return begins.length;
+    }
+
+    /**
+     * @param begin
+     *            begin of the queried interval in epoch milliseconds
+     * @param end
+     *            end of the queried interval in epoch milliseconds, equal to begin for an instant
+     * @return the ids of the features with a temporal extent intersecting the interval, features without id are
+     *         omitted, may be empty but never <code>null</code>
+     */
+    public Set<String> findIntersecting( long begin, long end ) {
+        Set<String> result = new LinkedHashSet<>();
+        int upper = upperBound( begins, end );
+        for ( int i = 0; i < upper; i++ )
+            if ( ends[i] >= begin && ids[i] != null )
+                result.add( ids[i] );
+        return result;
+    }
+
+    /**
+     * @param begin
+     *            begin of the queried interval in epoch milliseconds
+     * @param end
+     *            end of the queried interval in epoch milliseconds, equal to begin for an instant
+     * @return the number of features with a temporal extent intersecting the interval
+     */
+    public int countIntersecting( long begin, long end ) {
+        // features ending before the begin of the interval began before its end as well
+        return upperBound( begins, end ) - lowerBound( sortedEnds, begin );
+    }
+
+    /**
+     * @param begin
+     *            begin of the queried interval in epoch milliseconds
+     * @param end
+     *            end of the queried interval in epoch milliseconds, equal to begin for an instant
+     * @return the number of features with a temporal extent lying completely within the interval
+     */
+    public int countContained( long begin, long end ) {
+        int count = 0;
+        int upper = upperBound( begins, end );
+        for ( int i = lowerBound( begins, begin ); i < upper; i++ )
+            if ( ends[i] <= end )
+                count++;
+        return count;
+    }
+
+    /**
+     * @return the index of the first value greater than or equal to the key
+     */
+    private static int lowerBound( long[] sorted, long key ) {
+        int low = 0;
+        int high = sorted.length;
+        while ( low < high ) {
+            int mid = ( low + high ) >>> 1;
+            if ( sorted[mid] < key )
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * @return the index of the first value greater than the key
+     */
+    private static int upperBound( long[] sorted, long key ) {
+        int low = 0;
+        int high = sorted.length;
+        while ( low < high ) {
+            int mid = ( low + high ) >>> 1;
+            if ( sorted[mid] <= key )
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Collects the temporal extents of the features of a collection.
+     */
+    public static class Builder {
+
+        private String[] ids = new String[16];
+
+        private long[] begins = new long[16];
+
+        private long[] ends = new long[16];
+
+        private int size;
+
+        private Builder() {
+        }
+
+        /**
+         * @param id
+         *            the id of the feature, may be <code>null</code>
+         * @param begin
+         *            begin of the temporal extent of the feature in epoch milliseconds
+         * @param end
+         *            end of the temporal extent of the feature in epoch milliseconds, not before begin
+         * @return this builder, never <code>null</code>
+         */
+        public Builder add( String id, long begin, long end ) {
+            if ( size == begins.length ) {
+                ids = Arrays.copyOf( ids, size * 2 );
+                begins = Arrays.copyOf( begins, size * 2 );
+                ends = Arrays.copyOf( ends, size * 2 );
+            }
+            ids[size] = id;
+            begins[size] = begin;
+            ends[size] = end;
+            size++;
+            return this;
+        }
+
+        /**
+         * @param featureEnvelopes
+         *            the features to add, features without temporal extent are ignored, never <code>null</code>
+         * @return this builder, never <code>null</code>
+         */
+        public Builder addAll( FeatureEnvelopes featureEnvelopes ) {
+            for ( int i = 0; i < featureEnvelopes.size(); i++ )
+                if ( featureEnvelopes.hasTemporalExtent( i ) )
+                    add( featureEnvelopes.getId( i ), featureEnvelopes.getTemporalBegin( i ),
+                         featureEnvelopes.getTemporalEnd( i ) );
+            return this;
+        }
+
+        /**
+         * @return the number of added features with a temporal extent
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return the sorted index, never <code>null</code>
+         */
+        public FeatureTemporalIndex build() {
+            return new FeatureTemporalIndex( Arrays.copyOf( ids, size ), Arrays.copyOf( begins, size ),
+                                             Arrays.copyOf( ends, size ) );
+        }
+
+    }
+
+}
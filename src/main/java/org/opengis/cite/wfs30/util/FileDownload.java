@@ -0,0 +1,154 @@
+package org.opengis.cite.wfs30.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+
+/**
+ * Downloads a document with a GET request and streams the body into a file, so large documents (e.g. the OpenAPI
+ * document) are not buffered on the heap. The request is sent with RestAssured and timed like the requests of the
+ * tests (see {@link RequestTiming}).
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class FileDownload {
+
+    private final String url;
+
+    private final int statusCode;
+
+    private final String contentType;
+
+    private final String etag;
+
+    private final String lastModified;
+
+    private final File file;
+
+    private final RequestTiming timing;
+
+    private FileDownload( String url, int statusCode, String contentType, String etag, String lastModified, File file,
+                          RequestTiming timing ) {
+        this.url = url;
+        this.statusCode = statusCode;
+        this.contentType = contentType;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.file = file;
+        this.timing = timing;
+    }
+
+    /**
+     * Downloads the document with a GET request. The body of the response is streamed into the file (overwritten
+     * whatever the status code is), the request is timed with a {@link RequestTimingFilter} added to the passed
+     * request. The passed request must not contain filters reading the body of the response (e.g. a response logging
+     * filter logging the body).
+     *
+     * @param request
+     *            the request to send, with the headers (e.g. Accept) already set, never <code>null</code>
+     * @param url
+     *            the url of the document, never <code>null</code>
+     * @param file
+     *            the file to write the body to, never <code>null</code>
+     * @return the download, never <code>null</code>
+     * @throws IOException
+     *             if the file could not be written
+     */
+    public static FileDownload download( RequestSpecification request, String url, File file )
+                            throws IOException {
+        AtomicReference<RequestTiming> timing = new AtomicReference<>();
+        request.filter( new RequestTimingFilter( null, ( requestTiming, r ) -> timing.set( requestTiming ) ) );
+        Response response = request.baseUri( url ).when().get();
+        try (InputStream body = response.asInputStream()) {
+            Files.copy( body, file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+        return new FileDownload( url, response.getStatusCode(), response.getHeader( "Content-Type" ),
+                                 response.getHeader( "ETag" ), response.getHeader( "Last-Modified" ), file,
+                                 timing.get() );
+    }
+
+    /**
+     * Creates a download with status code 200 from a document revalidated as unchanged, the body was copied into the
+     * file of this download.
+     *
+     * @param contentType
+     *            the content type of the cached document, may be <code>null</code>
+     * @return the download of the unchanged document, never <code>null</code>
+     */
+    public FileDownload asUnchanged( String contentType ) {
+        return new FileDownload( url, 200, contentType, etag, lastModified, file, timing );
+    }
+
+    /**
+     * @return the url of the document, never <code>null</code>
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return the status code of the response
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return the content type of the document, <code>null</code> if unknown
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return the ETag of the document, <code>null</code> if the service did not return an ETag
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * @return the Last-Modified header of the document, <code>null</code> if the service did not return the header
+     */
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return the file containing the body of the response, never <code>null</code>
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the number of bytes of the body
+     */
+    public long getSize() {
+        return file.length();
+    }
+
+    /**
+     * @return the timing of the request, never <code>null</code>
+     */
+    public RequestTiming getTiming() {
+        return timing;
+    }
+
+    @Override
+    public String toString() {
+        double totalMillis = timing.getTotalMillis();
+        double kiloBytesPerSecond = totalMillis > 0 ? timing.getSize() / totalMillis : 0;
+        return String.format( Locale.ROOT, "%s: status %d, %d bytes in %.1f ms (ttfb %.1f ms, %.1f KB/s)", url,
+                              statusCode, timing.getSize(), totalMillis, timing.getTimeToFirstByteMillis(),
+                              kiloBytesPerSecond );
+    }
+
+}
@@ -0,0 +1,207 @@
+package org.opengis.cite.wfs30.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads the ids and the envelopes of the features of a GeoJSON feature collection from the token stream. The
+ * coordinates are not materialized, each coordinate expands the envelope of its feature directly, so no objects are
+ * created per coordinate.
+ *
+ * The first two values of a position are used as x and y, further values (e.g. z) are ignored.
+ *
+ * The temporal extent of a feature spans all string properties (first level of 'properties' only) containing an ISO
+ * 8601 date (covering the whole day in UTC), date-time (without offset in UTC) or an interval of both separated by
+ * '/'.
+ *
+ * The byte ranges of the features are only available if the stream is UTF-8 encoded.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public final class GeoJsonEnvelopeReader {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private GeoJsonEnvelopeReader() {
+    }
+
+    /**
+     * Reads the passed feature collection.
+     *
+     * @param json
+     *            the stream containing the feature collection, never <code>null</code>
+     * @return the ids and envelopes of the features, the next link and the number of matched features, never
+     *         <code>null</code>
+     * @throws IOException
+     *             if the stream could not be read or is not a json object
+     */
+    public static FeatureEnvelopes read( InputStream json )
+                            throws IOException {
+        FeatureEnvelopes featureEnvelopes = new FeatureEnvelopes();
+        try (JsonParser parser = JSON_FACTORY.createParser( json )) {
+            if ( parser.nextToken() != JsonToken.START_OBJECT )
+                throw new IOException( "Feature collection is not a json object" );
+            while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+                String fieldName = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ( "features".equals( fieldName ) && value == JsonToken.START_ARRAY ) {
+                    readFeatures( parser, featureEnvelopes );
+                } else if ( "links".equals( fieldName ) && value == JsonToken.START_ARRAY ) {
+                    featureEnvelopes.setNextUrl( FeaturePageWalker.scanNextUrl( parser ) );
+                } else if ( "numberMatched".equals( fieldName ) && value == JsonToken.VALUE_NUMBER_INT ) {
+                    featureEnvelopes.setNumberMatched( parser.getLongValue() );
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return featureEnvelopes;
+    }
+
+    private static void readFeatures( JsonParser parser, FeatureEnvelopes featureEnvelopes )
+                            throws IOException {
+        while ( parser.nextToken() != JsonToken.END_ARRAY ) {
+            if ( parser.getCurrentToken() != JsonToken.START_OBJECT ) {
+                parser.skipChildren();
+                continue;
+            }
+            long byteOffset = parser.getTokenLocation().getByteOffset();
+            int index = featureEnvelopes.size();
+            int offset = featureEnvelopes.addFeature();
+            while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+                String fieldName = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ( "id".equals( fieldName ) && value.isScalarValue() && value != JsonToken.VALUE_NULL ) {
+                    featureEnvelopes.setId( index, parser.getText() );
+                } else if ( "geometry".equals( fieldName ) && value == JsonToken.START_OBJECT ) {
+                    readGeometry( parser, featureEnvelopes.envelopes(), offset );
+                } else if ( "properties".equals( fieldName ) && value == JsonToken.START_OBJECT ) {
+                    readProperties( parser, featureEnvelopes, index );
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            featureEnvelopes.setByteRange( index, byteOffset, parser.getCurrentLocation().getByteOffset() - byteOffset );
+        }
+    }
+
+    private static void readGeometry( JsonParser parser, double[] envelopes, int offset )
+                            throws IOException {
+        while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+            String fieldName = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ( "coordinates".equals( fieldName ) && value == JsonToken.START_ARRAY ) {
+                readCoordinates( parser, envelopes, offset );
+            } else if ( "geometries".equals( fieldName ) && value == JsonToken.START_ARRAY ) {
+                while ( parser.nextToken() != JsonToken.END_ARRAY ) {
+                    if ( parser.getCurrentToken() == JsonToken.START_OBJECT )
+                        readGeometry( parser, envelopes, offset );
+                    else
+                        parser.skipChildren();
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readCoordinates( JsonParser parser, double[] envelopes, int offset )
+                            throws IOException {
+        int noOfValues = 0;
+        double x = 0;
+        double y = 0;
+        JsonToken token;
+        while ( ( token = parser.nextToken() ) != JsonToken.END_ARRAY ) {
+            if ( token == JsonToken.START_ARRAY ) {
+                readCoordinates( parser, envelopes, offset );
+            } else if ( token.isNumeric() ) {
+                if ( noOfValues == 0 )
+                    x = parser.getDoubleValue();
+                else if ( noOfValues == 1 )
+                    y = parser.getDoubleValue();
+                noOfValues++;
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if ( noOfValues >= 2 )
+            Envelopes.expand( envelopes, offset, x, y );
+    }
+
+    private static void readProperties( JsonParser parser, FeatureEnvelopes featureEnvelopes, int index )
+                            throws IOException {
+        while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+            JsonToken value = parser.nextToken();
+            if ( value == JsonToken.VALUE_STRING ) {
+                String text = parser.getText();
+                if ( isDateLike( text, 0 ) )
+                    readTemporalValue( text, featureEnvelopes, index );
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readTemporalValue( String text, FeatureEnvelopes featureEnvelopes, int index ) {
+        try {
+            int separator = text.indexOf( '/' );
+            if ( separator < 0 ) {
+                featureEnvelopes.expandTemporalExtent( index, parseBegin( text ), parseEnd( text ) );
+            } else if ( isDateLike( text, separator + 1 ) ) {
+                long begin = parseBegin( text.substring( 0, separator ) );
+                long end = parseEnd( text.substring( separator + 1 ) );
+                featureEnvelopes.expandTemporalExtent( index, Math.min( begin, end ), Math.max( begin, end ) );
+            }
+        } catch ( DateTimeParseException e ) {
+            // not a temporal property
+        }
+    }
+
+    private static long parseBegin( String dateOrDateTime ) {
+        if ( dateOrDateTime.length() == 10 )
+            return LocalDate.parse( dateOrDateTime ).atStartOfDay( ZoneOffset.UTC ).toInstant().toEpochMilli();
+        return parseDateTime( dateOrDateTime );
+    }
+
+    private static long parseEnd( String dateOrDateTime ) {
+        if ( dateOrDateTime.length() == 10 )
+            return LocalDate.parse( dateOrDateTime ).plusDays( 1 ).atStartOfDay( ZoneOffset.UTC ).toInstant().toEpochMilli() - 1;
+        return parseDateTime( dateOrDateTime );
+    }
+
+    private static long parseDateTime( String dateTime ) {
+        try {
+            return ZonedDateTime.parse( dateTime ).toInstant().toEpochMilli();
+        } catch ( DateTimeParseException e ) {
+            return LocalDateTime.parse( dateTime ).toInstant( ZoneOffset.UTC ).toEpochMilli();
+        }
+    }
+
+    /**
+     * Cheap check for the pattern 'YYYY-MM-DD' at the passed position, avoids parsing attempts of other strings.
+     */
+    private static boolean isDateLike( String text, int start ) {
+        if ( text.length() < start + 10 )
+            return false;
+        for ( int i = 0; i < 10; i++ ) {
+            char c = text.charAt( start + i );
+            if ( i == 4 || i == 7 ) {
+                if ( c != '-' )
+                    return false;
+            } else if ( c < '0' || c > '9' ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,186 @@
+package org.opengis.cite.wfs30.util;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.opengis.cite.wfs30.util.PageStore.StoredPage;
+
+import io.restassured.path.json.JsonPath;
+import io.restassured.response.Response;
+
+/**
+ * Caches the parsed JSON documents of responses by the request uri, so tests evaluating the same response do not parse
+ * the body again. A cached document is only returned for the response (or stored page) it was parsed from; if the uri
+ * is requested again, the new response is parsed and replaces the cached document. The cached responses are referenced
+ * weakly, so the cache does not keep them on the heap.
+ *
+ * The cache is bounded by the summed size of the encoded response bodies, the least recently used documents are
+ * evicted first. The size of the parsed documents is not measured: the parsed trees take a multiple of the size of the
+ * encoded body, so the bound limits the heap used by the cache only proportionally.
+ *
+ * The returned {@link JsonPath} instances are shared between tests and must not be modified (e.g. by setting a root or
+ * parameters).
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class JsonPathCache {
+
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>( 16, 0.75f, true );
+
+    private final long maxBytes;
+
+    private long currentBytes;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    /**
+     * @param maxBytes
+     *            the maximum summed size of the encoded bodies of the cached documents in bytes
+     */
+    public JsonPathCache( long maxBytes ) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the parsed document of the passed response. If the document of the uri is cached and was parsed from the
+     * passed response this one is returned, otherwise the body of the response is parsed and added to the cache.
+     *
+     * @param uri
+     *            the uri the response was requested from, never <code>null</code>
+     * @param response
+     *            the response, never <code>null</code>
+     * @return the parsed document, never <code>null</code>
+     */
+    public JsonPath jsonPath( String uri, Response response ) {
+        synchronized ( this ) {
+            CacheEntry entry = entries.get( uri );
+            if ( entry != null && entry.isParsedFrom( response ) ) {
+                hits++;
+                return entry.jsonPath;
+            }
+            misses++;
+        }
+        byte[] body = response.asByteArray();
+        JsonPath jsonPath = response.jsonPath();
+        // JsonPath parses lazily and keeps the parsed document
+        jsonPath.get();
+        put( uri, new CacheEntry( jsonPath, body.length, response, -1 ) );
+        return jsonPath;
+    }
+
+    /**
+     * Returns the parsed document of the passed page. If the document of the uri is cached and was parsed from the
+     * passed page this one is returned, otherwise the page is parsed and added to the cache.
+     *
+     * @param uri
+     *            the uri the page was requested from, never <code>null</code>
+     * @param page
+     *            the stored body of the response, never <code>null</code>
+     * @return the parsed document, never <code>null</code>
+     */
+    public JsonPath jsonPath( String uri, StoredPage page ) {
+        synchronized ( this ) {
+            CacheEntry entry = entries.get( uri );
+            if ( entry != null && entry.isParsedFrom( page ) ) {
+                hits++;
+                return entry.jsonPath;
+            }
+            misses++;
+        }
+        JsonPath jsonPath = new JsonPath( page.asInputStream() );
+        jsonPath.get();
+        put( uri, new CacheEntry( jsonPath, page.getLength(), null, page.getOffset() ) );
+        return jsonPath;
+    }
+
+    /**
+     * @return the summed size of the encoded bodies of the cached documents in bytes
+     */
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    /**
+     * @return the number of cached documents
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of requests answered from the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of requests requiring to parse a response
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of documents evicted from the cache
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Documents: " + entries.size() + ", bytes: " + currentBytes + " (max " + maxBytes + "), hits: " + hits
+               + ", misses: " + misses + ", evictions: " + evictions;
+    }
+
+    private synchronized void put( String uri, CacheEntry entry ) {
+        if ( entry.numberOfBytes > maxBytes )
+            return;
+        CacheEntry previous = entries.put( uri, entry );
+        if ( previous != null )
+            currentBytes -= previous.numberOfBytes;
+        currentBytes += entry.numberOfBytes;
+        Iterator<Map.Entry<String, CacheEntry>> iterator = entries.entrySet().iterator();
+        while ( currentBytes > maxBytes && iterator.hasNext() ) {
+            CacheEntry eldest = iterator.next().getValue();
+            iterator.remove();
+            currentBytes -= eldest.numberOfBytes;
+            evictions++;
+        }
+    }
+
+    private static class CacheEntry {
+
+        private final JsonPath jsonPath;
+
+        private final long numberOfBytes;
+
+        private final WeakReference<Response> response;
+
+        private final long pageOffset;
+
+        private CacheEntry( JsonPath jsonPath, long numberOfBytes, Response response, long pageOffset ) {
+            this.jsonPath = jsonPath;
+            this.numberOfBytes = numberOfBytes;
+            this.response = response != null ? new WeakReference<>( response ) : null;
+            this.pageOffset = pageOffset;
+        }
+
+        private boolean isParsedFrom( Response candidate ) {
+            return response != null && response.get() == candidate;
+        }
+
+        private boolean isParsedFrom( StoredPage candidate ) {
+            return response == null && pageOffset == candidate.getOffset();
+        }
+
+    }
+
+}
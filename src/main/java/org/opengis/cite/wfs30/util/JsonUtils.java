@@ -1,10 +1,7 @@
 package org.opengis.cite.wfs30.util;
 
-import static io.restassured.RestAssured.given;
-import static io.restassured.http.Method.GET;
 import static org.opengis.cite.wfs30.WFS3.GEOJSON_MIME_TYPE;
 
-import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.LocalDate;
 import java.time.Period;
@@ -15,8 +12,6 @@ import java.util.List;
 import java.util.Map;
 
 import io.restassured.path.json.JsonPath;
-import io.restassured.response.Response;
-import io.restassured.specification.RequestSpecification;
 
 /**
  * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
@@ -224,6 +219,28 @@ public class JsonUtils {
         return linksWithoutRelOrType;
     }
 
+    /**
+     * Parses the url of the Get Features Operation supporting GeoJSON from the links of the collection.
+     *
+     * @param collection
+     *            the collection metadata, never <code>null</code>
+     * @return the url of the link with 'rel=item' and 'type=application/geo+json', <code>null</code> if no such link
+     *         exists
+     */
+    public static String findGetFeaturesUrlForGeoJson( Map<String, Object> collection ) {
+        List<Object> links = (List<Object>) collection.get( "links" );
+        if ( links == null )
+            return null;
+        for ( Object linkObject : links ) {
+            Map<String, Object> link = (Map<String, Object>) linkObject;
+            Object rel = link.get( "rel" );
+            Object type = link.get( "type" );
+            if ( "item".equals( rel ) && GEOJSON_MIME_TYPE.equals( type ) )
+                return (String) link.get( "href" );
+        }
+        return null;
+    }
+
     /**
      * Parses the link with 'rel=self'.
      *
@@ -272,7 +289,8 @@ public class JsonUtils {
 
     /**
      * Collects the number of all returned features by iterating over all 'next' links and summarizing the size of
-     * features in 'features' array property.
+     * features in 'features' array property. The pages referenced by the 'next' links are scanned with a
+     * {@link FeaturePageWalker}.
      * 
      * @param jsonPath
      *            the initial collection, never <code>null</code>
@@ -284,37 +302,29 @@ public class JsonUtils {
      */
     public static int collectNumberOfAllReturnedFeatures( JsonPath jsonPath, int maximumLimit )
                             throws URISyntaxException {
+        return collectNumberOfAllReturnedFeatures( jsonPath, new FeaturePageWalker( maximumLimit ) );
+    }
+
+    /**
+     * Collects the number of all returned features by iterating over all 'next' links and summarizing the size of
+     * features in 'features' array property. The pages referenced by the 'next' links are scanned with the passed
+     * {@link FeaturePageWalker}, which provides the statistics of the requested pages afterwards.
+     * 
+     * @param jsonPath
+     *            the initial collection, never <code>null</code>
+     * @param pageWalker
+     *            the page walker requesting the pages referenced by the 'next' links, never <code>null</code>
+     * @return the number of all returned features
+     * @throws URISyntaxException
+     *             if the creation of a uri fails
+     */
+    public static int collectNumberOfAllReturnedFeatures( JsonPath jsonPath, FeaturePageWalker pageWalker )
+                            throws URISyntaxException {
         int numberOfAllReturnedFeatures = jsonPath.getList( "features" ).size();
         Map<String, Object> nextLink = findLinkByRel( jsonPath.getList( "links" ), "next" );
-        while ( nextLink != null ) {
-            String nextUrl = (String) nextLink.get( "href" );
-            URI uri = new URI( nextUrl );
-
-            RequestSpecification accept = given().log().all().baseUri( nextUrl ).accept( GEOJSON_MIME_TYPE );
-            String[] pairs = uri.getQuery().split( "&" );
-            for ( String pair : pairs ) {
-                int idx = pair.indexOf( "=" );
-                String key = pair.substring( 0, idx );
-                String value = pair.substring( idx + 1 );
-                accept.param( key, value );
-            }
-            if ( maximumLimit > 0 ) {
-                accept.param( "limit", maximumLimit );
-            }
-
-            Response response = accept.when().request( GET );
-            response.then().statusCode( 200 );
-
-            JsonPath nextJsonPath = response.jsonPath();
-            int features = nextJsonPath.getList( "features" ).size();
-            if ( features > 0 ) {
-                numberOfAllReturnedFeatures += features;
-                nextLink = findLinkByRel( nextJsonPath.getList( "links" ), "next" );
-            } else {
-                nextLink = null;
-            }
-        }
-        return numberOfAllReturnedFeatures;
+        if ( nextLink == null )
+            return numberOfAllReturnedFeatures;
+        return numberOfAllReturnedFeatures + pageWalker.walk( (String) nextLink.get( "href" ) );
     }
 
     private static boolean hasLinkForContentType( List<Map<String, Object>> alternateLinks, String mediaType ) {
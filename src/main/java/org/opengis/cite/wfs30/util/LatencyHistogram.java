@@ -0,0 +1,263 @@
+package org.opengis.cite.wfs30.util;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * Histogram of latencies in microseconds with a fixed relative precision, following the bucket layout of an HDR
+ * histogram: values are recorded in buckets of doubling size, each divided into {@value #SUB_BUCKET_COUNT} sub
+ * buckets, so the recorded value of each latency differs less than 1% from the measured one while the size of the
+ * histogram does not depend on the number of recorded values.
+ *
+ * The percentile distribution is written in the text format of the HdrHistogram library ('.hgrm'), which can be
+ * plotted with the HdrHistogram tools. Instances are thread-safe.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_HALF_COUNT_MAGNITUDE = 7;
+
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_HALF_COUNT_MAGNITUDE;
+
+    private static final int SUB_BUCKET_COUNT = SUB_BUCKET_HALF_COUNT * 2;
+
+    private static final long SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+
+    private static final int PERCENTILE_TICKS_PER_HALF_DISTANCE = 5;
+
+    private final long highestTrackableValue;
+
+    private final long[] counts;
+
+    private long totalCount;
+
+    private long min = Long.MAX_VALUE;
+
+    private long max;
+
+    private double sum;
+
+    private double sumOfSquares;
+
+    /**
+     * @param highestTrackableValue
+     *            the highest latency in microseconds, larger latencies are recorded as this value, must be &gt; 0
+     */
+    public LatencyHistogram( long highestTrackableValue ) {
+        if ( highestTrackableValue <= 0 )
+            throw new IllegalArgumentException( "Highest trackable value must be greater than 0" );
+        this.highestTrackableValue = highestTrackableValue;
+        this.counts = new long[countsIndex( highestTrackableValue ) + 1];
+    }
+
+    /**
+     * Records a single latency.
+     *
+     * @param value
+     *            the latency in microseconds, negative values are recorded as 0
+     */
+    public synchronized void recordValue( long value ) {
+        record( value );
+    }
+
+    /**
+     * Records a single latency measured by a sender expecting to send a request each expectedInterval. If the latency
+     * exceeds the interval, the sender was blocked and missed to send the requests in between, which would have waited
+     * for the same stall (coordinated omission). Their latencies, decreasing by the expected interval, are recorded as
+     * well.
+     *
+     * @param value
+     *            the latency in microseconds, negative values are recorded as 0
+     * @param expectedInterval
+     *            the expected interval between two requests in microseconds, no value is added if &lt;= 0
+     */
+    public synchronized void recordValueWithExpectedInterval( long value, long expectedInterval ) {
+        record( value );
+        if ( expectedInterval <= 0 )
+            return;
+        for ( long missingValue = value - expectedInterval; missingValue >= expectedInterval; missingValue -= expectedInterval )
+            record( missingValue );
+    }
+
+    private void record( long value ) {
+        long clamped = Math.min( Math.max( 0, value ), highestTrackableValue );
+        counts[countsIndex( clamped )]++;
+        totalCount++;
+        min = Math.min( min, clamped );
+        max = Math.max( max, clamped );
+        sum += clamped;
+        sumOfSquares += (double) clamped * clamped;
+    }
+
+    /**
+     * Adds all values recorded by the passed histogram.
+     *
+     * @param other
+     *            the histogram to add, must have the same highest trackable value, never <code>null</code>
+     */
+    public void add( LatencyHistogram other ) {
+        if ( other.highestTrackableValue != highestTrackableValue )
+            throw new IllegalArgumentException( "Histograms with different highest trackable values cannot be added" );
+        long[] otherCounts;
+        long otherTotalCount, otherMin, otherMax;
+        double otherSum, otherSumOfSquares;
+        synchronized ( other ) {
+            otherCounts = other.counts.clone();
+            otherTotalCount = other.totalCount;
+            otherMin = other.min;
+            otherMax = other.max;
+            otherSum = other.sum;
+            otherSumOfSquares = other.sumOfSquares;
+        }
+        synchronized ( this ) {
+            for ( int i = 0; i < counts.length; i++ )
+                counts[i] += otherCounts[i];
+            totalCount += otherTotalCount;
+            min = Math.min( min, otherMin );
+            max = Math.max( max, otherMax );
+            sum += otherSum;
+            sumOfSquares += otherSumOfSquares;
+        }
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public synchronized long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return the smallest recorded value, 0 if no value was recorded
+     */
+    public synchronized long getMin() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    /**
+     * @return the largest recorded value, 0 if no value was recorded
+     */
+    public synchronized long getMax() {
+        return max;
+    }
+
+    /**
+     * @return the mean of the recorded values, 0 if no value was recorded
+     */
+    public synchronized double getMean() {
+        return totalCount == 0 ? 0 : sum / totalCount;
+    }
+
+    /**
+     * @return the standard deviation of the recorded values, 0 if no value was recorded
+     */
+    public synchronized double getStdDeviation() {
+        if ( totalCount == 0 )
+            return 0;
+        double mean = sum / totalCount;
+        return Math.sqrt( Math.max( 0, sumOfSquares / totalCount - mean * mean ) );
+    }
+
+    /**
+     * @param percentile
+     *            the percentile, between 0 and 100
+     * @return the largest value (within the precision of the histogram) not exceeded by the passed percentage of the
+     *         recorded values, 0 if no value was recorded
+     */
+    public synchronized long getValueAtPercentile( double percentile ) {
+        if ( totalCount == 0 )
+            return 0;
+        double requestedPercentile = Math.min( Math.max( percentile, 0 ), 100 );
+        long countAtPercentile = Math.max( 1, (long) Math.ceil( requestedPercentile / 100 * totalCount ) );
+        long cumulativeCount = 0;
+        for ( int index = 0; index < counts.length; index++ ) {
+            cumulativeCount += counts[index];
+            if ( cumulativeCount >= countAtPercentile )
+                return Math.min( highestEquivalentValue( index ), max );
+        }
+        return max;
+    }
+
+    /**
+     * Writes the percentile distribution in the format of the HdrHistogram library.
+     *
+     * @param printStream
+     *            the stream to write to, never <code>null</code>
+     * @param outputValueUnitScalingRatio
+     *            the values are divided by this ratio, e.g. 1000 to write milliseconds
+     */
+    public synchronized void outputPercentileDistribution( PrintStream printStream,
+                                                           double outputValueUnitScalingRatio ) {
+        printStream.format( Locale.ROOT, "%12s %14s %10s %14s%n%n", "Value", "Percentile", "TotalCount",
+                            "1/(1-Percentile)" );
+        if ( totalCount > 0 ) {
+            double percentileToIterateTo = 0;
+            long cumulativeCount = 0;
+            int index = 0;
+            while ( true ) {
+                long countAtPercentile = Math.max( 1, (long) Math.ceil( percentileToIterateTo / 100 * totalCount ) );
+                while ( cumulativeCount < countAtPercentile )
+                    cumulativeCount += counts[index++];
+                long value = Math.min( highestEquivalentValue( index - 1 ), max );
+                double percentile = (double) cumulativeCount / totalCount;
+                if ( cumulativeCount == totalCount ) {
+                    printStream.format( Locale.ROOT, "%12.3f %2.12f %10d%n", value / outputValueUnitScalingRatio,
+                                        1.0, cumulativeCount );
+                    break;
+                }
+                printStream.format( Locale.ROOT, "%12.3f %2.12f %10d %14.2f%n", value / outputValueUnitScalingRatio,
+                                    percentile, cumulativeCount, 1 / ( 1 - percentile ) );
+                percentileToIterateTo = Math.max( percentileToIterateTo + percentileStep( percentileToIterateTo ),
+                                                  percentile * 100 );
+            }
+        }
+        printStream.format( Locale.ROOT, "#[Mean    = %12.3f, StdDeviation   = %12.3f]%n",
+                            getMean() / outputValueUnitScalingRatio,
+                            getStdDeviation() / outputValueUnitScalingRatio );
+        printStream.format( Locale.ROOT, "#[Max     = %12.3f, Total count    = %12d]%n",
+                            max / outputValueUnitScalingRatio, totalCount );
+        printStream.format( Locale.ROOT, "#[Buckets = %12d, SubBuckets     = %12d]%n",
+                            counts.length / SUB_BUCKET_HALF_COUNT - 1, SUB_BUCKET_COUNT );
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format( Locale.ROOT, "count: %d, p50: %d, p95: %d, p99: %d, max: %d", totalCount,
+                              getValueAtPercentile( 50 ), getValueAtPercentile( 95 ), getValueAtPercentile( 99 ),
+                              max );
+    }
+
+    /**
+     * The distance between the reported percentiles halves each time half of the remaining distance to 100% is
+     * reached, so the tail of the distribution is reported in more detail.
+     */
+    private static double percentileStep( double percentile ) {
+        double halvings = Math.floor( Math.log( 100 / ( 100 - percentile ) ) / Math.log( 2 ) );
+        double ticks = PERCENTILE_TICKS_PER_HALF_DISTANCE * Math.pow( 2, halvings + 1 );
+        return 100 / ticks;
+    }
+
+    private static int countsIndex( long value ) {
+        int bucketIndex = 64 - Long.numberOfLeadingZeros( value | SUB_BUCKET_MASK )
+                          - ( SUB_BUCKET_HALF_COUNT_MAGNITUDE + 1 );
+        int subBucketIndex = (int) ( value >>> bucketIndex );
+        return ( ( bucketIndex + 1 ) << SUB_BUCKET_HALF_COUNT_MAGNITUDE ) + subBucketIndex - SUB_BUCKET_HALF_COUNT;
+    }
+
+    private static long lowestEquivalentValue( int index ) {
+        int bucketIndex = ( index >> SUB_BUCKET_HALF_COUNT_MAGNITUDE ) - 1;
+        int subBucketIndex = ( index & ( SUB_BUCKET_HALF_COUNT - 1 ) ) + SUB_BUCKET_HALF_COUNT;
+        if ( bucketIndex < 0 ) {
+            subBucketIndex -= SUB_BUCKET_HALF_COUNT;
+            bucketIndex = 0;
+        }
+        return (long) subBucketIndex << bucketIndex;
+    }
+
+    private static long highestEquivalentValue( int index ) {
+        int bucketIndex = Math.max( 0, ( index >> SUB_BUCKET_HALF_COUNT_MAGNITUDE ) - 1 );
+        return lowestEquivalentValue( index ) + ( 1L << bucketIndex ) - 1;
+    }
+
+}
@@ -0,0 +1,212 @@
+package org.opengis.cite.wfs30.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Results of a sweep of the limit parameter of a collection: latency, size and throughput per requested limit.
+ *
+ * The knee is the limit after which larger pages do not increase the throughput (features per second) significantly
+ * any more. It is detected on the curve of the throughput over the logarithm of the limit, both normalized to [0, 1],
+ * as the point with the maximum distance above the line connecting the first and the last step (Kneedle).
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class LimitProbe {
+
+    private final String collectionName;
+
+    private final List<Step> steps = new ArrayList<>();
+
+    /**
+     * @param collectionName
+     *            the name of the probed collection, never <code>null</code>
+     */
+    public LimitProbe( String collectionName ) {
+        this.collectionName = collectionName;
+    }
+
+    /**
+     * Creates the limits of a geometric sweep: the minimum, doubled until the maximum is reached, and the maximum.
+     *
+     * @param minimum
+     *            the smallest limit, at least 1
+     * @param maximum
+     *            the largest limit, not less than the minimum
+     * @return the limits in ascending order, never <code>null</code>
+     */
+    public static List<Integer> geometricLimits( int minimum, int maximum ) {
+        List<Integer> limits = new ArrayList<>();
+        long limit = Math.max( 1, minimum );
+        while ( limit < maximum ) {
+            limits.add( (int) limit );
+            limit *= 2;
+        }
+        limits.add( Math.max( maximum, minimum ) );
+        return limits;
+    }
+
+    /**
+     * @param limit
+     *            the requested limit
+     * @param latencyNanos
+     *            the time between sending the request and receiving the complete response
+     * @param noOfBytes
+     *            the size of the response body
+     * @param noOfFeatures
+     *            the number of features in the response
+     */
+    public void addStep( int limit, long latencyNanos, long noOfBytes, int noOfFeatures ) {
+        steps.add( new Step( limit, latencyNanos, noOfBytes, noOfFeatures ) );
+    }
+
+    /**
+     * @return the name of the probed collection, never <code>null</code>
+     */
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    /**
+     * @return the steps in the order they were added, never <code>null</code>
+     */
+    public List<Step> getSteps() {
+        return Collections.unmodifiableList( steps );
+    }
+
+    /**
+     * @return the step at the knee, the step with the largest limit if the throughput grows linearly, <code>null</code>
+     *         if no step was added
+     */
+    public Step getKnee() {
+        if ( steps.isEmpty() )
+            return null;
+        if ( steps.size() < 3 )
+            return steps.get( steps.size() - 1 );
+        double minX = Math.log( steps.get( 0 ).limit );
+        double maxX = Math.log( steps.get( steps.size() - 1 ).limit );
+        double minY = Double.POSITIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for ( Step step : steps ) {
+            minY = Math.min( minY, step.getFeaturesPerSecond() );
+            maxY = Math.max( maxY, step.getFeaturesPerSecond() );
+        }
+        if ( maxX <= minX || maxY <= minY )
+            return steps.get( steps.size() - 1 );
+
+        double firstY = normalize( steps.get( 0 ).getFeaturesPerSecond(), minY, maxY );
+        double lastY = normalize( steps.get( steps.size() - 1 ).getFeaturesPerSecond(), minY, maxY );
+        Step knee = steps.get( steps.size() - 1 );
+        double maxDistance = 0;
+        for ( Step step : steps ) {
+            double x = normalize( Math.log( step.limit ), minX, maxX );
+            double y = normalize( step.getFeaturesPerSecond(), minY, maxY );
+            double distance = y - ( firstY + x * ( lastY - firstY ) );
+            if ( distance > maxDistance ) {
+                maxDistance = distance;
+                knee = step;
+            }
+        }
+        return knee;
+    }
+
+    /**
+     * @return the steps as CSV with header, one line per step, never <code>null</code>
+     */
+    public String asCsv() {
+        StringBuilder sb = new StringBuilder( "collection,limit,latencyMs,bytes,features,featuresPerSecond,knee\n" );
+        Step knee = getKnee();
+        for ( Step step : steps ) {
+            sb.append( collectionName ).append( ',' ).append( step.limit ).append( ',' );
+            sb.append( String.format( Locale.ROOT, "%.3f", step.getLatencyMillis() ) ).append( ',' );
+            sb.append( step.noOfBytes ).append( ',' ).append( step.noOfFeatures ).append( ',' );
+            sb.append( String.format( Locale.ROOT, "%.1f", step.getFeaturesPerSecond() ) ).append( ',' );
+            sb.append( step == knee ).append( '\n' );
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append( "Limit probe of collection '" ).append( collectionName ).append( "':" );
+        for ( Step step : steps )
+            sb.append( "\n  - " ).append( step );
+        Step knee = getKnee();
+        if ( knee != null )
+            sb.append( "\n  knee at limit " ).append( knee.limit );
+        return sb.toString();
+    }
+
+    private static double normalize( double value, double min, double max ) {
+        return ( value - min ) / ( max - min );
+    }
+
+    /**
+     * A single request of the sweep.
+     */
+    public static class Step {
+
+        private final int limit;
+
+        private final long latencyNanos;
+
+        private final long noOfBytes;
+
+        private final int noOfFeatures;
+
+        private Step( int limit, long latencyNanos, long noOfBytes, int noOfFeatures ) {
+            this.limit = limit;
+            this.latencyNanos = latencyNanos;
+            this.noOfBytes = noOfBytes;
+            this.noOfFeatures = noOfFeatures;
+        }
+
+        /**
+         * @return the requested limit
+         */
+        public int getLimit() {
+            return limit;
+        }
+
+        /**
+         * @return the latency in milliseconds
+         */
+        public double getLatencyMillis() {
+            return latencyNanos / 1000000d;
+        }
+
+        /**
+         * @return the size of the response body
+         */
+        public long getNoOfBytes() {
+            return noOfBytes;
+        }
+
+        /**
+         * @return the number of features in the response
+         */
+        public int getNoOfFeatures() {
+            return noOfFeatures;
+        }
+
+        /**
+         * @return the number of features per second, 0 if the latency was not measurable
+         */
+        public double getFeaturesPerSecond() {
+            if ( latencyNanos <= 0 )
+                return 0;
+            return noOfFeatures * 1000000000d / latencyNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format( Locale.ROOT, "limit %d: %.1f ms, %d bytes, %d features, %.1f features/s", limit,
+                                  getLatencyMillis(), noOfBytes, noOfFeatures, getFeaturesPerSecond() );
+        }
+
+    }
+
+}
@@ -0,0 +1,256 @@
+package org.opengis.cite.wfs30.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load generator replaying a weighted mix of requests for a fixed duration, either closed-loop or open-loop.
+ *
+ * Closed-loop: a fixed number of virtual users send requests. Each virtual user sends its next request not before the
+ * previous one completed, paced to reach the target rate of all virtual users together. A virtual user falling behind
+ * its schedule does not catch up, so a slow service reduces the achieved rate instead of increasing the number of
+ * requests in flight. The response times are corrected for the requests a virtual user missed to send while waiting.
+ *
+ * Open-loop: the requests are scheduled at a fixed rate, independent of the completion of the previous requests, and
+ * sent by a limited number of concurrent senders. A stall of the service delays the start of the following requests,
+ * the response times are measured from the scheduled start, so the stall is contained in the latencies of all requests
+ * waiting for it (no coordinated omission).
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class LoadGenerator {
+
+    private static final long SEED = 42;
+
+    private final int virtualUsers;
+
+    private final double targetRate;
+
+    private final long durationNanos;
+
+    private final boolean openLoop;
+
+    /**
+     * Sends a request of the mix.
+     */
+    public interface RequestSender {
+
+        /**
+         * @param request
+         *            the request to send, never <code>null</code>
+         * @return the status code of the response, the response must have been read completely
+         * @throws Exception
+         *             if the request failed
+         */
+        int send( LoadRequest request )
+                                throws Exception;
+
+    }
+
+    /**
+     * @param virtualUsers
+     *            the number of virtual users sending requests concurrently, must be &gt; 0
+     * @param targetRate
+     *            the targeted number of requests per second of all virtual users, 0 to send requests as fast as
+     *            possible, must be &gt;= 0
+     * @param duration
+     *            the duration of the run, must be &gt; 0
+     * @param unit
+     *            the unit of the duration, never <code>null</code>
+     */
+    public LoadGenerator( int virtualUsers, double targetRate, long duration, TimeUnit unit ) {
+        this( virtualUsers, targetRate, duration, unit, false );
+    }
+
+    private LoadGenerator( int virtualUsers, double targetRate, long duration, TimeUnit unit, boolean openLoop ) {
+        if ( virtualUsers <= 0 || targetRate < 0 || duration <= 0 || ( openLoop && targetRate == 0 ) )
+            throw new IllegalArgumentException( "Invalid load settings: virtual users " + virtualUsers
+                                                + ", target rate " + targetRate + ", duration " + duration );
+        this.virtualUsers = virtualUsers;
+        this.targetRate = targetRate;
+        this.durationNanos = unit.toNanos( duration );
+        this.openLoop = openLoop;
+    }
+
+    /**
+     * Creates an open-loop load generator sending the requests at a fixed rate.
+     *
+     * @param rate
+     *            the number of requests per second, must be &gt; 0
+     * @param maxConcurrentRequests
+     *            the maximum number of requests sent concurrently, requests scheduled while the maximum is reached are
+     *            delayed, must be &gt; 0
+     * @param duration
+     *            the duration of the run, must be &gt; 0
+     * @param unit
+     *            the unit of the duration, never <code>null</code>
+     * @return the load generator, never <code>null</code>
+     */
+    public static LoadGenerator openLoop( double rate, int maxConcurrentRequests, long duration, TimeUnit unit ) {
+        return new LoadGenerator( maxConcurrentRequests, rate, duration, unit, true );
+    }
+
+    /**
+     * @return <code>true</code> if the requests are sent at a fixed rate independent of the completion of the previous
+     *         requests, <code>false</code> if each virtual user waits for the response of its previous request
+     */
+    public boolean isOpenLoop() {
+        return openLoop;
+    }
+
+    /**
+     * @return the number of virtual users (closed-loop) or the maximum number of requests sent concurrently
+     *         (open-loop)
+     */
+    public int getVirtualUsers() {
+        return virtualUsers;
+    }
+
+    /**
+     * @return the targeted number of requests per second, 0 if the rate is not limited
+     */
+    public double getTargetRate() {
+        return targetRate;
+    }
+
+    /**
+     * Replays the passed mix of requests until the duration elapsed.
+     *
+     * @param mix
+     *            the requests to replay, each chosen according to its weight, must not be empty
+     * @param sender
+     *            sends the requests, never <code>null</code>
+     * @return the report of the run, never <code>null</code>
+     * @throws InterruptedException
+     *             if the thread was interrupted while waiting for the virtual users
+     */
+    public LoadReport run( List<LoadRequest> mix, RequestSender sender )
+                            throws InterruptedException {
+        if ( mix.isEmpty() )
+            throw new IllegalArgumentException( "The mix of requests must not be empty" );
+        LoadRequest[] requests = mix.toArray( new LoadRequest[mix.size()] );
+        int[] cumulativeWeights = new int[requests.length];
+        int totalWeight = 0;
+        for ( int i = 0; i < requests.length; i++ ) {
+            totalWeight += requests[i].getWeight();
+            cumulativeWeights[i] = totalWeight;
+        }
+
+        LoadReport report = new LoadReport( virtualUsers, targetRate );
+        ExecutorService executor = Executors.newFixedThreadPool( virtualUsers );
+        long start = System.nanoTime();
+        try {
+            if ( openLoop )
+                runOpenLoop( executor, requests, cumulativeWeights, totalWeight, sender, report, start );
+            else
+                runClosedLoop( executor, requests, cumulativeWeights, totalWeight, sender, report, start );
+        } finally {
+            executor.shutdownNow();
+        }
+        report.setDurationNanos( System.nanoTime() - start );
+        return report;
+    }
+
+    private void runOpenLoop( ExecutorService executor, LoadRequest[] requests, int[] cumulativeWeights,
+                              int totalWeight, RequestSender sender, LoadReport report, long start )
+                            throws InterruptedException {
+        double intervalNanos = 1000000000d / targetRate;
+        long end = start + durationNanos;
+        Random random = new Random( SEED );
+        List<Future<?>> scheduledRequests = new ArrayList<>();
+        for ( long i = 0;; i++ ) {
+            long intendedStart = start + (long) ( i * intervalNanos );
+            if ( intendedStart >= end )
+                break;
+            long now = System.nanoTime();
+            if ( intendedStart > now )
+                TimeUnit.NANOSECONDS.sleep( intendedStart - now );
+            LoadRequest request = choose( requests, cumulativeWeights, random.nextInt( totalWeight ) );
+            // the request may wait for a free sender, the latency is measured from the intended start anyway
+            scheduledRequests.add( executor.submit( () -> {
+                long actualStart = System.nanoTime();
+                String error = send( sender, request );
+                report.recordScheduled( request.getName(), intendedStart, actualStart, System.nanoTime(), error );
+            } ) );
+        }
+        awaitAll( scheduledRequests );
+    }
+
+    private void runClosedLoop( ExecutorService executor, LoadRequest[] requests, int[] cumulativeWeights,
+                                int totalWeight, RequestSender sender, LoadReport report, long start )
+                            throws InterruptedException {
+        long intervalNanos = targetRate > 0 ? (long) ( virtualUsers * 1000000000d / targetRate ) : 0;
+        long end = start + durationNanos;
+        List<Future<?>> users = new ArrayList<>();
+        for ( int user = 0; user < virtualUsers; user++ ) {
+            Random random = new Random( SEED + user );
+            // the virtual users are staggered to spread the requests evenly over the interval
+            long firstStart = start + intervalNanos * user / virtualUsers;
+            users.add( executor.submit( () -> {
+                runVirtualUser( requests, cumulativeWeights, totalWeight, random, sender, report, firstStart,
+                                intervalNanos, end );
+                return null;
+            } ) );
+        }
+        awaitAll( users );
+    }
+
+    private static void awaitAll( List<Future<?>> futures )
+                            throws InterruptedException {
+        for ( Future<?> future : futures ) {
+            try {
+                future.get();
+            } catch ( ExecutionException e ) {
+                throw new RuntimeException( "Load generation failed", e.getCause() );
+            }
+        }
+    }
+
+    private void runVirtualUser( LoadRequest[] requests, int[] cumulativeWeights, int totalWeight, Random random,
+                                 RequestSender sender, LoadReport report, long firstStart, long intervalNanos,
+                                 long end )
+                            throws InterruptedException {
+        long nextStart = firstStart;
+        while ( true ) {
+            long now = System.nanoTime();
+            if ( nextStart > now ) {
+                if ( nextStart >= end )
+                    return;
+                TimeUnit.NANOSECONDS.sleep( nextStart - now );
+            } else if ( now >= end ) {
+                return;
+            }
+            LoadRequest request = choose( requests, cumulativeWeights, random.nextInt( totalWeight ) );
+            long requestStart = System.nanoTime();
+            String error = send( sender, request );
+            long requestEnd = System.nanoTime();
+            report.record( request.getName(), requestEnd - requestStart, intervalNanos, error );
+            nextStart = Math.max( nextStart + intervalNanos, requestEnd );
+        }
+    }
+
+    private static LoadRequest choose( LoadRequest[] requests, int[] cumulativeWeights, int value ) {
+        for ( int i = 0; i < cumulativeWeights.length; i++ )
+            if ( value < cumulativeWeights[i] )
+                return requests[i];
+        return requests[requests.length - 1];
+    }
+
+    private static String send( RequestSender sender, LoadRequest request ) {
+        try {
+            int statusCode = sender.send( request );
+            if ( statusCode != 200 )
+                return "Unexpected status code " + statusCode + " of " + request.getUrl();
+            return null;
+        } catch ( Exception e ) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+
+}
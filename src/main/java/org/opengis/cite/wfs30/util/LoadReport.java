@@ -0,0 +1,302 @@
+package org.opengis.cite.wfs30.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Latencies, errors and throughput of a run of a {@link LoadGenerator}, per name of the requests and in total.
+ * Recording is thread-safe.
+ *
+ * Two latencies are recorded for each request: the response time, measured from the time the request should have been
+ * sent according to the schedule of the load generator, and the service time, measured from the time the request was
+ * actually sent. The response times include the time the request waited for a stalled service and are corrected for
+ * coordinated omission, the service times are not.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class LoadReport {
+
+    private static final long HIGHEST_TRACKABLE_LATENCY = TimeUnit.HOURS.toMicros( 1 );
+
+    private static final String TOTAL = "total";
+
+    private final Map<String, RequestStatistics> requestStatistics = new TreeMap<>();
+
+    private final RequestStatistics total = new RequestStatistics();
+
+    private final LatencyHistogram startDelays = new LatencyHistogram( HIGHEST_TRACKABLE_LATENCY );
+
+    private final int virtualUsers;
+
+    private final double targetRate;
+
+    private long durationNanos;
+
+    /**
+     * @param virtualUsers
+     *            the number of virtual users sending requests
+     * @param targetRate
+     *            the targeted number of requests per second of all virtual users, 0 if the rate is not limited
+     */
+    public LoadReport( int virtualUsers, double targetRate ) {
+        this.virtualUsers = virtualUsers;
+        this.targetRate = targetRate;
+    }
+
+    /**
+     * Records a completed request sent without schedule, response and service time are the same.
+     *
+     * @param name
+     *            the name of the request, never <code>null</code>
+     * @param latencyNanos
+     *            the time between sending the request and receiving the complete response
+     * @param error
+     *            the description of the error, <code>null</code> if the request succeeded
+     */
+    public void record( String name, long latencyNanos, String error ) {
+        record( name, latencyNanos, 0, error );
+    }
+
+    /**
+     * Records a completed request sent by a sender waiting for the response before sending the next request, expected
+     * to send a request each expectedInterval. The response times are corrected for the requests the sender missed to
+     * send while waiting for a response exceeding the interval.
+     *
+     * @param name
+     *            the name of the request, never <code>null</code>
+     * @param latencyNanos
+     *            the time between sending the request and receiving the complete response
+     * @param expectedIntervalNanos
+     *            the expected interval between two requests of the sender, 0 if the sender has no schedule
+     * @param error
+     *            the description of the error, <code>null</code> if the request succeeded
+     */
+    public void record( String name, long latencyNanos, long expectedIntervalNanos, String error ) {
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros( latencyNanos );
+        long expectedIntervalMicros = TimeUnit.NANOSECONDS.toMicros( expectedIntervalNanos );
+        statistics( name ).record( latencyMicros, expectedIntervalMicros, latencyMicros, error );
+        total.record( latencyMicros, expectedIntervalMicros, latencyMicros, error );
+    }
+
+    /**
+     * Records a completed request sent according to a fixed schedule, independent of the completion of the previous
+     * requests.
+     *
+     * @param name
+     *            the name of the request, never <code>null</code>
+     * @param intendedStartNanos
+     *            the time the request should have been sent according to the schedule ({@link System#nanoTime()})
+     * @param actualStartNanos
+     *            the time the request was sent ({@link System#nanoTime()})
+     * @param endNanos
+     *            the time the complete response was received ({@link System#nanoTime()})
+     * @param error
+     *            the description of the error, <code>null</code> if the request succeeded
+     */
+    public void recordScheduled( String name, long intendedStartNanos, long actualStartNanos, long endNanos,
+                                 String error ) {
+        long responseTimeMicros = TimeUnit.NANOSECONDS.toMicros( endNanos - intendedStartNanos );
+        long serviceTimeMicros = TimeUnit.NANOSECONDS.toMicros( endNanos - actualStartNanos );
+        statistics( name ).record( responseTimeMicros, 0, serviceTimeMicros, error );
+        total.record( responseTimeMicros, 0, serviceTimeMicros, error );
+        startDelays.recordValue( TimeUnit.NANOSECONDS.toMicros( actualStartNanos - intendedStartNanos ) );
+    }
+
+    /**
+     * @param durationNanos
+     *            the duration of the run
+     */
+    public synchronized void setDurationNanos( long durationNanos ) {
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * @return the number of virtual users sending requests
+     */
+    public int getVirtualUsers() {
+        return virtualUsers;
+    }
+
+    /**
+     * @return the targeted number of requests per second, 0 if the rate is not limited
+     */
+    public double getTargetRate() {
+        return targetRate;
+    }
+
+    /**
+     * @return the number of completed requests
+     */
+    public long getNoOfRequests() {
+        return total.serviceTimes.getTotalCount();
+    }
+
+    /**
+     * @return the number of failed requests
+     */
+    public long getNoOfErrors() {
+        return total.noOfErrors.get();
+    }
+
+    /**
+     * @return the description of the first failed request, <code>null</code> if no request failed
+     */
+    public String getFirstError() {
+        return total.firstError.get();
+    }
+
+    /**
+     * @return the achieved number of requests per second, 0 if the duration is not set
+     */
+    public synchronized double getThroughput() {
+        if ( durationNanos <= 0 )
+            return 0;
+        return getNoOfRequests() * 1000000000d / durationNanos;
+    }
+
+    /**
+     * @return the response times of all requests in microseconds, corrected for coordinated omission, never
+     *         <code>null</code>
+     */
+    public LatencyHistogram getHistogram() {
+        return total.responseTimes;
+    }
+
+    /**
+     * @param name
+     *            the name of the requests, never <code>null</code>
+     * @return the response times of the requests with the passed name in microseconds, corrected for coordinated
+     *         omission, <code>null</code> if no request with this name was recorded
+     */
+    public LatencyHistogram getHistogram( String name ) {
+        synchronized ( requestStatistics ) {
+            RequestStatistics statistics = requestStatistics.get( name );
+            return statistics != null ? statistics.responseTimes : null;
+        }
+    }
+
+    /**
+     * @return the service times of all requests in microseconds, never <code>null</code>
+     */
+    public LatencyHistogram getServiceTimeHistogram() {
+        return total.serviceTimes;
+    }
+
+    /**
+     * @param name
+     *            the name of the requests, never <code>null</code>
+     * @return the service times of the requests with the passed name in microseconds, <code>null</code> if no request
+     *         with this name was recorded
+     */
+    public LatencyHistogram getServiceTimeHistogram( String name ) {
+        synchronized ( requestStatistics ) {
+            RequestStatistics statistics = requestStatistics.get( name );
+            return statistics != null ? statistics.serviceTimes : null;
+        }
+    }
+
+    /**
+     * @return the delays between the intended and the actual start of the requests sent according to a fixed schedule
+     *         in microseconds, never <code>null</code>
+     */
+    public LatencyHistogram getStartDelayHistogram() {
+        return startDelays;
+    }
+
+    /**
+     * Writes the percentile distribution of the response times ('{name}.hgrm') and of the service times
+     * ('{name}-service.hgrm') in milliseconds of each name and of all requests ('total') in the format of the
+     * HdrHistogram library to the passed directory.
+     *
+     * @param directory
+     *            the directory to write the files to, created if missing, never <code>null</code>
+     * @throws IOException
+     *             if a file could not be written
+     */
+    public void writeHistograms( File directory )
+                            throws IOException {
+        Files.createDirectories( directory.toPath() );
+        for ( Map.Entry<String, RequestStatistics> entry : snapshot().entrySet() ) {
+            String fileName = entry.getKey().replaceAll( "[^A-Za-z0-9_.-]", "_" );
+            writeHistogram( new File( directory, fileName + ".hgrm" ), entry.getValue().responseTimes );
+            writeHistogram( new File( directory, fileName + "-service.hgrm" ), entry.getValue().serviceTimes );
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append( String.format( Locale.ROOT,
+                                  "%d virtual users, target %.1f requests/s, achieved %.1f requests/s, %d requests, %d errors",
+                                  virtualUsers, targetRate, getThroughput(), getNoOfRequests(), getNoOfErrors() ) );
+        if ( startDelays.getTotalCount() > 0 )
+            sb.append( String.format( Locale.ROOT, ", start delay p99: %.1f ms, max: %.1f ms",
+                                      startDelays.getValueAtPercentile( 99 ) / 1000d, startDelays.getMax() / 1000d ) );
+        for ( Map.Entry<String, RequestStatistics> entry : snapshot().entrySet() ) {
+            LatencyHistogram responseTimes = entry.getValue().responseTimes;
+            LatencyHistogram serviceTimes = entry.getValue().serviceTimes;
+            sb.append( String.format( Locale.ROOT,
+                                      "%n  - %s: %d requests, p50: %.1f ms, p95: %.1f ms, p99: %.1f ms (service time p99: %.1f ms), %d errors",
+                                      entry.getKey(), serviceTimes.getTotalCount(),
+                                      responseTimes.getValueAtPercentile( 50 ) / 1000d,
+                                      responseTimes.getValueAtPercentile( 95 ) / 1000d,
+                                      responseTimes.getValueAtPercentile( 99 ) / 1000d,
+                                      serviceTimes.getValueAtPercentile( 99 ) / 1000d,
+                                      entry.getValue().noOfErrors.get() ) );
+        }
+        return sb.toString();
+    }
+
+    private RequestStatistics statistics( String name ) {
+        synchronized ( requestStatistics ) {
+            return requestStatistics.computeIfAbsent( name, n -> new RequestStatistics() );
+        }
+    }
+
+    private static void writeHistogram( File file, LatencyHistogram histogram )
+                            throws IOException {
+        try (PrintStream printStream = new PrintStream( file, "UTF-8" )) {
+            histogram.outputPercentileDistribution( printStream, 1000d );
+        }
+    }
+
+    private Map<String, RequestStatistics> snapshot() {
+        Map<String, RequestStatistics> snapshot;
+        synchronized ( requestStatistics ) {
+            snapshot = new TreeMap<>( requestStatistics );
+        }
+        snapshot.put( TOTAL, total );
+        return snapshot;
+    }
+
+    private static class RequestStatistics {
+
+        private final LatencyHistogram responseTimes = new LatencyHistogram( HIGHEST_TRACKABLE_LATENCY );
+
+        private final LatencyHistogram serviceTimes = new LatencyHistogram( HIGHEST_TRACKABLE_LATENCY );
+
+        private final AtomicLong noOfErrors = new AtomicLong();
+
+        private final AtomicReference<String> firstError = new AtomicReference<>();
+
+        private void record( long responseTimeMicros, long expectedIntervalMicros, long serviceTimeMicros,
+                             String error ) {
+            responseTimes.recordValueWithExpectedInterval( responseTimeMicros, expectedIntervalMicros );
+            serviceTimes.recordValue( serviceTimeMicros );
+            if ( error != null ) {
+                noOfErrors.incrementAndGet();
+                firstError.compareAndSet( null, error );
+            }
+        }
+
+    }
+
+}
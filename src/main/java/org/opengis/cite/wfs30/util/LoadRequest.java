@@ -0,0 +1,87 @@
+package org.opengis.cite.wfs30.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A request of the mix replayed by a {@link LoadGenerator}.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class LoadRequest {
+
+    private final String name;
+
+    private final String url;
+
+    private final Map<String, String> parameters;
+
+    private final String mediaType;
+
+    private final int weight;
+
+    /**
+     * @param name
+     *            the name the latencies of the request are reported with, e.g. the kind of the request, never
+     *            <code>null</code>
+     * @param url
+     *            the url to request, never <code>null</code>
+     * @param parameters
+     *            the query parameters added to the url, may be empty but never <code>null</code>
+     * @param mediaType
+     *            the requested media type, never <code>null</code>
+     * @param weight
+     *            the relative frequency of the request in the mix, must be &gt; 0
+     */
+    public LoadRequest( String name, String url, Map<String, String> parameters, String mediaType, int weight ) {
+        if ( weight <= 0 )
+            throw new IllegalArgumentException( "Weight must be greater than 0" );
+        this.name = name;
+        this.url = url;
+        this.parameters = Collections.unmodifiableMap( new LinkedHashMap<>( parameters ) );
+        this.mediaType = mediaType;
+        this.weight = weight;
+    }
+
+    /**
+     * @return the name the latencies of the request are reported with, never <code>null</code>
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the url to request, never <code>null</code>
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return the unmodifiable query parameters, may be empty but never <code>null</code>
+     */
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return the requested media type, never <code>null</code>
+     */
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return the relative frequency of the request in the mix
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    @Override
+    public String toString() {
+        return name + ": " + url + ( parameters.isEmpty() ? "" : " " + parameters ) + " (weight " + weight + ")";
+    }
+
+}
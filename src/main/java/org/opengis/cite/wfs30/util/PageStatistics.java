@@ -0,0 +1,82 @@
+package org.opengis.cite.wfs30.util;
+
+/**
+ * Encapsulates the measurements taken while retrieving a single page of a feature collection.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class PageStatistics {
+
+    private final String url;
+
+    private final int numberOfFeatures;
+
+    private final long numberOfBytes;
+
+    private final long requestTimeInMillis;
+
+    private final long parseTimeInMillis;
+
+    /**
+     * @param url
+     *            the requested url, never <code>null</code>
+     * @param numberOfFeatures
+     *            the number of features in the page
+     * @param numberOfBytes
+     *            the number of bytes read from the response body
+     * @param requestTimeInMillis
+     *            the time between sending the request and receiving the response
+     * @param parseTimeInMillis
+     *            the time needed to read and scan the response body
+     */
+    public PageStatistics( String url, int numberOfFeatures, long numberOfBytes, long requestTimeInMillis,
+                           long parseTimeInMillis ) {
+        this.url = url;
+        this.numberOfFeatures = numberOfFeatures;
+        this.numberOfBytes = numberOfBytes;
+        this.requestTimeInMillis = requestTimeInMillis;
+        this.parseTimeInMillis = parseTimeInMillis;
+    }
+
+    /**
+     * @return the requested url, never <code>null</code>
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return the number of features in the page
+     */
+    public int getNumberOfFeatures() {
+        return numberOfFeatures;
+    }
+
+    /**
+     * @return the number of bytes read from the response body
+     */
+    public long getNumberOfBytes() {
+        return numberOfBytes;
+    }
+
+    /**
+     * @return the time between sending the request and receiving the response in milliseconds
+     */
+    public long getRequestTimeInMillis() {
+        return requestTimeInMillis;
+    }
+
+    /**
+     * @return the time needed to read and scan the response body in milliseconds
+     */
+    public long getParseTimeInMillis() {
+        return parseTimeInMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "URL: " + url + ", features: " + numberOfFeatures + ", bytes: " + numberOfBytes + ", request: "
+               + requestTimeInMillis + "ms, parse: " + parseTimeInMillis + "ms";
+    }
+
+}
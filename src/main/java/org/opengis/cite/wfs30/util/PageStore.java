@@ -0,0 +1,185 @@
+package org.opengis.cite.wfs30.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+
+/**
+ * Append-only file storing the bodies of the downloaded pages of a test run. Each appended page is mapped into memory
+ * read-only, so the pages are read by several tests without copying them to the heap. The size of the heap does not
+ * depend on the number and size of the stored pages.
+ *
+ * Appending is thread-safe, the returned {@link StoredPage}s may be read concurrently.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class PageStore implements Closeable {
+
+    private final File file;
+
+    private final RandomAccessFile randomAccessFile;
+
+    private final FileChannel channel;
+
+    private long size;
+
+    private int noOfPages;
+
+    /**
+     * @param file
+     *            the file to append the pages to, an existing file is truncated, never <code>null</code>
+     * @throws IOException
+     *             if the file could not be opened
+     */
+    public PageStore( File file ) throws IOException {
+        this.file = file;
+        this.randomAccessFile = new RandomAccessFile( file, "rw" );
+        this.randomAccessFile.setLength( 0 );
+        this.channel = randomAccessFile.getChannel();
+    }
+
+    /**
+     * @return a page store in a new temporary file, which is deleted on {@link #close()} or on exit of the JVM, never
+     *         <code>null</code>
+     * @throws IOException
+     *             if the file could not be created
+     */
+    public static PageStore createTempFile()
+                            throws IOException {
+        File file = Files.createTempFile( "ets-wfs30-pages", ".json" ).toFile();
+        file.deleteOnExit();
+        return new PageStore( file );
+    }
+
+    /**
+     * Appends the passed page to the end of the file.
+     *
+     * @param body
+     *            the body of the page, never <code>null</code>
+     * @return the stored page, never <code>null</code>
+     * @throws IOException
+     *             if the page could not be written
+     */
+    public synchronized StoredPage append( byte[] body )
+                            throws IOException {
+        long offset = size;
+        ByteBuffer buffer = ByteBuffer.wrap( body );
+        while ( buffer.hasRemaining() )
+            channel.write( buffer, offset + buffer.position() );
+        size += body.length;
+        noOfPages++;
+        return new StoredPage( offset, channel.map( MapMode.READ_ONLY, offset, body.length ) );
+    }
+
+    /**
+     * Maps a range of the file, e.g. a single feature of a stored page.
+     *
+     * @param offset
+     *            the offset of the first byte in the file
+     * @param length
+     *            the number of bytes
+     * @return the read-only bytes, never <code>null</code>
+     * @throws IOException
+     *             if the range could not be mapped
+     * @throws IndexOutOfBoundsException
+     *             if the range exceeds the stored pages
+     */
+    public ByteBuffer slice( long offset, int length )
+                            throws IOException {
+        synchronized ( this ) {
+            if ( offset < 0 || length < 0 || offset + length > size )
+                throw new IndexOutOfBoundsException( "Range " + offset + "+" + length + " exceeds size " + size );
+        }
+        return channel.map( MapMode.READ_ONLY, offset, length );
+    }
+
+    /**
+     * @return the number of bytes of all stored pages
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * @return the number of stored pages
+     */
+    public synchronized int getNoOfPages() {
+        return noOfPages;
+    }
+
+    /**
+     * @return the file containing the pages, never <code>null</code>
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Closes and deletes the file. The mapped pages remain readable until they are garbage collected.
+     */
+    @Override
+    public synchronized void close()
+                            throws IOException {
+        try {
+            randomAccessFile.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Pages: " + noOfPages + ", bytes: " + size + ", file: " + file;
+    }
+
+    /**
+     * A page of the page store.
+     */
+    public static final class StoredPage {
+
+        private final long offset;
+
+        private final MappedByteBuffer buffer;
+
+        private StoredPage( long offset, MappedByteBuffer buffer ) {
+            this.offset = offset;
+            this.buffer = buffer;
+        }
+
+        /**
+         * @return the offset of the first byte of the page in the file of the page store
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * @return the number of bytes of the page
+         */
+        public int getLength() {
+            return buffer.capacity();
+        }
+
+        /**
+         * @return a read-only view of the bytes of the page with an own position, never <code>null</code>
+         */
+        public ByteBuffer asByteBuffer() {
+            return buffer.asReadOnlyBuffer();
+        }
+
+        /**
+         * @return a stream reading the bytes of the page, never <code>null</code>
+         */
+        public ByteBufferInputStream asInputStream() {
+            return new ByteBufferInputStream( asByteBuffer() );
+        }
+
+    }
+
+}
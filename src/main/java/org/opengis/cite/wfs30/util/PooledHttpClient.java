@@ -0,0 +1,394 @@
+package org.opengis.cite.wfs30.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+
+import io.restassured.config.HttpClientConfig;
+import io.restassured.config.RestAssuredConfig;
+
+/**
+ * A pooled HTTP client shared by all requests of a test run. Connections are kept alive and reused across test
+ * classes, the usage of the pool is tracked to report the number of leased and pending connections and the ratio of
+ * requests sent over a reused connection.
+ *
+ * RestAssured 3 requires an {@link org.apache.http.impl.client.AbstractHttpClient}, so the (deprecated)
+ * {@link org.apache.http.impl.client.DefaultHttpClient} with a
+ * {@link org.apache.http.impl.conn.PoolingClientConnectionManager} is used. The deprecated types are referenced by
+ * their fully qualified names, so the usages are covered by the suppressed deprecation warnings. A connection is
+ * returned to the pool as soon as the response body is read completely or the body stream is closed.
+ *
+ * The DNS lookup, the TCP connect, the TLS handshake and the time to first byte of each request are added to the
+ * {@link RequestTiming#current() timing} of the sending thread, if the request is timed.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+@SuppressWarnings("deprecation")
+public class PooledHttpClient {
+
+    private static final long DEFAULT_KEEP_ALIVE_MILLIS = 30000;
+
+    private static final long CONNECTION_REQUEST_TIMEOUT_MILLIS = 60000;
+
+    private final org.apache.http.impl.conn.PoolingClientConnectionManager connectionManager;
+
+    private final org.apache.http.impl.client.DefaultHttpClient httpClient;
+
+    private final RestAssuredConfig restAssuredConfig;
+
+    private final AtomicLong noOfRequests = new AtomicLong();
+
+    private final AtomicLong noOfReusedConnections = new AtomicLong();
+
+    private final AtomicInteger maxLeased = new AtomicInteger();
+
+    private final AtomicInteger maxPending = new AtomicInteger();
+
+    /**
+     * @param maxPerRoute
+     *            the maximum number of connections per route, must be &gt; 0
+     */
+    public PooledHttpClient( int maxPerRoute ) {
+        this.connectionManager = new TrackedConnectionManager( createTimedSchemeRegistry(), new TimedDnsResolver(),
+                                                               maxPending );
+        this.connectionManager.setDefaultMaxPerRoute( maxPerRoute );
+        this.connectionManager.setMaxTotal( maxPerRoute * 4 );
+        this.httpClient = new TimedHttpClient( connectionManager );
+        this.httpClient.setKeepAliveStrategy( new KeepAliveStrategy() );
+        this.httpClient.addRequestInterceptor( ( request, context ) -> recordPoolUsage() );
+        this.httpClient.addResponseInterceptor( ( response, context ) -> recordConnectionReuse( context ) );
+        HttpClientConfig httpClientConfig = HttpClientConfig.httpClientConfig().httpClientFactory( () -> httpClient );
+        httpClientConfig = httpClientConfig.setParam( org.apache.http.client.params.ClientPNames.CONN_MANAGER_TIMEOUT,
+                                                      CONNECTION_REQUEST_TIMEOUT_MILLIS );
+        this.restAssuredConfig = RestAssuredConfig.config().httpClient( httpClientConfig );
+    }
+
+    /**
+     * @return a RestAssured configuration sending all requests with the pooled client, never <code>null</code>
+     */
+    public RestAssuredConfig getRestAssuredConfig() {
+        return restAssuredConfig;
+    }
+
+    /**
+     * @return the number of requests sent with the pooled client
+     */
+    public long getNoOfRequests() {
+        return noOfRequests.get();
+    }
+
+    /**
+     * @return the number of requests sent over a connection already used by a previous request
+     */
+    public long getNoOfReusedConnections() {
+        return noOfReusedConnections.get();
+    }
+
+    /**
+     * @return the ratio of requests sent over a reused connection, 0 if no request was sent
+     */
+    public double getReuseRatio() {
+        long requests = noOfRequests.get();
+        if ( requests == 0 )
+            return 0;
+        return (double) noOfReusedConnections.get() / requests;
+    }
+
+    /**
+     * @return the maximum number of connections leased at the same time
+     */
+    public int getMaxLeased() {
+        return maxLeased.get();
+    }
+
+    /**
+     * @return the maximum number of requests waiting for a connection at the same time, sampled when a connection is
+     *         leased from an exhausted route
+     */
+    public int getMaxPending() {
+        return maxPending.get();
+    }
+
+    /**
+     * @return the current statistics of the pool, never <code>null</code>
+     */
+    public PoolStats getPoolStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * @return a human readable summary of the pool metrics, never <code>null</code>
+     */
+    public String getMetrics() {
+        PoolStats stats = getPoolStats();
+        return String.format( "Requests: %d%nReused connections: %d%nReuse ratio: %.3f%nMax leased: %d%nMax pending: %d%n"
+                              + "Available: %d%nMax per route: %d%nMax total: %d%n",
+                              getNoOfRequests(), getNoOfReusedConnections(), getReuseRatio(), getMaxLeased(),
+                              getMaxPending(), stats.getAvailable(), connectionManager.getDefaultMaxPerRoute(),
+                              stats.getMax() );
+    }
+
+    /**
+     * Writes the pool metrics into the passed file.
+     *
+     * @param metricsFile
+     *            the file to write the metrics in, never <code>null</code>
+     * @throws IOException
+     *             if the file could not be written
+     */
+    public void writeMetrics( File metricsFile )
+                            throws IOException {
+        File parent = metricsFile.getParentFile();
+        if ( parent != null )
+            parent.mkdirs();
+        Files.write( metricsFile.toPath(), getMetrics().getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    /**
+     * Closes all connections of the pool.
+     */
+    public void shutdown() {
+        connectionManager.shutdown();
+    }
+
+    private void recordPoolUsage() {
+        noOfRequests.incrementAndGet();
+        PoolStats stats = connectionManager.getTotalStats();
+        maxLeased.accumulateAndGet( stats.getLeased(), Math::max );
+    }
+
+    private void recordConnectionReuse( HttpContext context ) {
+        Object connection = context.getAttribute( HttpCoreContext.HTTP_CONNECTION );
+        if ( connection instanceof HttpConnection
+             && ( (HttpConnection) connection ).getMetrics().getRequestCount() > 1 )
+            noOfReusedConnections.incrementAndGet();
+    }
+
+    /**
+     * Same schemes as the system default registry, with socket factories timing connect and TLS handshake.
+     */
+    private static org.apache.http.conn.scheme.SchemeRegistry createTimedSchemeRegistry() {
+        org.apache.http.conn.scheme.SchemeRegistry registry = new org.apache.http.conn.scheme.SchemeRegistry();
+        registry.register( new org.apache.http.conn.scheme.Scheme( "http", 80, new TimedPlainSocketFactory() ) );
+        javax.net.ssl.SSLSocketFactory systemSocketFactory;
+        systemSocketFactory = (javax.net.ssl.SSLSocketFactory) javax.net.ssl.SSLSocketFactory.getDefault();
+        String[] protocols = splitSystemProperty( "https.protocols" );
+        String[] cipherSuites = splitSystemProperty( "https.cipherSuites" );
+        TimedSSLSocketFactory sslSocketFactory = new TimedSSLSocketFactory( systemSocketFactory, protocols,
+                                                                            cipherSuites );
+        registry.register( new org.apache.http.conn.scheme.Scheme( "https", 443, sslSocketFactory ) );
+        return registry;
+    }
+
+    private static String[] splitSystemProperty( String key ) {
+        String value = System.getProperty( key );
+        if ( value == null || value.trim().isEmpty() )
+            return null;
+        return value.trim().split( " *, *" );
+    }
+
+    /**
+     * Samples the number of pending requests when a connection is leased: the threads leasing a connection of a route
+     * are counted, the ones exceeding the free capacity of the route (the connections not leased) have to wait.
+     */
+    private static class TrackedConnectionManager extends org.apache.http.impl.conn.PoolingClientConnectionManager {
+
+        private final ConcurrentMap<HttpRoute, AtomicInteger> leasing = new ConcurrentHashMap<>();
+
+        private final AtomicInteger maxPending;
+
+        private TrackedConnectionManager( org.apache.http.conn.scheme.SchemeRegistry schemeRegistry,
+                                          DnsResolver dnsResolver, AtomicInteger maxPending ) {
+            super( schemeRegistry, dnsResolver );
+            this.maxPending = maxPending;
+        }
+
+        @Override
+        public org.apache.http.conn.ClientConnectionRequest requestConnection( HttpRoute route, Object state ) {
+            org.apache.http.conn.ClientConnectionRequest request = super.requestConnection( route, state );
+            AtomicInteger leasingOfRoute = leasing.computeIfAbsent( route, r -> new AtomicInteger() );
+            return new org.apache.http.conn.ClientConnectionRequest() {
+
+                @Override
+                public org.apache.http.conn.ManagedClientConnection getConnection( long timeout, TimeUnit unit )
+                                        throws InterruptedException, ConnectionPoolTimeoutException {
+                    int noOfLeasing = leasingOfRoute.incrementAndGet();
+                    try {
+                        PoolStats stats = getStats( route );
+                        int pending = noOfLeasing - ( stats.getMax() - stats.getLeased() );
+                        if ( pending > 0 )
+                            maxPending.accumulateAndGet( pending, Math::max );
+                        return request.getConnection( timeout, unit );
+                    } finally {
+                        leasingOfRoute.decrementAndGet();
+                    }
+                }
+
+                @Override
+                public void abortRequest() {
+                    request.abortRequest();
+                }
+
+            };
+        }
+
+    }
+
+    private static class TimedHttpClient extends org.apache.http.impl.client.DefaultHttpClient {
+
+        private TimedHttpClient( org.apache.http.impl.conn.PoolingClientConnectionManager connectionManager ) {
+            super( connectionManager );
+        }
+
+        @Override
+        protected HttpRequestExecutor createRequestExecutor() {
+            return new TimedRequestExecutor();
+        }
+
+    }
+
+    private static class TimedRequestExecutor extends HttpRequestExecutor {
+
+        private final ThreadLocal<Long> sendStart = new ThreadLocal<>();
+
+        @Override
+        protected HttpResponse doSendRequest( HttpRequest request, HttpClientConnection conn, HttpContext context )
+                                throws IOException, HttpException {
+            sendStart.set( System.nanoTime() );
+            return super.doSendRequest( request, conn, context );
+        }
+
+        @Override
+        protected HttpResponse doReceiveResponse( HttpRequest request, HttpClientConnection conn,
+                                                  HttpContext context )
+                                throws HttpException, IOException {
+            HttpResponse response = super.doReceiveResponse( request, conn, context );
+            RequestTiming timing = RequestTiming.current();
+            Long start = sendStart.get();
+            if ( timing != null && start != null )
+                timing.addTimeToFirstByte( start, System.nanoTime() );
+            sendStart.remove();
+            return response;
+        }
+
+    }
+
+    private static class TimedDnsResolver implements DnsResolver {
+
+        private final DnsResolver delegate = new SystemDefaultDnsResolver();
+
+        @Override
+        public InetAddress[] resolve( String host )
+                                throws UnknownHostException {
+            long start = System.nanoTime();
+            try {
+                return delegate.resolve( host );
+            } finally {
+                RequestTiming timing = RequestTiming.current();
+                if ( timing != null )
+                    timing.addDns( System.nanoTime() - start );
+            }
+        }
+
+    }
+
+    private static class TimedPlainSocketFactory extends org.apache.http.conn.scheme.PlainSocketFactory {
+
+        @Override
+        public Socket connectSocket( Socket socket, InetSocketAddress remoteAddress, InetSocketAddress localAddress,
+                                     org.apache.http.params.HttpParams params )
+                                throws IOException, ConnectTimeoutException {
+            long start = System.nanoTime();
+            try {
+                return super.connectSocket( socket, remoteAddress, localAddress, params );
+            } finally {
+                RequestTiming timing = RequestTiming.current();
+                if ( timing != null )
+                    timing.addConnect( System.nanoTime() - start );
+            }
+        }
+
+    }
+
+    /**
+     * The TLS handshake is executed while the socket is layered, the remaining time of connecting the socket is the
+     * TCP connect.
+     */
+    private static class TimedSSLSocketFactory extends org.apache.http.conn.ssl.SSLSocketFactory {
+
+        private TimedSSLSocketFactory( javax.net.ssl.SSLSocketFactory socketFactory, String[] supportedProtocols,
+                                       String[] supportedCipherSuites ) {
+            super( socketFactory, supportedProtocols, supportedCipherSuites, BROWSER_COMPATIBLE_HOSTNAME_VERIFIER );
+        }
+
+        @Override
+        public Socket connectSocket( int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress,
+                                     InetSocketAddress localAddress, HttpContext context )
+                                throws IOException {
+            RequestTiming timing = RequestTiming.current();
+            long tlsBefore = timing != null ? timing.getTlsNanos() : 0;
+            long start = System.nanoTime();
+            try {
+                return super.connectSocket( connectTimeout, socket, host, remoteAddress, localAddress, context );
+            } finally {
+                if ( timing != null )
+                    timing.addConnect( System.nanoTime() - start - ( timing.getTlsNanos() - tlsBefore ) );
+            }
+        }
+
+        @Override
+        public Socket createLayeredSocket( Socket socket, String target, int port, HttpContext context )
+                                throws IOException {
+            long start = System.nanoTime();
+            try {
+                return super.createLayeredSocket( socket, target, port, context );
+            } finally {
+                RequestTiming timing = RequestTiming.current();
+                if ( timing != null )
+                    timing.addTls( System.nanoTime() - start );
+            }
+        }
+
+    }
+
+    private static class KeepAliveStrategy implements ConnectionKeepAliveStrategy {
+
+        private final ConnectionKeepAliveStrategy delegate = new DefaultConnectionKeepAliveStrategy();
+
+        @Override
+        public long getKeepAliveDuration( HttpResponse response, HttpContext context ) {
+            long keepAlive = delegate.getKeepAliveDuration( response, context );
+            return keepAlive > 0 ? keepAlive : DEFAULT_KEEP_ALIVE_MILLIS;
+        }
+
+    }
+
+}
@@ -0,0 +1,200 @@
+package org.opengis.cite.wfs30.util;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+/**
+ * Executes requests asynchronously and limits the number of requests in flight per host.
+ *
+ * Requests submitted while the limit of a host is reached are queued and dispatched as soon as a request to the same
+ * host completes, so waiting requests do not occupy a thread. Requests sent synchronously can be limited by the
+ * {@link Filter} returned by {@link #createHostLimitFilter()}, these share the limit with the asynchronous requests.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class RequestExecutor {
+
+    private final Map<String, HostQueue> hostQueues = new ConcurrentHashMap<>();
+
+    private final int maxInFlightPerHost;
+
+    private final ExecutorService executor;
+
+    /**
+     * @param maxInFlightPerHost
+     *            the maximum number of requests in flight per host, must be &gt; 0
+     */
+    public RequestExecutor( int maxInFlightPerHost ) {
+        if ( maxInFlightPerHost <= 0 )
+            throw new IllegalArgumentException( "Maximum number of requests per host must be greater than 0" );
+        this.maxInFlightPerHost = maxInFlightPerHost;
+        this.executor = Executors.newCachedThreadPool( new RequestThreadFactory() );
+    }
+
+    /**
+     * @return the maximum number of requests in flight per host
+     */
+    public int getMaxInFlightPerHost() {
+        return maxInFlightPerHost;
+    }
+
+    /**
+     * Executes the passed task asynchronously as soon as the number of requests in flight to the host is below the
+     * limit.
+     *
+     * @param host
+     *            the host the task sends a request to, never <code>null</code>
+     * @param task
+     *            the task to execute, never <code>null</code>
+     * @return the future result of the task, never <code>null</code>
+     */
+    public <T> CompletableFuture<T> submit( String host, Callable<T> task ) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        HostQueue hostQueue = hostQueue( host );
+        hostQueue.enqueue( () -> {
+            if ( result.isDone() ) {
+                hostQueue.release();
+                return;
+            }
+            T value = null;
+            Throwable error = null;
+            try {
+                value = task.call();
+            } catch ( Throwable e ) {
+                error = e;
+            } finally {
+                hostQueue.release();
+            }
+            if ( error != null )
+                result.completeExceptionally( error );
+            else
+                result.complete( value );
+        } );
+        return result;
+    }
+
+    /**
+     * Creates a filter blocking synchronous requests as long as the number of requests in flight to the requested host
+     * reached the limit.
+     *
+     * @return the filter, never <code>null</code>
+     */
+    public Filter createHostLimitFilter() {
+        return new HostLimitFilter();
+    }
+
+    /**
+     * @param host
+     *            the host, never <code>null</code>
+     * @return the number of requests currently in flight to the host
+     */
+    public int getInFlight( String host ) {
+        HostQueue hostQueue = hostQueues.get( host );
+        return hostQueue != null ? maxInFlightPerHost - hostQueue.permits.availablePermits() : 0;
+    }
+
+    /**
+     * Stops accepting requests and interrupts the running ones.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param uri
+     *            the uri to parse the host from, may be <code>null</code>
+     * @return the host and port of the uri, never <code>null</code>
+     */
+    static String parseHost( String uri ) {
+        if ( uri == null )
+            return "";
+        String authority = URI.create( uri ).getAuthority();
+        return authority != null ? authority : "";
+    }
+
+    private HostQueue hostQueue( String host ) {
+        return hostQueues.computeIfAbsent( host, h -> new HostQueue() );
+    }
+
+    private class HostQueue {
+
+        private final Semaphore permits = new Semaphore( maxInFlightPerHost, true );
+
+        private final Queue<Runnable> pending = new ArrayDeque<>();
+
+        private synchronized void enqueue( Runnable task ) {
+            if ( permits.tryAcquire() )
+                executor.execute( task );
+            else
+                pending.add( task );
+        }
+
+        private void acquire()
+                                throws InterruptedException {
+            permits.acquire();
+        }
+
+        /**
+         * Hands over the permit to the next pending task, if there is one.
+         */
+        private synchronized void release() {
+            Runnable next = pending.poll();
+            if ( next != null )
+                executor.execute( next );
+            else
+                permits.release();
+        }
+
+    }
+
+    private class HostLimitFilter implements Filter {
+
+        @Override
+        public Response filter( FilterableRequestSpecification requestSpec,
+                                FilterableResponseSpecification responseSpec, FilterContext ctx ) {
+            HostQueue hostQueue = hostQueue( parseHost( requestSpec.getURI() ) );
+            try {
+                hostQueue.acquire();
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException( "Interrupted while waiting for a request slot", e );
+            }
+            try {
+                return ctx.next( requestSpec, responseSpec );
+            } finally {
+                hostQueue.release();
+            }
+        }
+
+    }
+
+    private static class RequestThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger( 1 );
+
+        @Override
+        public Thread newThread( Runnable runnable ) {
+            Thread thread = new Thread( runnable, "wfs30-request-" + threadNumber.getAndIncrement() );
+            thread.setDaemon( true );
+            return thread;
+        }
+
+    }
+
+}
@@ -0,0 +1,118 @@
+package org.opengis.cite.wfs30.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Suite-level registry of the {@link RequestTiming}s of all requests sent by the tests. The total durations are
+ * aggregated per endpoint (method and url without query), so the slowest endpoints can be reported at the end of the
+ * test run. Instances are thread-safe.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class RequestMetrics {
+
+    private static final long HIGHEST_TRACKABLE_LATENCY = TimeUnit.HOURS.toMicros( 1 );
+
+    private final ConcurrentLinkedQueue<RequestTiming> timings = new ConcurrentLinkedQueue<>();
+
+    private final Map<String, LatencyHistogram> endpointHistograms = new ConcurrentHashMap<>();
+
+    /**
+     * @param timing
+     *            the timing of a completed request, never <code>null</code>
+     */
+    public void record( RequestTiming timing ) {
+        timings.add( timing );
+        LatencyHistogram histogram = endpointHistograms.computeIfAbsent( timing.getEndpoint(),
+                                                                         endpoint -> new LatencyHistogram( HIGHEST_TRACKABLE_LATENCY ) );
+        histogram.recordValue( TimeUnit.NANOSECONDS.toMicros( timing.getTotalNanos() ) );
+    }
+
+    /**
+     * @return the timings of all recorded requests in the order they were completed, never <code>null</code>
+     */
+    public List<RequestTiming> getTimings() {
+        return new ArrayList<>( timings );
+    }
+
+    /**
+     * @param endpoint
+     *            the method and url without query, see {@link RequestTiming#getEndpoint()}
+     * @return the total durations of the requests to the endpoint in microseconds, <code>null</code> if no request to
+     *         the endpoint was recorded
+     */
+    public LatencyHistogram getHistogram( String endpoint ) {
+        return endpointHistograms.get( endpoint );
+    }
+
+    /**
+     * @param maxNoOfEndpoints
+     *            the maximum number of endpoints to return
+     * @return the endpoints with the highest p95 of the total duration, the slowest first, never <code>null</code>
+     */
+    public List<String> getSlowestEndpoints( int maxNoOfEndpoints ) {
+        List<String> endpoints = new ArrayList<>( endpointHistograms.keySet() );
+        Comparator<String> byP95 = Comparator.comparingLong( endpoint -> endpointHistograms.get( endpoint ).getValueAtPercentile( 95 ) );
+        endpoints.sort( byP95.reversed() );
+        return endpoints.subList( 0, Math.min( maxNoOfEndpoints, endpoints.size() ) );
+    }
+
+    /**
+     * @param maxNoOfEndpoints
+     *            the maximum number of endpoints to report
+     * @return a human readable summary of the slowest endpoints, never <code>null</code>
+     */
+    public String getSummary( int maxNoOfEndpoints ) {
+        StringBuilder summary = new StringBuilder();
+        summary.append( String.format( Locale.ROOT, "Requests: %d, endpoints: %d%n", timings.size(),
+                                       endpointHistograms.size() ) );
+        for ( String endpoint : getSlowestEndpoints( maxNoOfEndpoints ) ) {
+            LatencyHistogram histogram = endpointHistograms.get( endpoint );
+            summary.append( String.format( Locale.ROOT, "%s: %d requests, p50: %.1f ms, p95: %.1f ms, max: %.1f ms%n",
+                                           endpoint, histogram.getTotalCount(),
+                                           histogram.getValueAtPercentile( 50 ) / 1000d,
+                                           histogram.getValueAtPercentile( 95 ) / 1000d,
+                                           histogram.getMax() / 1000d ) );
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Writes the timings of all recorded requests as CSV, one line per request.
+     *
+     * @param file
+     *            the file to write, missing parent directories are created, never <code>null</code>
+     * @throws IOException
+     *             if the file could not be written
+     */
+    public void writeCsv( File file )
+                            throws IOException {
+        Files.createDirectories( file.getAbsoluteFile().getParentFile().toPath() );
+        try (BufferedWriter writer = Files.newBufferedWriter( file.toPath(), StandardCharsets.UTF_8 )) {
+            writer.write( RequestTiming.csvHeader() );
+            writer.newLine();
+            for ( RequestTiming timing : timings ) {
+                writer.write( timing.asCsv() );
+                writer.newLine();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getSummary( 10 );
+    }
+
+}
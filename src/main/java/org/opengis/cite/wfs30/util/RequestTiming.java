@@ -0,0 +1,272 @@
+package org.opengis.cite.wfs30.util;
+
+import java.util.Locale;
+
+/**
+ * Durations of the phases of a single request: DNS lookup, TCP connect, TLS handshake, time to first byte (sending the
+ * request until the response headers are received), download of the body and parsing of the body, plus the size of the
+ * body.
+ *
+ * The timing of the request currently sent by a thread is available by {@link #current()}, so the HTTP client can add
+ * the durations of the phases it executes. Phases not executed (e.g. DNS lookup, connect and TLS handshake for a
+ * reused connection) have a duration of 0.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class RequestTiming {
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    private final String method;
+
+    private final String url;
+
+    private final long startMillis;
+
+    private int statusCode;
+
+    private long dnsNanos;
+
+    private long connectNanos;
+
+    private long tlsNanos;
+
+    private long timeToFirstByteNanos;
+
+    private long headersReceivedNanos;
+
+    private long downloadNanos;
+
+    private long parseNanos;
+
+    private long totalNanos;
+
+    private long size;
+
+    /**
+     * @param method
+     *            the method of the request, never <code>null</code>
+     * @param url
+     *            the requested url including the query, never <code>null</code>
+     */
+    public RequestTiming( String method, String url ) {
+        this.method = method;
+        this.url = url;
+        this.startMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * @return the timing of the request currently sent by this thread, <code>null</code> if the request is not timed
+     */
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @param timing
+     *            the timing of the request sent by this thread, <code>null</code> to clear it
+     */
+    static void setCurrent( RequestTiming timing ) {
+        if ( timing == null )
+            CURRENT.remove();
+        else
+            CURRENT.set( timing );
+    }
+
+    /**
+     * @param nanos
+     *            the duration of a DNS lookup of the request
+     */
+    public void addDns( long nanos ) {
+        dnsNanos += nanos;
+    }
+
+    /**
+     * @param nanos
+     *            the duration of a TCP connect of the request
+     */
+    public void addConnect( long nanos ) {
+        connectNanos += nanos;
+    }
+
+    /**
+     * @param nanos
+     *            the duration of a TLS handshake of the request
+     */
+    public void addTls( long nanos ) {
+        tlsNanos += nanos;
+    }
+
+    /**
+     * @param sendStartNanos
+     *            the time the request was started to be sent ({@link System#nanoTime()})
+     * @param headersReceivedNanos
+     *            the time the response headers were received ({@link System#nanoTime()})
+     */
+    public void addTimeToFirstByte( long sendStartNanos, long headersReceivedNanos ) {
+        this.timeToFirstByteNanos += headersReceivedNanos - sendStartNanos;
+        this.headersReceivedNanos = headersReceivedNanos;
+    }
+
+    /**
+     * @param nanos
+     *            the duration of parsing the body of the response
+     */
+    public void addParse( long nanos ) {
+        parseNanos += nanos;
+    }
+
+    /**
+     * Completes the timing when the body of the response was read.
+     *
+     * @param statusCode
+     *            the status code of the response
+     * @param size
+     *            the number of bytes of the body
+     * @param startNanos
+     *            the time the request was started ({@link System#nanoTime()})
+     * @param endNanos
+     *            the time the body was read completely ({@link System#nanoTime()})
+     */
+    void complete( int statusCode, long size, long startNanos, long endNanos ) {
+        this.statusCode = statusCode;
+        this.size = size;
+        this.totalNanos = endNanos - startNanos;
+        if ( headersReceivedNanos > 0 )
+            this.downloadNanos = endNanos - headersReceivedNanos;
+    }
+
+    /**
+     * @return the method of the request, never <code>null</code>
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the requested url including the query, never <code>null</code>
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return the method and the url without query, identifying the endpoint, never <code>null</code>
+     */
+    public String getEndpoint() {
+        int indexOfQuery = url.indexOf( '?' );
+        return method + " " + ( indexOfQuery == -1 ? url : url.substring( 0, indexOfQuery ) );
+    }
+
+    /**
+     * @return the time the request was started in milliseconds since the epoch
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * @return the status code of the response, 0 if no response was received
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return the duration of the DNS lookup in milliseconds
+     */
+    public double getDnsMillis() {
+        return toMillis( dnsNanos );
+    }
+
+    /**
+     * @return the duration of the TCP connect in milliseconds
+     */
+    public double getConnectMillis() {
+        return toMillis( connectNanos );
+    }
+
+    /**
+     * @return the duration of the TLS handshake in milliseconds
+     */
+    public double getTlsMillis() {
+        return toMillis( tlsNanos );
+    }
+
+    /**
+     * @return the duration from sending the request until the response headers were received in milliseconds
+     */
+    public double getTimeToFirstByteMillis() {
+        return toMillis( timeToFirstByteNanos );
+    }
+
+    /**
+     * @return the duration of reading the body in milliseconds
+     */
+    public double getDownloadMillis() {
+        return toMillis( downloadNanos );
+    }
+
+    /**
+     * @return the duration of parsing the body in milliseconds
+     */
+    public double getParseMillis() {
+        return toMillis( parseNanos );
+    }
+
+    /**
+     * @return the duration from starting the request until the body was read in milliseconds (without parsing)
+     */
+    public double getTotalMillis() {
+        return toMillis( totalNanos );
+    }
+
+    /**
+     * @return the duration from starting the request until the body was read in nanoseconds (without parsing)
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    long getTlsNanos() {
+        return tlsNanos;
+    }
+
+    /**
+     * @return the number of bytes of the body
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the header of the CSV lines created by {@link #asCsv()}, never <code>null</code>
+     */
+    public static String csvHeader() {
+        return "start,method,url,status,dnsMs,connectMs,tlsMs,ttfbMs,downloadMs,parseMs,totalMs,bytes";
+    }
+
+    /**
+     * @return the timing as CSV line (without line break), never <code>null</code>
+     */
+    public String asCsv() {
+        return String.format( Locale.ROOT, "%d,%s,\"%s\",%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%d", startMillis, method,
+                              url.replace( "\"", "\"\"" ), statusCode, getDnsMillis(), getConnectMillis(),
+                              getTlsMillis(), getTimeToFirstByteMillis(), getDownloadMillis(), getParseMillis(),
+                              getTotalMillis(), size );
+    }
+
+    @Override
+    public String toString() {
+        return String.format( Locale.ROOT,
+                              "%s %s -> %d: total %.1f ms (dns %.1f, connect %.1f, tls %.1f, ttfb %.1f, download %.1f), parse %.1f ms, %d bytes",
+                              method, url, statusCode, getTotalMillis(), getDnsMillis(), getConnectMillis(),
+                              getTlsMillis(), getTimeToFirstByteMillis(), getDownloadMillis(), getParseMillis(),
+                              size );
+    }
+
+    private static double toMillis( long nanos ) {
+        return nanos / 1000000d;
+    }
+
+}
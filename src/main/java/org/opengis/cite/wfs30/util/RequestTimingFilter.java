@@ -0,0 +1,158 @@
+package org.opengis.cite.wfs30.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.BiConsumer;
+
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+/**
+ * Times the requests sent with a RestAssured request specification. The phases executed by the HTTP client are added
+ * by the instrumented {@link PooledHttpClient}. The body of the response is not buffered by the filter: the bytes are
+ * counted while the body is read by the consumer of the response (e.g. the response logging filter), the request is
+ * completed as soon as the body is read completely or its stream is closed. Responses without body (HEAD requests, 204
+ * and 304) are completed immediately.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class RequestTimingFilter implements Filter {
+
+    private final RequestMetrics requestMetrics;
+
+    private final BiConsumer<RequestTiming, Response> listener;
+
+    /**
+     * @param requestMetrics
+     *            the registry to record the timings in, may be <code>null</code>
+     * @param listener
+     *            notified about each completed timing and the response (<code>null</code> if the request failed), never
+     *            <code>null</code>
+     */
+    public RequestTimingFilter( RequestMetrics requestMetrics, BiConsumer<RequestTiming, Response> listener ) {
+        this.requestMetrics = requestMetrics;
+        this.listener = listener;
+    }
+
+    @Override
+    public Response filter( FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec,
+                            FilterContext ctx ) {
+        RequestTiming timing = new RequestTiming( requestSpec.getMethod(), requestSpec.getURI() );
+        RequestTiming previous = RequestTiming.current();
+        RequestTiming.setCurrent( timing );
+        long start = System.nanoTime();
+        try {
+            Response response = ctx.next( requestSpec, responseSpec );
+            if ( hasNoBody( requestSpec, response ) ) {
+                timing.complete( response.getStatusCode(), 0, start, System.nanoTime() );
+                record( timing, response );
+                return response;
+            }
+            TimedBody body = new TimedBody( response.asInputStream(), timing, start );
+            Response timedResponse = new ResponseBuilder().clone( response ).setBody( body ).build();
+            body.response = timedResponse;
+            return timedResponse;
+        } catch ( RuntimeException e ) {
+            timing.complete( 0, 0, start, System.nanoTime() );
+            record( timing, null );
+            throw e;
+        } finally {
+            RequestTiming.setCurrent( previous );
+        }
+    }
+
+    private void record( RequestTiming timing, Response response ) {
+        if ( requestMetrics != null )
+            requestMetrics.record( timing );
+        listener.accept( timing, response );
+    }
+
+    private static boolean hasNoBody( FilterableRequestSpecification requestSpec, Response response ) {
+        int statusCode = response.getStatusCode();
+        return "HEAD".equalsIgnoreCase( requestSpec.getMethod() ) || statusCode == 204 || statusCode == 304
+               || "0".equals( response.getHeader( "Content-Length" ) );
+    }
+
+    /**
+     * Counts the bytes of the body and completes the timing once, when the end of the body is reached or the stream is
+     * closed.
+     */
+    private class TimedBody extends FilterInputStream {
+
+        private final RequestTiming timing;
+
+        private final long start;
+
+        private Response response;
+
+        private long numberOfBytes;
+
+        private boolean completed;
+
+        private TimedBody( InputStream in, RequestTiming timing, long start ) {
+            super( in );
+            this.timing = timing;
+            this.start = start;
+        }
+
+        @Override
+        public int read()
+                                throws IOException {
+            int read = super.read();
+            if ( read >= 0 )
+                numberOfBytes++;
+            else
+                complete();
+            return read;
+        }
+
+        @Override
+        public int read( byte[] b, int off, int len )
+                                throws IOException {
+            int read = super.read( b, off, len );
+            if ( read > 0 )
+                numberOfBytes += read;
+            else if ( read < 0 )
+                complete();
+            return read;
+        }
+
+        @Override
+        public long skip( long n )
+                                throws IOException {
+            long skipped = super.skip( n );
+            numberOfBytes += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close()
+                                throws IOException {
+            try {
+                super.close();
+            } finally {
+                complete();
+            }
+        }
+
+        private void complete() {
+            if ( completed )
+                return;
+            completed = true;
+            timing.complete( response.getStatusCode(), numberOfBytes, start, System.nanoTime() );
+            record( timing, response );
+        }
+
+    }
+
+}
@@ -0,0 +1,398 @@
+package org.opengis.cite.wfs30.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Persistent cache of resources retrieved by previous test runs, keyed by uri. For each resource the validators
+ * (ETag and Last-Modified), the body and the validations passed by the resource are stored in a directory, so the next
+ * run can issue conditional requests and reuse the outcome of the validations if the resource is unchanged.
+ *
+ * Passed validations are only reused if the resource was revalidated in the current run (status code 304) and the
+ * validations were recorded by the same version of the test suite. Instances are thread-safe.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class RunCache {
+
+    private static final String ENTRY_SUFFIX = ".properties";
+
+    private static final String BODY_SUFFIX = ".body";
+
+    private static final String KEY = "key";
+
+    private static final String VERSION = "version";
+
+    private static final String ETAG = "etag";
+
+    private static final String LAST_MODIFIED = "lastModified";
+
+    private static final String CONTENT_TYPE = "contentType";
+
+    private static final String PASSED_VALIDATIONS = "passedValidations";
+
+    private final File directory;
+
+    private final String version;
+
+    private final Map<String, CachedResource> resources = new ConcurrentHashMap<>();
+
+    private final Set<String> unchangedKeys = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger noOfUnchanged = new AtomicInteger();
+
+    private final AtomicInteger noOfChanged = new AtomicInteger();
+
+    private final AtomicInteger noOfReusedValidations = new AtomicInteger();
+
+    /**
+     * Opens the cache in the passed directory, the resources stored by previous runs are loaded.
+     *
+     * @param directory
+     *            the directory of the cache, created if missing, never <code>null</code>
+     * @param version
+     *            the version of the test suite, validations recorded by other versions are not reused, never
+     *            <code>null</code>
+     * @throws IOException
+     *             if the directory could not be created or read
+     */
+    public RunCache( File directory, String version ) throws IOException {
+        this.directory = directory;
+        this.version = version;
+        Files.createDirectories( directory.toPath() );
+        File[] entryFiles = directory.listFiles( ( dir, name ) -> name.endsWith( ENTRY_SUFFIX ) );
+        if ( entryFiles != null )
+            for ( File entryFile : entryFiles )
+                load( entryFile );
+    }
+
+    /**
+     * @param key
+     *            the uri of the resource, never <code>null</code>
+     * @return the resource stored by a previous run (or the current run), <code>null</code> if the resource is not
+     *         cached
+     */
+    public CachedResource get( String key ) {
+        CachedResource resource = resources.get( key );
+        if ( resource == null || !bodyFile( key ).isFile() )
+            return null;
+        return resource;
+    }
+
+    /**
+     * @param key
+     *            the uri of the resource, never <code>null</code>
+     * @return the stored body of the resource, never <code>null</code>
+     * @throws IOException
+     *             if the body could not be read
+     */
+    public byte[] readBody( String key )
+                            throws IOException {
+        return Files.readAllBytes( bodyFile( key ).toPath() );
+    }
+
+    /**
+     * Copies the stored body of the resource into the passed file.
+     *
+     * @param key
+     *            the uri of the resource, never <code>null</code>
+     * @param target
+     *            the file to copy the body to, overwritten if it exists, never <code>null</code>
+     * @throws IOException
+     *             if the body could not be copied
+     */
+    public void copyBody( String key, File target )
+                            throws IOException {
+        Files.copy( bodyFile( key ).toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING );
+    }
+
+    /**
+     * Stores a resource retrieved in the current run, the validations passed by a previous version of the resource are
+     * discarded.
+     *
+     * @param key
+     *            the uri of the resource, never <code>null</code>
+     * @param etag
+     *            the ETag of the resource, may be <code>null</code>
+     * @param lastModified
+     *            the Last-Modified header of the resource, may be <code>null</code>
+     * @param contentType
+     *            the content type of the resource, may be <code>null</code>
+     * @param body
+     *            the body of the resource, never <code>null</code>
+     */
+    public void store( String key, String etag, String lastModified, String contentType, byte[] body ) {
+        store( key, etag, lastModified, contentType, tmpFile -> Files.write( tmpFile.toPath(), body ) );
+    }
+
+    /**
+     * Stores a resource retrieved in the current run like {@link #store(String, String, String, String, byte[])}, the
+     * body is copied from the passed file.
+     *
+     * @param key
+     *            the uri of the resource, never <code>null</code>
+     * @param etag
+     *            the ETag of the resource, may be <code>null</code>
+     * @param lastModified
+     *            the Last-Modified header of the resource, may be <code>null</code>
+     * @param contentType
+     *            the content type of the resource, may be <code>null</code>
+     * @param body
+     *            the file containing the body of the resource, never <code>null</code>
+     */
+    public void store( String key, String etag, String lastModified, String contentType, File body ) {
+        store( key, etag, lastModified, contentType,
+               tmpFile -> Files.copy( body.toPath(), tmpFile.toPath(), StandardCopyOption.REPLACE_EXISTING ) );
+    }
+
+    private void store( String key, String etag, String lastModified, String contentType, BodyWriter bodyWriter ) {
+        noOfChanged.incrementAndGet();
+        unchangedKeys.remove( key );
+        CachedResource resource = new CachedResource( key, version, etag, lastModified, contentType,
+                                                      Collections.emptySet() );
+        synchronized ( this ) {
+            try {
+                File bodyFile = bodyFile( key );
+                File tmpFile = new File( directory, bodyFile.getName() + ".tmp" );
+                bodyWriter.write( tmpFile );
+                Files.move( tmpFile.toPath(), bodyFile.toPath(), StandardCopyOption.REPLACE_EXISTING );
+                write( resource );
+                resources.put( key, resource );
+            } catch ( IOException e ) {
+                TestSuiteLogger.log( Level.WARNING, "Could not store " + key + " in the run cache " + directory, e );
+            }
+        }
+    }
+
+    /**
+     * Marks the resource as unchanged since the previous run, i.e. revalidated with a conditional request.
+     *
+     * @param key
+     *            the uri of the resource, never <code>null</code>
+     */
+    public void markUnchanged( String key ) {
+        noOfUnchanged.incrementAndGet();
+        unchangedKeys.add( key );
+    }
+
+    /**
+     * @param key
+     *            the uri of the resource, never <code>null</code>
+     * @return <code>true</code> if the resource was revalidated as unchanged in the current run
+     */
+    public boolean isUnchanged( String key ) {
+        return unchangedKeys.contains( key );
+    }
+
+    /**
+     * @param key
+     *            the uri of the resource, never <code>null</code>
+     * @param validation
+     *            the name of the validation, never <code>null</code>
+     * @return <code>true</code> if the resource is unchanged and passed the validation in a previous run, the validation
+     *         is counted as skipped
+     */
+    public boolean reusePassedValidation( String key, String validation ) {
+        CachedResource resource = resources.get( key );
+        boolean reusable = isUnchanged( key ) && resource != null && version.equals( resource.version )
+                           && resource.passedValidations.contains( validation );
+        if ( reusable )
+            noOfReusedValidations.incrementAndGet();
+        return reusable;
+    }
+
+    /**
+     * Records that the current version of the resource passed the validation.
+     *
+     * @param key
+     *            the uri of the resource, never <code>null</code>
+     * @param validation
+     *            the name of the validation, never <code>null</code>
+     */
+    public void recordPassedValidation( String key, String validation ) {
+        synchronized ( this ) {
+            CachedResource resource = resources.get( key );
+            if ( resource == null || resource.passedValidations.contains( validation ) )
+                return;
+            Set<String> passedValidations = new LinkedHashSet<>( resource.passedValidations );
+            passedValidations.add( validation );
+            CachedResource updated = new CachedResource( key, version, resource.etag, resource.lastModified,
+                                                         resource.contentType, passedValidations );
+            try {
+                write( updated );
+                resources.put( key, updated );
+            } catch ( IOException e ) {
+                TestSuiteLogger.log( Level.WARNING, "Could not update " + key + " in the run cache " + directory, e );
+            }
+        }
+    }
+
+    /**
+     * @return the directory of the cache, never <code>null</code>
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the number of resources revalidated as unchanged in the current run
+     */
+    public int getNoOfUnchanged() {
+        return noOfUnchanged.get();
+    }
+
+    /**
+     * @return the number of resources retrieved (again) in the current run
+     */
+    public int getNoOfChanged() {
+        return noOfChanged.get();
+    }
+
+    /**
+     * @return the number of validations skipped in the current run as the outcome of a previous run was reused
+     */
+    public int getNoOfReusedValidations() {
+        return noOfReusedValidations.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format( Locale.ROOT,
+                              "%s: %d cached resources, %d unchanged, %d retrieved, %d validations skipped", directory,
+                              resources.size(), getNoOfUnchanged(), getNoOfChanged(), getNoOfReusedValidations() );
+    }
+
+    private void load( File entryFile ) {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream( entryFile.toPath() )) {
+            properties.load( in );
+        } catch ( IOException e ) {
+            TestSuiteLogger.log( Level.WARNING, "Could not read entry " + entryFile + " of the run cache", e );
+            return;
+        }
+        String key = properties.getProperty( KEY );
+        if ( key == null )
+            return;
+        Set<String> passedValidations = new LinkedHashSet<>();
+        String passed = properties.getProperty( PASSED_VALIDATIONS, "" );
+        for ( String validation : passed.split( "," ) )
+            if ( !validation.isEmpty() )
+                passedValidations.add( validation );
+        resources.put( key, new CachedResource( key, properties.getProperty( VERSION, "" ),
+                                                properties.getProperty( ETAG ),
+                                                properties.getProperty( LAST_MODIFIED ),
+                                                properties.getProperty( CONTENT_TYPE ), passedValidations ) );
+    }
+
+    private void write( CachedResource resource )
+                            throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty( KEY, resource.key );
+        properties.setProperty( VERSION, resource.version );
+        if ( resource.etag != null )
+            properties.setProperty( ETAG, resource.etag );
+        if ( resource.lastModified != null )
+            properties.setProperty( LAST_MODIFIED, resource.lastModified );
+        if ( resource.contentType != null )
+            properties.setProperty( CONTENT_TYPE, resource.contentType );
+        properties.setProperty( PASSED_VALIDATIONS, String.join( ",", resource.passedValidations ) );
+        try (OutputStream out = Files.newOutputStream( entryFile( resource.key ).toPath() )) {
+            properties.store( out, null );
+        }
+    }
+
+    private File entryFile( String key ) {
+        return new File( directory, fileName( key ) + ENTRY_SUFFIX );
+    }
+
+    private File bodyFile( String key ) {
+        return new File( directory, fileName( key ) + BODY_SUFFIX );
+    }
+
+    private static String fileName( String key ) {
+        try {
+            byte[] digest = MessageDigest.getInstance( "SHA-256" ).digest( key.getBytes( StandardCharsets.UTF_8 ) );
+            StringBuilder fileName = new StringBuilder();
+            for ( byte b : digest )
+                fileName.append( String.format( "%02x", b ) );
+            return fileName.toString();
+        } catch ( NoSuchAlgorithmException e ) {
+            throw new IllegalStateException( "SHA-256 is not supported", e );
+        }
+    }
+
+    @FunctionalInterface
+    private interface BodyWriter {
+
+        void write( File file )
+                                throws IOException;
+
+    }
+
+    /**
+     * A resource stored in the cache.
+     */
+    public static class CachedResource {
+
+        private final String key;
+
+        private final String version;
+
+        private final String etag;
+
+        private final String lastModified;
+
+        private final String contentType;
+
+        private final Set<String> passedValidations;
+
+        private CachedResource( String key, String version, String etag, String lastModified, String contentType,
+                                Set<String> passedValidations ) {
+            this.key = key;
+            this.version = version;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+            this.passedValidations = Collections.unmodifiableSet( passedValidations );
+        }
+
+        /**
+         * @return the ETag of the resource, <code>null</code> if the service did not return an ETag
+         */
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * @return the Last-Modified header of the resource, <code>null</code> if the service did not return the header
+         */
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * @return the content type of the resource, may be <code>null</code>
+         */
+        public String getContentType() {
+            return contentType;
+        }
+
+    }
+
+}
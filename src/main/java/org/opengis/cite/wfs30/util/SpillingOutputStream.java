@@ -0,0 +1,163 @@
+package org.opengis.cite.wfs30.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+
+/**
+ * Captures written bytes in memory up to a threshold, if the threshold is exceeded the content is moved to a temporary
+ * file. The text is only created when {@link #toString()} is invoked: if the content is larger than the head and tail
+ * size, only the head and the tail are returned, read from the memory-mapped file.
+ *
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class SpillingOutputStream extends OutputStream {
+
+    private final int threshold;
+
+    private final int excerptSize;
+
+    private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+
+    private File spillFile;
+
+    private OutputStream spillStream;
+
+    private long size;
+
+    private boolean closed;
+
+    /**
+     * @param threshold
+     *            the maximum number of bytes kept in memory
+     * @param excerptSize
+     *            the number of bytes of the head and of the tail returned by {@link #toString()} if the content is
+     *            larger than both together
+     */
+    public SpillingOutputStream( int threshold, int excerptSize ) {
+        this.threshold = threshold;
+        this.excerptSize = excerptSize;
+    }
+
+    @Override
+    public synchronized void write( int b )
+                            throws IOException {
+        ensureCapacity( 1 );
+        target().write( b );
+        size++;
+    }
+
+    @Override
+    public synchronized void write( byte[] b, int off, int len )
+                            throws IOException {
+        ensureCapacity( len );
+        target().write( b, off, len );
+        size += len;
+    }
+
+    @Override
+    public synchronized void flush()
+                            throws IOException {
+        if ( spillStream != null )
+            spillStream.flush();
+    }
+
+    /**
+     * Closes the stream and deletes the temporary file, if one was created.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        memory = null;
+        if ( spillStream != null ) {
+            try {
+                spillStream.close();
+            } catch ( IOException e ) {
+                TestSuiteLogger.log( Level.FINE, "Could not close " + spillFile, e );
+            }
+            spillStream = null;
+        }
+        if ( spillFile != null ) {
+            spillFile.delete();
+            spillFile = null;
+        }
+    }
+
+    /**
+     * @return the number of bytes written
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * @return <code>true</code> if the content was moved to a temporary file, <code>false</code> otherwise
+     */
+    public synchronized boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    /**
+     * @return the content as UTF-8 text, if the content is larger than head and tail together the bytes between are
+     *         omitted, never <code>null</code>
+     */
+    @Override
+    public synchronized String toString() {
+        if ( closed )
+            return "";
+        if ( spillFile == null )
+            return new String( memory.toByteArray(), StandardCharsets.UTF_8 );
+        try {
+            spillStream.flush();
+            return readExcerpt();
+        } catch ( IOException e ) {
+            return "Could not read captured content from " + spillFile + ": " + e.getMessage();
+        }
+    }
+
+    private OutputStream target() {
+        return spillStream != null ? spillStream : memory;
+    }
+
+    private void ensureCapacity( int len )
+                            throws IOException {
+        if ( closed )
+            throw new IOException( "Stream is closed" );
+        if ( spillStream == null && memory.size() + (long) len > threshold ) {
+            spillFile = File.createTempFile( "wfs30-capture", ".txt" );
+            spillFile.deleteOnExit();
+            spillStream = new BufferedOutputStream( new FileOutputStream( spillFile ) );
+            memory.writeTo( spillStream );
+            memory = null;
+        }
+    }
+
+    private String readExcerpt()
+                            throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile( spillFile, "r" );
+                        FileChannel channel = file.getChannel()) {
+            if ( size <= 2L * excerptSize )
+                return read( channel, 0, (int) size );
+            long omitted = size - 2L * excerptSize;
+            return read( channel, 0, excerptSize ) + "\n[... " + omitted + " bytes omitted ...]\n"
+                   + read( channel, size - excerptSize, excerptSize );
+        }
+    }
+
+    private static String read( FileChannel channel, long position, int length )
+                            throws IOException {
+        MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY, position, length );
+        byte[] content = new byte[length];
+        buffer.get( content );
+        return new String( content, StandardCharsets.UTF_8 );
+    }
+
+}
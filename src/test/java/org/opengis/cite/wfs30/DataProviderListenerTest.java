@@ -0,0 +1,61 @@
+package org.opengis.cite.wfs30;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+import org.testng.ISuite;
+import org.testng.annotations.IDataProviderAnnotation;
+
+/**
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class DataProviderListenerTest {
+
+    @Test
+    public void testTransform_oneThread() {
+        DataProviderListener listener = new DataProviderListener();
+        listener.onStart( mockSuite( 1 ) );
+        IDataProviderAnnotation annotation = mockParallelDataProvider();
+
+        listener.transform( annotation, null );
+
+        verify( annotation ).setParallel( false );
+    }
+
+    @Test
+    public void testTransform_multipleThreads() {
+        DataProviderListener listener = new DataProviderListener();
+        listener.onStart( mockSuite( 4 ) );
+        IDataProviderAnnotation annotation = mockParallelDataProvider();
+
+        listener.transform( annotation, null );
+
+        verify( annotation, never() ).setParallel( false );
+    }
+
+    @Test
+    public void testTransform_suiteNotStarted() {
+        DataProviderListener listener = new DataProviderListener();
+        IDataProviderAnnotation annotation = mockParallelDataProvider();
+
+        listener.transform( annotation, null );
+
+        verify( annotation, never() ).setParallel( false );
+    }
+
+    private ISuite mockSuite( int noOfThreads ) {
+        ISuite suite = mock( ISuite.class );
+        when( suite.getAttribute( SuiteAttribute.NO_OF_THREADS.getName() ) ).thenReturn( noOfThreads );
+        return suite;
+    }
+
+    private IDataProviderAnnotation mockParallelDataProvider() {
+        IDataProviderAnnotation annotation = mock( IDataProviderAnnotation.class );
+        when( annotation.isParallel() ).thenReturn( true );
+        return annotation;
+    }
+
+}
@@ -1,5 +1,7 @@
 package org.opengis.cite.wfs30;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.mock;
@@ -14,8 +16,11 @@ import java.util.Map;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.opengis.cite.wfs30.performance.EndpointPerformance;
+import org.opengis.cite.wfs30.performance.LoadGeneration;
 import org.testng.ISuite;
 import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
 
 public class SuiteFixtureListenerTest {
 
@@ -38,6 +43,61 @@ public class SuiteFixtureListenerTest {
         iut.onStart( suite );
     }
 
+    @Test
+    public void addPerformanceTests_notConfigured() {
+        XmlSuite xmlSuite = new XmlSuite();
+        xmlSuite.setParameters( new HashMap<>() );
+
+        new SuiteFixtureListener().addPerformanceTests( xmlSuite );
+
+        assertThat( xmlSuite.getTests().isEmpty(), is( true ) );
+    }
+
+    @Test
+    public void addPerformanceTests_profiling() {
+        Map<String, String> params = new HashMap<>();
+        params.put( TestRunArg.PERFORMANCEPROFILING.toString(), "true" );
+        XmlSuite xmlSuite = new XmlSuite();
+        xmlSuite.setParameters( params );
+
+        new SuiteFixtureListener().addPerformanceTests( xmlSuite );
+
+        assertThat( xmlSuite.getTests().size(), is( 1 ) );
+        XmlTest performanceTest = xmlSuite.getTests().get( 0 );
+        assertThat( performanceTest.getName(), is( SuiteFixtureListener.PERFORMANCE_TEST_NAME ) );
+        assertThat( performanceTest.getXmlClasses().size(), is( 1 ) );
+        assertThat( performanceTest.getXmlClasses().get( 0 ).getName(), is( EndpointPerformance.class.getName() ) );
+    }
+
+    @Test
+    public void addPerformanceTests_profilingAndLoad() {
+        Map<String, String> params = new HashMap<>();
+        params.put( TestRunArg.PERFORMANCEPROFILING.toString(), "true" );
+        params.put( TestRunArg.LOADVIRTUALUSERS.toString(), "4" );
+        XmlSuite xmlSuite = new XmlSuite();
+        xmlSuite.setParameters( params );
+
+        new SuiteFixtureListener().addPerformanceTests( xmlSuite );
+
+        assertThat( xmlSuite.getTests().size(), is( 1 ) );
+        assertThat( xmlSuite.getTests().get( 0 ).getXmlClasses().size(), is( 2 ) );
+        assertThat( xmlSuite.getTests().get( 0 ).getXmlClasses().get( 1 ).getName(),
+                    is( LoadGeneration.class.getName() ) );
+    }
+
+    @Test
+    public void apiModelCacheVersion() {
+        ISuite releaseSuite = mock( ISuite.class );
+        when( releaseSuite.getName() ).thenReturn( "wfs30-1.0" );
+        ISuite snapshotSuite = mock( ISuite.class );
+        when( snapshotSuite.getName() ).thenReturn( "wfs30-1.1-SNAPSHOT" );
+
+        SuiteFixtureListener listener = new SuiteFixtureListener();
+
+        assertThat( listener.apiModelCacheVersion( releaseSuite ), is( "wfs30-1.0" ) );
+        assertThat( listener.apiModelCacheVersion( snapshotSuite ).startsWith( "wfs30-1.1-SNAPSHOT-" ), is( true ) );
+    }
+
     @Test
     public void processIUTParameter()
                             throws URISyntaxException {
@@ -37,7 +37,7 @@ public class LandingPageIT {
     public void testLandingPage() {
         LandingPage landingPage = new LandingPage();
         landingPage.initCommonFixture( testContext );
-        landingPage.landingPageRetrieval();
+        landingPage.landingPageRetrieval( testContext );
         landingPage.landingPageValidation();
     }
 
@@ -36,9 +36,9 @@ public class OpenApiIT {
                             throws Exception {
         OpenApi openApi = new OpenApi();
         openApi.initCommonFixture( testContext );
-        openApi.retrieveApiUrl();
-        openApi.openapiDocumentRetrieval();
+        openApi.openapiDocumentRetrieval( testContext );
         openApi.apiDefinitionValidation( testContext );
+        openApi.deleteApiDocument();
     }
 
 }
@@ -5,13 +5,17 @@ import static net.jadler.Jadler.initJadlerListeningOn;
 import static net.jadler.Jadler.onRequest;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.endsWith;
+import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -133,6 +137,37 @@ public class GetFeaturesOperationTest {
          */
     }
 
+    @Test
+    public void testCollectionItemUrisWithTimes_durationIsHalfOpen() {
+        GetFeaturesOperation getFeaturesOperation = new GetFeaturesOperation();
+        getFeaturesOperation.initCommonFixture( testContext );
+        getFeaturesOperation.retrieveRequiredInformationFromTestContext( testContext );
+
+        int noOfDurations = 0;
+        Iterator<Object[]> collectionsWithTimes = getFeaturesOperation.collectionItemUrisWithTimes( testContext );
+        while ( collectionsWithTimes.hasNext() ) {
+            Object[] collectionWithTime = collectionsWithTimes.next();
+            String queryParameter = (String) collectionWithTime[1];
+            if ( !queryParameter.endsWith( "/P2D" ) )
+                continue;
+            noOfDurations++;
+            LocalDate begin = (LocalDate) collectionWithTime[2];
+            long endOfPeriod = begin.plusDays( 2 ).atStartOfDay( ZoneOffset.UTC ).toInstant().toEpochMilli() - 1;
+            assertThat( GetFeaturesOperation.toBeginEpochMillis( begin ),
+                        is( begin.atStartOfDay( ZoneOffset.UTC ).toInstant().toEpochMilli() ) );
+            assertThat( GetFeaturesOperation.toEndEpochMillis( collectionWithTime[3] ), is( endOfPeriod ) );
+        }
+        assertThat( noOfDurations > 0, is( true ) );
+    }
+
+    @Test
+    public void testToEndEpochMillis_dateCoversWholeDay() {
+        LocalDate date = LocalDate.of( 2018, 5, 18 );
+        long endOfDay = date.plusDays( 1 ).atStartOfDay( ZoneOffset.UTC ).toInstant().toEpochMilli() - 1;
+
+        assertThat( GetFeaturesOperation.toEndEpochMillis( date ), is( endOfDay ) );
+    }
+
     private void prepareJadler() {
         InputStream flurstueckItems = getClass().getResourceAsStream( "collectionItems-flurstueck.json" );
         onRequest().havingPath( endsWith( "collections/flurstueck/items" ) ).havingParameter( "limit", nullValue() ).respond().withBody( flurstueckItems );
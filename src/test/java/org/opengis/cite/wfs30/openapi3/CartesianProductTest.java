@@ -0,0 +1,85 @@
+package org.opengis.cite.wfs30.openapi3;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class CartesianProductTest {
+
+    @Test
+    public void testNext() {
+        Map<String, List<String>> variables = new LinkedHashMap<>();
+        variables.put( "host", asList( "a", "b" ) );
+        variables.put( "collectionId", asList( "lakes", "rivers", "roads" ) );
+        variables.put( "f", Collections.singletonList( "json" ) );
+
+        List<Map<String, String>> combinations = collect( new CartesianProduct( variables ) );
+
+        assertThat( combinations.size(), is( 6 ) );
+        assertThat( combinations.get( 0 ).get( "host" ), is( "a" ) );
+        assertThat( combinations.get( 0 ).get( "collectionId" ), is( "lakes" ) );
+        assertThat( combinations.get( 0 ).get( "f" ), is( "json" ) );
+        assertThat( combinations.get( 1 ).get( "collectionId" ), is( "rivers" ) );
+        assertThat( combinations.get( 3 ).get( "host" ), is( "b" ) );
+        assertThat( combinations.get( 5 ).get( "collectionId" ), is( "roads" ) );
+    }
+
+    @Test
+    public void testNext_withoutVariables() {
+        List<Map<String, String>> combinations = collect( new CartesianProduct( Collections.emptyMap() ) );
+
+        assertThat( combinations.size(), is( 1 ) );
+        assertThat( combinations.get( 0 ).isEmpty(), is( true ) );
+    }
+
+    @Test
+    public void testNext_variableWithoutValues() {
+        Map<String, List<String>> variables = new LinkedHashMap<>();
+        variables.put( "host", asList( "a", "b" ) );
+        variables.put( "collectionId", Collections.emptyList() );
+
+        List<Map<String, String>> combinations = collect( new CartesianProduct( variables ) );
+
+        assertThat( combinations.size(), is( 2 ) );
+        assertThat( combinations.get( 0 ).get( "host" ), is( "a" ) );
+        assertThat( combinations.get( 0 ).containsKey( "collectionId" ), is( false ) );
+        assertThat( combinations.get( 1 ).get( "host" ), is( "b" ) );
+    }
+
+    @Test
+    public void testNext_manyCombinations() {
+        Map<String, List<String>> variables = new LinkedHashMap<>();
+        for ( int i = 0; i < 20; i++ )
+            variables.put( "variable" + i, asList( "0", "1" ) );
+
+        CartesianProduct product = new CartesianProduct( variables );
+        long noOfCombinations = 0;
+        Map<String, String> last = null;
+        while ( product.hasNext() ) {
+            last = product.next();
+            noOfCombinations++;
+        }
+
+        assertThat( noOfCombinations, is( 1L << 20 ) );
+        assertThat( last.get( "variable0" ), is( "1" ) );
+        assertThat( last.get( "variable19" ), is( "1" ) );
+    }
+
+    private List<Map<String, String>> collect( CartesianProduct product ) {
+        List<Map<String, String>> combinations = new ArrayList<>();
+        product.forEachRemaining( combinations::add );
+        return combinations;
+    }
+
+}
@@ -0,0 +1,65 @@
+package org.opengis.cite.wfs30.openapi3;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.net.URL;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.reprezen.kaizen.oasparser.OpenApi3Parser;
+import com.reprezen.kaizen.oasparser.model3.OpenApi3;
+import com.reprezen.kaizen.oasparser.model3.Parameter;
+
+/**
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class OpenApiModelCacheTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testStoreAndLoad()
+                            throws Exception {
+        URL documentUrl = OpenApiModelCacheTest.class.getResource( "openapi.json" );
+        File document = new File( documentUrl.toURI() );
+        OpenApi3 apiModel = new OpenApi3Parser().parse( document, true );
+        File directory = tempFolder.newFolder( "openapi" );
+
+        OpenApiModelCache modelCache = new OpenApiModelCache( directory, "wfs30-1.0" );
+        assertThat( modelCache.load( document, documentUrl ), is( nullValue() ) );
+        modelCache.store( document, apiModel );
+
+        OpenApi3 cachedModel = new OpenApiModelCache( directory, "wfs30-1.0" ).load( document, documentUrl );
+        assertThat( cachedModel, is( notNullValue() ) );
+        assertThat( cachedModel.getPaths().keySet(), is( apiModel.getPaths().keySet() ) );
+
+        TestPointCache testPointCache = new TestPointCache( new OpenApiPathIndex( cachedModel ) );
+        TestPoint testPoint = testPointCache.findFirstTestPointForCollection( "flurstueck" );
+        assertThat( testPoint, is( notNullValue() ) );
+        assertThat( testPoint.getContentMediaTypes().keySet(),
+                    is( new TestPointCache( new OpenApiPathIndex( apiModel ) ).findFirstTestPointForCollection( "flurstueck" ).getContentMediaTypes().keySet() ) );
+        Parameter limit = testPointCache.findParameterByName( testPoint, "limit" );
+        assertThat( limit.getIn(), is( "query" ) );
+        assertThat( limit.getSchema().getType(), is( "integer" ) );
+    }
+
+    @Test
+    public void testLoad_otherVersion()
+                            throws Exception {
+        URL documentUrl = OpenApiModelCacheTest.class.getResource( "openapi.json" );
+        File document = new File( documentUrl.toURI() );
+        OpenApi3 apiModel = new OpenApi3Parser().parse( document, true );
+        File directory = tempFolder.newFolder( "openapi" );
+        new OpenApiModelCache( directory, "wfs30-1.0" ).store( document, apiModel );
+
+        assertThat( new OpenApiModelCache( directory, "wfs30-1.1" ).load( document, documentUrl ), is( nullValue() ) );
+    }
+
+}
@@ -0,0 +1,77 @@
+package org.opengis.cite.wfs30.openapi3;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.reprezen.kaizen.oasparser.OpenApi3Parser;
+import com.reprezen.kaizen.oasparser.model3.OpenApi3;
+import com.reprezen.kaizen.oasparser.model3.Path;
+
+/**
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class OpenApiPathIndexTest {
+
+    @Test
+    public void testFindPaths() {
+        OpenApiPathIndex pathIndex = new OpenApiPathIndex( parse( "openapi.json" ) );
+
+        assertThat( pathStrings( pathIndex.findPaths( "/collections" ) ).size(), is( 1 ) );
+        assertThat( pathStrings( pathIndex.findPaths( "/collections/flurstueck/items" ) ).get( 0 ),
+                    is( "/collections/flurstueck/items" ) );
+        assertThat( pathStrings( pathIndex.findPaths( "/collections/flurstueck/items/abc" ) ).get( 0 ),
+                    is( "/collections/flurstueck/items/{featureId}" ) );
+        assertThat( pathIndex.findPaths( "/collections/unknown/items" ).isEmpty(), is( true ) );
+        assertThat( pathIndex.findPaths( "/collections/flurstueck/items/" ).isEmpty(), is( true ) );
+    }
+
+    @Test
+    public void testFindPaths_compactAPI() {
+        OpenApiPathIndex pathIndex = new OpenApiPathIndex( parse( "openapi_compact-api.json" ) );
+
+        List<String> paths = pathStrings( pathIndex.findPaths( "/collections/test__countries/items" ) );
+
+        assertThat( paths.size(), is( 1 ) );
+        assertThat( paths.get( 0 ), is( "/collections/{collectionId}/items" ) );
+    }
+
+    @Test
+    public void testFindCollectionItemsPaths() {
+        OpenApiPathIndex pathIndex = new OpenApiPathIndex( parse( "openapi.json" ) );
+
+        List<String> paths = pathStrings( pathIndex.findCollectionItemsPaths() );
+
+        assertThat( paths.size(), is( 3 ) );
+        assertThat( paths.get( 0 ), is( "/collections/flurstueck/items" ) );
+    }
+
+    @Test
+    public void testMatchesExactly() {
+        OpenApiPathIndex pathIndex = new OpenApiPathIndex( parse( "openapi_compact-api.json" ) );
+
+        TestPoint testPoint = new TestPoint( "http://localhost:8090", "/collections/{collectionId}/items",
+                                             Collections.singletonMap( "collectionId", "lakes" ),
+                                             Collections.emptyMap() );
+
+        assertThat( pathIndex.matchesExactly( testPoint, "/collections/lakes/items" ), is( true ) );
+        assertThat( pathIndex.matchesExactly( testPoint, "/collections/rivers/items" ), is( false ) );
+    }
+
+    private OpenApi3 parse( String resource ) {
+        OpenApi3Parser parser = new OpenApi3Parser();
+        URL openAppiDocument = OpenApiPathIndexTest.class.getResource( resource );
+        return parser.parse( openAppiDocument, true );
+    }
+
+    private List<String> pathStrings( List<Path> paths ) {
+        return paths.stream().map( Path::getPathString ).collect( Collectors.toList() );
+    }
+
+}
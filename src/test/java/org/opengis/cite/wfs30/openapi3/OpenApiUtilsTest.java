@@ -3,6 +3,7 @@ package org.opengis.cite.wfs30.openapi3;
 import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.opengis.cite.wfs30.openapi3.OpenApiUtils.isTestedPath;
 import static org.opengis.cite.wfs30.openapi3.OpenApiUtils.retrieveTestPoints;
 import static org.opengis.cite.wfs30.openapi3.OpenApiUtils.retrieveTestPointsForApi;
 import static org.opengis.cite.wfs30.openapi3.OpenApiUtils.retrieveTestPointsForCollection;
@@ -278,4 +279,51 @@ public class OpenApiUtilsTest {
         assertThat( testPoints.size(), is( 1 ) );
         assertThat( testPoints.get( 0 ).getPath(), is( "/collections/{collectionId}/items" ) );
     }
+
+    @Test
+    public void testRetrieveTestPointsForCollections_serverVariables() {
+        OpenApi3Parser parser = new OpenApi3Parser();
+
+        URL openAppiDocument = OpenApiUtilsTest.class.getResource( "openapi_serverVariables.json" );
+        OpenApi3 apiModel = parser.parse( openAppiDocument, false );
+        List<TestPoint> testPoints = retrieveTestPointsForCollections( apiModel, -1 );
+
+        assertThat( testPoints.size(), is( 6 ) );
+        assertThat( testPoints.get( 0 ).getServerUrl(), is( "https://a.example.org/wfs" ) );
+        assertThat( testPoints.get( 0 ).getPredefinedTemplateReplacement().size(), is( 1 ) );
+        assertThat( testPoints.get( 0 ).getPredefinedTemplateReplacement().get( "collectionId" ), is( "lakes" ) );
+        assertThat( testPoints.get( 2 ).getPredefinedTemplateReplacement().get( "collectionId" ), is( "roads" ) );
+        assertThat( testPoints.get( 3 ).getServerUrl(), is( "https://b.example.org/wfs" ) );
+        assertThat( testPoints.get( 3 ).getPredefinedTemplateReplacement().get( "collectionId" ), is( "lakes" ) );
+    }
+
+    @Test
+    public void testRetrieveTestPointsForCollections_serverVariableWithNameOfPathVariable() {
+        OpenApi3Parser parser = new OpenApi3Parser();
+
+        URL openAppiDocument = OpenApiUtilsTest.class.getResource( "openapi_serverAndPathVariable.json" );
+        OpenApi3 apiModel = parser.parse( openAppiDocument, false );
+        List<TestPoint> testPoints = retrieveTestPointsForCollections( apiModel, -1 );
+
+        assertThat( testPoints.size(), is( 2 ) );
+        assertThat( testPoints.get( 0 ).getServerUrl(), is( "https://example.org/all" ) );
+        assertThat( testPoints.get( 0 ).getPredefinedTemplateReplacement().get( "collectionId" ), is( "lakes" ) );
+        assertThat( testPoints.get( 1 ).getServerUrl(), is( "https://example.org/all" ) );
+        assertThat( testPoints.get( 1 ).getPredefinedTemplateReplacement().get( "collectionId" ), is( "rivers" ) );
+    }
+
+    @Test
+    public void testIsTestedPath() {
+        assertThat( isTestedPath( "/api" ), is( true ) );
+        assertThat( isTestedPath( "/conformance" ), is( true ) );
+        assertThat( isTestedPath( "/collections" ), is( true ) );
+        assertThat( isTestedPath( "/collections/{collectionId}" ), is( true ) );
+        assertThat( isTestedPath( "/collections/lakes/items" ), is( true ) );
+        assertThat( isTestedPath( "/collections/lakes/items/{featureId}" ), is( true ) );
+        assertThat( isTestedPath( "/" ), is( false ) );
+        assertThat( isTestedPath( "/processes" ), is( false ) );
+        assertThat( isTestedPath( "/collections/lakes/tiles" ), is( false ) );
+        assertThat( isTestedPath( "/collections/lakes/items/{featureId}/history" ), is( false ) );
+    }
+
 }
@@ -0,0 +1,62 @@
+package org.opengis.cite.wfs30.openapi3;
+
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.restassured.path.json.JsonPath;
+
+/**
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class SelectiveOpenApiParserTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testSelect()
+                            throws Exception {
+        File document = new File( SelectiveOpenApiParserTest.class.getResource( "openapi.json" ).toURI() );
+        SelectiveOpenApiParser parser = new SelectiveOpenApiParser();
+
+        JsonPath selectedDocument = new JsonPath( parser.select( document ) );
+
+        assertThat( parser.getNoOfPaths(), is( 13 ) );
+        assertThat( parser.getNoOfSelectedPaths(), is( 12 ) );
+        Map<String, Object> paths = selectedDocument.getMap( "paths" );
+        assertThat( paths.keySet(), not( hasItem( "/" ) ) );
+        assertThat( paths.keySet(), hasItem( "/collections/flurstueck/items/{featureId}" ) );
+
+        Map<String, Object> content = selectedDocument.getMap( "paths.'/collections/flurstueck/items'.get.responses.'200'.content" );
+        assertThat( content.keySet(), hasItem( "application/geo+json" ) );
+        assertThat( ( (Map<?, ?>) content.get( "application/geo+json" ) ).isEmpty(), is( true ) );
+        assertThat( selectedDocument.getList( "paths.'/collections/flurstueck/items'.get.parameters" ).size(), is( 13 ) );
+        assertThat( selectedDocument.get( "components.parameters.limit" ), is( notNullValue() ) );
+        assertThat( selectedDocument.getString( "servers[0].url" ), is( notNullValue() ) );
+    }
+
+    @Test
+    public void testHasExternalReferences()
+                            throws Exception {
+        File document = new File( SelectiveOpenApiParserTest.class.getResource( "openapi.json" ).toURI() );
+        assertThat( SelectiveOpenApiParser.hasExternalReferences( document ), is( false ) );
+
+        File externalReference = tempFolder.newFile( "openapi.json" );
+        Files.write( externalReference.toPath(),
+                     "{\"components\":{\"schemas\":{\"a\":{\"$ref\":\"schemas.json#/a\"}}}}".getBytes( StandardCharsets.UTF_8 ) );
+        assertThat( SelectiveOpenApiParser.hasExternalReferences( externalReference ), is( true ) );
+    }
+
+}
@@ -0,0 +1,80 @@
+package org.opengis.cite.wfs30.openapi3;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.reprezen.kaizen.oasparser.OpenApi3Parser;
+import com.reprezen.kaizen.oasparser.model3.OpenApi3;
+import com.reprezen.kaizen.oasparser.model3.Parameter;
+
+/**
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class TestPointCacheTest {
+
+    @Test
+    public void testGetTestPointsForCollection() {
+        TestPointCache testPointCache = new TestPointCache( new OpenApiPathIndex( parse( "openapi.json" ) ) );
+
+        List<TestPoint> testPoints = new ArrayList<>();
+        testPointCache.getTestPointsForCollection( "flurstueck" ).forEach( testPoints::add );
+
+        assertThat( testPoints.size(), is( 1 ) );
+        assertThat( testPoints.get( 0 ).getPath(), is( "/collections/flurstueck/items" ) );
+        assertThat( testPointCache.getTestPointsForCollection( "flurstueck" ),
+                    sameInstance( testPointCache.getTestPointsForCollection( "flurstueck" ) ) );
+    }
+
+    @Test
+    public void testGetTestPointsForCollection_exceedingCachedTestPoints() {
+        TestPointCache testPointCache = new TestPointCache( new OpenApiPathIndex( parse( "openapi.json" ) ), 0 );
+
+        List<TestPoint> testPoints = new ArrayList<>();
+        testPointCache.getTestPointsForCollection( "flurstueck" ).forEach( testPoints::add );
+
+        assertThat( testPoints.size(), is( 1 ) );
+        assertThat( testPoints.get( 0 ).getPath(), is( "/collections/flurstueck/items" ) );
+        assertThat( testPointCache.getTestPointsForCollection( "flurstueck" ),
+                    not( sameInstance( testPointCache.getTestPointsForCollection( "flurstueck" ) ) ) );
+        assertThat( testPointCache.findFirstTestPointForCollection( "flurstueck" ).getPath(),
+                    is( "/collections/flurstueck/items" ) );
+    }
+
+    @Test
+    public void testFindFirstTestPointForCollection() {
+        TestPointCache testPointCache = new TestPointCache( new OpenApiPathIndex( parse( "openapi.json" ) ) );
+
+        assertThat( testPointCache.findFirstTestPointForCollection( "flurstueck" ).getPath(),
+                    is( "/collections/flurstueck/items" ) );
+        assertThat( testPointCache.findFirstTestPointForCollection( "unknown" ), nullValue() );
+    }
+
+    @Test
+    public void testFindParameterByName() {
+        TestPointCache testPointCache = new TestPointCache( new OpenApiPathIndex( parse( "openapi.json" ) ) );
+        TestPoint testPoint = testPointCache.findFirstTestPointForCollection( "flurstueck" );
+
+        Parameter limit = testPointCache.findParameterByName( testPoint, "limit" );
+
+        assertThat( limit, notNullValue() );
+        assertThat( limit.getSchema().getMaximum().intValue(), is( 10000 ) );
+        assertThat( testPointCache.findParameterByName( testPoint, "unknown" ), nullValue() );
+    }
+
+    private OpenApi3 parse( String resource ) {
+        OpenApi3Parser parser = new OpenApi3Parser();
+        URL openAppiDocument = TestPointCacheTest.class.getResource( resource );
+        return parser.parse( openAppiDocument, true );
+    }
+
+}
@@ -0,0 +1,134 @@
+package org.opengis.cite.wfs30.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.restassured.path.json.JsonPath;
+
+/**
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class CollectionSnapshotTest {
+
+    private static final String[] PAGES = { "items_1-10.json", "items_11-20.json", "items_21-30.json",
+                                           "items_31-40.json" };
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private PageStore pageStore;
+
+    @Before
+    public void createPageStore()
+                            throws IOException {
+        pageStore = new PageStore( temporaryFolder.newFile( "pages.json" ) );
+    }
+
+    @After
+    public void closePageStore()
+                            throws IOException {
+        pageStore.close();
+    }
+
+    @Test
+    public void testWriteAndQuery()
+                            throws Exception {
+        CollectionSnapshot snapshot = writeSnapshot();
+
+        assertThat( snapshot.size(), is( 25 ) );
+        assertThat( snapshot.getEnvelopeIndex().size(), is( 25 ) );
+        assertThat( snapshot.getTemporalIndex().size(), is( 0 ) );
+        assertThat( snapshot.containsId( "unknown" ), is( false ) );
+    }
+
+    @Test
+    public void testWriteAndQuery_idsAndTimes()
+                            throws Exception {
+        CollectionSnapshot.Writer writer = CollectionSnapshot.writer( new File( temporaryFolder.getRoot(), "ids" ),
+                                                                      pageStore );
+        writer.append( ( "{\"type\":\"FeatureCollection\",\"features\":["
+                         + "{\"type\":\"Feature\",\"id\":\"a\",\"properties\":{\"date\":\"2018-02-12\"},\"geometry\":null},"
+                         + "{\"type\":\"Feature\",\"id\":1,\"properties\":{},\"geometry\":{\"type\":\"Point\",\"coordinates\":[1,2]}}]}" ).getBytes( StandardCharsets.UTF_8 ) );
+        writer.append( "{\"type\":\"FeatureCollection\",\"features\":[{\"type\":\"Feature\",\"geometry\":null}]}".getBytes( StandardCharsets.UTF_8 ) );
+        CollectionSnapshot snapshot = writer.finish();
+
+        assertThat( snapshot.size(), is( 3 ) );
+        assertThat( snapshot.containsId( "a" ), is( true ) );
+        assertThat( snapshot.containsId( "1" ), is( true ) );
+        assertThat( snapshot.getEnvelopeIndex().size(), is( 1 ) );
+        assertThat( snapshot.getTemporalIndex().size(), is( 1 ) );
+        assertThat( new JsonPath( snapshot.readFeature( 1 ) ).getInt( "id" ), is( 1 ) );
+        assertThat( snapshot.readFeature( 2 ), is( "{\"type\":\"Feature\",\"geometry\":null}" ) );
+    }
+
+    @Test
+    public void testReadFeature()
+                            throws Exception {
+        CollectionSnapshot snapshot = writeSnapshot();
+
+        JsonPath page = new JsonPath( getClass().getResource( "items_11-20.json" ) );
+        for ( int i = 0; i < 10; i++ ) {
+            JsonPath feature = new JsonPath( snapshot.readFeature( 10 + i ) );
+            assertThat( feature.getString( "properties.name" ), is( page.getString( "features[" + i
+                                                                                    + "].properties.name" ) ) );
+            assertThat( feature.getString( "type" ), is( "Feature" ) );
+        }
+    }
+
+    @Test
+    public void testDelete()
+                            throws Exception {
+        CollectionSnapshot snapshot = writeSnapshot();
+        File directory = snapshot.getDirectory();
+
+        snapshot.delete();
+
+        assertThat( directory.exists(), is( false ) );
+    }
+
+    @Test
+    public void testDiscard()
+                            throws Exception {
+        File directory = new File( temporaryFolder.getRoot(), "discarded" );
+        CollectionSnapshot.Writer writer = CollectionSnapshot.writer( directory, pageStore );
+        writer.append( readResource( PAGES[0] ) );
+
+        writer.discard();
+
+        assertThat( directory.exists(), is( false ) );
+    }
+
+    private CollectionSnapshot writeSnapshot()
+                            throws IOException {
+        CollectionSnapshot.Writer writer = CollectionSnapshot.writer( new File( temporaryFolder.getRoot(), "snapshot" ),
+                                                                      pageStore );
+        for ( String page : PAGES )
+            writer.append( readResource( page ) );
+        return writer.finish();
+    }
+
+    private byte[] readResource( String name )
+                            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = getClass().getResourceAsStream( name )) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ( ( read = in.read( buffer ) ) != -1 )
+                bytes.write( buffer, 0, read );
+        }
+        return bytes.toByteArray();
+    }
+
+}
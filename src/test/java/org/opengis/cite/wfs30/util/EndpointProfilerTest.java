@@ -0,0 +1,84 @@
+package org.opengis.cite.wfs30.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class EndpointProfilerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testProfile()
+                            throws Exception {
+        AtomicInteger noOfRequests = new AtomicInteger();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        EndpointProfiler profiler = new EndpointProfiler( 3, 20, 4 );
+
+        EndpointProfile profile = profiler.profile( "landingPage", () -> {
+            noOfRequests.incrementAndGet();
+            maxInFlight.accumulateAndGet( inFlight.incrementAndGet(), Math::max );
+            Thread.sleep( 5 );
+            inFlight.decrementAndGet();
+            return 200;
+        } );
+
+        assertThat( noOfRequests.get(), is( 23 ) );
+        assertThat( profile.getNoOfRequests(), is( 20L ) );
+        assertThat( profile.getNoOfErrors(), is( 0L ) );
+        assertThat( profile.getFirstError(), is( nullValue() ) );
+        assertTrue( maxInFlight.get() <= 4 );
+        assertTrue( profile.getLatencyMillisAtPercentile( 50 ) > 4 );
+        assertTrue( profile.getThroughput() > 0 );
+    }
+
+    @Test
+    public void testProfile_errors()
+                            throws Exception {
+        AtomicInteger noOfRequests = new AtomicInteger();
+        EndpointProfiler profiler = new EndpointProfiler( 0, 10, 1 );
+
+        EndpointProfile profile = profiler.profile( "items", () -> {
+            if ( noOfRequests.incrementAndGet() % 2 == 0 )
+                throw new IllegalStateException( "connection refused" );
+            return noOfRequests.get() == 1 ? 200 : 503;
+        } );
+
+        assertThat( profile.getNoOfRequests(), is( 10L ) );
+        assertThat( profile.getNoOfErrors(), is( 9L ) );
+        assertThat( profile.getFirstError(), is( "IllegalStateException: connection refused" ) );
+    }
+
+    @Test
+    public void testWriteHistogram()
+                            throws Exception {
+        EndpointProfile profile = new EndpointProfiler( 0, 5, 1 ).profile( "collections", () -> 200 );
+        File file = new File( temporaryFolder.getRoot(), "performance/collections.hgrm" );
+
+        profile.writeHistogram( file );
+
+        String histogram = new String( Files.readAllBytes( file.toPath() ), StandardCharsets.UTF_8 );
+        assertThat( histogram.contains( "Total count    =            5" ), is( true ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEndpointProfiler_invalidConcurrency() {
+        new EndpointProfiler( 0, 10, 0 );
+    }
+
+}
@@ -0,0 +1,97 @@
+package org.opengis.cite.wfs30.util;
+
+import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class FeatureEnvelopeIndexTest {
+
+    @Test
+    public void testFindIntersecting() {
+        FeatureEnvelopeIndex.Builder builder = FeatureEnvelopeIndex.builder();
+        builder.add( "berlin", point( 13.4, 52.5 ) );
+        builder.add( "london", point( -0.1, 51.5 ) );
+        builder.add( "quito", point( -78.5, -0.2 ) );
+        FeatureEnvelopeIndex index = builder.build();
+
+        Set<String> meridian = index.findIntersecting( new BBox( -1.5, 50.0, 1.5, 53.0 ) );
+        Set<String> equator = index.findIntersecting( new BBox( -80.0, -5.0, -70.0, 5.0 ) );
+
+        assertThat( meridian.size(), is( 1 ) );
+        assertThat( meridian, hasItems( "london" ) );
+        assertThat( equator.size(), is( 1 ) );
+        assertThat( equator, hasItems( "quito" ) );
+    }
+
+    @Test
+    public void testFindIntersecting_antimeridian() {
+        FeatureEnvelopeIndex.Builder builder = FeatureEnvelopeIndex.builder();
+        builder.add( "east", point( 178.0, 66.0 ) );
+        builder.add( "west", point( -178.0, 67.0 ) );
+        builder.add( "greenwich", point( 0.0, 67.0 ) );
+        FeatureEnvelopeIndex index = builder.build();
+
+        Set<String> ids = index.findIntersecting( new BBox( 177.0, 65.0, -177.0, 70.0 ) );
+
+        assertThat( ids.size(), is( 2 ) );
+        assertThat( ids, hasItems( "east", "west" ) );
+    }
+
+    @Test
+    public void testCountIntersectingAndContained() {
+        FeatureEnvelopeIndex.Builder builder = FeatureEnvelopeIndex.builder();
+        builder.add( "inside", new double[] { 1, 1, 2, 2 } );
+        builder.add( "overlapping", new double[] { 4, 4, 6, 6 } );
+        builder.add( "outside", new double[] { 7, 7, 8, 8 } );
+        builder.add( "noGeometry", null );
+        FeatureEnvelopeIndex index = builder.build();
+
+        BBox bbox = new BBox( 0, 0, 5, 5 );
+
+        assertThat( index.size(), is( 3 ) );
+        assertThat( index.countIntersecting( bbox ), is( 2 ) );
+        assertThat( index.countContained( bbox ), is( 1 ) );
+    }
+
+    @Test
+    public void testFindIntersecting_sameAsBruteForce() {
+        Random random = new Random( 42 );
+        FeatureEnvelopeIndex.Builder builder = FeatureEnvelopeIndex.builder();
+        double[][] envelopes = new double[5000][];
+        for ( int i = 0; i < envelopes.length; i++ ) {
+            double x = random.nextDouble() * 360 - 180;
+            double y = random.nextDouble() * 180 - 90;
+            envelopes[i] = new double[] { x, y, Math.min( 180, x + random.nextDouble() * 2 ),
+                                         Math.min( 90, y + random.nextDouble() * 2 ) };
+            builder.add( "feature" + i, envelopes[i] );
+        }
+        FeatureEnvelopeIndex index = builder.build();
+
+        for ( int probe = 0; probe < 200; probe++ ) {
+            double minX = random.nextDouble() * 360 - 180;
+            double minY = random.nextDouble() * 180 - 90;
+            double maxX = random.nextDouble() * 360 - 180;
+            BBox bbox = new BBox( minX, minY, maxX, Math.min( 90, minY + random.nextDouble() * 20 ) );
+            Set<String> expected = new HashSet<>();
+            for ( int i = 0; i < envelopes.length; i++ )
+                if ( bbox.intersects( envelopes[i] ) )
+                    expected.add( "feature" + i );
+
+            assertThat( index.findIntersecting( bbox ), is( expected ) );
+        }
+    }
+
+    private static double[] point( double x, double y ) {
+        return new double[] { x, y, x, y };
+    }
+
+}
@@ -0,0 +1,146 @@
+package org.opengis.cite.wfs30.util;
+
+import static net.jadler.Jadler.closeJadler;
+import static net.jadler.Jadler.initJadlerListeningOn;
+import static net.jadler.Jadler.onRequest;
+import static org.hamcrest.CoreMatchers.allOf;
+import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.InputStream;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.cite.wfs30.util.FeaturePageWalker.PageContent;
+
+/**
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class FeaturePageWalkerTest {
+
+    @Before
+    public void setUp() {
+        initJadlerListeningOn( 8090 );
+    }
+
+    @After
+    public void tearDown() {
+        closeJadler();
+    }
+
+    @Test
+    public void testScanPage()
+                            throws Exception {
+        InputStream json = getClass().getResourceAsStream( "items_1-10.json" );
+        PageContent pageContent = FeaturePageWalker.scanPage( json );
+
+        assertThat( pageContent.numberOfFeatures, is( 10 ) );
+        assertThat( pageContent.nextUrl, is( "http://localhost:8090/collections/lakes/items/?startindex=10" ) );
+    }
+
+    @Test
+    public void testScanPage_emptyPage()
+                            throws Exception {
+        InputStream json = getClass().getResourceAsStream( "items_31-40.json" );
+        PageContent pageContent = FeaturePageWalker.scanPage( json );
+
+        assertThat( pageContent.numberOfFeatures, is( 0 ) );
+    }
+
+    @Test
+    public void testWalk()
+                            throws Exception {
+        prepareJadler();
+        FeaturePageWalker pageWalker = new FeaturePageWalker( -1 );
+        int numberOfFeatures = pageWalker.walk( "http://localhost:8090/collections/lakes/items/?startindex=10" );
+
+        assertThat( numberOfFeatures, is( 15 ) );
+
+        List<PageStatistics> pageStatistics = pageWalker.getPageStatistics();
+        assertThat( pageStatistics.size(), is( 3 ) );
+        assertThat( pageStatistics.get( 0 ).getNumberOfFeatures(), is( 10 ) );
+        assertThat( pageStatistics.get( 1 ).getNumberOfFeatures(), is( 5 ) );
+        assertThat( pageStatistics.get( 2 ).getNumberOfFeatures(), is( 0 ) );
+        assertThat( pageWalker.getNumberOfBytes() > 0, is( true ) );
+    }
+
+    @Test
+    public void testWalk_pipelined()
+                            throws Exception {
+        prepareJadler();
+        FeaturePageWalker pageWalker = new FeaturePageWalker( -1, true );
+        int numberOfFeatures = pageWalker.walk( "http://localhost:8090/collections/lakes/items/?startindex=10" );
+
+        assertThat( numberOfFeatures, is( 15 ) );
+
+        List<PageStatistics> pageStatistics = pageWalker.getPageStatistics();
+        assertThat( pageStatistics.size(), is( 3 ) );
+        assertThat( pageStatistics.get( 0 ).getNumberOfFeatures(), is( 10 ) );
+        assertThat( pageStatistics.get( 1 ).getNumberOfFeatures(), is( 5 ) );
+        assertThat( pageStatistics.get( 2 ).getNumberOfFeatures(), is( 0 ) );
+    }
+
+    @Test
+    public void testWalk_requestExecutor()
+                            throws Exception {
+        prepareJadler();
+        RequestExecutor requestExecutor = new RequestExecutor( 1 );
+        try {
+            FeaturePageWalker pageWalker = new FeaturePageWalker( -1, false, requestExecutor, null );
+            int numberOfFeatures = pageWalker.walk( "http://localhost:8090/collections/lakes/items/?startindex=10" );
+
+            assertThat( numberOfFeatures, is( 15 ) );
+            assertThat( pageWalker.getPageStatistics().size(), is( 3 ) );
+        } finally {
+            requestExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void testWalk_requestExecutorPipelined()
+                            throws Exception {
+        prepareJadler();
+        RequestExecutor requestExecutor = new RequestExecutor( 2 );
+        try {
+            FeaturePageWalker pageWalker = new FeaturePageWalker( -1, true, requestExecutor, null );
+            int numberOfFeatures = pageWalker.walk( "http://localhost:8090/collections/lakes/items/?startindex=10" );
+
+            assertThat( numberOfFeatures, is( 15 ) );
+            assertThat( pageWalker.getPageStatistics().size(), is( 3 ) );
+        } finally {
+            requestExecutor.shutdown();
+        }
+    }
+
+    @Test(expected = AssertionError.class)
+    public void testWalk_pipelinedFailingPage()
+                            throws Exception {
+        InputStream item11_20 = getClass().getResourceAsStream( "items_11-20.json" );
+        onRequest().havingParameterEqualTo( "startindex", "10" ).respond().withBody( item11_20 );
+        onRequest().havingParameterEqualTo( "startindex", "20" ).respond().withStatus( 500 );
+
+        new FeaturePageWalker( -1, true ).walk( "http://localhost:8090/collections/lakes/items/?startindex=10" );
+    }
+
+    private void prepareJadler() {
+        InputStream item1_10 = getClass().getResourceAsStream( "items_1-10.json" );
+        onRequest().havingParameter( "startindex", nullValue() ).respond().withBody( item1_10 );
+
+        InputStream item11_20 = getClass().getResourceAsStream( "items_11-20.json" );
+        onRequest().havingParameterEqualTo( "startindex", "10" ).respond().withBody( item11_20 );
+
+        InputStream item21_30 = getClass().getResourceAsStream( "items_21-30.json" );
+        onRequest().havingParameterEqualTo( "startindex", "20" ).respond().withBody( item21_30 );
+
+        InputStream item31_40 = getClass().getResourceAsStream( "items_31-40.json" );
+        onRequest().havingParameter( "startindex",
+                                     allOf( notNullValue(), not( hasItems( "10" ) ), not( hasItems( "20" ) ) ) ).respond().withBody( item31_40 );
+    }
+
+}
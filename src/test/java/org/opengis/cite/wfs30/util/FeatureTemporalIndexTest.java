@@ -0,0 +1,91 @@
+package org.opengis.cite.wfs30.util;
+
+import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class FeatureTemporalIndexTest {
+
+    @Test
+    public void testInstant() {
+        FeatureTemporalIndex.Builder builder = FeatureTemporalIndex.builder();
+        builder.add( "a", 10, 20 );
+        builder.add( "b", 20, 20 );
+        builder.add( "c", 21, 30 );
+        FeatureTemporalIndex index = builder.build();
+
+        assertThat( index.size(), is( 3 ) );
+        assertThat( index.countIntersecting( 20, 20 ), is( 2 ) );
+        assertThat( index.countContained( 20, 20 ), is( 1 ) );
+        assertThat( index.findIntersecting( 20, 20 ).size(), is( 2 ) );
+        assertThat( index.findIntersecting( 20, 20 ), hasItems( "a", "b" ) );
+    }
+
+    @Test
+    public void testInterval() {
+        FeatureTemporalIndex.Builder builder = FeatureTemporalIndex.builder();
+        builder.add( "before", 0, 9 );
+        builder.add( "overlapsBegin", 5, 15 );
+        builder.add( "within", 12, 18 );
+        builder.add( "overlapsEnd", 19, 25 );
+        builder.add( "spans", 0, 100 );
+        builder.add( "after", 21, 30 );
+        builder.add( null, 11, 11 );
+        FeatureTemporalIndex index = builder.build();
+
+        assertThat( index.countIntersecting( 10, 20 ), is( 5 ) );
+        assertThat( index.countContained( 10, 20 ), is( 2 ) );
+        assertThat( index.findIntersecting( 10, 20 ).size(), is( 4 ) );
+        assertThat( index.findIntersecting( 10, 20 ), hasItems( "overlapsBegin", "within", "overlapsEnd", "spans" ) );
+    }
+
+    @Test
+    public void testEmpty() {
+        FeatureTemporalIndex index = FeatureTemporalIndex.builder().build();
+
+        assertThat( index.size(), is( 0 ) );
+        assertThat( index.countIntersecting( 0, 10 ), is( 0 ) );
+        assertThat( index.countContained( 0, 10 ), is( 0 ) );
+        assertThat( index.findIntersecting( 0, 10 ).isEmpty(), is( true ) );
+    }
+
+    @Test
+    public void testSameAsBruteForce() {
+        Random random = new Random( 42 );
+        FeatureTemporalIndex.Builder builder = FeatureTemporalIndex.builder();
+        long[][] extents = new long[1000][];
+        for ( int i = 0; i < extents.length; i++ ) {
+            long begin = random.nextInt( 10000 );
+            long end = begin + random.nextInt( 500 );
+            extents[i] = new long[] { begin, end };
+            builder.add( "f" + i, begin, end );
+        }
+        FeatureTemporalIndex index = builder.build();
+
+        for ( int query = 0; query < 100; query++ ) {
+            long begin = random.nextInt( 10000 );
+            long end = begin + random.nextInt( 2000 );
+            Set<String> intersecting = new HashSet<>();
+            int contained = 0;
+            for ( int i = 0; i < extents.length; i++ ) {
+                if ( extents[i][0] <= end && begin <= extents[i][1] )
+                    intersecting.add( "f" + i );
+                if ( begin <= extents[i][0] && extents[i][1] <= end )
+                    contained++;
+            }
+            assertThat( index.findIntersecting( begin, end ), is( intersecting ) );
+            assertThat( index.countIntersecting( begin, end ), is( intersecting.size() ) );
+            assertThat( index.countContained( begin, end ), is( contained ) );
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package org.opengis.cite.wfs30.util;
+
+import static io.restassured.RestAssured.given;
+import static net.jadler.Jadler.closeJadler;
+import static net.jadler.Jadler.initJadlerListeningOn;
+import static net.jadler.Jadler.onRequest;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class FileDownloadTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private PooledHttpClient pooledHttpClient;
+
+    @Before
+    public void setUp() {
+        initJadlerListeningOn( 8090 );
+        pooledHttpClient = new PooledHttpClient( 2 );
+    }
+
+    @After
+    public void tearDown() {
+        pooledHttpClient.shutdown();
+        closeJadler();
+    }
+
+    @Test
+    public void testDownload()
+                            throws Exception {
+        String body = "{\"openapi\":\"3.0.0\"}";
+        onRequest().havingHeaderEqualTo( "Accept", "application/json" ).respond().withDelay( 20, TimeUnit.MILLISECONDS ).withHeader( "ETag", "\"v1\"" ).withContentType( "application/json" ).withBody( body );
+        File file = tempFolder.newFile( "openapi.json" );
+
+        FileDownload download = FileDownload.download( given().config( pooledHttpClient.getRestAssuredConfig() ).header( "Accept",
+                                                                                                                          "application/json" ),
+                                                       "http://localhost:8090/api", file );
+
+        assertThat( download.getStatusCode(), is( 200 ) );
+        assertThat( download.getEtag(), is( "\"v1\"" ) );
+        assertThat( download.getContentType(), is( "application/json" ) );
+        assertThat( download.getSize(), is( 19l ) );
+        assertThat( new String( Files.readAllBytes( file.toPath() ), StandardCharsets.UTF_8 ), is( body ) );
+        assertThat( download.getTiming().getSize(), is( 19l ) );
+        assertThat( download.getTiming().getStatusCode(), is( 200 ) );
+        assertTrue( download.getTiming().getTimeToFirstByteMillis() >= 20 );
+    }
+
+    @Test
+    public void testAsUnchanged()
+                            throws Exception {
+        onRequest().respond().withStatus( 304 );
+        File file = tempFolder.newFile( "openapi.json" );
+
+        FileDownload download = FileDownload.download( given().config( pooledHttpClient.getRestAssuredConfig() ),
+                                                       "http://localhost:8090/api", file );
+        assertThat( download.getStatusCode(), is( 304 ) );
+
+        FileDownload unchanged = download.asUnchanged( "application/json" );
+        assertThat( unchanged.getStatusCode(), is( 200 ) );
+        assertThat( unchanged.getContentType(), is( "application/json" ) );
+    }
+
+}
@@ -0,0 +1,134 @@
+package org.opengis.cite.wfs30.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import io.restassured.path.json.JsonPath;
+
+/**
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class GeoJsonEnvelopeReaderTest {
+
+    @Test
+    public void testRead() {
+        FeatureEnvelopes featureEnvelopes = read( "{\"type\":\"FeatureCollection\",\"numberMatched\":42,\"features\":["
+                                                  + "{\"type\":\"Feature\",\"id\":\"multi\",\"geometry\":{\"type\":\"MultiPolygon\","
+                                                  + "\"coordinates\":[[[[1,2],[3.5,2],[3.5,4],[1,2]]],[[[-1,-2],[0,-2],[0,0],[-1,-2]]]]},"
+                                                  + "\"properties\":{\"geometry\":{\"coordinates\":[100,100]}}},"
+                                                  + "{\"type\":\"Feature\",\"id\":7,\"geometry\":{\"type\":\"GeometryCollection\",\"geometries\":["
+                                                  + "{\"type\":\"Point\",\"coordinates\":[10,20,300]},"
+                                                  + "{\"type\":\"LineString\",\"coordinates\":[[11,21,5],[12,19,6]]}]}},"
+                                                  + "{\"type\":\"Feature\",\"geometry\":null}],"
+                                                  + "\"links\":[{\"rel\":\"next\",\"href\":\"http://localhost/next\"}]}" );
+
+        assertThat( featureEnvelopes.size(), is( 3 ) );
+        assertThat( featureEnvelopes.getNumberMatched(), is( 42L ) );
+        assertThat( featureEnvelopes.getNextUrl(), is( "http://localhost/next" ) );
+
+        assertThat( featureEnvelopes.getId( 0 ), is( "multi" ) );
+        assertEnvelope( featureEnvelopes.getEnvelope( 0 ), -1, -2, 3.5, 4 );
+
+        assertThat( featureEnvelopes.getId( 1 ), is( "7" ) );
+        assertEnvelope( featureEnvelopes.getEnvelope( 1 ), 10, 19, 12, 21 );
+
+        assertThat( featureEnvelopes.getId( 2 ), nullValue() );
+        assertThat( featureEnvelopes.hasEnvelope( 2 ), is( false ) );
+        assertThat( featureEnvelopes.getEnvelope( 2 ), nullValue() );
+    }
+
+    @Test
+    public void testRead_temporalProperties() {
+        FeatureEnvelopes featureEnvelopes = read( "{\"type\":\"FeatureCollection\",\"features\":["
+                                                  + "{\"type\":\"Feature\",\"properties\":{\"name\":\"2018-01-01 is no date\","
+                                                  + "\"begin\":\"2018-02-12T23:20:50Z\",\"end\":\"2018-02-14\",\"nested\":{\"date\":\"2000-01-01\"}}},"
+                                                  + "{\"type\":\"Feature\",\"properties\":{\"period\":\"2018-02-12T00:00:00Z/2018-03-18T12:31:12Z\"}},"
+                                                  + "{\"type\":\"Feature\",\"properties\":{\"date\":\"2018-13-45\",\"count\":2}}]}" );
+
+        assertThat( featureEnvelopes.size(), is( 3 ) );
+
+        assertThat( featureEnvelopes.hasTemporalExtent( 0 ), is( true ) );
+        assertThat( featureEnvelopes.getTemporalBegin( 0 ), is( millis( "2018-02-12T23:20:50Z" ) ) );
+        assertThat( featureEnvelopes.getTemporalEnd( 0 ), is( millis( "2018-02-15T00:00:00Z" ) - 1 ) );
+
+        assertThat( featureEnvelopes.hasTemporalExtent( 1 ), is( true ) );
+        assertThat( featureEnvelopes.getTemporalBegin( 1 ), is( millis( "2018-02-12T00:00:00Z" ) ) );
+        assertThat( featureEnvelopes.getTemporalEnd( 1 ), is( millis( "2018-03-18T12:31:12Z" ) ) );
+
+        assertThat( featureEnvelopes.hasTemporalExtent( 2 ), is( false ) );
+    }
+
+    @Test
+    public void testRead_noNextLinkAndNumberMatched() {
+        FeatureEnvelopes featureEnvelopes = read( "{\"type\":\"FeatureCollection\",\"features\":[]}" );
+
+        assertThat( featureEnvelopes.size(), is( 0 ) );
+        assertThat( featureEnvelopes.getNumberMatched(), is( -1L ) );
+        assertThat( featureEnvelopes.getNextUrl(), nullValue() );
+    }
+
+    @Test
+    public void testRead_sameAsJsonPath()
+                            throws IOException {
+        FeatureEnvelopes featureEnvelopes;
+        try (InputStream json = getClass().getResourceAsStream( "items_1-10.json" )) {
+            featureEnvelopes = GeoJsonEnvelopeReader.read( json );
+        }
+        JsonPath jsonPath = new JsonPath( getClass().getResource( "items_1-10.json" ) );
+        List<List<List<List<Number>>>> polygons = jsonPath.getList( "features.geometry.coordinates" );
+
+        assertThat( featureEnvelopes.size(), is( 10 ) );
+        assertThat( featureEnvelopes.getNextUrl(), is( findLinkByRel( jsonPath, "next" ) ) );
+        for ( int i = 0; i < polygons.size(); i++ ) {
+            double[] expected = Envelopes.empty();
+            for ( List<List<Number>> ring : polygons.get( i ) )
+                for ( List<Number> position : ring )
+                    Envelopes.expand( expected, position.get( 0 ).doubleValue(), position.get( 1 ).doubleValue() );
+            double[] envelope = featureEnvelopes.getEnvelope( i );
+            // JsonPath parses the coordinates as float
+            for ( int j = 0; j < 4; j++ )
+                assertThat( (float) envelope[j], is( (float) expected[j] ) );
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRead_noObject()
+                            throws IOException {
+        GeoJsonEnvelopeReader.read( new ByteArrayInputStream( "[]".getBytes( StandardCharsets.UTF_8 ) ) );
+    }
+
+    private String findLinkByRel( JsonPath jsonPath, String rel ) {
+        List<Map<String, Object>> links = jsonPath.getList( "links" );
+        return (String) JsonUtils.findLinkByRel( links, rel ).get( "href" );
+    }
+
+    private FeatureEnvelopes read( String json ) {
+        try {
+            return GeoJsonEnvelopeReader.read( new ByteArrayInputStream( json.getBytes( StandardCharsets.UTF_8 ) ) );
+        } catch ( IOException e ) {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private long millis( String dateTime ) {
+        return JsonUtils.parseAsDate( dateTime ).toInstant().toEpochMilli();
+    }
+
+    private void assertEnvelope( double[] envelope, double minX, double minY, double maxX, double maxY ) {
+        assertThat( envelope[0], is( minX ) );
+        assertThat( envelope[1], is( minY ) );
+        assertThat( envelope[2], is( maxX ) );
+        assertThat( envelope[3], is( maxY ) );
+    }
+
+}
@@ -0,0 +1,86 @@
+package org.opengis.cite.wfs30.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+
+import io.restassured.path.json.JsonPath;
+import io.restassured.response.Response;
+
+/**
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class JsonPathCacheTest {
+
+    @Test
+    public void testJsonPath_parsedOnce() {
+        JsonPathCache cache = new JsonPathCache( 1024 );
+        Response response = mockResponse( "{\"numberReturned\":10}" );
+
+        JsonPath jsonPath = cache.jsonPath( "http://localhost:8090/collections/lakes/items", response );
+        JsonPath cachedJsonPath = cache.jsonPath( "http://localhost:8090/collections/lakes/items", response );
+
+        assertThat( cachedJsonPath, sameInstance( jsonPath ) );
+        assertThat( cachedJsonPath.getInt( "numberReturned" ), is( 10 ) );
+        verify( response, times( 1 ) ).jsonPath();
+        assertThat( cache.getHits(), is( 1l ) );
+        assertThat( cache.getMisses(), is( 1l ) );
+    }
+
+    @Test
+    public void testJsonPath_leastRecentlyUsedEvicted() {
+        JsonPathCache cache = new JsonPathCache( 60 );
+        Response responseA = mockResponse( "{\"name\":\"aaaaaaaaaaaaaaa\"}" );
+        cache.jsonPath( "a", responseA );
+        cache.jsonPath( "b", mockResponse( "{\"name\":\"bbbbbbbbbbbbbbb\"}" ) );
+        cache.jsonPath( "a", responseA );
+        cache.jsonPath( "c", mockResponse( "{\"name\":\"ccccccccccccccc\"}" ) );
+
+        assertThat( cache.size(), is( 2 ) );
+        assertThat( cache.getEvictions(), is( 1l ) );
+        assertThat( cache.getCurrentBytes() <= 60, is( true ) );
+
+        cache.jsonPath( "a", responseA );
+        assertThat( cache.getHits(), is( 2l ) );
+    }
+
+    @Test
+    public void testJsonPath_otherResponseParsed() {
+        JsonPathCache cache = new JsonPathCache( 1024 );
+        String uri = "http://localhost:8090/collections/lakes/items";
+        Response response = mockResponse( "{\"numberReturned\":10}" );
+        Response newResponse = mockResponse( "{\"numberReturned\":5}" );
+
+        cache.jsonPath( uri, response );
+        JsonPath jsonPath = cache.jsonPath( uri, newResponse );
+
+        assertThat( jsonPath.getInt( "numberReturned" ), is( 5 ) );
+        assertThat( cache.getHits(), is( 0l ) );
+        assertThat( cache.getMisses(), is( 2l ) );
+        assertThat( cache.size(), is( 1 ) );
+        assertThat( cache.jsonPath( uri, newResponse ), sameInstance( jsonPath ) );
+    }
+
+    @Test
+    public void testJsonPath_tooLargeNotCached() {
+        JsonPathCache cache = new JsonPathCache( 10 );
+        cache.jsonPath( "a", mockResponse( "{\"name\":\"aaaaaaaaaaaaaaa\"}" ) );
+
+        assertThat( cache.size(), is( 0 ) );
+        assertThat( cache.getCurrentBytes(), is( 0l ) );
+    }
+
+    private Response mockResponse( String body ) {
+        Response response = mock( Response.class );
+        when( response.asByteArray() ).thenReturn( body.getBytes() );
+        when( response.jsonPath() ).thenReturn( new JsonPath( body ) );
+        return response;
+    }
+
+}
@@ -0,0 +1,124 @@
+package org.opengis.cite.wfs30.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testGetValueAtPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram( 3600000000L );
+        for ( int value = 1; value <= 10000; value++ )
+            histogram.recordValue( value * 100L );
+
+        assertThat( histogram.getTotalCount(), is( 10000L ) );
+        assertThat( histogram.getMin(), is( 100L ) );
+        assertThat( histogram.getMax(), is( 1000000L ) );
+        assertWithinPrecision( histogram.getValueAtPercentile( 50 ), 500000 );
+        assertWithinPrecision( histogram.getValueAtPercentile( 95 ), 950000 );
+        assertWithinPrecision( histogram.getValueAtPercentile( 99 ), 990000 );
+        assertThat( histogram.getValueAtPercentile( 100 ), is( 1000000L ) );
+        assertEquals( 500050, histogram.getMean(), 0.001 );
+    }
+
+    @Test
+    public void testGetValueAtPercentile_smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram( 1000 );
+        for ( int value = 0; value < 200; value++ )
+            histogram.recordValue( value );
+
+        assertThat( histogram.getValueAtPercentile( 50 ), is( 99L ) );
+        assertThat( histogram.getValueAtPercentile( 0 ), is( 0L ) );
+    }
+
+    @Test
+    public void testRecordValue_exceedsHighestTrackableValue() {
+        LatencyHistogram histogram = new LatencyHistogram( 1000 );
+        histogram.recordValue( 5000 );
+        histogram.recordValue( -1 );
+
+        assertThat( histogram.getMax(), is( 1000L ) );
+        assertThat( histogram.getMin(), is( 0L ) );
+        assertThat( histogram.getValueAtPercentile( 100 ), is( 1000L ) );
+    }
+
+    @Test
+    public void testRecordValueWithExpectedInterval() {
+        LatencyHistogram histogram = new LatencyHistogram( 3600000000L );
+        for ( int i = 0; i < 96; i++ )
+            histogram.recordValue( 1000 );
+        // a stall of 50 ms blocked the requests expected each 10 ms
+        histogram.recordValueWithExpectedInterval( 50000, 10000 );
+
+        assertThat( histogram.getTotalCount(), is( 101L ) );
+        assertWithinPrecision( histogram.getValueAtPercentile( 99 ), 40000 );
+        assertThat( histogram.getMax(), is( 50000L ) );
+    }
+
+    @Test
+    public void testRecordValueWithExpectedInterval_belowInterval() {
+        LatencyHistogram histogram = new LatencyHistogram( 3600000000L );
+        histogram.recordValueWithExpectedInterval( 5000, 10000 );
+        histogram.recordValueWithExpectedInterval( 5000, 0 );
+
+        assertThat( histogram.getTotalCount(), is( 2L ) );
+    }
+
+    @Test
+    public void testAdd() {
+        LatencyHistogram first = new LatencyHistogram( 1000000 );
+        LatencyHistogram second = new LatencyHistogram( 1000000 );
+        first.recordValue( 100 );
+        second.recordValue( 300 );
+        second.recordValue( 500 );
+
+        first.add( second );
+
+        assertThat( first.getTotalCount(), is( 3L ) );
+        assertThat( first.getMin(), is( 100L ) );
+        assertThat( first.getMax(), is( 500L ) );
+        assertWithinPrecision( first.getValueAtPercentile( 50 ), 300 );
+    }
+
+    @Test
+    public void testGetValueAtPercentile_empty() {
+        LatencyHistogram histogram = new LatencyHistogram( 1000 );
+
+        assertThat( histogram.getValueAtPercentile( 99 ), is( 0L ) );
+        assertThat( histogram.getMin(), is( 0L ) );
+    }
+
+    @Test
+    public void testOutputPercentileDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram( 3600000000L );
+        for ( int value = 1; value <= 1000; value++ )
+            histogram.recordValue( value * 1000L );
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        histogram.outputPercentileDistribution( new PrintStream( bytes, true ), 1000d );
+        String[] lines = new String( bytes.toByteArray(), StandardCharsets.UTF_8 ).split( "\\r?\\n" );
+
+        assertThat( lines[0].trim(), startsWith( "Value" ) );
+        assertThat( lines[2].trim(), is( "1.003 0.001000000000          1           1.00" ) );
+        String lastValueLine = lines[lines.length - 4].trim();
+        assertThat( lastValueLine, is( "1000.000 1.000000000000       1000" ) );
+        assertThat( lines[lines.length - 2].trim(),
+                    is( "#[Max     =     1000.000, Total count    =         1000]" ) );
+    }
+
+    private void assertWithinPrecision( long value, long expected ) {
+        assertEquals( expected, value, expected * 0.01 );
+    }
+
+}
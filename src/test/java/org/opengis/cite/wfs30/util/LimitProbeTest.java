@@ -0,0 +1,65 @@
+package org.opengis.cite.wfs30.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class LimitProbeTest {
+
+    @Test
+    public void testGeometricLimits() {
+        assertThat( LimitProbe.geometricLimits( 1, 10000 ),
+                    is( Arrays.asList( 1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024, 2048, 4096, 8192, 10000 ) ) );
+        assertThat( LimitProbe.geometricLimits( 10, 80 ), is( Arrays.asList( 10, 20, 40, 80 ) ) );
+        assertThat( LimitProbe.geometricLimits( 5, 5 ), is( Arrays.asList( 5 ) ) );
+        assertThat( LimitProbe.geometricLimits( 0, 3 ), is( Arrays.asList( 1, 2, 3 ) ) );
+    }
+
+    @Test
+    public void testGetKnee() {
+        LimitProbe limitProbe = new LimitProbe( "flurstueck" );
+        // constant overhead of 100 ms, 1 ms per feature: the throughput saturates at 1000 features/s
+        for ( int limit : LimitProbe.geometricLimits( 1, 4096 ) )
+            limitProbe.addStep( limit, TimeUnit.MILLISECONDS.toNanos( 100 + limit ), limit * 100, limit );
+
+        assertThat( limitProbe.getKnee().getLimit(), is( 512 ) );
+    }
+
+    @Test
+    public void testGetKnee_linear() {
+        LimitProbe limitProbe = new LimitProbe( "flurstueck" );
+        limitProbe.addStep( 1, TimeUnit.MILLISECONDS.toNanos( 100 ), 100, 1 );
+        limitProbe.addStep( 2, TimeUnit.MILLISECONDS.toNanos( 100 ), 200, 1 );
+        limitProbe.addStep( 4, TimeUnit.MILLISECONDS.toNanos( 100 ), 400, 1 );
+
+        assertThat( limitProbe.getKnee().getLimit(), is( 4 ) );
+    }
+
+    @Test
+    public void testGetKnee_noSteps() {
+        assertThat( new LimitProbe( "flurstueck" ).getKnee(), is( nullValue() ) );
+    }
+
+    @Test
+    public void testAsCsv() {
+        LimitProbe limitProbe = new LimitProbe( "flurstueck" );
+        limitProbe.addStep( 10, TimeUnit.MILLISECONDS.toNanos( 200 ), 1500, 10 );
+        limitProbe.addStep( 20, TimeUnit.MILLISECONDS.toNanos( 250 ), 3000, 20 );
+
+        String csv = limitProbe.asCsv();
+
+        assertThat( csv, startsWith( "collection,limit,latencyMs,bytes,features,featuresPerSecond,knee\n" ) );
+        assertThat( csv.split( "\n" )[1], is( "flurstueck,10,200.000,1500,10,50.0,false" ) );
+        assertThat( csv.split( "\n" )[2], is( "flurstueck,20,250.000,3000,20,80.0,true" ) );
+    }
+
+}
@@ -0,0 +1,167 @@
+package org.opengis.cite.wfs30.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class LoadGeneratorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRun_targetRate()
+                            throws Exception {
+        LoadGenerator loadGenerator = new LoadGenerator( 2, 100, 500, TimeUnit.MILLISECONDS );
+
+        LoadReport report = loadGenerator.run( Collections.singletonList( request( "items", 1 ) ), request -> 200 );
+
+        // 100 requests/s for 0.5 s
+        assertTrue( "Unexpected number of requests " + report.getNoOfRequests(),
+                    report.getNoOfRequests() >= 40 && report.getNoOfRequests() <= 52 );
+        assertThat( report.getNoOfErrors(), is( 0L ) );
+        assertTrue( report.getThroughput() <= 105 );
+    }
+
+    @Test
+    public void testRun_closedLoop()
+                            throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        LoadGenerator loadGenerator = new LoadGenerator( 3, 0, 300, TimeUnit.MILLISECONDS );
+
+        LoadReport report = loadGenerator.run( Collections.singletonList( request( "items", 1 ) ), request -> {
+            maxInFlight.accumulateAndGet( inFlight.incrementAndGet(), Math::max );
+            Thread.sleep( 10 );
+            inFlight.decrementAndGet();
+            return 200;
+        } );
+
+        assertThat( maxInFlight.get() <= 3, is( true ) );
+        // 3 users, 10 ms per request, 0.3 s
+        assertTrue( "Unexpected number of requests " + report.getNoOfRequests(), report.getNoOfRequests() <= 93 );
+    }
+
+    @Test
+    public void testRun_openLoop()
+                            throws Exception {
+        AtomicInteger noOfRequests = new AtomicInteger();
+        LoadGenerator loadGenerator = LoadGenerator.openLoop( 100, 1, 500, TimeUnit.MILLISECONDS );
+
+        LoadReport report = loadGenerator.run( Collections.singletonList( request( "items", 1 ) ), request -> {
+            // the first request stalls the only sender for 200 ms
+            if ( noOfRequests.incrementAndGet() == 1 )
+                Thread.sleep( 200 );
+            return 200;
+        } );
+
+        assertThat( loadGenerator.isOpenLoop(), is( true ) );
+        // all scheduled requests are sent although the service stalled
+        assertThat( report.getNoOfRequests(), is( 50L ) );
+        // about 20 requests were scheduled during the stall and waited for it
+        assertTrue( report.getHistogram().getValueAtPercentile( 75 ) >= 50000 );
+        assertTrue( report.getServiceTimeHistogram().getValueAtPercentile( 75 ) < 50000 );
+        assertTrue( report.getStartDelayHistogram().getMax() >= 150000 );
+    }
+
+    @Test
+    public void testRun_closedLoopCorrectsStalls()
+                            throws Exception {
+        AtomicInteger noOfRequests = new AtomicInteger();
+        LoadGenerator loadGenerator = new LoadGenerator( 1, 100, 500, TimeUnit.MILLISECONDS );
+
+        LoadReport report = loadGenerator.run( Collections.singletonList( request( "items", 1 ) ), request -> {
+            if ( noOfRequests.incrementAndGet() == 1 )
+                Thread.sleep( 200 );
+            return 200;
+        } );
+
+        // the requests missed during the stall are added to the response times
+        assertTrue( report.getHistogram().getTotalCount() > report.getNoOfRequests() );
+        assertThat( report.getServiceTimeHistogram().getTotalCount(), is( report.getNoOfRequests() ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOpenLoop_withoutRate() {
+        LoadGenerator.openLoop( 0, 1, 1, TimeUnit.SECONDS );
+    }
+
+    @Test
+    public void testRun_mix()
+                            throws Exception {
+        List<LoadRequest> mix = Arrays.asList( request( "items", 3 ), request( "item", 1 ) );
+        LoadGenerator loadGenerator = new LoadGenerator( 1, 0, 200, TimeUnit.MILLISECONDS );
+
+        LoadReport report = loadGenerator.run( mix, request -> 200 );
+
+        long items = report.getHistogram( "items" ).getTotalCount();
+        long item = report.getHistogram( "item" ).getTotalCount();
+        assertThat( items + item, is( report.getNoOfRequests() ) );
+        double ratio = (double) items / report.getNoOfRequests();
+        assertTrue( "Unexpected ratio " + ratio, ratio > 0.7 && ratio < 0.8 );
+    }
+
+    @Test
+    public void testRun_errors()
+                            throws Exception {
+        List<LoadRequest> mix = Arrays.asList( request( "items", 1 ), request( "bbox", 1 ) );
+        LoadGenerator loadGenerator = new LoadGenerator( 1, 50, 200, TimeUnit.MILLISECONDS );
+
+        LoadReport report = loadGenerator.run( mix, request -> {
+            if ( "bbox".equals( request.getName() ) )
+                return 400;
+            return 200;
+        } );
+
+        assertThat( report.getNoOfErrors(), is( report.getHistogram( "bbox" ).getTotalCount() ) );
+        assertThat( report.getFirstError(), is( "Unexpected status code 400 of http://localhost/bbox" ) );
+    }
+
+    @Test
+    public void testWriteHistograms()
+                            throws Exception {
+        LoadReport report = new LoadReport( 1, 10 );
+        report.record( "items", TimeUnit.MILLISECONDS.toNanos( 12 ), null );
+        report.record( "item", TimeUnit.MILLISECONDS.toNanos( 3 ), "Unexpected status code 404" );
+        report.setDurationNanos( TimeUnit.SECONDS.toNanos( 1 ) );
+
+        File directory = new File( temporaryFolder.getRoot(), "load" );
+        report.writeHistograms( directory );
+
+        assertThat( new File( directory, "items.hgrm" ).exists(), is( true ) );
+        assertThat( new File( directory, "item.hgrm" ).exists(), is( true ) );
+        assertThat( new File( directory, "total.hgrm" ).exists(), is( true ) );
+        assertThat( new File( directory, "total-service.hgrm" ).exists(), is( true ) );
+        assertThat( report.getThroughput(), is( 2d ) );
+        assertThat( report.getHistogram( "bbox" ), is( nullValue() ) );
+        assertThat( report.toString(), is( notNullValue() ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRun_emptyMix()
+                            throws Exception {
+        new LoadGenerator( 1, 10, 1, TimeUnit.SECONDS ).run( Collections.emptyList(), request -> 200 );
+    }
+
+    private LoadRequest request( String name, int weight ) {
+        return new LoadRequest( name, "http://localhost/" + name, Collections.emptyMap(), "application/geo+json",
+                                weight );
+    }
+
+}
@@ -0,0 +1,135 @@
+package org.opengis.cite.wfs30.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opengis.cite.wfs30.util.PageStore.StoredPage;
+
+/**
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class PageStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testAppend()
+                            throws Exception {
+        try (PageStore pageStore = new PageStore( temporaryFolder.newFile() )) {
+            StoredPage first = pageStore.append( bytes( "{\"page\":1}" ) );
+            StoredPage second = pageStore.append( bytes( "{\"page\":22}" ) );
+
+            assertThat( first.getOffset(), is( 0L ) );
+            assertThat( first.getLength(), is( 10 ) );
+            assertThat( second.getOffset(), is( 10L ) );
+            assertThat( second.getLength(), is( 11 ) );
+            assertThat( pageStore.size(), is( 21L ) );
+            assertThat( pageStore.getNoOfPages(), is( 2 ) );
+
+            assertThat( read( first.asInputStream() ), is( "{\"page\":1}" ) );
+            assertThat( read( second.asInputStream() ), is( "{\"page\":22}" ) );
+            // each view has an own position
+            assertThat( read( second.asInputStream() ), is( "{\"page\":22}" ) );
+            assertThat( pageStore.getFile().length(), is( 21L ) );
+        }
+    }
+
+    @Test
+    public void testAppend_emptyPage()
+                            throws Exception {
+        try (PageStore pageStore = new PageStore( temporaryFolder.newFile() )) {
+            StoredPage empty = pageStore.append( new byte[0] );
+
+            assertThat( empty.getLength(), is( 0 ) );
+            assertThat( empty.asInputStream().read(), is( -1 ) );
+        }
+    }
+
+    @Test
+    public void testSlice()
+                            throws Exception {
+        try (PageStore pageStore = new PageStore( temporaryFolder.newFile() )) {
+            pageStore.append( bytes( "{\"page\":1}" ) );
+            pageStore.append( bytes( "{\"page\":22}" ) );
+
+            ByteBuffer slice = pageStore.slice( 8, 4 );
+
+            assertThat( StandardCharsets.UTF_8.decode( slice ).toString(), is( "1}{\"" ) );
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSlice_exceedsSize()
+                            throws Exception {
+        try (PageStore pageStore = new PageStore( temporaryFolder.newFile() )) {
+            pageStore.append( bytes( "{\"page\":1}" ) );
+
+            pageStore.slice( 8, 4 );
+        }
+    }
+
+    @Test
+    public void testAppend_concurrent()
+                            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try (PageStore pageStore = new PageStore( temporaryFolder.newFile() )) {
+            List<Future<StoredPage>> futures = new ArrayList<>();
+            for ( int i = 0; i < 100; i++ ) {
+                String page = "{\"page\":" + i + "}";
+                futures.add( executor.submit( () -> pageStore.append( bytes( page ) ) ) );
+            }
+            long size = 0;
+            for ( int i = 0; i < futures.size(); i++ ) {
+                StoredPage storedPage = futures.get( i ).get();
+                assertThat( read( storedPage.asInputStream() ), is( "{\"page\":" + i + "}" ) );
+                size += storedPage.getLength();
+            }
+            assertThat( pageStore.size(), is( size ) );
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testClose()
+                            throws Exception {
+        File file = temporaryFolder.newFile();
+        PageStore pageStore = new PageStore( file );
+        pageStore.append( bytes( "{}" ) );
+
+        pageStore.close();
+
+        assertThat( file.exists(), is( false ) );
+    }
+
+    private byte[] bytes( String content ) {
+        return content.getBytes( StandardCharsets.UTF_8 );
+    }
+
+    private String read( InputStream in )
+                            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4];
+        int read;
+        while ( ( read = in.read( buffer ) ) != -1 )
+            bytes.write( buffer, 0, read );
+        return new String( bytes.toByteArray(), StandardCharsets.UTF_8 );
+    }
+
+}
@@ -0,0 +1,86 @@
+package org.opengis.cite.wfs30.util;
+
+import static io.restassured.RestAssured.given;
+import static net.jadler.Jadler.closeJadler;
+import static net.jadler.Jadler.initJadlerListeningOn;
+import static net.jadler.Jadler.onRequest;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class PooledHttpClientTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        initJadlerListeningOn( 8090 );
+    }
+
+    @After
+    public void tearDown() {
+        closeJadler();
+    }
+
+    @Test
+    public void testConnectionReuse()
+                            throws Exception {
+        onRequest().respond().withBody( "{}" );
+        PooledHttpClient pooledHttpClient = new PooledHttpClient( 2 );
+        for ( int i = 0; i < 3; i++ ) {
+            String body = given().config( pooledHttpClient.getRestAssuredConfig() ).baseUri( "http://localhost:8090/collections" ).when().get().asString();
+            assertThat( body, is( "{}" ) );
+        }
+
+        assertThat( pooledHttpClient.getNoOfRequests(), is( 3l ) );
+        assertThat( pooledHttpClient.getNoOfReusedConnections(), is( 2l ) );
+        assertThat( pooledHttpClient.getMaxLeased(), is( 1 ) );
+
+        File metricsFile = new File( tempFolder.getRoot(), "connection-pool.txt" );
+        pooledHttpClient.writeMetrics( metricsFile );
+        pooledHttpClient.shutdown();
+
+        assertThat( new String( Files.readAllBytes( metricsFile.toPath() ) ).contains( "Requests: 3" ), is( true ) );
+    }
+
+    @Test
+    public void testMaxPending()
+                            throws Exception {
+        onRequest().respond().withDelay( 200, TimeUnit.MILLISECONDS ).withBody( "{}" );
+        PooledHttpClient pooledHttpClient = new PooledHttpClient( 1 );
+        ExecutorService executor = Executors.newFixedThreadPool( 3 );
+        try {
+            List<Future<String>> bodies = new ArrayList<>();
+            for ( int i = 0; i < 3; i++ )
+                bodies.add( executor.submit( () -> given().config( pooledHttpClient.getRestAssuredConfig() ).baseUri( "http://localhost:8090/collections" ).when().get().asString() ) );
+            for ( Future<String> body : bodies )
+                assertThat( body.get(), is( "{}" ) );
+        } finally {
+            executor.shutdown();
+            pooledHttpClient.shutdown();
+        }
+
+        assertThat( pooledHttpClient.getMaxLeased(), is( 1 ) );
+        assertTrue( pooledHttpClient.getMaxPending() >= 1 );
+    }
+
+}
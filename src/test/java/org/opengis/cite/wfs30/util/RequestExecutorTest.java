@@ -0,0 +1,50 @@
+package org.opengis.cite.wfs30.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class RequestExecutorTest {
+
+    @Test
+    public void testSubmit_maxInFlightPerHost()
+                            throws Exception {
+        RequestExecutor requestExecutor = new RequestExecutor( 2 );
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for ( int i = 0; i < 20; i++ ) {
+            int index = i;
+            results.add( requestExecutor.submit( "localhost:8090", () -> {
+                int current = inFlight.incrementAndGet();
+                maxInFlight.accumulateAndGet( current, Math::max );
+                Thread.sleep( 5 );
+                inFlight.decrementAndGet();
+                return index;
+            } ) );
+        }
+        for ( int i = 0; i < 20; i++ )
+            assertThat( results.get( i ).get(), is( i ) );
+        requestExecutor.shutdown();
+
+        assertThat( maxInFlight.get() <= 2, is( true ) );
+        assertThat( requestExecutor.getInFlight( "localhost:8090" ), is( 0 ) );
+    }
+
+    @Test
+    public void testParseHost() {
+        assertThat( RequestExecutor.parseHost( "http://localhost:8090/collections?limit=10" ), is( "localhost:8090" ) );
+        assertThat( RequestExecutor.parseHost( "https://www.ldproxy.nrw.de/rest/services/kataster/" ),
+                    is( "www.ldproxy.nrw.de" ) );
+    }
+
+}
@@ -0,0 +1,122 @@
+package org.opengis.cite.wfs30.util;
+
+import static io.restassured.RestAssured.given;
+import static net.jadler.Jadler.closeJadler;
+import static net.jadler.Jadler.initJadlerListeningOn;
+import static net.jadler.Jadler.onRequest;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.restassured.response.Response;
+
+/**
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class RequestTimingFilterTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private PooledHttpClient pooledHttpClient;
+
+    @Before
+    public void setUp() {
+        initJadlerListeningOn( 8090 );
+        pooledHttpClient = new PooledHttpClient( 2 );
+    }
+
+    @After
+    public void tearDown() {
+        pooledHttpClient.shutdown();
+        closeJadler();
+    }
+
+    @Test
+    public void testFilter()
+                            throws Exception {
+        onRequest().respond().withDelay( 50, TimeUnit.MILLISECONDS ).withBody( "{\"name\":\"flurstueck\"}" );
+        RequestMetrics requestMetrics = new RequestMetrics();
+        List<RequestTiming> timings = new ArrayList<>();
+        for ( int i = 0; i < 2; i++ )
+            given().config( pooledHttpClient.getRestAssuredConfig() ).filter( new RequestTimingFilter( requestMetrics,
+                                                                                                       ( timing, response ) -> timings.add( timing ) ) ).baseUri( "http://localhost:8090/collections?f=json" ).when().get().asString();
+
+        assertThat( timings.size(), is( 2 ) );
+        RequestTiming first = timings.get( 0 );
+        assertThat( first.getStatusCode(), is( 200 ) );
+        assertThat( first.getSize(), is( 21l ) );
+        assertThat( first.getEndpoint(), is( "GET http://localhost:8090/collections" ) );
+        assertTrue( first.getDnsMillis() > 0 );
+        assertTrue( first.getConnectMillis() > 0 );
+        assertTrue( first.getTimeToFirstByteMillis() >= 50 );
+        assertTrue( first.getTotalMillis() >= first.getTimeToFirstByteMillis() );
+        // the second request reuses the connection
+        assertThat( timings.get( 1 ).getConnectMillis(), is( 0d ) );
+
+        assertThat( requestMetrics.getTimings().size(), is( 2 ) );
+        assertThat( requestMetrics.getHistogram( "GET http://localhost:8090/collections" ), is( notNullValue() ) );
+        assertThat( requestMetrics.getSlowestEndpoints( 5 ).size(), is( 1 ) );
+
+        File csvFile = new File( tempFolder.getRoot(), "request-timings.csv" );
+        requestMetrics.writeCsv( csvFile );
+        List<String> lines = Files.readAllLines( csvFile.toPath() );
+        assertThat( lines.size(), is( 3 ) );
+        assertThat( lines.get( 0 ), is( RequestTiming.csvHeader() ) );
+    }
+
+    @Test
+    public void testFilterCompletesWhenBodyIsRead()
+                            throws Exception {
+        onRequest().respond().withBody( "{\"name\":\"flurstueck\"}" );
+        List<RequestTiming> timings = new ArrayList<>();
+        Response response = given().config( pooledHttpClient.getRestAssuredConfig() ).filter( new RequestTimingFilter( null,
+                                                                                                                      ( timing, r ) -> timings.add( timing ) ) ).baseUri( "http://localhost:8090/collections" ).when().get();
+        assertThat( timings.size(), is( 0 ) );
+
+        try (InputStream body = response.asInputStream()) {
+            while ( body.read() >= 0 ) {
+            }
+        }
+        assertThat( timings.size(), is( 1 ) );
+        assertThat( timings.get( 0 ).getSize(), is( 21l ) );
+        assertThat( timings.get( 0 ).getStatusCode(), is( 200 ) );
+    }
+
+    @Test
+    public void testFilterWithoutBody() {
+        onRequest().respond().withStatus( 204 );
+        List<RequestTiming> timings = new ArrayList<>();
+        given().config( pooledHttpClient.getRestAssuredConfig() ).filter( new RequestTimingFilter( null,
+                                                                                                   ( timing, r ) -> timings.add( timing ) ) ).baseUri( "http://localhost:8090/collections" ).when().get();
+
+        assertThat( timings.size(), is( 1 ) );
+        assertThat( timings.get( 0 ).getStatusCode(), is( 204 ) );
+        assertThat( timings.get( 0 ).getSize(), is( 0l ) );
+    }
+
+    @Test
+    public void testCurrentIsClearedAfterRequest() {
+        onRequest().respond().withBody( "{}" );
+        given().config( pooledHttpClient.getRestAssuredConfig() ).filter( new RequestTimingFilter( null,
+                                                                                                   ( timing, response ) -> {
+                                                                                                   } ) ).baseUri( "http://localhost:8090/collections" ).when().get();
+
+        assertThat( RequestTiming.current() == null, is( true ) );
+    }
+
+}
@@ -0,0 +1,93 @@
+package org.opengis.cite.wfs30.util;
+
+import static io.restassured.RestAssured.given;
+import static net.jadler.Jadler.closeJadler;
+import static net.jadler.Jadler.initJadlerListeningOn;
+import static net.jadler.Jadler.onRequest;
+import static net.jadler.Jadler.verifyThatRequest;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.restassured.response.Response;
+
+/**
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class RunCacheTest {
+
+    private static final String URI = "http://localhost:8090/collections";
+
+    private static final String BODY = "{\"collections\":[]}";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        initJadlerListeningOn( 8090 );
+        onRequest().havingPathEqualTo( "/collections" ).respond().withHeader( "ETag", "\"v1\"" ).withContentType( "application/json" ).withBody( BODY );
+        onRequest().havingHeaderEqualTo( "If-None-Match", "\"v1\"" ).respond().withStatus( 304 ).withHeader( "ETag", "\"v1\"" );
+    }
+
+    @After
+    public void tearDown() {
+        closeJadler();
+    }
+
+    @Test
+    public void testRevalidation()
+                            throws Exception {
+        File directory = tempFolder.newFolder( "runcache" );
+
+        RunCache firstRun = new RunCache( directory, "wfs30-1.0" );
+        Response firstResponse = request( firstRun );
+        assertThat( firstResponse.getStatusCode(), is( 200 ) );
+        assertThat( firstRun.isUnchanged( URI ), is( false ) );
+        assertThat( firstRun.reusePassedValidation( URI, "links" ), is( false ) );
+        firstRun.recordPassedValidation( URI, "links" );
+
+        RunCache secondRun = new RunCache( directory, "wfs30-1.0" );
+        Response secondResponse = request( secondRun );
+        assertThat( secondResponse.getStatusCode(), is( 200 ) );
+        assertThat( secondResponse.getStatusLine(), containsString( "304" ) );
+        assertThat( secondResponse.getStatusLine(), containsString( "run cache" ) );
+        assertThat( secondResponse.asString(), is( BODY ) );
+        assertThat( secondResponse.jsonPath().getList( "collections" ).size(), is( 0 ) );
+        assertThat( secondRun.isUnchanged( URI ), is( true ) );
+        assertThat( secondRun.reusePassedValidation( URI, "links" ), is( true ) );
+        assertThat( secondRun.reusePassedValidation( URI, "extent" ), is( false ) );
+        assertThat( secondRun.getNoOfUnchanged(), is( 1 ) );
+        assertThat( secondRun.getNoOfReusedValidations(), is( 1 ) );
+
+        verifyThatRequest().havingHeaderEqualTo( "If-None-Match", "\"v1\"" ).receivedOnce();
+    }
+
+    @Test
+    public void testRevalidation_otherVersion()
+                            throws Exception {
+        File directory = tempFolder.newFolder( "runcache" );
+        RunCache firstRun = new RunCache( directory, "wfs30-1.0" );
+        request( firstRun );
+        firstRun.recordPassedValidation( URI, "links" );
+
+        RunCache secondRun = new RunCache( directory, "wfs30-1.1" );
+        request( secondRun );
+
+        assertThat( secondRun.isUnchanged( URI ), is( true ) );
+        assertThat( secondRun.reusePassedValidation( URI, "links" ), is( false ) );
+    }
+
+    private Response request( RunCache runCache ) {
+        return given().filter( new ConditionalRequestFilter( runCache, URI ) ).baseUri( URI ).when().get();
+    }
+
+}
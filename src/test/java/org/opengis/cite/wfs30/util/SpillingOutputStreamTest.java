@@ -0,0 +1,50 @@
+package org.opengis.cite.wfs30.util;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.endsWith;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:goltz@lat-lon.de">Lyn Goltz </a>
+ */
+public class SpillingOutputStreamTest {
+
+    @Test
+    public void testToString_inMemory()
+                            throws Exception {
+        SpillingOutputStream outputStream = new SpillingOutputStream( 100, 10 );
+        outputStream.write( "GET /collections".getBytes( StandardCharsets.UTF_8 ) );
+
+        assertThat( outputStream.isSpilled(), is( false ) );
+        assertThat( outputStream.toString(), is( "GET /collections" ) );
+        outputStream.close();
+    }
+
+    @Test
+    public void testToString_spilled()
+                            throws Exception {
+        SpillingOutputStream outputStream = new SpillingOutputStream( 100, 10 );
+        outputStream.write( "HEAD456789".getBytes( StandardCharsets.UTF_8 ) );
+        for ( int i = 0; i < 20; i++ )
+            outputStream.write( "0123456789".getBytes( StandardCharsets.UTF_8 ) );
+        outputStream.write( "0123456789".getBytes( StandardCharsets.UTF_8 ) );
+        outputStream.write( "TAIL".getBytes( StandardCharsets.UTF_8 ) );
+
+        assertThat( outputStream.isSpilled(), is( true ) );
+        assertThat( outputStream.size(), is( 224l ) );
+        String content = outputStream.toString();
+        assertThat( content, startsWith( "HEAD456789" ) );
+        assertThat( content, containsString( "[... 204 bytes omitted ...]" ) );
+        assertThat( content, endsWith( "456789TAIL" ) );
+
+        outputStream.close();
+        assertThat( outputStream.toString(), is( "" ) );
+    }
+
+}